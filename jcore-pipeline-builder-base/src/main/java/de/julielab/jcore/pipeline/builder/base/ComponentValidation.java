@@ -0,0 +1,99 @@
+package de.julielab.jcore.pipeline.builder.base;
+
+import de.julielab.jcore.pipeline.builder.base.PipelineParameterChecker.MissingComponentConfiguration;
+import de.julielab.jcore.pipeline.builder.base.main.Description;
+import org.apache.uima.resource.ExternalResourceDescription;
+import org.apache.uima.resource.ResourceCreationSpecifier;
+import org.apache.uima.resource.metadata.ConfigurationParameter;
+import org.apache.uima.resource.metadata.MetaDataObject;
+import org.apache.uima.resource.metadata.ResourceManagerConfiguration;
+import org.apache.uima.resource.metadata.ResourceMetaData;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>The configuration checks of {@link PipelineParameterChecker} for a single component, computed once for a
+ * specific state of the component.</p>
+ * <p>Instances are obtained through {@link Description#getValidation()} which caches the validation with the
+ * description. The cached validation is only computed anew when the descriptor of the description has been replaced,
+ * the component has been (de-)activated or the description has been marked as modified by
+ * {@link Description#markModified()}. Thus, code that changes parameters or external resources directly on the
+ * descriptor must mark the description as modified.</p>
+ */
+public class ComponentValidation {
+    private final MetaDataObject descriptor;
+    private final boolean active;
+    private final int modificationCount;
+    private final Set<String> mandatoryParameters;
+    private final List<MissingComponentConfiguration> missingParameters;
+    private final List<MissingComponentConfiguration> missingResources;
+    private final List<String> externalResourceNames;
+
+    public ComponentValidation(Description description) {
+        this.descriptor = description.getDescriptor();
+        this.active = description.isActive();
+        this.modificationCount = description.getModificationCount();
+        // PEAR descriptors cannot be configured and thus there is nothing to check
+        if (descriptor instanceof ResourceCreationSpecifier && ((ResourceCreationSpecifier) descriptor).getMetaData() != null) {
+            ResourceCreationSpecifier spec = (ResourceCreationSpecifier) descriptor;
+            ResourceMetaData metaData = spec.getMetaData();
+            mandatoryParameters = Collections.unmodifiableSet(Stream.of(metaData.getConfigurationParameterDeclarations().getConfigurationParameters()).
+                    filter(ConfigurationParameter::isMandatory).map(ConfigurationParameter::getName).collect(Collectors.toSet()));
+            missingParameters = Collections.unmodifiableList(PipelineParameterChecker.findMissingParameters(metaData));
+            missingResources = Collections.unmodifiableList(PipelineParameterChecker.findMissingResources(spec));
+            ResourceManagerConfiguration resourceManagerConfiguration = spec.getResourceManagerConfiguration();
+            if (resourceManagerConfiguration != null && resourceManagerConfiguration.getExternalResources() != null)
+                externalResourceNames = Stream.of(resourceManagerConfiguration.getExternalResources()).map(ExternalResourceDescription::getName).collect(Collectors.toUnmodifiableList());
+            else
+                externalResourceNames = Collections.emptyList();
+        } else {
+            mandatoryParameters = Collections.emptySet();
+            missingParameters = Collections.emptyList();
+            missingResources = Collections.emptyList();
+            externalResourceNames = Collections.emptyList();
+        }
+    }
+
+    /**
+     * @param description The description this validation has been computed for.
+     * @return Whether the description has not been changed since this validation has been computed.
+     */
+    public boolean isValidFor(Description description) {
+        return description.getDescriptor() == descriptor && description.isActive() == active && description.getModificationCount() == modificationCount;
+    }
+
+    /**
+     * @return The names of the mandatory parameters declared by the component.
+     */
+    public Set<String> getMandatoryParameters() {
+        return mandatoryParameters;
+    }
+
+    /**
+     * @return The mandatory parameters without a value.
+     * @see PipelineParameterChecker#findMissingParameters(ResourceMetaData)
+     */
+    public List<MissingComponentConfiguration> getMissingParameters() {
+        return missingParameters;
+    }
+
+    /**
+     * @return The unbound external resource dependencies and the mandatory parameters of bound resources without a
+     * value.
+     * @see PipelineParameterChecker#findMissingResources(ResourceCreationSpecifier)
+     */
+    public List<MissingComponentConfiguration> getMissingResources() {
+        return missingResources;
+    }
+
+    /**
+     * @return The names of the external resources defined by the component.
+     */
+    public List<String> getExternalResourceNames() {
+        return externalResourceNames;
+    }
+}
@@ -106,50 +106,42 @@ public class PipelineParameterChecker {
         return list;
     }
 
+    /**
+     * Finds the missing configuration items of <tt>pipeline</tt>. The checks of the single components are cached
+     * with the components, see {@link Description#getValidation()}, so that only the components changed since the
+     * last call are checked anew.
+     *
+     * @param pipeline The pipeline to check.
+     * @return The missing configuration items.
+     */
     public static List<MissingComponentConfiguration> findMissingConfiguration(JCoReUIMAPipeline pipeline) {
         List<MissingComponentConfiguration> list = new ArrayList<>();
         if (pipeline.getCrDescription() == null)
             list.add(new MissingComponentConfiguration(Missing.READER));
         else
-            list.addAll(findMissingParameters(pipeline.getCrDescription().getDescriptorAsCollectionReaderDescription().getMetaData()));
+            list.addAll(pipeline.getCrDescription().getValidation().getMissingParameters());
         if (pipeline.getAaeDesc() == null && pipeline.getCcDesc() == null)
             list.add(new MissingComponentConfiguration(Missing.AE_AND_CC));
         else if (pipeline.getAaeDesc() != null) {
-            try {
-                pipeline.getAaeDesc().getDelegateAnalysisEngineSpecifiers().values().stream().
-                        // PEAR descriptors are not instances of AnalysisEngineDescription.
-                        // Since we cannot configure them anyway, filter them out
-                        filter(AnalysisEngineDescription.class::isInstance).
-                        map(AnalysisEngineDescription.class::cast).
-                        map(AnalysisEngineDescription::getAnalysisEngineMetaData).
-                        map(PipelineParameterChecker::findMissingParameters).
-                        flatMap(Collection::stream).forEach(list::add);
-                pipeline.getAaeDesc().getDelegateAnalysisEngineSpecifiers().values().stream().
-                        filter(AnalysisEngineDescription.class::isInstance).
-                        map(AnalysisEngineDescription.class::cast).
-                        map(PipelineParameterChecker::findMissingResources).
-                        flatMap(Collection::stream).forEach(list::add);
-            } catch (InvalidXMLException e) {
-                list.add(new MissingComponentConfiguration(Missing.PARSING_ERROR, "<AAE delegate>", "Could not parse an AAE delegate specifier: " + e.getMessage()));
+            if (pipeline.getAeDelegates() != null && !pipeline.getAeDelegates().isEmpty()) {
+                // The delegates of the AAE are the active analysis engines.
+                // PEAR descriptors are not instances of AnalysisEngineDescription.
+                // Since we cannot configure them anyway, filter them out
+                List<ComponentValidation> delegates = pipeline.getAeDelegates().stream().
+                        filter(Description::isActive).
+                        filter(d -> d.getDescriptor() instanceof AnalysisEngineDescription).
+                        map(Description::getValidation).
+                        collect(Collectors.toList());
+                delegates.forEach(v -> list.addAll(v.getMissingParameters()));
+                delegates.forEach(v -> list.addAll(v.getMissingResources()));
+            } else {
+                findMissingAaeDelegateConfiguration(pipeline.getAaeDesc(), list);
             }
         }
         if (pipeline.getCcDelegates() != null && !pipeline.getCcDelegates().isEmpty()) {
-            if (pipeline.getCcDelegates().size() == 1) {
-                list.addAll(findMissingParameters(((ResourceCreationSpecifier)pipeline.getCcDelegates().get(0).getDescriptor()).getMetaData()));
-                list.addAll(findMissingResources((ResourceCreationSpecifier)pipeline.getCcDelegates().get(0).getDescriptor()));
-            } else {
-                pipeline.getCcDelegates().stream().
-                        map(Description::getDescriptor).
-                        map(ResourceCreationSpecifier.class::cast).
-                        map(ResourceCreationSpecifier::getMetaData).
-                        map(PipelineParameterChecker::findMissingParameters).
-                        flatMap(Collection::stream).forEach(list::add);
-                pipeline.getCcDelegates().stream().
-                        map(Description::getDescriptor).
-                        map(AnalysisEngineDescription.class::cast).
-                        map(PipelineParameterChecker::findMissingResources).
-                        flatMap(Collection::stream).forEach(list::add);
-            }
+            List<ComponentValidation> consumers = pipeline.getCcDelegates().stream().map(Description::getValidation).collect(Collectors.toList());
+            consumers.forEach(v -> list.addAll(v.getMissingParameters()));
+            consumers.forEach(v -> list.addAll(v.getMissingResources()));
         }
 
         // Check if there is an external resource name repeated
@@ -157,11 +149,32 @@ public class PipelineParameterChecker {
         Stream<Description> aeStream = pipeline.getAeDelegates() != null ? pipeline.getAeDelegates().stream() : Stream.empty();
         Stream<Description> ccStream = pipeline.getCcDelegates() != null ? pipeline.getCcDelegates().stream() : Stream.empty();
         Stream<Description> aes = Stream.concat(Stream.concat(cmStream, aeStream), ccStream).filter(d -> d.getDescriptor() instanceof AnalysisEngineDescription);
-        Map<String, List<ExternalResourceDescription>> resourcesByName = aes.map(Description::getDescriptorAsAnalysisEngineDescription).filter(ae -> ae.getResourceManagerConfiguration() != null).filter(ae -> ae.getResourceManagerConfiguration().getExternalResources() != null).flatMap(ae -> Stream.of(ae.getResourceManagerConfiguration().getExternalResources())).collect(Collectors.groupingBy(ExternalResourceDescription::getName));
-        resourcesByName.entrySet().stream().filter(e -> e.getValue().size() > 1).forEach(e -> list.add(new MissingComponentConfiguration(Missing.DUPLICATE_EXTERNAL_RESOURCE_NAME, null, e.getKey()) ));
+        Map<String, Long> resourcesByName = aes.map(Description::getValidation).flatMap(v -> v.getExternalResourceNames().stream()).collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        resourcesByName.entrySet().stream().filter(e -> e.getValue() > 1).forEach(e -> list.add(new MissingComponentConfiguration(Missing.DUPLICATE_EXTERNAL_RESOURCE_NAME, null, e.getKey()) ));
         return list;
     }
 
+    /**
+     * Checks the delegates of an AAE that has been loaded without the descriptions of its delegates.
+     */
+    private static void findMissingAaeDelegateConfiguration(AnalysisEngineDescription aaeDesc, List<MissingComponentConfiguration> list) {
+        try {
+            aaeDesc.getDelegateAnalysisEngineSpecifiers().values().stream().
+                    filter(AnalysisEngineDescription.class::isInstance).
+                    map(AnalysisEngineDescription.class::cast).
+                    map(AnalysisEngineDescription::getAnalysisEngineMetaData).
+                    map(PipelineParameterChecker::findMissingParameters).
+                    flatMap(Collection::stream).forEach(list::add);
+            aaeDesc.getDelegateAnalysisEngineSpecifiers().values().stream().
+                    filter(AnalysisEngineDescription.class::isInstance).
+                    map(AnalysisEngineDescription.class::cast).
+                    map(PipelineParameterChecker::findMissingResources).
+                    flatMap(Collection::stream).forEach(list::add);
+        } catch (InvalidXMLException e) {
+            list.add(new MissingComponentConfiguration(Missing.PARSING_ERROR, "<AAE delegate>", "Could not parse an AAE delegate specifier: " + e.getMessage()));
+        }
+    }
+
     public static void writeMissingConfigurationToFile(JCoReUIMAPipeline pipeline, File file) throws IOException {
         List<MissingComponentConfiguration> missingConfiguration = findMissingConfiguration(pipeline);
         if (!missingConfiguration.isEmpty())
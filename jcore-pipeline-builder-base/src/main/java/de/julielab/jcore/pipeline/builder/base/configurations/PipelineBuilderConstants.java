@@ -36,6 +36,27 @@ public class PipelineBuilderConstants {
                 .add(".jcore-pipeline-builder").toString();
         public static final String REPOSITORIES = "repositories.json";
         public static final String FILE = "component.meta";
+        /**
+         * System property to switch off the binary catalog snapshots by setting it to <tt>false</tt>.
+         */
+        public static final String CATALOG_SNAPSHOT_PROPERTY = "jcore.pipelinebuilder.catalogsnapshot";
+        /**
+         * System property to set the number of threads resolving component artifacts in the background.
+         */
+        public static final String PREFETCH_THREADS_PROPERTY = "jcore.pipelinebuilder.prefetchthreads";
+        /**
+         * System property to set the number of minutes the looked up versions of component artifacts are cached.
+         */
+        public static final String VERSION_CACHE_TTL_PROPERTY = "jcore.pipelinebuilder.versioncachettl";
+        /**
+         * System property to set the number of megabytes of descriptor XML the parsed descriptors of the component
+         * catalog may take before the least recently used ones are released.
+         */
+        public static final String DESCRIPTOR_CACHE_SIZE_PROPERTY = "jcore.pipelinebuilder.descriptorcachesize";
+        /**
+         * System property to switch off the packed pipeline snapshots by setting it to <tt>false</tt>.
+         */
+        public static final String PIPELINE_SNAPSHOT_PROPERTY = "jcore.pipelinebuilder.pipelinesnapshot";
         public static final String CATEGORY_AE = "ae";
         public static final String CATEGORY_CONSUMER = "consumer";
         public static final String CATEGORY_READER = "reader";
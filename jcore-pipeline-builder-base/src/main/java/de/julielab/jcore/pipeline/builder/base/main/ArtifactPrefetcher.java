@@ -0,0 +1,173 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants;
+import de.julielab.utilities.aether.MavenArtifact;
+import de.julielab.utilities.aether.MavenException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Resolves the Maven artifacts of components in the background and caches the resolved artifacts.</p>
+ * <p>Artifacts are scheduled for resolution by {@link #prefetch(MavenArtifact)}, e.g. for the components currently
+ * listed to the user. A bounded number of threads works through the scheduled artifacts in the order they were
+ * scheduled. When an artifact is actually needed, {@link #resolve(MavenArtifact)} waits only for this artifact. If its
+ * resolution has not yet been started by the background threads, it is done directly in the calling thread instead of
+ * waiting for the artifacts scheduled before it.</p>
+ * <p>Each artifact is resolved at most once. Failed resolutions are not cached so that they are tried again the next
+ * time the artifact is requested.</p>
+ */
+public class ArtifactPrefetcher {
+    private final static Logger log = LoggerFactory.getLogger(ArtifactPrefetcher.class);
+    private final ExecutorService executor;
+    private final ArtifactResolver resolver;
+    private final Map<String, ResolutionTask> tasks = new ConcurrentHashMap<>();
+
+    /**
+     * @param parallelism The maximum number of artifacts resolved in the background at the same time.
+     * @param resolver    The function actually resolving the artifacts.
+     */
+    public ArtifactPrefetcher(int parallelism, ArtifactResolver resolver) {
+        this.resolver = resolver;
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread t = new Thread(r, "artifact-prefetch-" + threadNumber.incrementAndGet());
+            // the prefetching must not keep the application alive
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * @return The number of background threads as given by the system property
+     * {@link PipelineBuilderConstants.JcoreMeta#PREFETCH_THREADS_PROPERTY}. Defaults to 4 or the number of processors,
+     * whichever is lower.
+     */
+    public static int getDefaultParallelism() {
+        String threads = System.getProperty(PipelineBuilderConstants.JcoreMeta.PREFETCH_THREADS_PROPERTY);
+        if (threads != null) {
+            try {
+                return Integer.parseInt(threads.trim());
+            } catch (NumberFormatException e) {
+                log.warn("The value {} of the system property {} is not a number, using the default.", threads, PipelineBuilderConstants.JcoreMeta.PREFETCH_THREADS_PROPERTY);
+            }
+        }
+        return Math.min(4, Runtime.getRuntime().availableProcessors());
+    }
+
+    private static String getKey(MavenArtifact artifact) {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getPackaging() + ":" + artifact.getClassifier() + ":" + artifact.getVersion();
+    }
+
+    /**
+     * Schedules the resolution of <tt>artifact</tt> unless it has already been scheduled or resolved.
+     *
+     * @param artifact The coordinates of the artifact to resolve.
+     */
+    public void prefetch(MavenArtifact artifact) {
+        getTask(artifact);
+    }
+
+    /**
+     * Schedules the resolution of the given artifacts in the given order.
+     *
+     * @param artifacts The coordinates of the artifacts to resolve.
+     */
+    public void prefetch(Collection<MavenArtifact> artifacts) {
+        artifacts.stream().filter(Objects::nonNull).forEach(this::prefetch);
+    }
+
+    /**
+     * Returns the resolved artifact, resolving it in the calling thread if its background resolution has not yet
+     * been started.
+     *
+     * @param artifact The coordinates of the artifact to resolve.
+     * @return The resolved artifact.
+     * @throws MavenException If the artifact cannot be resolved.
+     */
+    public MavenArtifact resolve(MavenArtifact artifact) throws MavenException {
+        ResolutionTask task = getTask(artifact);
+        task.run();
+        try {
+            return task.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof MavenException)
+                throw (MavenException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * @param artifact The coordinates of an artifact.
+     * @return Whether the artifact has been resolved successfully.
+     */
+    public boolean isResolved(MavenArtifact artifact) {
+        ResolutionTask task = tasks.get(getKey(artifact));
+        return task != null && task.future.isDone() && !task.future.isCompletedExceptionally();
+    }
+
+    /**
+     * Removes all resolved artifacts from the cache.
+     */
+    public void clear() {
+        tasks.clear();
+    }
+
+    private ResolutionTask getTask(MavenArtifact artifact) {
+        String key = getKey(artifact);
+        ResolutionTask task = tasks.get(key);
+        if (task == null) {
+            ResolutionTask newTask = new ResolutionTask(key, artifact);
+            task = tasks.putIfAbsent(key, newTask);
+            if (task == null) {
+                task = newTask;
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException e) {
+                    // the task will be run by the thread requesting the artifact
+                    log.debug("Could not schedule the resolution of {}: {}", key, e.getMessage());
+                }
+            }
+        }
+        return task;
+    }
+
+    @FunctionalInterface
+    public interface ArtifactResolver {
+        MavenArtifact resolve(MavenArtifact artifact) throws MavenException;
+    }
+
+    private class ResolutionTask implements Runnable {
+        private final String key;
+        private final MavenArtifact artifact;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CompletableFuture<MavenArtifact> future = new CompletableFuture<>();
+
+        private ResolutionTask(String key, MavenArtifact artifact) {
+            this.key = key;
+            this.artifact = artifact;
+        }
+
+        /**
+         * Resolves the artifact if no other thread has started to do so.
+         */
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true))
+                return;
+            try {
+                log.trace("Resolving artifact {} in thread {}", key, Thread.currentThread().getName());
+                future.complete(resolver.resolve(artifact));
+            } catch (MavenException | RuntimeException e) {
+                tasks.remove(key, this);
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants;
+import de.julielab.utilities.aether.AetherUtilities;
+import de.julielab.utilities.aether.MavenArtifact;
+import de.julielab.utilities.aether.MavenException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Looks up the available versions of component artifacts.</p>
+ * <p>Version queries are made per <tt>groupId:artifactId</tt>, thus components sharing an artifact cause only one
+ * query. Queries for multiple artifacts are run concurrently by {@link #getNewestVersions(Collection)} and concurrent
+ * queries for the same artifact wait for the same lookup. The results are stored as <tt>maven-metadata.xml</tt> files
+ * in the <tt>maven-metadata</tt> directory of the {@link PipelineBuilderConstants.JcoreMeta#LOCAL_STORAGE} and serve
+ * further queries until they are older than the time to live given by the system property
+ * {@link PipelineBuilderConstants.JcoreMeta#VERSION_CACHE_TTL_PROPERTY}.</p>
+ * <p>By default, the versions are looked up via Aether from the configured Maven repositories.
+ * A {@link RepositoryMetadataLister} reads them directly from the metadata files of a repository, e.g. a file-based
+ * repository.</p>
+ */
+public class ArtifactVersionService {
+    public static final String CACHE_DIR = "maven-metadata";
+    private final static Logger log = LoggerFactory.getLogger(ArtifactVersionService.class);
+    private static ArtifactVersionService instance;
+    private final VersionLister lister;
+    private final File cacheDir;
+    private final long ttlMillis;
+    private final ExecutorService executor;
+    private final Map<String, CompletableFuture<List<String>>> lookups = new ConcurrentHashMap<>();
+
+    /**
+     * @param lister   The source of the artifact versions.
+     * @param cacheDir The directory to store the looked up versions to.
+     * @param ttl      The time the stored versions are used before they are looked up again.
+     * @param threads  The maximum number of concurrent lookups.
+     */
+    public ArtifactVersionService(VersionLister lister, File cacheDir, Duration ttl, int threads) {
+        this.lister = lister;
+        this.cacheDir = cacheDir;
+        this.ttlMillis = ttl.toMillis();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "version-lookup-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static synchronized ArtifactVersionService getInstance() {
+        if (instance == null) {
+            Duration ttl = Duration.ofHours(1);
+            String ttlProperty = System.getProperty(PipelineBuilderConstants.JcoreMeta.VERSION_CACHE_TTL_PROPERTY);
+            if (ttlProperty != null) {
+                try {
+                    ttl = Duration.ofMinutes(Long.parseLong(ttlProperty.trim()));
+                } catch (NumberFormatException e) {
+                    log.warn("The value {} of the system property {} is not a number of minutes, using the default.", ttlProperty, PipelineBuilderConstants.JcoreMeta.VERSION_CACHE_TTL_PROPERTY);
+                }
+            }
+            VersionLister aetherLister = (groupId, artifactId) -> AetherUtilities.getVersions(new MavenArtifact(groupId, artifactId, null)).collect(Collectors.toList());
+            instance = new ArtifactVersionService(aetherLister, new File(PipelineBuilderConstants.JcoreMeta.LOCAL_STORAGE, CACHE_DIR), ttl, 8);
+        }
+        return instance;
+    }
+
+    /**
+     * Compares two versions segment by segment. Numeric segments are compared numerically, other segments
+     * lexicographically, and a version with a qualifier like <tt>-SNAPSHOT</tt> comes before the same version
+     * without it.
+     */
+    static int compareVersions(String v1, String v2) {
+        String[] s1 = v1.split("[.-]");
+        String[] s2 = v2.split("[.-]");
+        for (int i = 0; i < Math.max(s1.length, s2.length); i++) {
+            if (i >= s1.length)
+                return s2[i].matches("\\d+") ? -1 : 1;
+            if (i >= s2.length)
+                return s1[i].matches("\\d+") ? 1 : -1;
+            boolean n1 = s1[i].matches("\\d+");
+            boolean n2 = s2[i].matches("\\d+");
+            int c;
+            if (n1 && n2)
+                c = Long.compare(Long.parseLong(s1[i]), Long.parseLong(s2[i]));
+            else if (n1 != n2)
+                c = n1 ? 1 : -1;
+            else
+                c = s1[i].compareToIgnoreCase(s2[i]);
+            if (c != 0)
+                return c;
+        }
+        return 0;
+    }
+
+    private static List<String> readMetadata(InputStream is) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            Document document = factory.newDocumentBuilder().parse(is);
+            NodeList versionElements = document.getElementsByTagName("version");
+            List<String> versions = new ArrayList<>();
+            for (int i = 0; i < versionElements.getLength(); i++) {
+                // the metadata root may have a version element of its own
+                if (((Element) versionElements.item(i).getParentNode()).getTagName().equals("versions"))
+                    versions.add(versionElements.item(i).getTextContent().trim());
+            }
+            return versions;
+        } catch (ParserConfigurationException | org.xml.sax.SAXException e) {
+            throw new IOException("Could not parse the Maven metadata", e);
+        }
+    }
+
+    private static String escape(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    /**
+     * @param artifact The artifact to get the versions for.
+     * @return The available versions of the artifact, oldest first.
+     * @throws MavenException If the versions cannot be looked up.
+     */
+    public List<String> getVersions(MavenArtifact artifact) throws MavenException {
+        try {
+            return lookup(artifact.getGroupId(), artifact.getArtifactId()).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof MavenException)
+                throw (MavenException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * @param artifact The artifact to get the newest version for.
+     * @return The newest available version or <tt>null</tt> if no version is available.
+     * @throws MavenException If the versions cannot be looked up.
+     */
+    public String getNewestVersion(MavenArtifact artifact) throws MavenException {
+        List<String> versions = getVersions(artifact);
+        return versions.isEmpty() ? null : versions.get(versions.size() - 1);
+    }
+
+    /**
+     * Looks up the newest versions of the given artifacts concurrently, each <tt>groupId:artifactId</tt> only once.
+     *
+     * @param artifacts The artifacts to get the newest versions for.
+     * @return The newest version for each <tt>groupId:artifactId</tt> for which the lookup succeeded. Artifacts
+     * without any version are mapped to <tt>null</tt>.
+     */
+    public Map<String, String> getNewestVersions(Collection<MavenArtifact> artifacts) {
+        Map<String, CompletableFuture<List<String>>> futures = new LinkedHashMap<>();
+        for (MavenArtifact artifact : artifacts)
+            futures.computeIfAbsent(getKey(artifact.getGroupId(), artifact.getArtifactId()), k -> lookup(artifact.getGroupId(), artifact.getArtifactId()));
+        Map<String, String> newestVersions = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<List<String>>> entry : futures.entrySet()) {
+            try {
+                List<String> versions = entry.getValue().join();
+                newestVersions.put(entry.getKey(), versions.isEmpty() ? null : versions.get(versions.size() - 1));
+            } catch (CompletionException e) {
+                log.error("Could not look up the versions of {}", entry.getKey(), e.getCause());
+            }
+        }
+        return newestVersions;
+    }
+
+    public static String getKey(String groupId, String artifactId) {
+        return groupId + ":" + artifactId;
+    }
+
+    private CompletableFuture<List<String>> lookup(String groupId, String artifactId) {
+        String key = getKey(groupId, artifactId);
+        CompletableFuture<List<String>> future = lookups.get(key);
+        if (future != null && (!future.isDone() || (!future.isCompletedExceptionally() && isCacheFileValid(groupId, artifactId))))
+            return future;
+        CompletableFuture<List<String>> newFuture = new CompletableFuture<>();
+        // another thread might have started a new lookup in the meantime
+        if (future == null ? lookups.putIfAbsent(key, newFuture) != null : !lookups.replace(key, future, newFuture))
+            return lookups.get(key);
+        executor.execute(() -> {
+            try {
+                newFuture.complete(loadVersions(groupId, artifactId));
+            } catch (MavenException | RuntimeException e) {
+                lookups.remove(key, newFuture);
+                newFuture.completeExceptionally(e);
+            }
+        });
+        return newFuture;
+    }
+
+    private File getCacheFile(String groupId, String artifactId) {
+        return new File(cacheDir, groupId.replace('.', File.separatorChar) + File.separator + artifactId + File.separator + "maven-metadata.xml");
+    }
+
+    private boolean isCacheFileValid(String groupId, String artifactId) {
+        File cacheFile = getCacheFile(groupId, artifactId);
+        return cacheFile.exists() && System.currentTimeMillis() - cacheFile.lastModified() < ttlMillis;
+    }
+
+    private List<String> loadVersions(String groupId, String artifactId) throws MavenException {
+        File cacheFile = getCacheFile(groupId, artifactId);
+        if (isCacheFileValid(groupId, artifactId)) {
+            try (InputStream is = new FileInputStream(cacheFile)) {
+                return Collections.unmodifiableList(readMetadata(is));
+            } catch (IOException e) {
+                log.debug("Could not read the cached Maven metadata {}, looking up the versions again: {}", cacheFile, e.getMessage());
+            }
+        }
+        log.debug("Looking up the versions of {}:{}", groupId, artifactId);
+        List<String> versions = lister.getVersions(groupId, artifactId);
+        try {
+            writeMetadata(cacheFile, groupId, artifactId, versions);
+        } catch (IOException e) {
+            log.warn("Could not store the versions of {}:{} to {}: {}", groupId, artifactId, cacheFile, e.getMessage());
+        }
+        return Collections.unmodifiableList(new ArrayList<>(versions));
+    }
+
+    private void writeMetadata(File cacheFile, String groupId, String artifactId, List<String> versions) throws IOException {
+        File dir = cacheFile.getParentFile();
+        if (!dir.exists() && !dir.mkdirs() && !dir.exists())
+            throw new IOException("Could not create the directory " + dir);
+        File tmpFile = new File(dir, cacheFile.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8))) {
+            w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<metadata>\n");
+            w.write("  <groupId>" + escape(groupId) + "</groupId>\n  <artifactId>" + escape(artifactId) + "</artifactId>\n");
+            w.write("  <versioning>\n    <versions>\n");
+            for (String version : versions)
+                w.write("      <version>" + escape(version) + "</version>\n");
+            SimpleDateFormat lastUpdated = new SimpleDateFormat("yyyyMMddHHmmss");
+            lastUpdated.setTimeZone(TimeZone.getTimeZone("UTC"));
+            w.write("    </versions>\n    <lastUpdated>" + lastUpdated.format(new Date()) + "</lastUpdated>\n  </versioning>\n</metadata>\n");
+        }
+        Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @FunctionalInterface
+    public interface VersionLister {
+        /**
+         * @return The available versions of the artifact, oldest first.
+         */
+        List<String> getVersions(String groupId, String artifactId) throws MavenException;
+    }
+
+    /**
+     * Reads the versions of artifacts from the <tt>maven-metadata.xml</tt> files of a Maven repository with the
+     * default layout. The repository may be given as a local directory or a URL.
+     */
+    public static class RepositoryMetadataLister implements VersionLister {
+        private final URI repository;
+
+        public RepositoryMetadataLister(URI repository) {
+            this.repository = repository.toString().endsWith("/") ? repository : URI.create(repository + "/");
+        }
+
+        @Override
+        public List<String> getVersions(String groupId, String artifactId) throws MavenException {
+            URI metadata = repository.resolve(groupId.replace('.', '/') + "/" + artifactId + "/maven-metadata.xml");
+            try (InputStream is = metadata.toURL().openStream()) {
+                List<String> versions = readMetadata(is);
+                versions.sort(ArtifactVersionService::compareVersions);
+                return versions;
+            } catch (FileNotFoundException e) {
+                return Collections.emptyList();
+            } catch (IOException e) {
+                throw new MavenException("Could not read the Maven metadata " + metadata, e);
+            }
+        }
+    }
+}
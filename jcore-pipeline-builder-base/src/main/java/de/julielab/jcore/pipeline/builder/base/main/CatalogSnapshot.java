@@ -0,0 +1,227 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+
+import static de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants.JcoreMeta.Category;
+
+/**
+ * <p>A compact binary snapshot of the component meta descriptions of a repository. It is stored next to the JSON
+ * component list of the repository and allows to start the pipeline builder without parsing the whole JSON.</p>
+ * <p>The file consists of a header with the size and modification time of the JSON file the snapshot was created
+ * from, followed by a table of contents with the name, description, group and categories of each component and the
+ * position of its entry. Each entry is a single {@link MetaDescription} in the binary Smile format of
+ * {@link Repositories#getSnapshotMapper()}. The file is memory mapped. The table of contents suffices to build the
+ * component catalog and its search index from the summaries returned by {@link #getSummaries(Function)}; the entries
+ * are only decoded when requested via {@link #decode(String, ObjectReader)}.</p>
+ */
+public class CatalogSnapshot {
+    public static final String FILE_NAME = "componentlist.bin";
+    private final static Logger log = LoggerFactory.getLogger(CatalogSnapshot.class);
+    private static final int MAGIC = 0x4a434d43;
+    private static final int FORMAT_VERSION = 2;
+    private final MappedByteBuffer buffer;
+    private final Map<String, Entry> entries;
+    private final ComponentRepository repository;
+
+    private CatalogSnapshot(MappedByteBuffer buffer, Map<String, Entry> entries, ComponentRepository repository) {
+        this.buffer = buffer;
+        this.entries = entries;
+        this.repository = repository;
+    }
+
+    public static File getSnapshotFile(File metaFile) {
+        return new File(metaFile.getParentFile(), FILE_NAME);
+    }
+
+    /**
+     * Writes the snapshot for the given meta descriptions of the repository JSON file <tt>metaFile</tt>. The file is
+     * first written to a temporary file and then moved into place so that readers never see a partial snapshot.
+     *
+     * @param metaFile         The JSON file with the meta descriptions.
+     * @param metaDescriptions The meta descriptions stored in <tt>metaFile</tt>.
+     * @param writer           The writer to encode the meta descriptions with, see
+     *                         {@link Repositories#getSnapshotMapper()}.
+     * @throws IOException If writing fails.
+     */
+    public static void write(File metaFile, Collection<MetaDescription> metaDescriptions, ObjectWriter writer) throws IOException {
+        List<MetaDescription> mds = new ArrayList<>(metaDescriptions);
+        List<byte[]> data = new ArrayList<>();
+        for (MetaDescription md : mds)
+            data.add(writer.writeValueAsBytes(md));
+        ByteArrayOutputStream tocBytes = new ByteArrayOutputStream();
+        DataOutputStream toc = new DataOutputStream(tocBytes);
+        toc.writeInt(MAGIC);
+        toc.writeInt(FORMAT_VERSION);
+        toc.writeLong(metaFile.length());
+        toc.writeLong(metaFile.lastModified());
+        toc.writeInt(mds.size());
+        int offset = 0;
+        for (int i = 0; i < mds.size(); i++) {
+            MetaDescription md = mds.get(i);
+            writeString(toc, md.getName());
+            writeString(toc, md.getDescription());
+            writeString(toc, md.getGroup());
+            List<Category> categories = md.getCategories();
+            toc.writeInt(categories != null ? categories.size() : -1);
+            if (categories != null) {
+                for (Category category : categories)
+                    writeString(toc, category.name());
+            }
+            toc.writeInt(offset);
+            toc.writeInt(data.get(i).length);
+            offset += data.get(i).length;
+        }
+        toc.flush();
+        File snapshotFile = getSnapshotFile(metaFile);
+        File tmpFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp");
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(tmpFile))) {
+            os.write(tocBytes.toByteArray());
+            for (byte[] entry : data)
+                os.write(entry);
+        }
+        Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Opens the snapshot belonging to <tt>metaFile</tt> if it exists and was created from the current version
+     * of <tt>metaFile</tt>.
+     *
+     * @param metaFile   The JSON file with the meta descriptions.
+     * @param repository The repository the meta descriptions belong to.
+     * @return The snapshot or <tt>null</tt> if there is no valid snapshot for <tt>metaFile</tt>.
+     */
+    public static CatalogSnapshot open(File metaFile, ComponentRepository repository) {
+        File snapshotFile = getSnapshotFile(metaFile);
+        if (!snapshotFile.exists())
+            return null;
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                log.debug("Ignoring the catalog snapshot {} because it has an unknown format.", snapshotFile);
+                return null;
+            }
+            if (buffer.getLong() != metaFile.length() || buffer.getLong() != metaFile.lastModified()) {
+                log.debug("Ignoring the catalog snapshot {} because the JSON component list has changed.", snapshotFile);
+                return null;
+            }
+            int size = buffer.getInt();
+            Map<String, Entry> entries = new LinkedHashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                Entry entry = new Entry();
+                entry.name = readString(buffer);
+                entry.description = readString(buffer);
+                entry.group = readString(buffer);
+                int numCategories = buffer.getInt();
+                if (numCategories >= 0) {
+                    entry.categories = new ArrayList<>(numCategories);
+                    for (int j = 0; j < numCategories; j++)
+                        entry.categories.add(Category.valueOf(readString(buffer)));
+                }
+                entry.offset = buffer.getInt();
+                entry.length = buffer.getInt();
+                entries.put(entry.name, entry);
+            }
+            // make the offsets absolute
+            int dataStart = buffer.position();
+            entries.values().forEach(e -> e.offset += dataStart);
+            return new CatalogSnapshot(buffer, entries, repository);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read the catalog snapshot {}, using the JSON component list instead: {}", snapshotFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return The names of the components in this snapshot.
+     */
+    public Set<String> getComponentNames() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * Creates the meta descriptions of the components in this snapshot from the table of contents. They carry the
+     * name, description, group, categories and module of the component. The remaining fields are obtained from
+     * <tt>decoder</tt> when they are first accessed.
+     *
+     * @param decoder Returns the complete meta description of the component with the given name, usually by
+     *                {@link #decode(String, ObjectReader)}.
+     * @return The summaries of the components in this snapshot.
+     */
+    public List<MetaDescription> getSummaries(Function<String, MetaDescription> decoder) {
+        List<MetaDescription> summaries = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values())
+            summaries.add(MetaDescription.createSnapshotSummary(entry.name, entry.description, entry.group, entry.categories, repository, () -> decoder.apply(entry.name)));
+        return summaries;
+    }
+
+    public ComponentRepository getRepository() {
+        return repository;
+    }
+
+    /**
+     * Decodes the meta description of the component with the given name.
+     *
+     * @param componentName The component name.
+     * @param reader        The reader to decode the meta description with.
+     * @return The meta description with its module set to the repository of this snapshot or <tt>null</tt> if there
+     * is no component with the given name.
+     * @throws IOException If decoding fails.
+     */
+    public MetaDescription decode(String componentName, ObjectReader reader) throws IOException {
+        Entry entry = entries.get(componentName);
+        if (entry == null)
+            return null;
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(entry.offset);
+        slice.limit(entry.offset + entry.length);
+        MetaDescription md = reader.readValue(new ByteBufferBackedInputStream(slice));
+        md.setModule(repository);
+        return md;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * An entry of the table of contents.
+     */
+    private static class Entry {
+        private String name;
+        private String description;
+        private String group;
+        private List<Category> categories;
+        private int offset;
+        private int length;
+    }
+}
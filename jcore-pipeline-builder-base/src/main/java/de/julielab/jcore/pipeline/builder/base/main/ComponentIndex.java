@@ -0,0 +1,420 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants.JcoreMeta.Category;
+import de.julielab.jcore.pipeline.builder.base.exceptions.DescriptorLoadingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * <p>An in-memory inverted index over a snapshot of the component catalog, i.e. over the {@link MetaDescription}s
+ * delivered by the {@link ComponentMetaInformationService}.</p>
+ * <p>Indexed are the component name, the description text, the group, the categories and the input and output type
+ * capabilities of the UIMA descriptors. The type capabilities are only known after the descriptors of a
+ * component have been loaded, which requires the component artifact. Thus, the constructor only indexes the
+ * capabilities of components whose descriptors are already loaded. The first query that searches the type fields,
+ * i.e. a term restricted to <tt>in:</tt> or <tt>out:</tt> or an unrestricted term, and the type lookup methods start
+ * loading the descriptors of the remaining components in the background, their artifacts being resolved in parallel
+ * by the {@link ArtifactPrefetcher}. Queries never wait for the descriptors; until all type capabilities are indexed,
+ * results of queries that search the type fields are partial, see {@link #isPartial(String)}.</p>
+ * <p>Queries consist of whitespace separated terms which all have to match (AND semantics). A term may be
+ * restricted to a field by one of the prefixes <tt>name:</tt>, <tt>desc:</tt>, <tt>group:</tt>, <tt>cat:</tt>,
+ * <tt>in:</tt> or <tt>out:</tt>. Each term is matched as a prefix of the indexed tokens. If there is no prefix
+ * match for a term, tokens within a small edit distance are used instead. Results are ranked by the field and the
+ * quality of the match.</p>
+ */
+public class ComponentIndex {
+    private final static Logger log = LoggerFactory.getLogger(ComponentIndex.class);
+    /**
+     * The type capabilities of all indexes are loaded on this one thread so that the indexes of reloaded catalogs do
+     * not compete for the artifacts.
+     */
+    private static final ExecutorService typeIndexer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "type-indexer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public enum Field {
+        NAME("name", 8), GROUP("group", 3), CATEGORY("cat", 3), INPUT_TYPE("in", 4), OUTPUT_TYPE("out", 5), DESCRIPTION("desc", 1);
+        private final String queryPrefix;
+        private final int weight;
+
+        Field(String queryPrefix, int weight) {
+            this.queryPrefix = queryPrefix;
+            this.weight = weight;
+        }
+
+        public String getQueryPrefix() {
+            return queryPrefix;
+        }
+    }
+
+    private static final int EXACT_MATCH_BOOST = 3;
+    private static final int PREFIX_MATCH_BOOST = 2;
+    private static final int FUZZY_MATCH_BOOST = 1;
+
+    private final Map<Field, NavigableMap<String, Set<MetaDescription>>> postings = new EnumMap<>(Field.class);
+    private final Set<MetaDescription> typeIndexed = ConcurrentHashMap.newKeySet();
+    /**
+     * Components whose descriptors could not be loaded for the type index; they are not tried again on demand.
+     */
+    private final Set<MetaDescription> typeIndexFailed = ConcurrentHashMap.newKeySet();
+    private final List<MetaDescription> components;
+    private final Executor typeIndexExecutor;
+    private CompletableFuture<Void> typeIndexing;
+
+    public ComponentIndex(Collection<MetaDescription> metaDescriptions) {
+        this(metaDescriptions, typeIndexer);
+    }
+
+    /**
+     * @param metaDescriptions  The components to index.
+     * @param typeIndexExecutor The executor loading the type capabilities of the components in the background.
+     */
+    ComponentIndex(Collection<MetaDescription> metaDescriptions, Executor typeIndexExecutor) {
+        this.typeIndexExecutor = typeIndexExecutor;
+        for (Field field : Field.values())
+            postings.put(field, new ConcurrentSkipListMap<>());
+        components = new ArrayList<>(metaDescriptions);
+        long time = System.nanoTime();
+        for (MetaDescription md : components) {
+            addTokens(Field.NAME, md.getName(), md);
+            addTokens(Field.DESCRIPTION, md.getDescription(), md);
+            addTokens(Field.GROUP, md.getGroup(), md);
+            if (md.getCategories() != null) {
+                for (Category category : md.getCategories())
+                    addToken(Field.CATEGORY, category.name(), md);
+            }
+            if (md.isDescriptorsLoaded())
+                indexTypeCapabilities(md);
+        }
+        time = System.nanoTime() - time;
+        log.debug("Indexed {} components in {}ms.", components.size(), time / 1000000);
+    }
+
+    /**
+     * Computes the Levenshtein distance between <tt>s1</tt> and <tt>s2</tt> but stops as soon as it is clear that
+     * the distance exceeds <tt>maxDistance</tt>.
+     *
+     * @param s1          The first string.
+     * @param s2          The second string.
+     * @param maxDistance The maximum distance of interest.
+     * @return The edit distance or <tt>maxDistance + 1</tt> if the distance is larger than <tt>maxDistance</tt>.
+     */
+    static int boundedEditDistance(String s1, String s2, int maxDistance) {
+        if (Math.abs(s1.length() - s2.length()) > maxDistance)
+            return maxDistance + 1;
+        int[] previous = new int[s2.length() + 1];
+        int[] current = new int[s2.length() + 1];
+        for (int j = 0; j < previous.length; j++)
+            previous[j] = j;
+        for (int i = 1; i <= s1.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= s2.length(); j++) {
+                int cost = s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxDistance)
+                return maxDistance + 1;
+            int[] tmp = previous;
+            previous = current;
+            current = tmp;
+        }
+        return Math.min(previous[s2.length()], maxDistance + 1);
+    }
+
+    /**
+     * Splits text into lower cased tokens. Dots are treated as token separators, too, so that the simple
+     * name of a fully qualified type name is a token of its own.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null)
+            return Collections.emptyList();
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty())
+                tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * Adds the input and output type capabilities of all descriptors of the given component to the index. Calling
+     * this method causes the descriptors of the component to be loaded if this has not already happened.
+     *
+     * @param md The component to index the type capabilities for.
+     */
+    public void indexTypeCapabilities(MetaDescription md) {
+        if (!typeIndexed.add(md))
+            return;
+        try {
+            for (Description description : md.getJCoReDescriptions()) {
+                addTypeNames(Field.INPUT_TYPE, description.getInputCapabilities(), md);
+                addTypeNames(Field.OUTPUT_TYPE, description.getOutputCapabilities(), md);
+            }
+        } catch (DescriptorLoadingException e) {
+            typeIndexed.remove(md);
+            typeIndexFailed.add(md);
+            log.warn("Could not index the type capabilities of component {}: {}", md.getName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Starts indexing the type capabilities of all components that have not been indexed yet in the background,
+     * unless this has already been started. The artifacts of the components are resolved in parallel by the
+     * {@link ArtifactPrefetcher} while their descriptors are loaded one after the other. Components whose descriptors
+     * could not be loaded before are skipped.
+     *
+     * @return The future completing when the type capabilities of all components have been indexed.
+     */
+    public synchronized CompletableFuture<Void> indexAllTypeCapabilities() {
+        if (typeIndexing == null) {
+            typeIndexing = CompletableFuture.runAsync(() -> {
+                List<MetaDescription> remaining = components.stream().filter(md -> !typeIndexed.contains(md) && !typeIndexFailed.contains(md)).collect(Collectors.toList());
+                if (remaining.isEmpty())
+                    return;
+                long time = System.nanoTime();
+                ComponentMetaInformationService.getInstance().prefetchArtifacts(remaining);
+                for (MetaDescription md : remaining)
+                    indexTypeCapabilities(md);
+                time = System.nanoTime() - time;
+                log.debug("Indexed the type capabilities of {} components in the background in {}ms.", remaining.size(), time / 1000000);
+            }, typeIndexExecutor);
+        }
+        return typeIndexing;
+    }
+
+    /**
+     * @return Whether the type capabilities of all components have been indexed or could not be loaded.
+     */
+    public boolean isTypeIndexComplete() {
+        return getNumTypeIndexed() >= components.size();
+    }
+
+    /**
+     * @return The number of indexed components.
+     */
+    public int size() {
+        return components.size();
+    }
+
+    /**
+     * @return The number of components whose type capabilities have been indexed or could not be loaded.
+     */
+    public int getNumTypeIndexed() {
+        return typeIndexed.size() + typeIndexFailed.size();
+    }
+
+    /**
+     * @param query A query as described in the class documentation.
+     * @return Whether the results of the query may be incomplete because it searches the type fields while the type
+     * capabilities are still being indexed.
+     */
+    public boolean isPartial(String query) {
+        if (isTypeIndexComplete())
+            return false;
+        return Arrays.stream(query.trim().split("\\s+")).filter(t -> !t.isEmpty()).anyMatch(t -> {
+            Collection<Field> fields = getFields(t.toLowerCase());
+            return fields.contains(Field.INPUT_TYPE) || fields.contains(Field.OUTPUT_TYPE);
+        });
+    }
+
+    private void indexOnDemand(Collection<Field> fields) {
+        if (!isTypeIndexComplete() && (fields.contains(Field.INPUT_TYPE) || fields.contains(Field.OUTPUT_TYPE)))
+            indexAllTypeCapabilities();
+    }
+
+    private void addTypeNames(Field field, List<String> typeNames, MetaDescription md) {
+        if (typeNames == null)
+            return;
+        for (String typeName : typeNames) {
+            // the full name allows exact type queries, the tokens allow to search by simple name
+            addToken(field, typeName, md);
+            addTokens(field, typeName, md);
+        }
+    }
+
+    private void addTokens(Field field, String text, MetaDescription md) {
+        for (String token : tokenize(text))
+            addToken(field, token, md);
+    }
+
+    private void addToken(Field field, String token, MetaDescription md) {
+        postings.get(field).computeIfAbsent(token.toLowerCase(), k -> ConcurrentHashMap.newKeySet()).add(md);
+    }
+
+    /**
+     * @return The components in this index.
+     */
+    public List<MetaDescription> getComponents() {
+        return Collections.unmodifiableList(components);
+    }
+
+    /**
+     * Searches the index with a query as described in the class documentation.
+     *
+     * @param query The query.
+     * @return The matching components, best matches first.
+     */
+    public List<MetaDescription> search(String query) {
+        return search(query, null);
+    }
+
+    /**
+     * Searches the index with a query as described in the class documentation, restricted to components of the
+     * given category.
+     *
+     * @param query    The query.
+     * @param category The category to restrict the results to, may be null.
+     * @return The matching components, best matches first.
+     */
+    public List<MetaDescription> search(String query, Category category) {
+        List<String> terms = Arrays.stream(query.trim().split("\\s+")).filter(t -> !t.isEmpty()).collect(Collectors.toList());
+        if (terms.isEmpty())
+            return Collections.emptyList();
+        Map<MetaDescription, Integer> scores = null;
+        for (String term : terms) {
+            Map<MetaDescription, Integer> termScores = scoreTerm(term);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                scores.keySet().retainAll(termScores.keySet());
+                for (Map.Entry<MetaDescription, Integer> e : scores.entrySet())
+                    e.setValue(e.getValue() + termScores.get(e.getKey()));
+            }
+            if (scores.isEmpty())
+                break;
+        }
+        return scores.entrySet().stream()
+                .filter(e -> category == null || (e.getKey().getCategories() != null && e.getKey().getCategories().contains(category)))
+                .sorted(Map.Entry.<MetaDescription, Integer>comparingByValue().reversed()
+                        .thenComparing(e -> String.valueOf(e.getKey().getName())))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the components that have a token in <tt>field</tt> that starts with <tt>prefix</tt>.
+     *
+     * @param field  The field to search.
+     * @param prefix The token prefix.
+     * @return The matching components.
+     */
+    public Set<MetaDescription> searchPrefix(Field field, String prefix) {
+        indexOnDemand(EnumSet.of(field));
+        Set<MetaDescription> ret = new HashSet<>();
+        prefixMatches(field, prefix.toLowerCase()).values().forEach(ret::addAll);
+        return ret;
+    }
+
+    /**
+     * Returns the components that have a token in <tt>field</tt> within the given edit distance of <tt>term</tt>.
+     *
+     * @param field       The field to search.
+     * @param term        The term to search for.
+     * @param maxDistance The maximum edit distance.
+     * @return The matching components.
+     */
+    public Set<MetaDescription> searchFuzzy(Field field, String term, int maxDistance) {
+        indexOnDemand(EnumSet.of(field));
+        Set<MetaDescription> ret = new HashSet<>();
+        fuzzyMatches(field, term.toLowerCase(), maxDistance).forEach(ret::addAll);
+        return ret;
+    }
+
+    /**
+     * Returns the components with a descriptor that takes the given type as input. The type may be given
+     * fully qualified or by its simple name. The result only contains the components whose type capabilities have
+     * been indexed so far, see {@link #isTypeIndexComplete()} and {@link #indexAllTypeCapabilities()}.
+     *
+     * @param type The type name.
+     * @return The components that require the type.
+     */
+    public Set<MetaDescription> getComponentsWithInputType(String type) {
+        indexOnDemand(EnumSet.of(Field.INPUT_TYPE));
+        return Collections.unmodifiableSet(postings.get(Field.INPUT_TYPE).getOrDefault(type.toLowerCase(), Collections.emptySet()));
+    }
+
+    /**
+     * Returns the components with a descriptor that outputs the given type. The type may be given fully qualified
+     * or by its simple name. The result only contains the components whose type capabilities have been indexed so
+     * far, see {@link #isTypeIndexComplete()} and {@link #indexAllTypeCapabilities()}.
+     *
+     * @param type The type name.
+     * @return The components that produce the type.
+     */
+    public Set<MetaDescription> getComponentsWithOutputType(String type) {
+        indexOnDemand(EnumSet.of(Field.OUTPUT_TYPE));
+        return Collections.unmodifiableSet(postings.get(Field.OUTPUT_TYPE).getOrDefault(type.toLowerCase(), Collections.emptySet()));
+    }
+
+    /**
+     * @param term A lower cased query term.
+     * @return The field the term is restricted to or all fields.
+     */
+    private static Collection<Field> getFields(String term) {
+        int colon = term.indexOf(':');
+        if (colon > 0) {
+            String prefix = term.substring(0, colon);
+            for (Field field : Field.values()) {
+                if (field.getQueryPrefix().equals(prefix))
+                    return EnumSet.of(field);
+            }
+        }
+        return EnumSet.allOf(Field.class);
+    }
+
+    private Map<MetaDescription, Integer> scoreTerm(String term) {
+        String value = term.toLowerCase();
+        Collection<Field> fields = getFields(value);
+        if (fields.size() == 1)
+            value = value.substring(value.indexOf(':') + 1);
+        Map<MetaDescription, Integer> scores = new HashMap<>();
+        if (value.isEmpty())
+            return scores;
+        indexOnDemand(fields);
+        for (Field field : fields) {
+            for (Map.Entry<String, Set<MetaDescription>> match : prefixMatches(field, value).entrySet()) {
+                int boost = match.getKey().equals(value) ? EXACT_MATCH_BOOST : PREFIX_MATCH_BOOST;
+                for (MetaDescription md : match.getValue())
+                    scores.merge(md, field.weight * boost, Math::max);
+            }
+        }
+        if (scores.isEmpty()) {
+            int maxDistance = value.length() < 4 ? 0 : value.length() < 8 ? 1 : 2;
+            for (Field field : fields) {
+                for (Set<MetaDescription> match : fuzzyMatches(field, value, maxDistance)) {
+                    for (MetaDescription md : match)
+                        scores.merge(md, field.weight * FUZZY_MATCH_BOOST, Math::max);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private NavigableMap<String, Set<MetaDescription>> prefixMatches(Field field, String prefix) {
+        return postings.get(field).subMap(prefix, true, prefix + Character.MAX_VALUE, true);
+    }
+
+    private List<Set<MetaDescription>> fuzzyMatches(Field field, String term, int maxDistance) {
+        if (maxDistance <= 0)
+            return Collections.emptyList();
+        List<Set<MetaDescription>> ret = new ArrayList<>();
+        for (Map.Entry<String, Set<MetaDescription>> entry : postings.get(field).entrySet()) {
+            if (boundedEditDistance(term, entry.getKey(), maxDistance) <= maxDistance)
+                ret.add(entry.getValue());
+        }
+        return ret;
+    }
+}
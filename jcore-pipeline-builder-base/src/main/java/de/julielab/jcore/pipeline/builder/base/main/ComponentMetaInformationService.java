@@ -1,7 +1,6 @@
 package de.julielab.jcore.pipeline.builder.base.main;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.exc.MismatchedInputException;
 import de.julielab.java.utilities.FileUtilities;
 import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants.JcoreMeta;
@@ -9,6 +8,7 @@ import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderCon
 import de.julielab.jcore.pipeline.builder.base.connectors.GitHubConnector;
 import de.julielab.jcore.pipeline.builder.base.exceptions.DescriptorLoadingException;
 import de.julielab.jcore.pipeline.builder.base.exceptions.GithubInformationException;
+import de.julielab.jcore.pipeline.builder.base.exceptions.MetaDescriptionInteractionException;
 import de.julielab.jcore.pipeline.builder.base.interfaces.IComponentMetaInformationService;
 import de.julielab.utilities.aether.AetherUtilities;
 import de.julielab.utilities.aether.MavenArtifact;
@@ -23,54 +23,79 @@ import java.io.InputStream;
 import java.io.Serializable;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+/**
+ * <p>Loads and caches the component meta descriptions of the component repositories and resolves the Maven artifacts
+ * of the components.</p>
+ * <p>The service is shared by all pipelines of the JVM, e.g. by the pipelines stored concurrently by the
+ * {@link PipelineBatchProcessor}. Access to the meta descriptions is synchronized on the service, the artifacts are
+ * resolved concurrently by the {@link ArtifactPrefetcher}.</p>
+ */
 public class ComponentMetaInformationService implements IComponentMetaInformationService, Serializable {
     private static final Logger logger = LoggerFactory.getLogger(ComponentMetaInformationService.class);
     private static ComponentMetaInformationService instance;
     private final String mvnLocal;
     private final Map<String, MetaDescription> metaInformation = new HashMap<>();
-    private final Set<MavenArtifact> mavenDependencies = new HashSet<>();
+    private final Set<MavenArtifact> mavenDependencies = ConcurrentHashMap.newKeySet();
+    private final transient ArtifactPrefetcher artifactPrefetcher;
 
     private ComponentMetaInformationService() {
         this.mvnLocal = Paths.get(System.getProperty("user.home"), Maven.LOCAL_REPO).toString();
+        this.artifactPrefetcher = new ArtifactPrefetcher(ArtifactPrefetcher.getDefaultParallelism(), artifact -> AetherUtilities.getArtifactByAether(artifact, new File(this.mvnLocal)));
     }
 
-    public static ComponentMetaInformationService getInstance() {
+    public static synchronized ComponentMetaInformationService getInstance() {
         if (instance == null)
             instance = new ComponentMetaInformationService();
         return instance;
     }
 
     public void completeReload() throws GithubInformationException, MavenException {
-        this.metaInformation.clear();
-        this.mavenDependencies.clear();
-        loadComponentMetaInformation(true);
+        synchronized (this) {
+            this.metaInformation.clear();
+            this.mavenDependencies.clear();
+            this.artifactPrefetcher.clear();
+            loadComponentMetaInformation(true);
+        }
         loadAllArtifacts();
     }
 
 
 
     @Override
-    public void loadMetaInformationFromDisk(ComponentRepository repository) throws GithubInformationException {
+    public synchronized void loadMetaInformationFromDisk(ComponentRepository repository) throws GithubInformationException {
         logger.debug("Loading JCoRe component meta information from local file cache for repository {}.", repository);
-        String eMessage = null;
-        InputStream infile = null;
         File metaFile = Repositories.getMetaFile(repository);
+        if (Repositories.isCatalogSnapshotEnabled()) {
+            CatalogSnapshot snapshot = CatalogSnapshot.open(metaFile, repository);
+            if (snapshot != null) {
+                logger.trace("Using the catalog snapshot of module {}:{}, the meta descriptions are decoded on demand", repository.getName(), repository.getVersion());
+                for (MetaDescription summary : snapshot.getSummaries(name -> decodeSnapshotEntry(snapshot, name)))
+                    metaInformation.put(summary.getName(), summary);
+                return;
+            }
+        }
+        loadMetaInformationFromJson(repository, metaFile);
+    }
+
+    private synchronized void loadMetaInformationFromJson(ComponentRepository repository, File metaFile) throws GithubInformationException {
+        InputStream infile = null;
         logger.trace("Loading component meta description file {} for module {}:{}", metaFile, repository.getName(), repository.getVersion());
-        System.out.println(metaFile.getAbsolutePath());
         try {
             infile = FileUtilities.getInputStreamFromFile(metaFile);
-            ObjectMapper objectMapper = new ObjectMapper();
-            List<MetaDescription> asList = objectMapper.readValue(
+            List<MetaDescription> asList = Repositories.getCatalogMapper().readValue(
                     infile, new TypeReference<>() {
                     });
-//            asList.stream().map(MetaDescription::getName).forEach(md -> {System.out.println(repository.getName() + ": " +md);});
-            asList.forEach(md -> this.metaInformation.put(md.getName(), md));
+            for (MetaDescription md : asList)
+                this.metaInformation.put(md.getName(), md);
             asList.forEach(md -> md.setModule(repository));
             if (logger.isTraceEnabled()) {
                 asList.stream().map(MetaDescription::getName).forEach(name -> logger.trace("Loading meta description of {}", name));
             }
+            // Next time, the snapshot can be used
+            Repositories.saveCatalogSnapshot(metaFile, asList);
         } catch (JsonException | MismatchedInputException e) {
             try {
                 infile.close();
@@ -83,12 +108,56 @@ public class ComponentMetaInformationService implements IComponentMetaInformatio
         } catch (IOException e) {
             throw new GithubInformationException(e);
         }
-        if (eMessage != null) {
-            logger.error(String.format("Could not load MetaInformation for %s-%s: %s", repository, eMessage));
+    }
+
+    /**
+     * Decodes the meta description of a single component from its {@link CatalogSnapshot} when a field of its summary
+     * is first accessed. If the snapshot turns out to be corrupt, the meta descriptions of its repository are read
+     * from the JSON component list instead.
+     *
+     * @throws MetaDescriptionInteractionException If the component cannot be read from the JSON component list either.
+     */
+    private synchronized MetaDescription decodeSnapshotEntry(CatalogSnapshot snapshot, String componentName) {
+        MetaDescription current = metaInformation.get(componentName);
+        // the repository has already been read from the JSON component list after another entry could not be decoded
+        if (current != null && !current.isSnapshotSummary())
+            return current;
+        try {
+            return snapshot.decode(componentName, Repositories.getSnapshotMapper().readerFor(MetaDescription.class));
+        } catch (IOException e) {
+            logger.warn("Could not decode the meta description of {} from the catalog snapshot: {}", componentName, e.getMessage());
+            ComponentRepository repository = snapshot.getRepository();
+            try {
+                loadMetaInformationFromJson(repository, Repositories.getMetaFile(repository));
+            } catch (GithubInformationException e1) {
+                throw new MetaDescriptionInteractionException(e1);
+            }
+            MetaDescription md = metaInformation.get(componentName);
+            if (md == null || md.isSnapshotSummary())
+                throw new MetaDescriptionInteractionException("The component " + componentName + " is not contained in the component list of " + repository.getName());
+            return md;
+        }
+    }
+
+    /**
+     * @param repository The repository whose components should be returned or <tt>null</tt> for all components.
+     * @return The meta descriptions of the loaded components. Components from a {@link CatalogSnapshot} are
+     * returned as summaries that decode their snapshot entry when it is needed.
+     */
+    private synchronized List<MetaDescription> getLoadedMetaInformation(ComponentRepository repository) {
+        List<MetaDescription> mds = new ArrayList<>();
+        for (MetaDescription md : metaInformation.values()) {
+            if (repository == null || md.getModule().getName().equals(repository.getName()))
+                mds.add(md);
         }
+        return mds;
     }
 
-    public void loadComponentMetaInformation(Boolean loadNew, ComponentRepository repository) throws GithubInformationException {
+    private synchronized boolean isMetaInformationEmpty() {
+        return metaInformation.isEmpty();
+    }
+
+    public synchronized void loadComponentMetaInformation(Boolean loadNew, ComponentRepository repository) throws GithubInformationException {
         logger.trace("Loading component meta data for repository {}:{}. The parameter 'loadNew' is set to {}", repository.getName(), repository.getVersion(), loadNew);
         try {
             if ((!loadNew || !repository.isUpdateable()) && Repositories.getMetaFile(repository).exists()) {
@@ -110,7 +179,7 @@ public class ComponentMetaInformationService implements IComponentMetaInformatio
     }
 
     @Override
-    public void loadComponentMetaInformation(Boolean loadNew) throws GithubInformationException {
+    public synchronized void loadComponentMetaInformation(Boolean loadNew) throws GithubInformationException {
         metaInformation.clear();
         final List<ComponentRepository> gitHubRepositories = getRepositories();
         for (ComponentRepository gitHubRepository : gitHubRepositories) {
@@ -125,32 +194,41 @@ public class ComponentMetaInformationService implements IComponentMetaInformatio
     @Override
     public List<MavenArtifact> downloadArtifacts(List<MavenArtifact> artifactIds) throws MavenException {
         logger.debug("Retrieving the Maven artifacts for {} components", artifactIds.size());
+        // Schedule all artifacts so that they are resolved in parallel while we wait for the first one
+        if (artifactIds.size() > 1)
+            artifactPrefetcher.prefetch(artifactIds);
         List<MavenArtifact> resolvedArtifacts = new ArrayList<>();
         for (MavenArtifact artifactId : artifactIds) {
-            if (this.mavenDependencies.contains(artifactId)) {
-                continue;
-            }
-            try {
-                MavenArtifact resolvedArtifact = AetherUtilities.getArtifactByAether(artifactId, new File(this.mvnLocal));
-                resolvedArtifacts.add(resolvedArtifact);
-            } catch (MavenException e) {
-                resolvedArtifacts.add(null);
-                throw e;
-            }
+            MavenArtifact resolvedArtifact = artifactPrefetcher.resolve(artifactId);
+            this.mavenDependencies.add(resolvedArtifact);
+            resolvedArtifacts.add(resolvedArtifact);
         }
         return resolvedArtifacts;
     }
 
+    /**
+     * Starts resolving the Maven artifacts of the given components in the background. This should be called for
+     * components that are likely to be used soon, e.g. because they are displayed to the user.
+     *
+     * @param metaDescriptions The components whose artifacts should be resolved.
+     */
+    public void prefetchArtifacts(Collection<MetaDescription> metaDescriptions) {
+        for (MetaDescription md : metaDescriptions) {
+            if (!md.isPear() && md.getMavenArtifactCoordinates() != null)
+                artifactPrefetcher.prefetch(md.getMavenArtifactCoordinates());
+        }
+    }
+
     @Override
     public Set<MavenArtifact> loadAllArtifacts() throws GithubInformationException, MavenException {
+        // Artifacts that have already been resolved are taken from the cache of the prefetcher
         List<MavenArtifact> dlList = new ArrayList<>();
-        if (this.mavenDependencies.isEmpty()) {
-            for (MetaDescription jobj : this.getMetaInformation()) {
-                MavenArtifact mvnArtifact = jobj.getMavenArtifact();
+        for (MetaDescription jobj : this.getMetaInformation()) {
+            MavenArtifact mvnArtifact = jobj.getMavenArtifactCoordinates();
+            if (!jobj.isPear() && mvnArtifact != null)
                 dlList.add(mvnArtifact);
-            }
-            this.downloadArtifacts(dlList);
         }
+        this.downloadArtifacts(dlList);
         return this.mavenDependencies;
     }
 
@@ -161,7 +239,7 @@ public class ComponentMetaInformationService implements IComponentMetaInformatio
 
     @Override
     public Collection<MetaDescription> getMetaInformation(ComponentRepository repository) throws GithubInformationException {
-        return metaInformation.values().stream().filter(md -> md.getModule().getName().equals(repository.getName())).collect(Collectors.toList());
+        return getLoadedMetaInformation(repository);
     }
 
     @Override
@@ -189,15 +267,17 @@ public class ComponentMetaInformationService implements IComponentMetaInformatio
 
     @Override
     public Collection<MetaDescription> getMetaInformation(Boolean loadNew) throws GithubInformationException {
-        if (this.metaInformation.isEmpty() || loadNew) {
-            this.loadComponentMetaInformation(loadNew);
+        synchronized (this) {
+            if (isMetaInformationEmpty() || loadNew)
+                this.loadComponentMetaInformation(loadNew);
         }
-        return this.metaInformation.values();
+        // the meta descriptions in catalog snapshots are decoded when they are accessed
+        return getLoadedMetaInformation(null);
     }
 
     @Override
-    public MetaDescription getMetaInformation(String componentName, Boolean loadNew) throws GithubInformationException {
-        if (this.metaInformation.isEmpty() || loadNew) {
+    public synchronized MetaDescription getMetaInformation(String componentName, Boolean loadNew) throws GithubInformationException {
+        if (isMetaInformationEmpty() || loadNew) {
             this.loadComponentMetaInformation(loadNew);
         }
         return this.metaInformation.getOrDefault(componentName, null);
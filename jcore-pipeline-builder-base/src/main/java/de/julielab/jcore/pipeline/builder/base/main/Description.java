@@ -2,8 +2,11 @@ package de.julielab.jcore.pipeline.builder.base.main;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import de.julielab.java.utilities.UriUtilities;
+import de.julielab.jcore.pipeline.builder.base.ComponentValidation;
 import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants.Descriptor;
 import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants.JcoreMeta;
+import de.julielab.jcore.pipeline.builder.base.exceptions.DescriptorLoadingException;
+import de.julielab.jcore.pipeline.builder.base.exceptions.MetaDescriptionInteractionException;
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.TypeOrFeature;
@@ -70,6 +73,16 @@ public class Description implements Serializable, Cloneable {
     private Boolean initCapabilities = false;
     private Map<String, ConfigurationParameter> configurationParameter = null;
     private MetaDescription metaDescription;
+    /**
+     * Set when the descriptor has been released to save memory, see {@link DescriptorCache}. It is then loaded anew
+     * through the {@link #metaDescription} when it is accessed.
+     */
+    private transient volatile boolean descriptorReleased = false;
+    /**
+     * Counts the changes of the configuration of this description, see {@link #markModified()}.
+     */
+    private transient int modificationCount;
+    private transient ComponentValidation validation;
     private boolean isActive = true;
     private String name;
 
@@ -177,7 +190,8 @@ public class Description implements Serializable, Cloneable {
     }
 
     private ResourceMetaData getMetaData() {
-        return specifier != null && specifier instanceof ResourceCreationSpecifier ? ((ResourceCreationSpecifier) specifier).getMetaData() : null;
+        MetaDataObject specifier = getDescriptor();
+        return specifier instanceof ResourceCreationSpecifier ? ((ResourceCreationSpecifier) specifier).getMetaData() : null;
     }
 
     @JsonIgnore
@@ -245,6 +259,37 @@ public class Description implements Serializable, Cloneable {
 
     public void setName(String name) {
         this.name = name;
+        markModified();
+    }
+
+    /**
+     * Marks the configuration of this description as changed. This is required after parameters or external
+     * resources have been changed directly on the descriptor so that information derived from the configuration,
+     * like the {@link #getValidation() validation}, is computed anew.
+     */
+    public void markModified() {
+        modificationCount++;
+    }
+
+    @JsonIgnore
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Returns the configuration checks for this description. They are computed anew only if the description has
+     * changed since the last call.
+     *
+     * @return The validation of the current state of this description.
+     */
+    @JsonIgnore
+    public ComponentValidation getValidation() {
+        ComponentValidation validation = this.validation;
+        if (validation == null || !validation.isValidFor(this)) {
+            validation = new ComponentValidation(this);
+            this.validation = validation;
+        }
+        return validation;
     }
 
     @JsonIgnore
@@ -261,42 +306,64 @@ public class Description implements Serializable, Cloneable {
 
     @JsonIgnore
     public Object getConfigurationParameterValue(String parameter) {
-        if (!(this.specifier instanceof ResourceCreationSpecifier))
-            throw new IllegalArgumentException("The descriptor " + getName() + " is of class " + this.specifier.getClass().getCanonicalName() + ". A " + ResourceSpecifier.class.getCanonicalName() + " is required.");
+        MetaDataObject specifier = getDescriptor();
+        if (!(specifier instanceof ResourceCreationSpecifier))
+            throw new IllegalArgumentException("The descriptor " + getName() + " is of class " + specifier.getClass().getCanonicalName() + ". A " + ResourceSpecifier.class.getCanonicalName() + " is required.");
         if (this.getConfigurationParameters().containsKey(parameter)) {
-            return ConfigurationParameterFactory.getParameterSettings((ResourceSpecifier) this.specifier).getOrDefault(parameter, null);
+            return ConfigurationParameterFactory.getParameterSettings((ResourceSpecifier) specifier).getOrDefault(parameter, null);
         }
         return null;
     }
 
     public void setConfigurationParameterValue(String key, Object value) {
-        if (!(this.specifier instanceof ResourceCreationSpecifier))
-            throw new IllegalArgumentException("The descriptor " + getName() + " is of class " + this.specifier.getClass().getCanonicalName() + ". A " + ResourceSpecifier.class.getCanonicalName() + " is required.");
-        ConfigurationParameterFactory.setParameter((ResourceSpecifier) this.specifier, key, value);
+        MetaDataObject specifier = getDescriptor();
+        if (!(specifier instanceof ResourceCreationSpecifier))
+            throw new IllegalArgumentException("The descriptor " + getName() + " is of class " + specifier.getClass().getCanonicalName() + ". A " + ResourceSpecifier.class.getCanonicalName() + " is required.");
+        ConfigurationParameterFactory.setParameter((ResourceSpecifier) specifier, key, value);
+        markModified();
     }
 
     @JsonIgnore
     public MetaDataObject getDescriptor() {
+        if (descriptorReleased && metaDescription != null) {
+            try {
+                // reloads the descriptors of the component, including this one
+                metaDescription.getJCoReDescriptions();
+            } catch (DescriptorLoadingException e) {
+                throw new MetaDescriptionInteractionException(e);
+            }
+        }
         return specifier;
     }
 
     public void setDescriptor(MetaDataObject descriptor) {
         this.specifier = descriptor;
+        this.descriptorReleased = false;
+    }
+
+    /**
+     * Drops the UIMA descriptor of this description to free memory. It is loaded anew from the component JAR by
+     * {@link #getDescriptor()}.
+     */
+    void releaseDescriptor() {
+        descriptorReleased = true;
+        specifier = null;
+        configurationParameter = null;
     }
 
     @JsonIgnore
     public CollectionReaderDescription getDescriptorAsCollectionReaderDescription() {
-        return (CollectionReaderDescription) specifier;
+        return (CollectionReaderDescription) getDescriptor();
     }
 
     @JsonIgnore
     public AnalysisEngineDescription getDescriptorAsAnalysisEngineDescription() {
-        return (AnalysisEngineDescription) specifier;
+        return (AnalysisEngineDescription) getDescriptor();
     }
 
     @JsonIgnore
     public FlowControllerDescription getDescriptorAsFlowControllerDescriptor() {
-        return (FlowControllerDescription) specifier;
+        return (FlowControllerDescription) getDescriptor();
     }
 
     @Override
@@ -304,21 +371,15 @@ public class Description implements Serializable, Cloneable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Description that = (Description) o;
-        return Objects.equals(uri, that.uri) &&
-                Objects.equals(location, that.location) &&
-                category == that.category &&
-                Objects.equals(specifier, that.specifier) &&
-                Objects.equals(descriptorType, that.descriptorType) &&
-                Objects.equals(capabilities, that.capabilities) &&
-                Objects.equals(configurationParameter, that.configurationParameter) &&
-                Objects.equals(metaDescription, that.metaDescription) &&
+        // The descriptor is not compared since it might have been released and would have to be loaded anew
+        return category == that.category &&
+                metaDescription == that.metaDescription &&
                 Objects.equals(getName(), that.getName());
     }
 
     @Override
     public int hashCode() {
-
-        return Objects.hash(uri, location, category, specifier, descriptorType, capabilities, configurationParameter, metaDescription, getName());
+        return Objects.hash(category, System.identityHashCode(metaDescription), getName());
     }
 
     public MetaDescription getMetaDescription() {
@@ -336,9 +397,12 @@ public class Description implements Serializable, Cloneable {
 
     @Override
     public Description clone() throws CloneNotSupportedException {
+        MetaDataObject specifier = getDescriptor();
         Description clone = (Description) super.clone();
         if (specifier != null)
             clone.specifier = (MetaDataObject) specifier.clone();
+        clone.descriptorReleased = false;
+        clone.validation = null;
         clone.configurationParameter = null;
         return clone;
     }
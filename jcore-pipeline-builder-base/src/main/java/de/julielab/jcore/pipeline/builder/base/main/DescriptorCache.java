@@ -0,0 +1,123 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * <p>Bounds the memory taken by the parsed UIMA descriptors of the component catalog.</p>
+ * <p>The components whose descriptors have been materialized by {@link MetaDescription#getJCoReDescriptions()} are
+ * kept in least recently used order, weighted by the size of their descriptor XML. When the total size exceeds the
+ * maximum, the descriptors of the least recently used components are released. They are parsed anew from the
+ * component JAR when they are accessed again. The components of a pipeline are not affected since pipelines hold
+ * copies of the catalog descriptors. The maximum size can be set by the system property
+ * {@link PipelineBuilderConstants.JcoreMeta#DESCRIPTOR_CACHE_SIZE_PROPERTY}.</p>
+ * <p>Releasing the descriptors of a component locks the component. Since a component registers its descriptors while
+ * holding its own lock, the evicted components are only collected by {@link #materialized(MetaDescription, long)}
+ * and released by {@link #releaseEvicted()} which must be called without holding the lock of any component.</p>
+ */
+public class DescriptorCache {
+    public static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+    private final static Logger log = LoggerFactory.getLogger(DescriptorCache.class);
+    private static DescriptorCache instance;
+    private final long maxBytes;
+    /**
+     * The materialized components in access order, mapped to the size of their descriptor XML.
+     */
+    private final LinkedHashMap<MetaDescription, Long> components = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * The evicted components whose descriptors have not yet been released.
+     */
+    private final List<MetaDescription> evicted = new ArrayList<>();
+    private long totalBytes;
+
+    /**
+     * @param maxBytes The size of descriptor XML after which components are released.
+     */
+    public DescriptorCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static synchronized DescriptorCache getInstance() {
+        if (instance == null) {
+            long maxBytes = DEFAULT_MAX_BYTES;
+            String sizeProperty = System.getProperty(PipelineBuilderConstants.JcoreMeta.DESCRIPTOR_CACHE_SIZE_PROPERTY);
+            if (sizeProperty != null) {
+                try {
+                    maxBytes = Long.parseLong(sizeProperty.trim()) * 1024 * 1024;
+                } catch (NumberFormatException e) {
+                    log.warn("The value {} of the system property {} is not a number of megabytes, using the default.", sizeProperty, PipelineBuilderConstants.JcoreMeta.DESCRIPTOR_CACHE_SIZE_PROPERTY);
+                }
+            }
+            instance = new DescriptorCache(maxBytes);
+        }
+        return instance;
+    }
+
+    /**
+     * Registers the just materialized descriptors of <tt>md</tt> and evicts least recently used components if the
+     * maximum size is exceeded. The component itself is never evicted by this call. The descriptors of the evicted
+     * components are released by the next call to {@link #releaseEvicted()}.
+     *
+     * @param md    The component whose descriptors have been materialized.
+     * @param bytes The size of the descriptor XML of the component.
+     */
+    synchronized void materialized(MetaDescription md, long bytes) {
+        Long previous = components.put(md, bytes);
+        totalBytes += bytes - (previous != null ? previous : 0);
+        for (Iterator<Map.Entry<MetaDescription, Long>> it = components.entrySet().iterator(); it.hasNext() && totalBytes > maxBytes; ) {
+            Map.Entry<MetaDescription, Long> entry = it.next();
+            if (entry.getKey() != md) {
+                it.remove();
+                totalBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Releases the descriptors of the components evicted by {@link #materialized(MetaDescription, long)}, unless
+     * they have been materialized again in the meantime. Must not be called while holding the lock of a component.
+     */
+    void releaseEvicted() {
+        List<MetaDescription> toRelease;
+        synchronized (this) {
+            if (evicted.isEmpty())
+                return;
+            toRelease = new ArrayList<>();
+            for (MetaDescription md : evicted) {
+                if (!components.containsKey(md))
+                    toRelease.add(md);
+            }
+            evicted.clear();
+        }
+        for (MetaDescription md : toRelease)
+            md.releaseDescriptors();
+        log.trace("Released the descriptors of {} components to stay below {} bytes of descriptors.", toRelease.size(), maxBytes);
+    }
+
+    /**
+     * Marks <tt>md</tt> as most recently used.
+     *
+     * @param md The accessed component.
+     */
+    synchronized void accessed(MetaDescription md) {
+        components.get(md);
+    }
+
+    /**
+     * @return The size of the descriptor XML of the components currently materialized.
+     */
+    public synchronized long getSize() {
+        return totalBytes;
+    }
+
+    /**
+     * @return The number of components whose descriptors are currently materialized.
+     */
+    public synchronized int getNumberOfComponents() {
+        return components.size();
+    }
+}
@@ -0,0 +1,222 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Specifies how a pipeline run reacts to documents that fail in one of the components.</p>
+ * <p>Each failure causes the {@link #getAction() action} of the policy. It can be overridden for single components by
+ * {@link #getComponentActions()}. The actions are</p>
+ * <ul>
+ *     <li>{@link Action#SKIP}: the document is logged and skipped.</li>
+ *     <li>{@link Action#QUARANTINE}: the document is skipped and its identifier is recorded so that it can be
+ *     processed again later.</li>
+ *     <li>{@link Action#TERMINATE}: the document is skipped as long as there are no more than
+ *     {@link #getMaxErrors()} such failures within {@link #getWindow()} documents. Otherwise, the run is terminated.
+ *     </li>
+ * </ul>
+ * <p>The default policy terminates on the first error. The policy is stored with the pipeline and can be overridden
+ * in the configuration of the pipeline runner.</p>
+ * <p>The component overrides are given by component name. When the pipeline is stored, the names are mapped to the
+ * implementation classes of the components in {@link #getComponentClasses()}. The runner only sees a single CAS
+ * processor for the whole pipeline and identifies the failing component by the class in the stack trace of the
+ * error that has been called by the UIMA framework. Components sharing an implementation class with different actions
+ * can only be told apart when the CPE reports them as failed components.</p>
+ */
+public class ErrorPolicy {
+    public static final String FILE_NAME = "errorPolicy.json";
+    private static final String FRAMEWORK_PACKAGE = "org.apache.uima.";
+    private Action action = Action.TERMINATE;
+    private int maxErrors = 0;
+    private int window = 1;
+    private Map<String, Action> componentActions = new LinkedHashMap<>();
+    private Map<String, String> componentClasses = new LinkedHashMap<>();
+
+    public Action getAction() {
+        return action;
+    }
+
+    public void setAction(Action action) {
+        this.action = action;
+    }
+
+    /**
+     * @return The number of failures with the {@link Action#TERMINATE} action that are tolerated within
+     * {@link #getWindow()} documents.
+     */
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    public void setMaxErrors(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * @return The number of documents within which at most {@link #getMaxErrors()} failures are tolerated.
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    public void setWindow(int window) {
+        this.window = window;
+    }
+
+    /**
+     * @return Actions overriding {@link #getAction()} for failures in specific components. The keys are component
+     * names or implementation class names.
+     */
+    public Map<String, Action> getComponentActions() {
+        return componentActions;
+    }
+
+    public void setComponentActions(Map<String, Action> componentActions) {
+        this.componentActions = componentActions;
+    }
+
+    /**
+     * @return The implementation classes of the components in {@link #getComponentActions()} by component name.
+     */
+    public Map<String, String> getComponentClasses() {
+        return componentClasses;
+    }
+
+    public void setComponentClasses(Map<String, String> componentClasses) {
+        this.componentClasses = componentClasses;
+    }
+
+    /**
+     * @return Whether every failure terminates the run immediately which is the default behaviour.
+     */
+    public boolean terminatesOnFirstError() {
+        return action == Action.TERMINATE && maxErrors == 0 && componentActions.values().stream().allMatch(a -> a == Action.TERMINATE);
+    }
+
+    /**
+     * @return The error threshold in the form <tt>maxErrors/window</tt> as used by UIMA CPE descriptors.
+     */
+    public String toThresholdString() {
+        return maxErrors + "/" + window;
+    }
+
+    /**
+     * @param threshold An error threshold in the form <tt>maxErrors/window</tt>.
+     * @throws IllegalArgumentException If the threshold is malformed.
+     */
+    public void applyThreshold(String threshold) {
+        String[] parts = threshold.trim().split("/");
+        try {
+            if (parts.length != 2)
+                throw new NumberFormatException();
+            int maxErrors = Integer.parseInt(parts[0].trim());
+            int window = Integer.parseInt(parts[1].trim());
+            if (maxErrors < 0 || window < 1)
+                throw new NumberFormatException();
+            this.maxErrors = maxErrors;
+            this.window = window;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The error threshold must have the form <max errors>/<window size> with a non-negative number of errors and a positive window size but is " + threshold);
+        }
+    }
+
+    /**
+     * @return The component actions in the form <tt>key=action,key=action</tt> where the keys are the implementation
+     * classes of the components, if known, and their names otherwise.
+     */
+    public String toComponentActionsString() {
+        return componentActions.entrySet().stream()
+                .map(e -> componentClasses.getOrDefault(e.getKey(), e.getKey()) + "=" + e.getValue().name().toLowerCase())
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * Adds the component actions given in the form <tt>key=action,key=action</tt>, replacing existing actions for the
+     * same keys.
+     *
+     * @param componentActions The component actions.
+     * @throws IllegalArgumentException If an entry or an action is malformed.
+     */
+    public void applyComponentActions(String componentActions) {
+        for (String entry : componentActions.split(",")) {
+            if (entry.isBlank())
+                continue;
+            int i = entry.lastIndexOf('=');
+            if (i <= 0)
+                throw new IllegalArgumentException("The component error action " + entry + " does not have the form <component>=<action>.");
+            this.componentActions.put(entry.substring(0, i).trim(), Action.parse(entry.substring(i + 1)));
+        }
+    }
+
+    /**
+     * Determines the action for a failed document. A component action applies if its key is the name of a failed
+     * component or the implementation class of the component that was called by the UIMA framework when the error
+     * occurred. Otherwise, the policy action applies.
+     *
+     * @param failedComponentNames The names of the failed components as reported by the CPE.
+     * @param exceptions           The exceptions that caused the failure.
+     * @return The action for the failure.
+     */
+    public Action getAction(Collection<String> failedComponentNames, Collection<? extends Throwable> exceptions) {
+        if (componentActions.isEmpty())
+            return action;
+        for (Throwable exception : exceptions) {
+            Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Throwable t = exception; t != null && seen.add(t); t = t.getCause()) {
+                Action componentAction = getComponentAction(t.getStackTrace());
+                if (componentAction != null)
+                    return componentAction;
+            }
+        }
+        for (String name : failedComponentNames) {
+            Action componentAction = componentActions.get(name);
+            if (componentAction != null)
+                return componentAction;
+        }
+        return action;
+    }
+
+    /**
+     * Finds the component that was running when the error occurred. Components may call shared classes and even the
+     * implementation classes of other components. Thus, the failing component is not the innermost frame with a
+     * component class but the outermost one of the innermost sequence of frames that has been entered from the UIMA
+     * framework.
+     *
+     * @param frames The stack trace, starting with the innermost frame.
+     * @return The action of the failing component or <tt>null</tt> if there is no component in the stack trace.
+     */
+    private Action getComponentAction(StackTraceElement[] frames) {
+        Action componentAction = null;
+        for (StackTraceElement frame : frames) {
+            if (frame.getClassName().startsWith(FRAMEWORK_PACKAGE)) {
+                if (componentAction != null)
+                    return componentAction;
+            } else if (componentActions.containsKey(frame.getClassName())) {
+                componentAction = componentActions.get(frame.getClassName());
+            }
+        }
+        return componentAction;
+    }
+
+    @Override
+    public String toString() {
+        return "ErrorPolicy{action=" + action + ", threshold=" + toThresholdString() + ", componentActions=" + componentActions + "}";
+    }
+
+    public enum Action {
+        SKIP, QUARANTINE, TERMINATE;
+
+        /**
+         * @param action The action name in any case.
+         * @return The action.
+         * @throws IllegalArgumentException If there is no such action.
+         */
+        public static Action parse(String action) {
+            try {
+                return valueOf(action.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown error action " + action + ". Allowed are " + Arrays.stream(values()).map(a -> a.name().toLowerCase()).collect(Collectors.joining(", ")) + ".");
+            }
+        }
+    }
+}
@@ -6,7 +6,6 @@ import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 import de.julielab.java.utilities.FileUtilities;
-import de.julielab.java.utilities.classpath.JarLoader;
 import de.julielab.jcore.pipeline.builder.base.PipelineParameterChecker;
 import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineIOException;
 import de.julielab.utilities.aether.AetherUtilities;
@@ -28,8 +27,10 @@ import org.apache.uima.collection.metadata.CpeCasProcessor;
 import org.apache.uima.collection.metadata.CpeDescription;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.flow.FlowControllerDescription;
+import org.apache.uima.internal.util.UIMAClassLoader;
 import org.apache.uima.resource.ResourceCreationSpecifier;
 import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.ResourceManager;
 import org.apache.uima.resource.ResourceSpecifier;
 import org.apache.uima.resource.metadata.Import;
 import org.apache.uima.resource.metadata.MetaDataObject;
@@ -51,6 +52,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -72,6 +74,7 @@ public class JCoReUIMAPipeline {
     private static final String SERIALIZED_AE_DESCS_FILE = "aeDescriptions.json";
     private static final String SERIALIZED_CC_FLOW_CONTROLLER_DESCS_FILE = "ccFlowControllerDescriptions.json";
     private static final String SERIALIZED_CC_DESCS_FILE = "ccDescriptions.json";
+    private static final String SERIALIZED_PARENT_POM_FILE = "pipelineParentPomSource.json";
     private final static Logger log = LoggerFactory.getLogger(JCoReUIMAPipeline.class);
     private static final Function<List<Description>, Stream<Import>> tsImportsExtractor = descs -> descs.stream().flatMap(desc -> {
         final AnalysisEngineMetaData analysisEngineMetaData = desc.getDescriptorAsAnalysisEngineDescription().getAnalysisEngineMetaData();
@@ -92,6 +95,11 @@ public class JCoReUIMAPipeline {
      * library version conflicts using the dependencyManagement mechanism. May be <tt>null</tt>.
      */
     private MavenArtifact parentPom;
+    /**
+     * The reaction of pipeline runs to failing documents. May be <tt>null</tt> which means to terminate on the first
+     * error.
+     */
+    private ErrorPolicy errorPolicy;
     private Description crDescription;
     private List<Description> aeDelegates;
     private List<Description> cmDelegates;
@@ -114,7 +122,22 @@ public class JCoReUIMAPipeline {
      * This file is only non-null when the pipeline has been loaded.
      */
     private File loadDirectory;
-    private boolean areLibrariesLoaded;
+    /**
+     * The class loader for the libraries of this pipeline, obtained from {@link PipelineClassLoaders} on first use.
+     */
+    private UIMAClassLoader classLoader;
+    /**
+     * Tracks the satisfaction of the input type capabilities, see {@link #getTypeCapabilityGraph()}.
+     */
+    private final TypeCapabilityGraph typeCapabilityGraph = new TypeCapabilityGraph();
+    /**
+     * Shares resolved libraries with other pipelines when set, see {@link #setLibraryResolutionCache(LibraryResolutionCache)}.
+     */
+    private LibraryResolutionCache libraryResolutionCache;
+    /**
+     * Receives the progress events of the currently running {@link #store(File, boolean, PipelineStoreListener)}.
+     */
+    private PipelineStoreListener storeListener = PipelineStoreListener.NONE;
 
     /**
      * <p>
@@ -152,6 +175,21 @@ public class JCoReUIMAPipeline {
             parentPom.setCoordinatesFromFile();
     }
 
+    /**
+     * @return The error policy of the pipeline or <tt>null</tt> if none has been set.
+     */
+    public ErrorPolicy getErrorPolicy() {
+        return errorPolicy;
+    }
+
+    /**
+     * @param errorPolicy The reaction of pipeline runs to failing documents, <tt>null</tt> to terminate on the first
+     *                    error.
+     */
+    public void setErrorPolicy(ErrorPolicy errorPolicy) {
+        this.errorPolicy = errorPolicy;
+    }
+
     /**
      * @return Returns the multipliers from within the aeDelegates.
      */
@@ -203,7 +241,54 @@ public class JCoReUIMAPipeline {
     }
 
     public void store(File directory, boolean populateLibDir) throws PipelineIOException {
+        store(directory, populateLibDir, PipelineStoreListener.NONE);
+    }
+
+    /**
+     * <p>Stores the pipeline to the given directory in the phases given by {@link PipelineStoreListener.Phase} and
+     * reports the progress to <tt>listener</tt>.</p>
+     * <p>The artifacts phase comes last and works on the artifacts determined when it starts. Thus, the pipeline
+     * may be edited as soon as the artifacts phase has started. Storing is cancelled with a
+     * {@link CancellationException} when the storing thread is interrupted. If this happens during the artifacts
+     * phase, the library directory is emptied; it is populated again when the pipeline is loaded.</p>
+     *
+     * @param directory      The pipeline directory.
+     * @param populateLibDir Whether the libraries should be resolved and stored anew.
+     * @param listener       The receiver of the progress events.
+     * @throws PipelineIOException If storing fails.
+     */
+    public void store(File directory, boolean populateLibDir, PipelineStoreListener listener) throws PipelineIOException {
+        storeListener = listener;
+        try {
+            storePipelineState(directory);
+            if (populateLibDir) {
+                checkCancelled();
+                List<MavenArtifact> artifacts = getArtifactsToStore();
+                MavenArtifact parent = copyArtifact(parentPom);
+                long time = startPhase(PipelineStoreListener.Phase.ARTIFACTS);
+                storeLibraries(artifacts, parent, directory);
+                finishPhase(PipelineStoreListener.Phase.ARTIFACTS, time);
+            }
+        } finally {
+            storeListener = PipelineStoreListener.NONE;
+        }
+    }
+
+    private long startPhase(PipelineStoreListener.Phase phase) {
+        storeListener.phaseStarted(phase);
+        return System.nanoTime();
+    }
 
+    private void finishPhase(PipelineStoreListener.Phase phase, long startTime) {
+        storeListener.phaseFinished(phase, (System.nanoTime() - startTime) / 1000000);
+    }
+
+    private void checkCancelled() {
+        if (Thread.currentThread().isInterrupted())
+            throw new CancellationException("Storing the pipeline has been cancelled.");
+    }
+
+    private void storePipelineState(File directory) throws PipelineIOException {
         String message = "";
         if ((aaeDesc == null && (aeDelegates == null || aeDelegates.isEmpty()) && ccDesc == null && (ccDelegates == null || ccDelegates.isEmpty())) || crDescription == null) {
             message = "This pipeline has either no collection reader or no analysis engines and no consumer. " +
@@ -215,6 +300,7 @@ public class JCoReUIMAPipeline {
         //getClasspathElements().forEach(JarLoader::addJarToClassPath);
 
         // Store descriptors
+        long time = startPhase(PipelineStoreListener.Phase.DESCRIPTORS);
         try {
             File descDir = new File(directory.getAbsolutePath() + File.separator + DIR_DESC);
             File descDirAll = new File(directory.getAbsolutePath() + File.separator + DIR_DESC_ALL);
@@ -247,6 +333,7 @@ public class JCoReUIMAPipeline {
                 crDescription.getDescriptor().setSourceUrl(crFile.toURI().toURL());
                 crDescription.getDescriptor().toXML(FileUtilities.getWriterToFile(
                         crFile));
+                storeListener.fileWritten(crFile);
                 crDescription.setUimaDescPath(crFile.getName());
                 filesToDeleteOnSave.remove(crFile.getName());
             }
@@ -259,6 +346,7 @@ public class JCoReUIMAPipeline {
                 cm.getDescriptor().setSourceUrl(cmFile.toURI().toURL());
                 cm.getDescriptorAsAnalysisEngineDescription().toXML(FileUtilities.getWriterToFile(
                         cmFile), true);
+                storeListener.fileWritten(cmFile);
                 cm.setUimaDescPath(cmFile.getName());
                 filesToDeleteOnSave.remove(cmFile.getName());
             } else if (cmDelegates != null && cmDelegates.stream().filter(Description::isActive).count() > 1) {
@@ -313,8 +401,13 @@ public class JCoReUIMAPipeline {
                 }
             }
 
+            finishPhase(PipelineStoreListener.Phase.DESCRIPTORS, time);
+
             // Storing a CPE descriptor
+            checkCancelled();
+            time = startPhase(PipelineStoreListener.Phase.CPE);
             storeCPE(descDir, cmFile, aaeFile, ccFile);
+            finishPhase(PipelineStoreListener.Phase.CPE, time);
         } catch (SAXException | IOException | ResourceInitializationException e) {
             throw new PipelineIOException(e);
         } catch (InvalidXMLException e) {
@@ -322,6 +415,8 @@ public class JCoReUIMAPipeline {
         }
 
         // Store the list of not-configured mandatory parameters
+        checkCancelled();
+        time = startPhase(PipelineStoreListener.Phase.MISSING_CONFIGURATION);
         List<PipelineParameterChecker.MissingComponentConfiguration> missingConfiguration = PipelineParameterChecker.findMissingConfiguration(this);
         File missingConfigFile = new File(directory.getAbsolutePath() + File.separator + PipelineParameterChecker.MISSING_CONFIG_FILE_NAME);
         if (missingConfigFile.exists())
@@ -330,10 +425,15 @@ public class JCoReUIMAPipeline {
             try {
                 log.warn("There are missing configuration items for this pipeline. A list of these items is written to {}.", missingConfigFile);
                 PipelineParameterChecker.writeMissingConfigurationToFile(missingConfiguration, missingConfigFile);
+                storeListener.fileWritten(missingConfigFile);
             } catch (IOException e) {
                 log.warn("Could not write the file for missing configuration items", e);
             }
         }
+        finishPhase(PipelineStoreListener.Phase.MISSING_CONFIGURATION, time);
+
+        checkCancelled();
+        time = startPhase(PipelineStoreListener.Phase.SERIALIZATION);
 
         // Write a file that indicates the pipeline builder version
         try (InputStream versionFileStream = getClass().getResourceAsStream("/version.txt")) {
@@ -350,21 +450,6 @@ public class JCoReUIMAPipeline {
             throw new PipelineIOException(e);
         }
 
-        // Store the required Maven artifacts in the lib directory
-        try {
-            final File libDir = new File(directory.getAbsolutePath() + File.separator + DIR_LIB);
-            if (populateLibDir) {
-                if (libDir.exists()) {
-                    log.debug("Removing all files from the library directory at {}", libDir);
-                    Stream.of(libDir.listFiles()).forEach(File::delete);
-                }
-                log.debug("Storing all artifact files to {}", libDir);
-                storeArtifacts(directory);
-            }
-        } catch (MavenException e) {
-            throw new PipelineIOException(e);
-        }
-
         // Store descriptions with their meta data
         try {
             serializeDescriptions(directory, SERIALIZED_CR_DESCS_FILE, crDescription);
@@ -394,11 +479,59 @@ public class JCoReUIMAPipeline {
         if (parentPom != null) {
             ObjectMapper om = new ObjectMapper();
             try {
-                om.writeValue(Path.of(directory.getAbsolutePath(), "pipelineParentPomSource.json").toFile(), parentPom);
+                om.writeValue(Path.of(directory.getAbsolutePath(), SERIALIZED_PARENT_POM_FILE).toFile(), parentPom);
             } catch (IOException e) {
                 throw new PipelineIOException(e);
             }
         }
+
+        // Store the error policy, if set, with the implementation classes of the overridden components
+        File errorPolicyFile = new File(directory, ErrorPolicy.FILE_NAME);
+        if (errorPolicy != null) {
+            errorPolicy.setComponentClasses(getComponentClasses(errorPolicy.getComponentActions()));
+            try {
+                new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(errorPolicyFile, errorPolicy);
+                storeListener.fileWritten(errorPolicyFile);
+            } catch (IOException e) {
+                throw new PipelineIOException(e);
+            }
+        } else if (errorPolicyFile.exists()) {
+            errorPolicyFile.delete();
+        }
+
+        // Pack the files read by load(true) into a single snapshot; the regular layout stays the authoritative source
+        storePipelineSnapshot(directory);
+        finishPhase(PipelineStoreListener.Phase.SERIALIZATION, time);
+    }
+
+    /**
+     * Stores the required Maven artifacts in the lib directory. The directory is emptied if storing is cancelled or
+     * fails.
+     */
+    private void storeLibraries(List<MavenArtifact> artifacts, MavenArtifact parent, File directory) throws PipelineIOException {
+        final File libDir = new File(directory.getAbsolutePath() + File.separator + DIR_LIB);
+        if (libDir.exists()) {
+            log.debug("Removing all files from the library directory at {}", libDir);
+            Stream.of(libDir.listFiles()).forEach(File::delete);
+        }
+        log.debug("Storing all artifact files to {}", libDir);
+        boolean success = false;
+        try {
+            storeArtifacts(artifacts, parent, directory);
+            checkCancelled();
+            File[] libFiles = libDir.listFiles();
+            storeListener.librariesStored(libFiles.length, Stream.of(libFiles).mapToLong(File::length).sum());
+            success = true;
+        } catch (MavenException e) {
+            // the interruption might have caused the exception
+            checkCancelled();
+            throw new PipelineIOException(e);
+        } finally {
+            if (!success && libDir.exists()) {
+                log.debug("Removing the incompletely stored libraries from {}", libDir);
+                Stream.of(libDir.listFiles()).forEach(File::delete);
+            }
+        }
     }
 
     /**
@@ -472,15 +605,18 @@ public class JCoReUIMAPipeline {
                                 cpeAAEFile));
                 cpe.setAnalysisEngine(cpeAAEFile.getName(), "CPE AAE");
 
+                ErrorPolicy policy = errorPolicy != null ? errorPolicy : new ErrorPolicy();
                 for (CpeCasProcessor casProcessor : cpe.getDescription().getCpeCasProcessors().getAllCpeCasProcessors()) {
                     // this corresponds to the following XML element in the CAS.xml:
                     // <errorRateThreshold action="terminate" value="0/1"/>
                     // In "value", the first number is the maximum number of errors and the second number is
                     // the window (a number of documents) in which the maximum number of errors are allowed to happen.
-                    // We here want to express that no error is allowed by default. The CPE should just abort and
-                    // exit on errors.
-                    casProcessor.setMaxErrorCount(0);
-                    casProcessor.setMaxErrorSampleSize(1);
+                    // By default, no error is allowed and the CPE should just abort and exit on errors. Other
+                    // policies distinguish failing components which the CPE cannot do because the whole pipeline
+                    // is a single CAS processor. Then, the CPE continues and the runner enforces the policy.
+                    casProcessor.setMaxErrorCount(policy.getMaxErrors());
+                    casProcessor.setMaxErrorSampleSize(policy.getWindow());
+                    casProcessor.setActionOnMaxError(policy.terminatesOnFirstError() ? "terminate" : "continue");
                 }
 
                 final CpeDescription cpeDescription = cpe.getDescription();
@@ -488,6 +624,8 @@ public class JCoReUIMAPipeline {
                 cpeDescription.toXML(FileUtilities.getWriterToFile(
                         cpeFile
                 ));
+                storeListener.fileWritten(cpeAAEFile);
+                storeListener.fileWritten(cpeFile);
             } else {
                 log.warn("Could not store a CPE descriptor because a CasConsumer is included in the pipeline that " +
                         "implements a CasConsumer interface rather than the AnalysisEngine interface. Note " +
@@ -536,8 +674,7 @@ public class JCoReUIMAPipeline {
                 aaeDesc.getDelegateAnalysisEngineSpecifiers();
         } catch (InvalidXMLException e) {
             log.debug("An InvalidXMLException was thrown. This could be due to actually invalid XML but also because a type descriptor import couldn't be found. Loading dependencies.");
-            addLibrariesToClassPath();
-            aaeDesc.getDelegateAnalysisEngineSpecifiers();
+            aaeDesc.getDelegateAnalysisEngineSpecifiers(getLibraryResourceManager());
         }
         ((FixedFlow) aaeDesc.getAnalysisEngineMetaData().getFlowConstraints()).setFixedFlow(flowNames.toArray(new String[0]));
         aaeDesc.getAnalysisEngineMetaData().setName(name);
@@ -573,8 +710,7 @@ public class JCoReUIMAPipeline {
                 aaeDesc.getDelegateAnalysisEngineSpecifiers();
         } catch (InvalidXMLException e) {
             log.debug("An InvalidXMLException was thrown. This could be due to actually invalid XML but also because a type descriptor import couldn't be found. Loading dependencies.");
-            addLibrariesToClassPath();
-            aaeDesc.getDelegateAnalysisEngineSpecifiers();
+            aaeDesc.getDelegateAnalysisEngineSpecifiers(getLibraryResourceManager());
         }
 //        ((FixedFlow) aaeDesc.getAnalysisEngineMetaData().getFlowConstraints()).setFixedFlow(flowNames.toArray(new String[0]));
         aaeDesc.getAnalysisEngineMetaData().setName(name);
@@ -630,6 +766,7 @@ public class JCoReUIMAPipeline {
                 spec.toXML(writer);
             }
         }
+        storeListener.fileWritten(path);
     }
 
     private Path getDescriptorStoragePath(Description desc, File destinationDir) {
@@ -652,6 +789,7 @@ public class JCoReUIMAPipeline {
         else
             ccDesc.getDescriptor().toXML(FileUtilities.getWriterToFile(ccFile));
         filesToDeleteOnSave.remove(ccFile.getName());
+        storeListener.fileWritten(ccFile);
     }
 
     /**
@@ -661,9 +799,23 @@ public class JCoReUIMAPipeline {
      * @return
      */
     public void storeArtifacts(File directory) throws MavenException {
+        storeArtifacts(getArtifactsToStore(), parentPom, directory);
+    }
+
+    private void storeArtifacts(List<MavenArtifact> artifacts, MavenArtifact parent, File directory) throws MavenException {
         File libDir = new File(directory.getAbsolutePath() + File.separator + DIR_LIB);
         if (!libDir.exists())
             libDir.mkdirs();
+        storeListener.artifactsResolving(artifacts.size());
+        storeArtifactsOfDescriptions(artifacts, parent, libDir);
+        // the libraries might have changed
+        releaseClassLoader();
+    }
+
+    /**
+     * @return Copies of the Maven artifacts of the pipeline components, unaffected by later changes to the pipeline.
+     */
+    private List<MavenArtifact> getArtifactsToStore() {
         Stream<Description> descriptions = Stream.empty();
         if (crDescription != null && crDescription.getMetaDescription() != null)
             descriptions = Stream.concat(descriptions, Stream.of(crDescription));
@@ -677,7 +829,17 @@ public class JCoReUIMAPipeline {
             descriptions = Stream.concat(descriptions, Stream.of(ccFlowController));
         if (ccDelegates != null)
             descriptions = Stream.concat(descriptions, ccDelegates.stream().filter(d -> Objects.nonNull(d.getMetaDescription())));
-        storeArtifactsOfDescriptions(descriptions, libDir);
+        return descriptions.map(d -> copyArtifact(d.getMetaDescription().getMavenArtifact())).collect(toList());
+    }
+
+    private static MavenArtifact copyArtifact(MavenArtifact artifact) {
+        if (artifact == null)
+            return null;
+        MavenArtifact copy = new MavenArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion());
+        copy.setClassifier(artifact.getClassifier());
+        copy.setPackaging(artifact.getPackaging());
+        copy.setFile(artifact.getFile());
+        return copy;
     }
 
     /**
@@ -686,12 +848,85 @@ public class JCoReUIMAPipeline {
      * version of the artifact in question and tries again. This can solve issues where a SNAPSHOT version was used
      * originally that is not available any more.
      *
-     * @param descriptions The pipeline's component descriptions. Should be complete for conflict resolution.
-     * @param libDir       The directory in which the dependencies should be stored.
+     * @param artifacts The artifacts of the pipeline's components. Should be complete for conflict resolution.
+     * @param parent    The parent POM of the pipeline, may be <tt>null</tt>.
+     * @param libDir    The directory in which the dependencies should be stored.
      * @throws MavenException
      */
-    private void storeArtifactsOfDescriptions(Stream<Description> descriptions, File libDir) throws MavenException {
-        AetherUtilities.storeArtifactsWithDependencies(parentPom, descriptions.map(d -> d.getMetaDescription().getMavenArtifact()), libDir);
+    private void storeArtifactsOfDescriptions(List<MavenArtifact> artifacts, MavenArtifact parent, File libDir) throws MavenException {
+        if (libraryResolutionCache == null) {
+            AetherUtilities.storeArtifactsWithDependencies(parent, artifacts.stream(), libDir);
+        } else {
+            Function<MavenArtifact, String> coordinates = a -> a.getGroupId() + ":" + a.getArtifactId() + ":" + a.getClassifier() + ":" + a.getVersion();
+            String key = (parent != null ? coordinates.apply(parent) : "") + "|" + artifacts.stream().map(coordinates).sorted().collect(joining(","));
+            libraryResolutionCache.storeLibraries(key, libDir, dir -> AetherUtilities.storeArtifactsWithDependencies(parent, artifacts.stream(), dir));
+        }
+    }
+
+    /**
+     * Sets a cache that shares the resolved libraries between pipelines with the same component artifacts when the
+     * artifacts are stored by {@link #storeArtifacts(File)}. By default, the libraries are resolved anew for each call.
+     *
+     * @param libraryResolutionCache The cache or <tt>null</tt> to always resolve the libraries.
+     */
+    public void setLibraryResolutionCache(LibraryResolutionCache libraryResolutionCache) {
+        this.libraryResolutionCache = libraryResolutionCache;
+    }
+
+    private Map<String, String> getComponentClasses(Map<String, ErrorPolicy.Action> componentActions) {
+        Map<String, String> componentClasses = new LinkedHashMap<>();
+        Stream<Description> descriptions = Stream.of(Stream.ofNullable(crDescription), Stream.ofNullable(cmDelegates).flatMap(List::stream), Stream.ofNullable(aeDelegates).flatMap(List::stream), Stream.ofNullable(ccDelegates).flatMap(List::stream), Stream.ofNullable(aeFlowController), Stream.ofNullable(ccFlowController)).flatMap(Function.identity());
+        descriptions.filter(d -> componentActions.containsKey(d.getName())).forEach(d -> {
+            if (d.getDescriptor() instanceof ResourceCreationSpecifier && ((ResourceCreationSpecifier) d.getDescriptor()).getImplementationName() != null)
+                componentClasses.put(d.getName(), ((ResourceCreationSpecifier) d.getDescriptor()).getImplementationName());
+            else
+                log.warn("The component {} has an error action but does not specify an implementation class. The action can only be applied when the CPE reports it as failed component.", d.getName());
+        });
+        // The runner identifies the components by their classes which is ambiguous for components sharing a class
+        Map<String, Set<ErrorPolicy.Action>> actionsByClass = new HashMap<>();
+        componentClasses.forEach((name, className) -> actionsByClass.computeIfAbsent(className, k -> new HashSet<>()).add(componentActions.get(name)));
+        componentClasses.entrySet().removeIf(e -> {
+            if (actionsByClass.get(e.getValue()).size() == 1)
+                return false;
+            log.warn("The component {} shares its implementation class {} with a component with another error action. The action can only be applied when the CPE reports it as failed component.", e.getKey(), e.getValue());
+            return true;
+        });
+        return componentClasses;
+    }
+
+    private void storePipelineSnapshot(File directory) {
+        File snapshotFile = PipelineSnapshot.getSnapshotFile(directory);
+        if (!PipelineSnapshot.isPipelineSnapshotEnabled()) {
+            if (snapshotFile.exists())
+                snapshotFile.delete();
+            return;
+        }
+        List<File> files = Stream.of(SERIALIZED_CR_DESCS_FILE, SERIALIZED_CM_DESCS_FILE, SERIALIZED_AE_FLOW_CONTROLLER_DESCS_FILE,
+                SERIALIZED_AE_DESCS_FILE, SERIALIZED_CC_FLOW_CONTROLLER_DESCS_FILE, SERIALIZED_CC_DESCS_FILE, SERIALIZED_PARENT_POM_FILE, ErrorPolicy.FILE_NAME)
+                .map(name -> new File(directory, name)).collect(Collectors.toList());
+        File[] xmlFiles = getDescriptorDirectory(directory).listFiles(f -> f.getName().endsWith(".xml"));
+        if (xmlFiles != null)
+            files.addAll(Arrays.asList(xmlFiles));
+        try {
+            storeListener.fileWritten(PipelineSnapshot.write(directory, files));
+        } catch (IOException e) {
+            log.warn("Could not write the pipeline snapshot {}. The pipeline will be loaded from the regular files.", snapshotFile, e);
+            snapshotFile.delete();
+        }
+    }
+
+    /**
+     * @param pipelineDir The pipeline directory.
+     * @return The directory from which the descriptors are loaded, {@value DIR_DESC_ALL} if it exists, {@value DIR_DESC} otherwise.
+     */
+    private File getDescriptorDirectory(File pipelineDir) {
+        File descDir = new File(pipelineDir.getAbsolutePath() + File.separator + DIR_DESC_ALL);
+        if (!descDir.exists()) {
+            File allDescDir = descDir;
+            descDir = new File(pipelineDir.getAbsolutePath() + File.separator + DIR_DESC);
+            log.debug("Directory {} does not exist, falling back to {}", allDescDir, descDir);
+        }
+        return descDir;
     }
 
     private void serializeDescriptions(File pipelineStorageDir, String targetFileName, Object descriptions) throws IOException {
@@ -701,13 +936,16 @@ public class JCoReUIMAPipeline {
         final ObjectMapper om = new ObjectMapper();
         om.addMixIn(MetaDescription.class, MetaDescriptionPipelineStorageMixin.class);
         om.writeValue(FileUtilities.getWriterToFile(targetFile), descriptions);
+        storeListener.fileWritten(targetFile);
     }
 
-    private <T> T deserializeDescriptions(File pipelineStorageDir, String sourceFileName, TypeReference<?> typeReference) throws IOException, ClassNotFoundException {
+    private <T> T deserializeDescriptions(File pipelineStorageDir, String sourceFileName, TypeReference<?> typeReference, PipelineSnapshot snapshot) throws IOException, ClassNotFoundException {
         File sourceFile = new File(pipelineStorageDir.getAbsolutePath() + File.separatorChar + sourceFileName);
+        final ObjectMapper om = new ObjectMapper();
+        if (snapshot != null && snapshot.contains(sourceFile))
+            return (T) om.readValue(snapshot.getInputStream(sourceFile), typeReference);
         if (!sourceFile.exists())
             return null;
-        final ObjectMapper om = new ObjectMapper();
         try (BufferedReader reader = FileUtilities.getReaderFromFile(sourceFile)) {
             return (T) om.readValue(reader, typeReference);
         }
@@ -718,6 +956,8 @@ public class JCoReUIMAPipeline {
     }
 
     public void setLoadDirectory(File loadDirectory) {
+        if (!Objects.equals(this.loadDirectory, loadDirectory))
+            releaseClassLoader();
         this.loadDirectory = loadDirectory;
     }
 
@@ -735,21 +975,25 @@ public class JCoReUIMAPipeline {
         if (!loadDirectory.exists())
             throw new PipelineIOException("The JCoReUIMAPipeline directory "
                     + loadDirectory + " does not exist.");
+        // The snapshot is only valid if none of the files it packs has been changed since the pipeline was stored
+        PipelineSnapshot snapshot = forEditing && PipelineSnapshot.isPipelineSnapshotEnabled() ? PipelineSnapshot.open(loadDirectory) : null;
+        if (snapshot != null)
+            log.debug("Loading the pipeline from the snapshot {}", PipelineSnapshot.getSnapshotFile(loadDirectory));
         try {
             try {
                 if (forEditing) {
                     crDescription = deserializeDescriptions(loadDirectory, SERIALIZED_CR_DESCS_FILE, new TypeReference<Description>() {
-                    });
+                    }, snapshot);
                     cmDelegates = deserializeDescriptions(loadDirectory, SERIALIZED_CM_DESCS_FILE, new TypeReference<List<Description>>() {
-                    });
+                    }, snapshot);
                     aeFlowController = deserializeDescriptions(loadDirectory, SERIALIZED_AE_FLOW_CONTROLLER_DESCS_FILE, new TypeReference<Description>() {
-                    });
+                    }, snapshot);
                     aeDelegates = deserializeDescriptions(loadDirectory, SERIALIZED_AE_DESCS_FILE, new TypeReference<List<Description>>() {
-                    });
+                    }, snapshot);
                     ccFlowController = deserializeDescriptions(loadDirectory, SERIALIZED_CC_FLOW_CONTROLLER_DESCS_FILE, new TypeReference<Description>() {
-                    });
+                    }, snapshot);
                     ccDelegates = deserializeDescriptions(loadDirectory, SERIALIZED_CC_DESCS_FILE, new TypeReference<List<Description>>() {
-                    });
+                    }, snapshot);
                 }
             } catch (ClassNotFoundException e) {
                 throw new PipelineIOException(e);
@@ -757,20 +1001,26 @@ public class JCoReUIMAPipeline {
 
             // Load the parent pipeline POM
             final ObjectMapper om = new ObjectMapper();
-            final File parentPomFile = Path.of(loadDirectory.getAbsolutePath(), ("pipelineParentPomSource.json")).toFile();
-            if (parentPomFile.exists())
+            final File parentPomFile = Path.of(loadDirectory.getAbsolutePath(), SERIALIZED_PARENT_POM_FILE).toFile();
+            if (snapshot != null && snapshot.contains(parentPomFile))
+                parentPom = om.readValue(snapshot.getInputStream(parentPomFile), MavenArtifact.class);
+            else if (parentPomFile.exists())
                 parentPom = om.readValue(parentPomFile, MavenArtifact.class);
 
-            File descDir = new File(loadDirectory.getAbsolutePath() + File.separator + DIR_DESC_ALL);
-            if (!descDir.exists()) {
-                File allDescDir = descDir;
-                descDir = new File(loadDirectory.getAbsolutePath() + File.separator + DIR_DESC);
-                log.debug("Directory {} does not exist, falling back to {}", allDescDir, descDir);
-            }
+            // Load the error policy, it is also required for running the pipeline
+            final File errorPolicyFile = new File(loadDirectory, ErrorPolicy.FILE_NAME);
+            if (snapshot != null && snapshot.contains(errorPolicyFile))
+                errorPolicy = om.readValue(snapshot.getInputStream(errorPolicyFile), ErrorPolicy.class);
+            else if (errorPolicyFile.exists())
+                errorPolicy = om.readValue(errorPolicyFile, ErrorPolicy.class);
+
+            File descDir = getDescriptorDirectory(loadDirectory);
             if (!descDir.exists())
                 throw new PipelineIOException("The JCoReUIMAPipeline directory "
                         + loadDirectory + " does not have the descriptor sub directory " + DIR_DESC_ALL + " or " + DIR_DESC);
-            File[] xmlFiles = descDir.listFiles(f -> f.getName().endsWith(".xml"));
+            File[] xmlFiles = snapshot != null ? snapshot.listDescriptorFiles(descDir) : null;
+            if (xmlFiles == null)
+                xmlFiles = descDir.listFiles(f -> f.getName().endsWith(".xml"));
             List<CollectionReaderDescription> crDescs = new ArrayList<>();
             List<AnalysisEngineDescription> cmDescs = new ArrayList<>();
             List<AnalysisEngineDescription> aaeCmDescs = new ArrayList<>();
@@ -789,8 +1039,8 @@ public class JCoReUIMAPipeline {
                 XMLParser parser = UIMAFramework.getXMLParser();
                 ResourceCreationSpecifier spec = null;
                 try {
-                    spec = (ResourceCreationSpecifier) parser.parseResourceSpecifier(
-                            new XMLInputSource(xmlFile));
+                    XMLInputSource xmlInputSource = snapshot != null && snapshot.contains(xmlFile) ? new XMLInputSource(snapshot.getInputStream(xmlFile), xmlFile.getParentFile()) : new XMLInputSource(xmlFile);
+                    spec = (ResourceCreationSpecifier) parser.parseResourceSpecifier(xmlInputSource);
                 } catch (InvalidXMLException e) {
                     if (log.isDebugEnabled()) {
                         List<String> messages = new ArrayList<>();
@@ -949,7 +1199,6 @@ public class JCoReUIMAPipeline {
                 descriptor = specByName.get(component);
                 if (descriptor == null) {
                     // we need to check if this is an AAE with integrated descriptors
-                    addLibrariesToClassPath();
                     final MetaDataObject metaDataObject = aae.getDelegateAnalysisEngineSpecifiersWithImports().get(component);
                     if (metaDataObject == null)
                         throw new IllegalStateException("The AAE '" + aae.getMetaData().getName() + "' specifies the flow component '" + component + "' but does not list it as a delegate.");
@@ -973,12 +1222,40 @@ public class JCoReUIMAPipeline {
         }
     }
 
-    private void addLibrariesToClassPath() throws PipelineIOException {
-        if (!areLibrariesLoaded) {
+    /**
+     * Returns the class loader for the libraries of this pipeline. The libraries are not added to the application
+     * class path. Instead, pipelines with the same libraries share a class loader from {@link PipelineClassLoaders}
+     * which is closed when no pipeline uses it anymore, see {@link #releaseClassLoader()}.
+     *
+     * @return The class loader for the libraries of this pipeline.
+     * @throws PipelineIOException If the libraries cannot be determined.
+     */
+    public ClassLoader getClassLoader() throws PipelineIOException {
+        return getUIMAClassLoader();
+    }
+
+    private synchronized UIMAClassLoader getUIMAClassLoader() throws PipelineIOException {
+        if (classLoader == null) {
             log.info("Loading pipeline libraries. This is required to resolve AAE descriptor imports.");
-            getClasspathElements().forEach(JarLoader::addJarToClassPath);
+            classLoader = PipelineClassLoaders.getInstance().acquire(getClasspathElements().collect(toList()));
         }
-        areLibrariesLoaded = true;
+        return classLoader;
+    }
+
+    /**
+     * Releases the class loader of this pipeline. A later call to {@link #getClassLoader()} creates a class loader
+     * for the then current libraries.
+     */
+    public synchronized void releaseClassLoader() {
+        if (classLoader != null) {
+            PipelineClassLoaders.getInstance().release(classLoader);
+            classLoader = null;
+        }
+    }
+
+    private ResourceManager getLibraryResourceManager() throws PipelineIOException {
+        // the class loader is used as returned under the lock, the field may be reset by releaseClassLoader()
+        return PipelineClassLoaders.newResourceManager(getUIMAClassLoader());
     }
 
     /**
@@ -1017,10 +1294,10 @@ public class JCoReUIMAPipeline {
             }
         } catch (InvalidXMLException e) {
             log.debug("An InvalidXMLException was thrown while loading descriptors from file. This could be due to actually invalid XML but also because a type descriptor import couldn't be found. Loading dependencies.");
-            addLibrariesToClassPath();
+            ResourceManager resourceManager = getLibraryResourceManager();
             delegateUris = new HashSet<>();
             for (AnalysisEngineDescription aaeDesc : aaeDescs) {
-                delegateUris.addAll(aaeDesc.getDelegateAnalysisEngineSpecifiers().values().stream().map(ResourceSpecifier::getSourceUrl).map(url2String).collect(toList()));
+                delegateUris.addAll(aaeDesc.getDelegateAnalysisEngineSpecifiers(resourceManager).values().stream().map(ResourceSpecifier::getSourceUrl).map(url2String).collect(toList()));
             }
         }
         Sets.SetView<String> topAAEs = Sets.difference(aaeUris, delegateUris);
@@ -1216,6 +1493,21 @@ public class JCoReUIMAPipeline {
         return artifactList.stream().flatMap(Function.identity()).filter(Objects::nonNull).filter(a -> Objects.nonNull(a.getArtifactId()));
     }
 
+    /**
+     * Checks whether a component of this pipeline stems from the given component. Since the descriptions of a loaded
+     * pipeline have their own meta descriptions, the components are compared by their Maven coordinates.
+     *
+     * @param metaDescription The meta description of a component, e.g. from the component catalog.
+     * @return True if this pipeline contains a component with the Maven artifact of <tt>metaDescription</tt>.
+     */
+    public boolean containsComponent(MetaDescription metaDescription) {
+        MavenArtifact artifact = metaDescription.getMavenArtifactCoordinates();
+        if (artifact == null || artifact.getArtifactId() == null)
+            return false;
+        return getMavenComponentArtifacts().anyMatch(a -> a.getArtifactId().equals(artifact.getArtifactId())
+                && Objects.equals(a.getGroupId(), artifact.getGroupId()));
+    }
+
     /**
      * Removes the given description and the maven artifacts associated with the component.
      *
@@ -1289,9 +1581,20 @@ public class JCoReUIMAPipeline {
         if (ccDelegates != null)
             ccDelegates.clear();
 
+        releaseClassLoader();
         loadDirectory = null;
     }
 
+    /**
+     * Returns the type capability graph of this pipeline, updated to the current component sequence. Only the part
+     * of the pipeline changed since the last call is recomputed.
+     *
+     * @return The up-to-date type capability graph.
+     */
+    public TypeCapabilityGraph getTypeCapabilityGraph() {
+        return typeCapabilityGraph.update(this);
+    }
+
     public Description getAeFlowController() {
         return aeFlowController;
     }
@@ -0,0 +1,79 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.utilities.aether.MavenException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Shares the resolved library directories between pipelines with the same component artifacts and parent POM.</p>
+ * <p>The first pipeline storing its libraries for a given set of artifacts resolves the artifacts and their transitive
+ * dependencies via Maven. Further pipelines with the same artifacts - also when stored concurrently - wait for this
+ * resolution and then just copy the resulting library files into their own library directory.</p>
+ * <p>The cache is meant for batch processing of many pipelines. It does not notice changes of SNAPSHOT artifacts in
+ * the Maven repositories after their first resolution.</p>
+ *
+ * @see JCoReUIMAPipeline#setLibraryResolutionCache(LibraryResolutionCache)
+ */
+public class LibraryResolutionCache {
+    private final static Logger log = LoggerFactory.getLogger(LibraryResolutionCache.class);
+    private final Map<String, CompletableFuture<List<File>>> libraries = new ConcurrentHashMap<>();
+
+    /**
+     * Fills <tt>libDir</tt> with the libraries for the artifacts identified by <tt>key</tt>. Only if those libraries
+     * have not been resolved before, <tt>resolver</tt> is called.
+     *
+     * @param key      A key identifying the parent POM and the artifacts whose libraries are stored.
+     * @param libDir   The directory to store the libraries to.
+     * @param resolver Resolves the libraries and stores them to a given directory.
+     * @throws MavenException If the libraries cannot be resolved.
+     */
+    public void storeLibraries(String key, File libDir, LibraryResolver resolver) throws MavenException {
+        CompletableFuture<List<File>> future = new CompletableFuture<>();
+        CompletableFuture<List<File>> existing = libraries.putIfAbsent(key, future);
+        if (existing == null) {
+            try {
+                resolver.storeLibraries(libDir);
+                File[] files = libDir.listFiles(File::isFile);
+                future.complete(files != null ? Arrays.asList(files) : Collections.emptyList());
+            } catch (MavenException | RuntimeException e) {
+                libraries.remove(key, future);
+                future.completeExceptionally(e);
+                throw e;
+            }
+            return;
+        }
+        List<File> files;
+        try {
+            files = existing.join();
+        } catch (CompletionException e) {
+            log.debug("The shared resolution of the libraries for {} failed, resolving them for {} again.", key, libDir);
+            resolver.storeLibraries(libDir);
+            return;
+        }
+        log.debug("Copying {} already resolved libraries to {}", files.size(), libDir);
+        try {
+            for (File file : files)
+                Files.copy(file.toPath(), new File(libDir, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.debug("Could not copy the already resolved libraries to {}, resolving them again: {}", libDir, e.getMessage());
+            resolver.storeLibraries(libDir);
+        }
+    }
+
+    @FunctionalInterface
+    public interface LibraryResolver {
+        void storeLibraries(File libDir) throws MavenException;
+    }
+}
@@ -9,7 +9,7 @@ import com.fasterxml.jackson.databind.util.StdConverter;
 import de.julielab.jcore.pipeline.builder.base.exceptions.DescriptorLoadingException;
 import de.julielab.jcore.pipeline.builder.base.exceptions.MetaDescriptionInteractionException;
 import de.julielab.jcore.pipeline.builder.base.interfaces.IMetaDescription;
-import de.julielab.jcore.pipeline.builder.base.utils.DescriptorUtils;
+import de.julielab.jcore.pipeline.builder.base.utils.JarDescriptorIndex;
 import de.julielab.utilities.aether.MavenArtifact;
 import de.julielab.utilities.aether.MavenException;
 import org.apache.uima.resource.ResourceSpecifier;
@@ -17,6 +17,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
 import java.util.function.Supplier;
@@ -57,24 +58,87 @@ public class MetaDescription implements IMetaDescription, Serializable {
      */
     @JsonIgnore
     private boolean artifactInitialized = false;
+    /**
+     * Set when the descriptors of this component have been released by the {@link DescriptorCache}. They are then
+     * loaded anew from the component JAR on the next access.
+     */
+    @JsonIgnore
+    private transient volatile boolean descriptorsReleased = false;
+    /**
+     * Set for summaries created from the table of contents of a {@link CatalogSnapshot}. They only carry the name,
+     * description, group, categories and module; the remaining fields are taken from the meta description returned
+     * by this supplier when they are first accessed.
+     */
+    @JsonIgnore
+    private transient volatile Supplier<MetaDescription> snapshotEntry;
 
     public MetaDescription() {
     }
 
+    /**
+     * Creates the summary of a component stored in a {@link CatalogSnapshot}.
+     *
+     * @param snapshotEntry Decodes the complete meta description of the component from the snapshot.
+     */
+    static MetaDescription createSnapshotSummary(String name, String description, String group, List<JcoreMeta.Category> categories, ComponentRepository module, Supplier<MetaDescription> snapshotEntry) {
+        MetaDescription md = new MetaDescription();
+        md.componentName = name;
+        md.description = description;
+        md.group = group;
+        md.categories = categories;
+        md.module = module;
+        md.snapshotEntry = snapshotEntry;
+        return md;
+    }
+
+    /**
+     * @return True if this is a summary from a {@link CatalogSnapshot} whose entry has not been decoded yet.
+     */
+    @JsonIgnore
+    boolean isSnapshotSummary() {
+        return snapshotEntry != null;
+    }
+
+    /**
+     * Takes the fields that are not contained in the table of contents of the {@link CatalogSnapshot} from the
+     * decoded snapshot entry, if this is a summary.
+     */
+    private void decodeSnapshotEntry() {
+        if (snapshotEntry == null)
+            return;
+        synchronized (this) {
+            if (snapshotEntry == null)
+                return;
+            MetaDescription decoded = snapshotEntry.get();
+            base = decoded.base;
+            exposable = decoded.exposable;
+            baseProject = decoded.baseProject;
+            artifact = decoded.artifact;
+            chosenDescriptor = decoded.chosenDescriptor;
+            descriptorList.addAll(decoded.descriptorList);
+            isPear = decoded.isPear;
+            snapshotEntry = null;
+        }
+    }
+
 
     public Boolean isPear() {
+        decodeSnapshotEntry();
         return isPear;
     }
 
     public void setPear(Boolean pear) {
+        decodeSnapshotEntry();
         isPear = pear;
     }
 
     public String getBaseProject() {
+        decodeSnapshotEntry();
         return baseProject;
     }
 
     public void setBaseProject(String baseProject) {
+        decodeSnapshotEntry();
         this.baseProject = baseProject;
     }
 
@@ -92,10 +156,12 @@ public class MetaDescription implements IMetaDescription, Serializable {
      * @return
      */
     public String getBase() {
+        decodeSnapshotEntry();
         return base;
     }
 
     public void setBase(String base) {
+        decodeSnapshotEntry();
         this.base = base;
     }
 
@@ -108,10 +174,12 @@ public class MetaDescription implements IMetaDescription, Serializable {
     }
 
     public boolean isExposable() {
+        decodeSnapshotEntry();
         return exposable;
     }
 
     public void setExposable(boolean exposable) {
+        decodeSnapshotEntry();
         this.exposable = exposable;
     }
 
@@ -140,29 +208,48 @@ public class MetaDescription implements IMetaDescription, Serializable {
         // For PEAR components there is nothing to do here. They can't be configured externally anyway.
         if (!isPear) {
             initMavenArtifact();
+            long bytes = 0;
             try {
+                JarDescriptorIndex index = JarDescriptorIndex.getInstance();
                 for (Description description : descriptorList) {
-                    ResourceSpecifier spec = DescriptorUtils.searchDescriptor(artifact.getFile(), description.getLocation());
+                    ResourceSpecifier spec = index.getDescriptor(artifact.getFile(), description.getLocation());
                     description.setMetaDescription(this);
                     description.setDescriptor(spec);
                     descriptionMap.put(description.getLocation(), description);
+                    bytes += Math.max(0, index.getDescriptorSize(artifact.getFile(), description.getLocation()));
                 }
             } catch (IOException e) {
                 throw new MetaDescriptionInteractionException(e);
             }
+            descriptorsReleased = false;
+            DescriptorCache.getInstance().materialized(this, bytes);
         }
-        if (descriptionMap.size() >= 1)
+        if (descriptionMap.size() >= 1 && chosenDescriptor == null)
             setChosenDescriptorAsIndex(0);
     }
 
+    /**
+     * Releases the parsed UIMA descriptors of this component. The descriptions themselves stay available and
+     * re-materialize their descriptors from the component JAR when they are accessed the next time.
+     */
+    synchronized void releaseDescriptors() {
+        if (isPear || descriptionMap.isEmpty())
+            return;
+        for (Description description : descriptionMap.values())
+            description.releaseDescriptor();
+        descriptorsReleased = true;
+    }
+
     @JsonIgnore
     @Override
     public Integer getChosenDescriptorAsIndex() {
+        decodeSnapshotEntry();
         return chosenDescriptor;
     }
 
     @Override
     public void setChosenDescriptorAsIndex(Integer descIndex) {
+        decodeSnapshotEntry();
         this.chosenDescriptor = descIndex;
     }
 
@@ -176,6 +263,22 @@ public class MetaDescription implements IMetaDescription, Serializable {
     @JsonIgnore
     @Override
     public Collection<Description> getJCoReDescriptions() throws DescriptorLoadingException {
+        try {
+            return loadJCoReDescriptions();
+        } finally {
+            // other components evicted by materializing the descriptors of this one are released without holding
+            // the lock of this component
+            DescriptorCache.getInstance().releaseEvicted();
+        }
+    }
+
+    private synchronized Collection<Description> loadJCoReDescriptions() throws DescriptorLoadingException {
+        decodeSnapshotEntry();
+        if (descriptorsReleased) {
+            loadDescriptorsFromMavenArtifact();
+        } else if (!descriptionMap.isEmpty() && !isPear) {
+            DescriptorCache.getInstance().accessed(this);
+        }
         if (descriptionMap.isEmpty()) {
             if (isPear) {
                 // For PEAR components, we just take their descriptors as granted. We cannot modify them anyway.
@@ -191,6 +294,15 @@ public class MetaDescription implements IMetaDescription, Serializable {
         return this.descriptionMap.values();
     }
 
+    /**
+     * @return True if the UIMA descriptors of this component have already been loaded, i.e. if
+     * {@link #getJCoReDescriptions()} returns without resolving the component artifact.
+     */
+    @JsonIgnore
+    public boolean isDescriptorsLoaded() {
+        return !descriptionMap.isEmpty();
+    }
+
     @Override
     public String getName() {
         return this.componentName;
@@ -213,12 +325,31 @@ public class MetaDescription implements IMetaDescription, Serializable {
     }
 
     public void setArtifact(MavenArtifact artifact) {
+        decodeSnapshotEntry();
         this.artifact = artifact;
     }
 
+    @JsonProperty("maven-artifact")
+    private MavenArtifact getArtifactForSerialization() {
+        decodeSnapshotEntry();
+        return artifact;
+    }
+
+    @JsonProperty("descriptors")
+    private List<Description> getDescriptorListForSerialization() {
+        decodeSnapshotEntry();
+        return descriptorList;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        decodeSnapshotEntry();
+        out.defaultWriteObject();
+    }
+
     @JsonIgnore
     @Override
     public MavenArtifact getMavenArtifact() {
+        decodeSnapshotEntry();
         if (!isPear && !artifactInitialized && artifact != null) {
             initMavenArtifact();
         }
@@ -233,6 +364,7 @@ public class MetaDescription implements IMetaDescription, Serializable {
      */
     @JsonIgnore
     public MavenArtifact getMavenArtifactCoordinates() {
+        decodeSnapshotEntry();
         return artifact;
     }
 
@@ -0,0 +1,199 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>Loads and stores many pipelines in one JVM, e.g. to update the libraries of a larger number of pipeline
+ * variants. The pipelines are processed concurrently.</p>
+ * <p>All pipelines share the component artifacts resolved by the {@link ComponentMetaInformationService}, the
+ * descriptors parsed from the component JARs and, through a {@link LibraryResolutionCache}, the resolved libraries of
+ * pipelines with the same component artifacts.</p>
+ */
+public class PipelineBatchProcessor {
+    private final static Logger log = LoggerFactory.getLogger(PipelineBatchProcessor.class);
+    private final int threads;
+    private final boolean populateLibDirs;
+    private final LibraryResolutionCache libraryResolutionCache = new LibraryResolutionCache();
+
+    /**
+     * @param threads         The number of pipelines processed at the same time.
+     * @param populateLibDirs Whether the libraries of the pipelines should be resolved and stored anew.
+     */
+    public PipelineBatchProcessor(int threads, boolean populateLibDirs) {
+        this.threads = Math.max(1, threads);
+        this.populateLibDirs = populateLibDirs;
+    }
+
+    /**
+     * Expands the given specifications into pipeline directories. A specification is either a directory, a glob
+     * pattern like <tt>pipelines/*-variant</tt> or the path of a file listing one specification per line, prefixed
+     * with <tt>@</tt>.
+     *
+     * @param specifications The specifications of the pipeline directories.
+     * @return The pipeline directories without duplicates in the order of the specifications.
+     * @throws IOException If a list file or a directory cannot be read.
+     */
+    public static List<File> expandPipelineDirectories(List<String> specifications) throws IOException {
+        return expand(specifications, Files::isDirectory);
+    }
+
+    /**
+     * Expands the given specifications into files like {@link #expandPipelineDirectories(List)} does for directories.
+     *
+     * @param specifications The specifications of the files.
+     * @return The files without duplicates in the order of the specifications.
+     * @throws IOException If a list file or a directory cannot be read.
+     */
+    public static List<File> expandFiles(List<String> specifications) throws IOException {
+        return expand(specifications, Files::isRegularFile);
+    }
+
+    private static List<File> expand(List<String> specifications, Predicate<Path> filter) throws IOException {
+        Set<File> files = new LinkedHashSet<>();
+        for (String specification : specifications) {
+            if (specification.startsWith("@")) {
+                List<String> listedSpecifications = Files.readAllLines(Path.of(specification.substring(1)), StandardCharsets.UTF_8).stream()
+                        .map(String::trim).filter(l -> !l.isEmpty() && !l.startsWith("#")).collect(Collectors.toList());
+                files.addAll(expand(listedSpecifications, filter));
+            } else if (specification.matches(".*[*?\\[{].*")) {
+                files.addAll(expandGlob(specification, filter));
+            } else {
+                files.add(new File(specification));
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    private static List<File> expandGlob(String glob, Predicate<Path> filter) throws IOException {
+        // The base directory is the longest path prefix without glob characters
+        Path pattern = Path.of(glob);
+        Path base = pattern.isAbsolute() ? pattern.getRoot() : Path.of("");
+        int firstGlobElement = 0;
+        for (; firstGlobElement < pattern.getNameCount(); firstGlobElement++) {
+            if (pattern.getName(firstGlobElement).toString().matches(".*[*?\\[{].*"))
+                break;
+            base = base.resolve(pattern.getName(firstGlobElement));
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        int maxDepth = glob.contains("**") ? Integer.MAX_VALUE : pattern.getNameCount() - firstGlobElement;
+        if (!Files.isDirectory(base))
+            return Collections.emptyList();
+        try (Stream<Path> paths = Files.walk(base, maxDepth)) {
+            return paths.filter(filter).filter(matcher::matches).sorted().map(Path::toFile).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Loads each pipeline and stores it back to its directory.
+     *
+     * @param pipelineDirectories The pipeline directories.
+     * @return The results in the order of the directories.
+     */
+    public List<Result> process(List<File> pipelineDirectories) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (File directory : pipelineDirectories)
+                futures.add(executor.submit(() -> process(directory)));
+            List<Result> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Result result = new Result(pipelineDirectories.get(i));
+                    result.error = e.getCause();
+                    results.add(result);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while processing the pipelines", e);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result process(File directory) {
+        Result result = new Result(directory);
+        long time = System.nanoTime();
+        try {
+            JCoReUIMAPipeline pipeline = new JCoReUIMAPipeline();
+            pipeline.setLoadDirectory(directory);
+            pipeline.setLibraryResolutionCache(libraryResolutionCache);
+            pipeline.load(true);
+            result.loadMillis = (System.nanoTime() - time) / 1000000;
+            time = System.nanoTime();
+            log.info("Storing pipeline to {}{}.", directory, populateLibDirs ? " and updating libraries" : "");
+            pipeline.store(directory, populateLibDirs);
+            result.storeMillis = (System.nanoTime() - time) / 1000000;
+        } catch (PipelineIOException | RuntimeException e) {
+            log.error("Processing of pipeline {} failed", directory, e);
+            result.error = e;
+        }
+        return result;
+    }
+
+    /**
+     * @param results The results of {@link #process(List)}.
+     * @return A report listing the time spent for each pipeline and the failures.
+     */
+    public static String getReport(List<Result> results) {
+        String ls = System.getProperty("line.separator");
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-10s %10s %10s  %s", "status", "load [ms]", "store [ms]", "pipeline")).append(ls);
+        for (Result result : results)
+            sb.append(String.format("%-10s %10d %10d  %s", result.isSuccessful() ? "ok" : "FAILED", result.loadMillis, result.storeMillis, result.directory)).append(ls);
+        List<Result> failures = results.stream().filter(r -> !r.isSuccessful()).collect(Collectors.toList());
+        sb.append(String.format("%d pipelines processed, %d failed.", results.size(), failures.size())).append(ls);
+        for (Result failure : failures)
+            sb.append(failure.directory).append(": ").append(failure.error.getMessage()).append(ls);
+        return sb.toString();
+    }
+
+    public static class Result {
+        private final File directory;
+        private long loadMillis;
+        private long storeMillis;
+        private Throwable error;
+
+        private Result(File directory) {
+            this.directory = directory;
+        }
+
+        public File getDirectory() {
+            return directory;
+        }
+
+        public long getLoadMillis() {
+            return loadMillis;
+        }
+
+        public long getStoreMillis() {
+            return storeMillis;
+        }
+
+        /**
+         * @return The error that made the processing of the pipeline fail, <tt>null</tt> if it was successful.
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        public boolean isSuccessful() {
+            return error == null;
+        }
+    }
+}
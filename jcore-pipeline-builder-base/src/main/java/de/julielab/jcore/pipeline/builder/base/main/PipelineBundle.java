@@ -0,0 +1,277 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineIOException;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * <p>Packs a stored pipeline directory with its descriptors and libraries into a single archive for the distribution
+ * to other machines. The archive is a JAR file whose entries are stored without compression, ordered by their path.
+ * The last entry, {@value INDEX_ENTRY}, lists the SHA-256 checksum, size and path of every other entry. The SHA-256
+ * checksum of this index is the checksum of the bundle and is stored as the archive comment.</p>
+ * <p>A bundle is used by extracting it with {@link #extract(File)}. The entries are read sequentially in one pass and
+ * are verified against the index. The extracted directory is marked with the bundle checksum and reused as long as
+ * the bundle does not change, so only the first run from a bundle pays for the extraction.</p>
+ */
+public class PipelineBundle {
+    public static final String FILE_EXTENSION = ".bundle";
+    public static final String INDEX_ENTRY = "META-INF/jcore-pipeline-bundle.idx";
+    /**
+     * The file in an extracted bundle directory holding the checksum of the bundle it has been extracted from.
+     */
+    public static final String CHECKSUM_FILE = ".bundle-checksum";
+    /**
+     * The suffix of the lock file next to an extracted bundle directory.
+     */
+    public static final String LOCK_FILE_SUFFIX = ".lock";
+    private final static Logger log = LoggerFactory.getLogger(PipelineBundle.class);
+    private static final String CHECKSUM_ALGORITHM = "SHA-256";
+    private static final String COMMENT_PREFIX = "sha256:";
+
+    private PipelineBundle() {
+    }
+
+    /**
+     * Packs the pipeline in <tt>pipelineDir</tt> into <tt>bundleFile</tt>. The pipeline must have been stored
+     * including its libraries. The bundle is written to a temporary file first and then moved into place.
+     *
+     * @param pipelineDir The stored pipeline.
+     * @param bundleFile  The bundle file to write.
+     * @return The checksum of the bundle.
+     * @throws PipelineIOException If the pipeline cannot be read or the bundle cannot be written.
+     */
+    public static String create(File pipelineDir, File bundleFile) throws PipelineIOException {
+        if (!new File(pipelineDir, JCoReUIMAPipeline.DIR_DESC).exists())
+            throw new PipelineIOException("The directory " + pipelineDir + " does not contain a stored pipeline.");
+        File tmpFile = new File(bundleFile.getAbsolutePath() + ".tmp");
+        Path root = pipelineDir.getAbsoluteFile().toPath();
+        try (Stream<Path> walk = Files.walk(root)) {
+            List<Path> files = walk.filter(Files::isRegularFile)
+                    .filter(p -> !p.equals(bundleFile.getAbsoluteFile().toPath()) && !p.equals(tmpFile.toPath()))
+                    .sorted(Comparator.comparing(p -> getEntryName(root, p)))
+                    .collect(Collectors.toList());
+            StringBuilder index = new StringBuilder();
+            String checksum;
+            try (ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                for (Path file : files) {
+                    String name = getEntryName(root, file);
+                    // Stored entries require the size and CRC before their data is written
+                    CRC32 crc = new CRC32();
+                    MessageDigest digest = newDigest();
+                    long size = 0;
+                    byte[] buffer = new byte[65536];
+                    try (InputStream is = Files.newInputStream(file)) {
+                        int read;
+                        while ((read = is.read(buffer)) != -1) {
+                            crc.update(buffer, 0, read);
+                            digest.update(buffer, 0, read);
+                            size += read;
+                        }
+                    }
+                    ZipEntry entry = new ZipEntry(name);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(size);
+                    entry.setCompressedSize(size);
+                    entry.setCrc(crc.getValue());
+                    entry.setTime(Files.getLastModifiedTime(file).toMillis());
+                    zos.putNextEntry(entry);
+                    Files.copy(file, zos);
+                    zos.closeEntry();
+                    index.append(toHex(digest.digest())).append('\t').append(size).append('\t').append(name).append('\n');
+                }
+                byte[] indexBytes = index.toString().getBytes(StandardCharsets.UTF_8);
+                CRC32 crc = new CRC32();
+                crc.update(indexBytes);
+                ZipEntry indexEntry = new ZipEntry(INDEX_ENTRY);
+                indexEntry.setMethod(ZipEntry.STORED);
+                indexEntry.setSize(indexBytes.length);
+                indexEntry.setCompressedSize(indexBytes.length);
+                indexEntry.setCrc(crc.getValue());
+                zos.putNextEntry(indexEntry);
+                zos.write(indexBytes);
+                zos.closeEntry();
+                checksum = toHex(newDigest().digest(indexBytes));
+                zos.setComment(COMMENT_PREFIX + checksum);
+            }
+            Files.move(tmpFile.toPath(), bundleFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Bundled {} files of the pipeline at {} into {} with checksum {}", files.size(), pipelineDir, bundleFile, checksum);
+            return checksum;
+        } catch (IOException e) {
+            tmpFile.delete();
+            throw new PipelineIOException("Could not bundle the pipeline at " + pipelineDir + " into " + bundleFile, e);
+        }
+    }
+
+    /**
+     * Reads the checksum of the bundle from its archive comment without verifying the contents.
+     *
+     * @param bundleFile The bundle.
+     * @return The bundle checksum.
+     * @throws PipelineIOException If the file is not a pipeline bundle.
+     */
+    public static String getChecksum(File bundleFile) throws PipelineIOException {
+        try (ZipFile zipFile = new ZipFile(bundleFile)) {
+            String comment = zipFile.getComment();
+            if (comment == null || !comment.startsWith(COMMENT_PREFIX) || zipFile.getEntry(INDEX_ENTRY) == null)
+                throw new PipelineIOException("The file " + bundleFile + " is not a pipeline bundle.");
+            return comment.substring(COMMENT_PREFIX.length());
+        } catch (IOException e) {
+            throw new PipelineIOException("The file " + bundleFile + " is not a pipeline bundle.", e);
+        }
+    }
+
+    /**
+     * Extracts the bundle into a directory next to it that is named like the bundle without the
+     * {@value FILE_EXTENSION} extension, if present, and with the <tt>.d</tt> suffix.
+     *
+     * @param bundleFile The bundle.
+     * @return The pipeline directory.
+     * @throws PipelineIOException If the bundle is invalid or cannot be extracted.
+     * @see #extract(File, File)
+     */
+    public static File extract(File bundleFile) throws PipelineIOException {
+        String name = bundleFile.getName();
+        if (name.endsWith(FILE_EXTENSION))
+            name = name.substring(0, name.length() - FILE_EXTENSION.length());
+        return extract(bundleFile, new File(bundleFile.getAbsoluteFile().getParentFile(), name + ".d"));
+    }
+
+    /**
+     * Extracts the bundle into <tt>targetDir</tt> unless it already holds the contents of this bundle. All entries
+     * are verified against the bundle index. The contents are extracted into a unique temporary directory next to
+     * <tt>targetDir</tt> first which is then moved to <tt>targetDir</tt>, replacing previous contents. The
+     * replacement is guarded by a lock on the file named like <tt>targetDir</tt> with the {@value LOCK_FILE_SUFFIX}
+     * suffix so that concurrent extractions, also by other processes, do not interfere.
+     *
+     * @param bundleFile The bundle.
+     * @param targetDir  The directory to extract the pipeline to.
+     * @return <tt>targetDir</tt>
+     * @throws PipelineIOException If the bundle is invalid or cannot be extracted.
+     */
+    public static File extract(File bundleFile, File targetDir) throws PipelineIOException {
+        String checksum = getChecksum(bundleFile);
+        if (isExtracted(targetDir, checksum)) {
+            log.debug("The bundle {} has already been extracted to {}", bundleFile, targetDir);
+            return targetDir;
+        }
+        Path target = targetDir.getAbsoluteFile().toPath().normalize();
+        Path tmpDir = null;
+        try {
+            Files.createDirectories(target.getParent());
+            tmpDir = Files.createTempDirectory(target.getParent(), target.getFileName() + ".tmp");
+            Map<String, String> digests = new HashMap<>();
+            byte[] indexBytes = null;
+            try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(bundleFile), 1 << 20))) {
+                ZipEntry entry;
+                while ((entry = zis.getNextEntry()) != null) {
+                    if (entry.isDirectory())
+                        continue;
+                    if (entry.getName().equals(INDEX_ENTRY)) {
+                        indexBytes = zis.readAllBytes();
+                        continue;
+                    }
+                    Path file = tmpDir.resolve(entry.getName()).normalize();
+                    if (!file.startsWith(tmpDir))
+                        throw new PipelineIOException("The bundle " + bundleFile + " contains the invalid entry " + entry.getName());
+                    Files.createDirectories(file.getParent());
+                    MessageDigest digest = newDigest();
+                    Files.copy(new DigestInputStream(zis, digest), file);
+                    if (entry.getTime() >= 0)
+                        file.toFile().setLastModified(entry.getTime());
+                    digests.put(entry.getName(), toHex(digest.digest()));
+                }
+            }
+            verify(bundleFile, checksum, indexBytes, digests);
+            Files.write(tmpDir.resolve(CHECKSUM_FILE), checksum.getBytes(StandardCharsets.UTF_8));
+            File lockFile = new File(target + LOCK_FILE_SUFFIX);
+            // FileLocks are held per process, the monitor serializes the threads of this process
+            synchronized (PipelineBundle.class) {
+                try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                     FileLock ignored = channel.lock()) {
+                    if (isExtracted(targetDir, checksum)) {
+                        log.debug("The bundle {} has been extracted to {} concurrently", bundleFile, targetDir);
+                        return targetDir;
+                    }
+                    if (targetDir.exists())
+                        FileUtils.deleteDirectory(targetDir);
+                    Files.move(tmpDir, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            log.info("Extracted the pipeline bundle {} with checksum {} to {}", bundleFile, checksum, targetDir);
+            return targetDir;
+        } catch (IOException e) {
+            throw new PipelineIOException("Could not extract the pipeline bundle " + bundleFile + " to " + targetDir, e);
+        } finally {
+            if (tmpDir != null)
+                FileUtils.deleteQuietly(tmpDir.toFile());
+        }
+    }
+
+    private static boolean isExtracted(File targetDir, String checksum) {
+        File checksumFile = new File(targetDir, CHECKSUM_FILE);
+        try {
+            return checksumFile.exists() && new String(Files.readAllBytes(checksumFile.toPath()), StandardCharsets.UTF_8).trim().equals(checksum);
+        } catch (IOException e) {
+            log.debug("Could not read the checksum file {}, extracting the bundle anew", checksumFile, e);
+            return false;
+        }
+    }
+
+    private static void verify(File bundleFile, String checksum, byte[] indexBytes, Map<String, String> digests) throws PipelineIOException {
+        if (indexBytes == null)
+            throw new PipelineIOException("The pipeline bundle " + bundleFile + " does not have an index.");
+        if (!toHex(newDigest().digest(indexBytes)).equals(checksum))
+            throw new PipelineIOException("The index of the pipeline bundle " + bundleFile + " does not match the bundle checksum " + checksum + ".");
+        Set<String> indexed = new HashSet<>();
+        for (String line : new String(indexBytes, StandardCharsets.UTF_8).split("\n")) {
+            if (line.isEmpty())
+                continue;
+            String[] columns = line.split("\t", 3);
+            indexed.add(columns[2]);
+            if (!columns[0].equals(digests.get(columns[2])))
+                throw new PipelineIOException("The entry " + columns[2] + " of the pipeline bundle " + bundleFile + " is missing or corrupt.");
+        }
+        if (!indexed.equals(digests.keySet()))
+            throw new PipelineIOException("The pipeline bundle " + bundleFile + " contains entries that are not listed in its index.");
+    }
+
+    private static String getEntryName(Path root, Path file) {
+        return root.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes)
+            sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,162 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.internal.util.UIMAClassLoader;
+import org.apache.uima.resource.ResourceManager;
+import org.apache.uima.resource.impl.ResourceManager_impl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Hands out class loaders for the libraries of pipelines instead of adding the libraries to the application class
+ * path. Each class loader is a child of the class loader of the pipeline builder and prefers its own libraries over
+ * those of the parent. The {@link UIMAClassLoader} alone would also prefer the UIMA framework and uimaFIT classes of
+ * the libraries. Then the classes of the components would not be compatible with the UIMA classes of the pipeline
+ * builder. Thus, the classes and resources in the <tt>org.apache.uima</tt> packages are taken from the parent if it
+ * has them.</p>
+ * <p>Class loaders are shared between pipelines with identical classpaths. A classpath is identified by the paths,
+ * sizes and modification times of its elements, thus updated libraries yield a new class loader. The class loaders
+ * are reference counted and closed when they are released for the last time.</p>
+ */
+public class PipelineClassLoaders {
+    private final static Logger log = LoggerFactory.getLogger(PipelineClassLoaders.class);
+    private static PipelineClassLoaders instance;
+    private final ClassLoader parent;
+    private final Map<String, Entry> loadersByKey = new HashMap<>();
+    private final Map<ClassLoader, Entry> entriesByLoader = new IdentityHashMap<>();
+
+    public PipelineClassLoaders(ClassLoader parent) {
+        this.parent = parent;
+    }
+
+    public static synchronized PipelineClassLoaders getInstance() {
+        if (instance == null)
+            instance = new PipelineClassLoaders(PipelineClassLoaders.class.getClassLoader());
+        return instance;
+    }
+
+    static String getKey(Collection<File> classpath) {
+        return classpath.stream().map(File::getAbsoluteFile).map(f -> f.getPath() + "|" + f.length() + "|" + f.lastModified()).sorted().collect(Collectors.joining(File.pathSeparator));
+    }
+
+    /**
+     * Returns the class loader for the given classpath, creating it if no pipeline currently uses the same classpath.
+     * Each call must be matched by a call to {@link #release(ClassLoader)}.
+     *
+     * @param classpath The libraries of the pipeline.
+     * @return A class loader for the libraries.
+     */
+    public synchronized UIMAClassLoader acquire(Collection<File> classpath) {
+        String key = getKey(classpath);
+        Entry entry = loadersByKey.get(key);
+        if (entry == null) {
+            List<URL> urls = new ArrayList<>();
+            for (File file : classpath) {
+                try {
+                    urls.add(file.getAbsoluteFile().toURI().toURL());
+                } catch (MalformedURLException e) {
+                    throw new IllegalArgumentException("The classpath element " + file + " cannot be converted into a URL.", e);
+                }
+            }
+            entry = new Entry(key, new FrameworkFirstClassLoader(urls.toArray(new URL[0]), parent));
+            loadersByKey.put(key, entry);
+            entriesByLoader.put(entry.loader, entry);
+            log.debug("Created a class loader for {} classpath elements.", urls.size());
+        }
+        ++entry.references;
+        return entry.loader;
+    }
+
+    /**
+     * Releases a class loader obtained from {@link #acquire(Collection)}. The class loader is closed when it is not
+     * used anymore.
+     *
+     * @param loader The class loader to release.
+     */
+    public synchronized void release(ClassLoader loader) {
+        Entry entry = entriesByLoader.get(loader);
+        if (entry == null)
+            return;
+        if (--entry.references == 0) {
+            loadersByKey.remove(entry.key);
+            entriesByLoader.remove(loader);
+            try {
+                entry.loader.close();
+                log.debug("Closed a class loader that is not used anymore.");
+            } catch (IOException e) {
+                log.warn("Could not close a pipeline class loader", e);
+            }
+        }
+    }
+
+    /**
+     * @return The number of class loaders currently in use.
+     */
+    public synchronized int size() {
+        return loadersByKey.size();
+    }
+
+    /**
+     * Creates a UIMA resource manager that resolves imports and classes by means of the given class loader.
+     *
+     * @param loader A class loader obtained from {@link #acquire(Collection)}.
+     * @return A new resource manager using the class loader.
+     */
+    public static ResourceManager newResourceManager(UIMAClassLoader loader) {
+        ResourceManager resourceManager = UIMAFramework.newDefaultResourceManager();
+        ((ResourceManager_impl) resourceManager).setExtensionClassPath(loader, true);
+        return resourceManager;
+    }
+
+    /**
+     * A child first class loader that delegates the UIMA framework and uimaFIT classes to its parent.
+     */
+    private static class FrameworkFirstClassLoader extends UIMAClassLoader {
+        private static final String FRAMEWORK_PACKAGE = "org.apache.uima.";
+        private static final String FRAMEWORK_RESOURCES = "org/apache/uima/";
+
+        private FrameworkFirstClassLoader(URL[] urls, ClassLoader parent) {
+            super(urls, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith(FRAMEWORK_PACKAGE) && getParent() != null) {
+                try {
+                    return getParent().loadClass(name);
+                } catch (ClassNotFoundException e) {
+                    // a UIMA class that only the libraries have, e.g. from an additional UIMA module
+                }
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        @Override
+        public URL getResource(String name) {
+            if (name.startsWith(FRAMEWORK_RESOURCES) && getParent() != null) {
+                URL resource = getParent().getResource(name);
+                if (resource != null)
+                    return resource;
+            }
+            return super.getResource(name);
+        }
+    }
+
+    private static class Entry {
+        private final String key;
+        private final UIMAClassLoader loader;
+        private int references;
+
+        private Entry(String key, UIMAClassLoader loader) {
+            this.key = key;
+            this.loader = loader;
+        }
+    }
+}
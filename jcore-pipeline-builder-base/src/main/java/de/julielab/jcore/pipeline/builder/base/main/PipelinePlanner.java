@@ -0,0 +1,320 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants.JcoreMeta.Category;
+import de.julielab.jcore.pipeline.builder.base.exceptions.DescriptorLoadingException;
+import de.julielab.jcore.pipeline.builder.base.exceptions.MetaDescriptionInteractionException;
+import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineEditingException;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Assembles the analysis engines required to obtain a set of output types from the documents of a collection
+ * reader.</p>
+ * <p>The candidates are the analysis engine descriptors of the given component catalog. Note that the descriptors
+ * of all analysis engine components are loaded for this purpose which requires their artifacts. Type subsumption
+ * is respected as in the {@link TypeCapabilityGraph}. The planner first restricts the candidates to those that
+ * contribute - directly or through the inputs of other relevant candidates - to the requested types. Then, a
+ * uniform cost search over the sets of available types finds the cheapest sequence of analysis engines in which
+ * each engine has all its inputs satisfied by the reader and the engines before it. If the search space turns out
+ * to be too large, a greedy selection is used instead.</p>
+ * <p>By default, each analysis engine costs the same, thus the planner minimizes the number of components. A cost
+ * function may be set to prefer fast components, e.g. from recorded throughput via
+ * {@link #costsFromThroughput(Map)} or from the runs in the {@link RunHistory} via {@link #costsFromHistory(List)}.</p>
+ * <p>The planner is used by the {@link PipelineSpecificationCompiler} for specifications that request
+ * <tt>outputTypes</tt>.</p>
+ */
+public class PipelinePlanner {
+    private final static Logger log = LoggerFactory.getLogger(PipelinePlanner.class);
+    private static final int MAX_EXPANSIONS = 100000;
+    private final Collection<MetaDescription> catalog;
+    private ToDoubleFunction<Description> costFunction = d -> 1;
+    private List<Description> candidates;
+
+    public PipelinePlanner(Collection<MetaDescription> catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Creates a cost function from the throughput of components in documents per second, keyed by component name.
+     * Components without a recorded throughput are assigned the average cost of the known components.
+     *
+     * @param documentsPerSecond The recorded throughput for component names.
+     * @return A cost function for {@link #setCostFunction(ToDoubleFunction)}.
+     */
+    public static ToDoubleFunction<Description> costsFromThroughput(Map<String, Double> documentsPerSecond) {
+        Map<String, Double> costs = documentsPerSecond.entrySet().stream().filter(e -> e.getValue() != null && e.getValue() > 0)
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> 1 / e.getValue()));
+        double defaultCost = costs.values().stream().mapToDouble(Double::doubleValue).average().orElse(1);
+        return d -> costs.getOrDefault(d.getName(), defaultCost);
+    }
+
+    /**
+     * Creates a cost function from the recorded runs of pipelines. The throughput of a component is derived from its
+     * median processing time per document over all runs it occurs in.
+     *
+     * @param runs The runs, e.g. read from the {@link RunHistory}.
+     * @return A cost function for {@link #setCostFunction(ToDoubleFunction)}.
+     */
+    public static ToDoubleFunction<Description> costsFromHistory(List<RunRecord> runs) {
+        Map<String, List<Double>> costsPerDocument = new HashMap<>();
+        for (RunRecord run : runs) {
+            for (String component : run.getComponentTimes().keySet()) {
+                double cost = run.getCostPerDocument(component);
+                if (!Double.isNaN(cost))
+                    costsPerDocument.computeIfAbsent(component, c -> new ArrayList<>()).add(cost);
+            }
+        }
+        Map<String, Double> documentsPerSecond = new HashMap<>();
+        for (Map.Entry<String, List<Double>> e : costsPerDocument.entrySet()) {
+            List<Double> costs = e.getValue();
+            Collections.sort(costs);
+            double median = costs.size() % 2 == 1 ? costs.get(costs.size() / 2) : (costs.get(costs.size() / 2 - 1) + costs.get(costs.size() / 2)) / 2;
+            documentsPerSecond.put(e.getKey(), median > 0 ? 1000 / median : null);
+        }
+        return costsFromThroughput(documentsPerSecond);
+    }
+
+    public void setCostFunction(ToDoubleFunction<Description> costFunction) {
+        this.costFunction = costFunction;
+    }
+
+    /**
+     * Creates a new pipeline consisting of the given reader and the cheapest sequence of analysis engines that
+     * outputs <tt>outputTypes</tt>. The components are copies of the catalog descriptions.
+     *
+     * @param reader      The collection reader.
+     * @param outputTypes The types the pipeline should output.
+     * @return A new pipeline ready to be configured and stored.
+     * @throws PipelineEditingException If the requested types cannot be produced by the candidates.
+     */
+    public JCoReUIMAPipeline plan(Description reader, Collection<String> outputTypes) throws PipelineEditingException {
+        List<Description> aes = findAnalysisEngines(reader, outputTypes);
+        JCoReUIMAPipeline pipeline = new JCoReUIMAPipeline();
+        try {
+            pipeline.setCrDescription(reader.clone());
+            for (Description ae : aes)
+                pipeline.addDelegateAe(ae.clone());
+        } catch (CloneNotSupportedException e) {
+            throw new PipelineEditingException(e);
+        }
+        return pipeline;
+    }
+
+    /**
+     * Returns the cheapest sequence of analysis engine descriptions that outputs <tt>outputTypes</tt> when run
+     * after <tt>reader</tt>.
+     *
+     * @param reader      The collection reader.
+     * @param outputTypes The types the pipeline should output.
+     * @return The analysis engines in the order they must be run.
+     * @throws PipelineEditingException If the requested types cannot be produced by the candidates.
+     */
+    public List<Description> findAnalysisEngines(Description reader, Collection<String> outputTypes) throws PipelineEditingException {
+        return findAnalysisEngines(List.of(reader), outputTypes);
+    }
+
+    /**
+     * Returns the cheapest sequence of analysis engine descriptions that outputs <tt>outputTypes</tt> when run
+     * after the given components, e.g. a reader and the analysis engines already in a pipeline.
+     *
+     * @param components  The components whose outputs are available to the planned analysis engines.
+     * @param outputTypes The types the pipeline should output.
+     * @return The analysis engines in the order they must be run.
+     * @throws PipelineEditingException If the requested types cannot be produced by the candidates.
+     */
+    public List<Description> findAnalysisEngines(List<Description> components, Collection<String> outputTypes) throws PipelineEditingException {
+        List<Description> candidates = getCandidates().stream().filter(c -> components.stream().noneMatch(d -> d.getName() != null && d.getName().equals(c.getName()))).collect(Collectors.toList());
+        return findAnalysisEngines(components, outputTypes, candidates);
+    }
+
+    List<Description> findAnalysisEngines(Description reader, Collection<String> outputTypes, List<Description> candidates) throws PipelineEditingException {
+        return findAnalysisEngines(List.of(reader), outputTypes, candidates);
+    }
+
+    List<Description> findAnalysisEngines(List<Description> components, Collection<String> outputTypes, List<Description> candidates) throws PipelineEditingException {
+        TypeHierarchy hierarchy = new TypeHierarchy();
+        components.forEach(c -> hierarchy.addTypeSystems(c.getDescriptor()));
+        candidates.forEach(c -> hierarchy.addTypeSystems(c.getDescriptor()));
+
+        Set<String> initiallyAvailable = new HashSet<>();
+        components.forEach(c -> c.getOutputCapabilities().forEach(t -> hierarchy.addWithSupertypes(t, initiallyAvailable)));
+        Set<String> goals = outputTypes.stream().filter(t -> !initiallyAvailable.contains(t)).collect(Collectors.toSet());
+        if (goals.isEmpty())
+            return Collections.emptyList();
+
+        List<Description> relevant = getRelevantCandidates(candidates, goals, initiallyAvailable, hierarchy);
+        Set<String> producible = new HashSet<>(initiallyAvailable);
+        relevant.forEach(c -> c.getOutputCapabilities().forEach(t -> hierarchy.addWithSupertypes(t, producible)));
+        List<String> unproducible = goals.stream().filter(t -> !producible.contains(t)).sorted().collect(Collectors.toList());
+        if (!unproducible.isEmpty())
+            throw new PipelineEditingException("There is no analysis engine in the component catalog that outputs the types " + unproducible + ".");
+
+        List<Description> plan = searchCheapest(relevant, goals, initiallyAvailable, hierarchy);
+        if (plan == null) {
+            log.debug("The search space for the requested types is too large, falling back to a greedy selection.");
+            plan = searchGreedy(relevant, goals, initiallyAvailable, hierarchy);
+        }
+        if (plan == null)
+            throw new PipelineEditingException("The requested types " + goals + " cannot be produced because required inputs of the respective analysis engines cannot be satisfied.");
+        return plan;
+    }
+
+    /**
+     * @return The analysis engine descriptions of the catalog, loaded on the first call.
+     */
+    private synchronized List<Description> getCandidates() {
+        if (candidates != null)
+            return candidates;
+        candidates = new ArrayList<>();
+        for (MetaDescription md : catalog) {
+            if (md.isPear() || md.getCategories() == null || !md.getCategories().contains(Category.ae))
+                continue;
+            try {
+                for (Description d : md.getJCoReDescriptions()) {
+                    if (d.getCategory() != null && d.getCategory() != Category.ae)
+                        continue;
+                    if (!(d.getDescriptor() instanceof AnalysisEngineDescription))
+                        continue;
+                    AnalysisEngineDescription aeDesc = d.getDescriptorAsAnalysisEngineDescription();
+                    if (aeDesc.getAnalysisEngineMetaData().getOperationalProperties() != null && aeDesc.getAnalysisEngineMetaData().getOperationalProperties().getOutputsNewCASes())
+                        continue;
+                    candidates.add(d);
+                }
+            } catch (DescriptorLoadingException | MetaDescriptionInteractionException e) {
+                log.warn("Could not load the descriptors of component {}, it is not considered for the pipeline: {}", md.getName(), e.getMessage());
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the candidates that output a type needed for the goals, where the inputs of those candidates become
+     * needed types themselves.
+     */
+    private List<Description> getRelevantCandidates(List<Description> candidates, Set<String> goals, Set<String> available, TypeHierarchy hierarchy) {
+        Set<String> needed = new HashSet<>(goals);
+        Set<Description> relevant = Collections.newSetFromMap(new IdentityHashMap<>());
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Description candidate : candidates) {
+                if (relevant.contains(candidate))
+                    continue;
+                boolean useful = candidate.getOutputCapabilities().stream().anyMatch(o -> needed.stream().anyMatch(n -> hierarchy.subsumes(n, o)));
+                if (useful) {
+                    relevant.add(candidate);
+                    candidate.getInputCapabilities().stream().filter(t -> !available.contains(t)).forEach(needed::add);
+                    changed = true;
+                }
+            }
+        }
+        // keep the catalog order for deterministic results
+        return candidates.stream().filter(relevant::contains).collect(Collectors.toList());
+    }
+
+    private boolean isApplicable(Description candidate, Set<String> available) {
+        return available.containsAll(candidate.getInputCapabilities());
+    }
+
+    private Set<String> apply(Description candidate, Set<String> available, TypeHierarchy hierarchy) {
+        Set<String> ret = new HashSet<>(available);
+        candidate.getOutputCapabilities().forEach(t -> hierarchy.addWithSupertypes(t, ret));
+        return ret;
+    }
+
+    /**
+     * Uniform cost search where states are the sets of available types. States with the same available types
+     * are equivalent with respect to the remaining search, thus only the cheapest is kept.
+     *
+     * @return The cheapest plan or <tt>null</tt> if the search was aborted due to the size of the search space.
+     * @throws PipelineEditingException If the goals cannot be reached.
+     */
+    private List<Description> searchCheapest(List<Description> candidates, Set<String> goals, Set<String> initiallyAvailable, TypeHierarchy hierarchy) throws PipelineEditingException {
+        PriorityQueue<PlanState> queue = new PriorityQueue<>(Comparator.comparingDouble((PlanState s) -> s.cost).thenComparingInt(s -> s.components.size()));
+        Map<Set<String>, Double> bestCosts = new HashMap<>();
+        queue.add(new PlanState(Collections.emptyList(), initiallyAvailable, 0));
+        bestCosts.put(initiallyAvailable, 0d);
+        int expansions = 0;
+        while (!queue.isEmpty()) {
+            PlanState state = queue.poll();
+            if (state.cost > bestCosts.getOrDefault(state.available, Double.MAX_VALUE))
+                continue;
+            if (state.available.containsAll(goals))
+                return state.components;
+            if (++expansions > MAX_EXPANSIONS)
+                return null;
+            for (Description candidate : candidates) {
+                if (containsComponent(state.components, candidate) || !isApplicable(candidate, state.available))
+                    continue;
+                Set<String> available = apply(candidate, state.available, hierarchy);
+                if (available.size() == state.available.size())
+                    continue;
+                double cost = state.cost + costFunction.applyAsDouble(candidate);
+                if (cost < bestCosts.getOrDefault(available, Double.MAX_VALUE)) {
+                    bestCosts.put(available, cost);
+                    List<Description> components = new ArrayList<>(state.components);
+                    components.add(candidate);
+                    queue.add(new PlanState(components, available, cost));
+                }
+            }
+        }
+        throw new PipelineEditingException("The requested types " + goals + " cannot be produced because required inputs of the respective analysis engines cannot be satisfied.");
+    }
+
+    private boolean containsComponent(List<Description> components, Description candidate) {
+        return components.stream().anyMatch(c -> c == candidate);
+    }
+
+    /**
+     * Repeatedly adds the applicable candidate that makes the most missing goal types available per cost. If no
+     * candidate contributes to the goals directly, the cheapest applicable candidate adding new types is taken.
+     *
+     * @return A plan or <tt>null</tt> if the goals cannot be reached.
+     */
+    private List<Description> searchGreedy(List<Description> candidates, Set<String> goals, Set<String> initiallyAvailable, TypeHierarchy hierarchy) {
+        List<Description> plan = new ArrayList<>();
+        Set<String> available = initiallyAvailable;
+        while (!available.containsAll(goals)) {
+            Description best = null;
+            double bestScore = -1;
+            Set<String> bestAvailable = null;
+            for (Description candidate : candidates) {
+                if (containsComponent(plan, candidate) || !isApplicable(candidate, available))
+                    continue;
+                Set<String> next = apply(candidate, available, hierarchy);
+                if (next.size() == available.size())
+                    continue;
+                final Set<String> current = available;
+                long newGoals = goals.stream().filter(g -> next.contains(g) && !current.contains(g)).count();
+                double score = (newGoals + 1d / (1 + next.size() - available.size())) / Math.max(costFunction.applyAsDouble(candidate), Double.MIN_VALUE);
+                if (score > bestScore) {
+                    best = candidate;
+                    bestScore = score;
+                    bestAvailable = next;
+                }
+            }
+            if (best == null)
+                return null;
+            plan.add(best);
+            available = bestAvailable;
+        }
+        return plan;
+    }
+
+    private static class PlanState {
+        private final List<Description> components;
+        private final Set<String> available;
+        private final double cost;
+
+        private PlanState(List<Description> components, Set<String> available, double cost) {
+            this.components = components;
+            this.available = available;
+            this.cost = cost;
+        }
+    }
+}
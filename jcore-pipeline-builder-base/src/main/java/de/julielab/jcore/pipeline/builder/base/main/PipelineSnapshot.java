@@ -0,0 +1,209 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * <p>A packed snapshot of the files of a stored pipeline that are read when the pipeline is loaded for editing, i.e.
+ * the serialized descriptions, the parent POM source and the UIMA descriptors including their type systems. It is
+ * stored as a single file in the pipeline directory next to the regular layout which is still written for manual
+ * editing.</p>
+ * <p>The file starts with a table of the packed files with their paths relative to the pipeline directory, sizes and
+ * modification times, followed by the deflated contents of the serialized files. The UIMA descriptors are the files
+ * most likely edited by hand. For them, the table holds a checksum of their contents instead, and their contents are
+ * read from the regular layout while the snapshot is validated. The snapshot is only used if all packed files have
+ * their recorded sizes and modification times, all descriptors have their recorded checksums and no descriptor has
+ * been added to a packed descriptor directory. Thus, manual edits of the regular layout always take precedence.</p>
+ */
+public class PipelineSnapshot {
+    public static final String FILE_NAME = "pipeline.bin";
+    private final static Logger log = LoggerFactory.getLogger(PipelineSnapshot.class);
+    private static final int MAGIC = 0x4a435050;
+    private static final int FORMAT_VERSION = 2;
+    private final File pipelineDir;
+    private final Map<String, byte[]> contents;
+
+    private PipelineSnapshot(File pipelineDir, Map<String, byte[]> contents) {
+        this.pipelineDir = pipelineDir;
+        this.contents = contents;
+    }
+
+    /**
+     * The snapshots are written and read unless the system property
+     * {@link PipelineBuilderConstants.JcoreMeta#PIPELINE_SNAPSHOT_PROPERTY} is set to <tt>false</tt>.
+     *
+     * @return Whether to read and write {@link PipelineSnapshot}s.
+     */
+    public static boolean isPipelineSnapshotEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(PipelineBuilderConstants.JcoreMeta.PIPELINE_SNAPSHOT_PROPERTY));
+    }
+
+    public static File getSnapshotFile(File pipelineDir) {
+        return new File(pipelineDir, FILE_NAME);
+    }
+
+    private static String getRelativePath(File pipelineDir, File file) {
+        String path = pipelineDir.getAbsoluteFile().toPath().relativize(file.getAbsoluteFile().toPath()).toString();
+        return path.replace(File.separatorChar, '/');
+    }
+
+    private static boolean isDescriptor(String path) {
+        return path.endsWith(".xml");
+    }
+
+    private static long getChecksum(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    /**
+     * Packs the given files of the pipeline in <tt>pipelineDir</tt> into the snapshot. Files that do not exist are
+     * recorded as missing; the snapshot becomes invalid when they are created. The snapshot is first written to a
+     * temporary file and then moved into place so that readers never see a partial snapshot.
+     *
+     * @param pipelineDir The pipeline directory.
+     * @param files       The files to pack. They must be located in <tt>pipelineDir</tt>.
+     * @return The snapshot file.
+     * @throws IOException If writing fails.
+     */
+    public static File write(File pipelineDir, Collection<File> files) throws IOException {
+        File snapshotFile = getSnapshotFile(pipelineDir);
+        File tmpFile = new File(pipelineDir, FILE_NAME + ".tmp");
+        try {
+            try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                os.writeInt(MAGIC);
+                os.writeInt(FORMAT_VERSION);
+                os.writeInt(files.size());
+                List<File> packed = new ArrayList<>();
+                for (File file : files) {
+                    String path = getRelativePath(pipelineDir, file);
+                    os.writeUTF(path);
+                    if (file.exists()) {
+                        os.writeLong(file.length());
+                        os.writeLong(file.lastModified());
+                        if (isDescriptor(path))
+                            os.writeLong(getChecksum(Files.readAllBytes(file.toPath())));
+                        else
+                            packed.add(file);
+                    } else {
+                        os.writeLong(-1);
+                        os.writeLong(0);
+                    }
+                }
+                os.flush();
+                DeflaterOutputStream deflater = new DeflaterOutputStream(os, new Deflater(Deflater.BEST_SPEED));
+                for (File file : packed)
+                    Files.copy(file.toPath(), deflater);
+                deflater.finish();
+            }
+            Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+        return snapshotFile;
+    }
+
+    /**
+     * Reads the snapshot of the pipeline in <tt>pipelineDir</tt> if it exists and all packed files are unchanged.
+     *
+     * @param pipelineDir The pipeline directory.
+     * @return The snapshot or <tt>null</tt> if there is no valid snapshot.
+     */
+    public static PipelineSnapshot open(File pipelineDir) {
+        File snapshotFile = getSnapshotFile(pipelineDir);
+        if (!snapshotFile.exists())
+            return null;
+        try (DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            if (is.readInt() != MAGIC || is.readInt() != FORMAT_VERSION) {
+                log.debug("Ignoring the pipeline snapshot {} because it has an unknown format.", snapshotFile);
+                return null;
+            }
+            int size = is.readInt();
+            Map<String, byte[]> contents = new LinkedHashMap<>();
+            Map<String, Long> packedLengths = new LinkedHashMap<>();
+            Map<String, Set<String>> descriptorsByDir = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                String path = is.readUTF();
+                long length = is.readLong();
+                long lastModified = is.readLong();
+                File file = new File(pipelineDir, path);
+                boolean unchanged = length < 0 ? !file.exists() : file.length() == length && file.lastModified() == lastModified;
+                if (unchanged && length >= 0 && isDescriptor(path)) {
+                    // edits that keep the size and the modification time are detected by the checksum
+                    byte[] content = Files.readAllBytes(file.toPath());
+                    unchanged = getChecksum(content) == is.readLong();
+                    contents.put(path, content);
+                    descriptorsByDir.computeIfAbsent(file.getParent(), k -> new HashSet<>()).add(file.getName());
+                } else if (length >= 0) {
+                    packedLengths.put(path, length);
+                }
+                if (!unchanged) {
+                    log.debug("Ignoring the pipeline snapshot {} because {} has changed.", snapshotFile, path);
+                    return null;
+                }
+            }
+            for (String dir : descriptorsByDir.keySet()) {
+                String[] descriptors = new File(dir).list((d, name) -> name.endsWith(".xml"));
+                if (descriptors == null || !descriptorsByDir.get(dir).equals(new HashSet<>(Arrays.asList(descriptors)))) {
+                    log.debug("Ignoring the pipeline snapshot {} because descriptors have been added to or removed from {}.", snapshotFile, dir);
+                    return null;
+                }
+            }
+            DataInputStream inflater = new DataInputStream(new InflaterInputStream(is));
+            for (Map.Entry<String, Long> entry : packedLengths.entrySet()) {
+                byte[] content = new byte[Math.toIntExact(entry.getValue())];
+                inflater.readFully(content);
+                contents.put(entry.getKey(), content);
+            }
+            return new PipelineSnapshot(pipelineDir, contents);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read the pipeline snapshot {}, loading the pipeline files instead: {}", snapshotFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param file A file of the pipeline.
+     * @return Whether the snapshot holds the contents of <tt>file</tt>.
+     */
+    public boolean contains(File file) {
+        return contents.containsKey(getRelativePath(pipelineDir, file));
+    }
+
+    /**
+     * @param file A file of the pipeline.
+     * @return The packed contents of <tt>file</tt> or <tt>null</tt> if the snapshot does not hold the file.
+     */
+    public InputStream getInputStream(File file) {
+        byte[] content = contents.get(getRelativePath(pipelineDir, file));
+        return content != null ? new ByteArrayInputStream(content) : null;
+    }
+
+    /**
+     * Lists the descriptors of a directory as verified when the snapshot was opened, thus without listing the
+     * directory again.
+     *
+     * @param dir A directory of the pipeline.
+     * @return The packed XML files located directly in <tt>dir</tt> or <tt>null</tt> if the snapshot does not hold
+     * descriptors of <tt>dir</tt>.
+     */
+    public File[] listDescriptorFiles(File dir) {
+        String prefix = getRelativePath(pipelineDir, dir) + "/";
+        File[] descriptors = contents.keySet().stream()
+                .filter(path -> path.startsWith(prefix) && isDescriptor(path) && path.indexOf('/', prefix.length()) < 0)
+                .map(path -> new File(pipelineDir, path))
+                .toArray(File[]::new);
+        return descriptors.length > 0 ? descriptors : null;
+    }
+}
@@ -0,0 +1,302 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.utilities.aether.MavenArtifact;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>A declarative description of a pipeline that is compiled into a {@link JCoReUIMAPipeline} by the
+ * {@link PipelineSpecificationCompiler}. Specifications are read from YAML or JSON files, for example:</p>
+ * <pre>
+ * output: pipelines/ner
+ * parentPom:
+ *   groupId: de.julielab
+ *   artifactId: jcore-pipelines-parent
+ *   version: 1.0.0
+ * reader:
+ *   component: JCoRe XMI Reader
+ *   parameters:
+ *     InputDirectory: data/xmi
+ * analysisEngines:
+ *   - component: JCoRe Sentence Annotator
+ *     descriptor: de.julielab.jcore.ae.jsbd.desc.jcore-jsbd-ae-biomedical-english
+ *     version: 2.6.0
+ *   - component: JCoRe Gazetteer Annotator
+ *     externalResources:
+ *       DictionaryFile:
+ *         url: file:resources/genes.dict
+ *         implementation: de.julielab.jcore.ae.gazetteer.DictionaryProvider
+ * consumers:
+ *   - component: JCoRe XMI Writer
+ *     parameters:
+ *       OutputDirectory: data/output
+ * errorPolicy:
+ *   action: QUARANTINE
+ *   componentActions:
+ *     JCoRe XMI Writer: TERMINATE
+ * </pre>
+ * <p>The optional <tt>errorPolicy</tt> is described at {@link ErrorPolicy}.</p>
+ * <p>Instead of or in addition to listing the analysis engines, the types the pipeline should output may be given as
+ * <tt>outputTypes</tt>. The {@link PipelinePlanner} then appends the analysis engines from the component catalog that
+ * are needed to produce them. With <tt>runHistory</tt> pointing to a run history file, the planner prefers the
+ * components that were fastest in the recorded runs.</p>
+ * <pre>
+ * outputTypes:
+ *   - de.julielab.jcore.types.Gene
+ * runHistory: /home/user/.jcore-pipeline-runner/profiles/history.jsonl
+ * </pre>
+ */
+public class PipelineSpecification {
+    private String output;
+    private MavenArtifact parentPom;
+    private boolean populateLibDir = true;
+    private ComponentSpecification reader;
+    private List<ComponentSpecification> multipliers = new ArrayList<>();
+    private List<ComponentSpecification> analysisEngines = new ArrayList<>();
+    private List<ComponentSpecification> consumers = new ArrayList<>();
+    private ComponentSpecification aeFlowController;
+    private ComponentSpecification ccFlowController;
+    private ErrorPolicy errorPolicy;
+    private List<String> outputTypes = new ArrayList<>();
+    private String runHistory;
+
+    /**
+     * @return The directory to store the pipeline to, relative to the directory of the specification file.
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    public void setOutput(String output) {
+        this.output = output;
+    }
+
+    public MavenArtifact getParentPom() {
+        return parentPom;
+    }
+
+    public void setParentPom(MavenArtifact parentPom) {
+        this.parentPom = parentPom;
+    }
+
+    /**
+     * @return Whether the libraries of the pipeline should be resolved and stored into its library directory.
+     */
+    public boolean isPopulateLibDir() {
+        return populateLibDir;
+    }
+
+    public void setPopulateLibDir(boolean populateLibDir) {
+        this.populateLibDir = populateLibDir;
+    }
+
+    public ComponentSpecification getReader() {
+        return reader;
+    }
+
+    public void setReader(ComponentSpecification reader) {
+        this.reader = reader;
+    }
+
+    public List<ComponentSpecification> getMultipliers() {
+        return multipliers;
+    }
+
+    public void setMultipliers(List<ComponentSpecification> multipliers) {
+        this.multipliers = multipliers;
+    }
+
+    public List<ComponentSpecification> getAnalysisEngines() {
+        return analysisEngines;
+    }
+
+    public void setAnalysisEngines(List<ComponentSpecification> analysisEngines) {
+        this.analysisEngines = analysisEngines;
+    }
+
+    public List<ComponentSpecification> getConsumers() {
+        return consumers;
+    }
+
+    public void setConsumers(List<ComponentSpecification> consumers) {
+        this.consumers = consumers;
+    }
+
+    public ComponentSpecification getAeFlowController() {
+        return aeFlowController;
+    }
+
+    public void setAeFlowController(ComponentSpecification aeFlowController) {
+        this.aeFlowController = aeFlowController;
+    }
+
+    public ComponentSpecification getCcFlowController() {
+        return ccFlowController;
+    }
+
+    public void setCcFlowController(ComponentSpecification ccFlowController) {
+        this.ccFlowController = ccFlowController;
+    }
+
+    public ErrorPolicy getErrorPolicy() {
+        return errorPolicy;
+    }
+
+    public void setErrorPolicy(ErrorPolicy errorPolicy) {
+        this.errorPolicy = errorPolicy;
+    }
+
+    /**
+     * @return The types the pipeline should output. Missing analysis engines are planned by the
+     * {@link PipelinePlanner}.
+     */
+    public List<String> getOutputTypes() {
+        return outputTypes;
+    }
+
+    public void setOutputTypes(List<String> outputTypes) {
+        this.outputTypes = outputTypes;
+    }
+
+    /**
+     * @return The run history file whose recorded component costs are used to plan the analysis engines for the
+     * output types, relative to the directory of the specification file.
+     */
+    public String getRunHistory() {
+        return runHistory;
+    }
+
+    public void setRunHistory(String runHistory) {
+        this.runHistory = runHistory;
+    }
+
+    /**
+     * A component of the pipeline, identified by its name or Maven artifact ID in the component catalog.
+     */
+    public static class ComponentSpecification {
+        private String component;
+        private String descriptor;
+        private String name;
+        private String version;
+        private boolean active = true;
+        private Map<String, Object> parameters = new LinkedHashMap<>();
+        private Map<String, ExternalResourceSpecification> externalResources = new LinkedHashMap<>();
+
+        public String getComponent() {
+            return component;
+        }
+
+        public void setComponent(String component) {
+            this.component = component;
+        }
+
+        /**
+         * @return The location of the descriptor to use, only required if the component has multiple descriptors of
+         * the requested category.
+         */
+        public String getDescriptor() {
+            return descriptor;
+        }
+
+        public void setDescriptor(String descriptor) {
+            this.descriptor = descriptor;
+        }
+
+        /**
+         * @return The name of the component within the pipeline, defaults to the descriptor name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return The version of the component artifact, defaults to the version in the component catalog.
+         */
+        public String getVersion() {
+            return version;
+        }
+
+        public void setVersion(String version) {
+            this.version = version;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public Map<String, Object> getParameters() {
+            return parameters;
+        }
+
+        public void setParameters(Map<String, Object> parameters) {
+            this.parameters = parameters;
+        }
+
+        /**
+         * @return The external resources to bind, keyed by the resource dependency keys of the component.
+         */
+        public Map<String, ExternalResourceSpecification> getExternalResources() {
+            return externalResources;
+        }
+
+        public void setExternalResources(Map<String, ExternalResourceSpecification> externalResources) {
+            this.externalResources = externalResources;
+        }
+    }
+
+    public static class ExternalResourceSpecification {
+        private String name;
+        private String url;
+        private String implementation;
+        private String description;
+
+        /**
+         * @return The resource name, defaults to the dependency key.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        /**
+         * @return The qualified name of the {@link org.apache.uima.resource.SharedResourceObject} implementation.
+         */
+        public String getImplementation() {
+            return implementation;
+        }
+
+        public void setImplementation(String implementation) {
+            this.implementation = implementation;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public void setDescription(String description) {
+            this.description = description;
+        }
+    }
+}
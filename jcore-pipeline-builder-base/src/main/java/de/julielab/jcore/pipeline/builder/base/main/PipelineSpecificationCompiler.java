@@ -0,0 +1,321 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants.JcoreMeta.Category;
+import de.julielab.jcore.pipeline.builder.base.exceptions.DescriptorLoadingException;
+import de.julielab.jcore.pipeline.builder.base.exceptions.MetaDescriptionInteractionException;
+import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineEditingException;
+import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineIOException;
+import de.julielab.jcore.pipeline.builder.base.main.PipelineSpecification.ComponentSpecification;
+import de.julielab.jcore.pipeline.builder.base.main.PipelineSpecification.ExternalResourceSpecification;
+import org.apache.uima.fit.factory.ExternalResourceFactory;
+import org.apache.uima.resource.ExternalResourceDependency;
+import org.apache.uima.resource.ExternalResourceDescription;
+import org.apache.uima.resource.ResourceCreationSpecifier;
+import org.apache.uima.resource.impl.ExternalResourceDescription_impl;
+import org.apache.uima.resource.impl.FileResourceSpecifier_impl;
+import org.apache.uima.resource.metadata.ConfigurationParameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Compiles {@link PipelineSpecification}s into {@link JCoReUIMAPipeline}s and stores them.</p>
+ * <p>The components of a specification are looked up by name or Maven artifact ID in the component catalog given
+ * to the constructor. Each compiled pipeline works on its own copies of the catalog meta descriptions so that
+ * artifact versions set by one specification do not leak into other pipelines and many specifications can be
+ * compiled concurrently, see {@link #compileAndStore(List, int)}. The descriptors and artifacts of the components are
+ * shared through the {@link de.julielab.jcore.pipeline.builder.base.utils.JarDescriptorIndex} and the
+ * {@link ComponentMetaInformationService}, the resolved libraries through a {@link LibraryResolutionCache}.</p>
+ * <p>If a specification requests output types, the analysis engines producing them are planned by a
+ * {@link PipelinePlanner} over the catalog and appended to the specified analysis engines.</p>
+ */
+public class PipelineSpecificationCompiler {
+    private final static Logger log = LoggerFactory.getLogger(PipelineSpecificationCompiler.class);
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory());
+    private final Map<String, MetaDescription> componentsByName = new HashMap<>();
+    private final Map<String, MetaDescription> componentsByArtifactId = new HashMap<>();
+    private final LibraryResolutionCache libraryResolutionCache = new LibraryResolutionCache();
+    private final Collection<MetaDescription> catalog;
+    private PipelinePlanner planner;
+
+    public PipelineSpecificationCompiler(Collection<MetaDescription> catalog) {
+        this.catalog = catalog;
+        for (MetaDescription md : catalog) {
+            componentsByName.put(md.getName(), md);
+            if (md.getMavenArtifactCoordinates() != null)
+                componentsByArtifactId.putIfAbsent(md.getMavenArtifactCoordinates().getArtifactId(), md);
+        }
+    }
+
+    /**
+     * Reads a specification from a YAML file, if its name ends with <tt>.yaml</tt> or <tt>.yml</tt>, or from a JSON
+     * file otherwise.
+     *
+     * @param specificationFile The specification file.
+     * @return The specification.
+     * @throws IOException If the file cannot be read or is not a valid specification.
+     */
+    public static PipelineSpecification readSpecification(File specificationFile) throws IOException {
+        String fileName = specificationFile.getName().toLowerCase();
+        ObjectMapper mapper = fileName.endsWith(".yaml") || fileName.endsWith(".yml") ? YAML_MAPPER : JSON_MAPPER;
+        return mapper.readValue(specificationFile, PipelineSpecification.class);
+    }
+
+    /**
+     * Converts a value read from the specification to the type of the configuration parameter.
+     */
+    static Object convertParameterValue(ConfigurationParameter parameter, Object value) {
+        if (value == null)
+            return null;
+        if (parameter.isMultiValued()) {
+            Collection<?> values = value instanceof Collection ? (Collection<?>) value : Collections.singletonList(value);
+            Function<Object, Object> converter = v -> convertSingleValue(parameter, v);
+            switch (parameter.getType()) {
+                case ConfigurationParameter.TYPE_BOOLEAN:
+                    return values.stream().map(converter).toArray(Boolean[]::new);
+                case ConfigurationParameter.TYPE_INTEGER:
+                    return values.stream().map(converter).toArray(Integer[]::new);
+                case ConfigurationParameter.TYPE_FLOAT:
+                    return values.stream().map(converter).toArray(Float[]::new);
+                default:
+                    return values.stream().map(converter).toArray(String[]::new);
+            }
+        }
+        return convertSingleValue(parameter, value);
+    }
+
+    private static Object convertSingleValue(ConfigurationParameter parameter, Object value) {
+        switch (parameter.getType()) {
+            case ConfigurationParameter.TYPE_BOOLEAN:
+                return value instanceof Boolean ? value : Boolean.parseBoolean(value.toString());
+            case ConfigurationParameter.TYPE_INTEGER:
+                return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+            case ConfigurationParameter.TYPE_FLOAT:
+                return value instanceof Number ? ((Number) value).floatValue() : Float.parseFloat(value.toString());
+            default:
+                return value.toString();
+        }
+    }
+
+    /**
+     * Creates the pipeline described by <tt>specification</tt>.
+     *
+     * @param specification The pipeline specification.
+     * @return The pipeline.
+     * @throws PipelineEditingException If the specification refers to unknown components, descriptors, parameters or
+     *                                  external resource dependencies or if a component cannot be loaded.
+     */
+    public JCoReUIMAPipeline compile(PipelineSpecification specification) throws PipelineEditingException {
+        JCoReUIMAPipeline pipeline = new JCoReUIMAPipeline();
+        pipeline.setLibraryResolutionCache(libraryResolutionCache);
+        if (specification.getParentPom() != null)
+            pipeline.setParentPom(specification.getParentPom());
+        if (specification.getErrorPolicy() != null)
+            pipeline.setErrorPolicy(specification.getErrorPolicy());
+        if (specification.getReader() != null)
+            pipeline.setCrDescription(createDescription(specification.getReader(), Category.reader));
+        for (ComponentSpecification cm : specification.getMultipliers())
+            pipeline.addCasMultiplier(createDescription(cm, Category.multiplier));
+        if (specification.getAeFlowController() != null)
+            pipeline.setAeFlowController(createDescription(specification.getAeFlowController(), Category.flowcontroller));
+        for (ComponentSpecification ae : specification.getAnalysisEngines())
+            pipeline.addDelegateAe(createDescription(ae, Category.ae));
+        if (!specification.getOutputTypes().isEmpty()) {
+            for (Description ae : planAnalysisEngines(specification, pipeline))
+                pipeline.addDelegateAe(ae);
+        }
+        if (specification.getCcFlowController() != null)
+            pipeline.setCcFlowController(createDescription(specification.getCcFlowController(), Category.flowcontroller));
+        for (ComponentSpecification cc : specification.getConsumers())
+            pipeline.addCcDesc(createDescription(cc, Category.consumer));
+        return pipeline;
+    }
+
+    /**
+     * Compiles the specification in <tt>specificationFile</tt> and stores the pipeline to the output directory
+     * given in the specification, resolved against the directory of <tt>specificationFile</tt>.
+     *
+     * @param specificationFile The specification file.
+     * @return The directory the pipeline was stored to.
+     * @throws PipelineIOException      If the specification cannot be read or the pipeline cannot be stored.
+     * @throws PipelineEditingException If the specification cannot be compiled.
+     */
+    public File compileAndStore(File specificationFile) throws PipelineIOException, PipelineEditingException {
+        PipelineSpecification specification;
+        try {
+            specification = readSpecification(specificationFile);
+        } catch (IOException e) {
+            throw new PipelineIOException("Could not read the pipeline specification " + specificationFile + ": " + e.getMessage(), e);
+        }
+        if (specification.getOutput() == null)
+            throw new PipelineEditingException("The pipeline specification " + specificationFile + " does not specify an output directory.");
+        File outputDirectory = new File(specification.getOutput());
+        if (!outputDirectory.isAbsolute())
+            outputDirectory = new File(specificationFile.getAbsoluteFile().getParentFile(), specification.getOutput());
+        if (specification.getRunHistory() != null && !new File(specification.getRunHistory()).isAbsolute())
+            specification.setRunHistory(new File(specificationFile.getAbsoluteFile().getParentFile(), specification.getRunHistory()).getPath());
+        JCoReUIMAPipeline pipeline = compile(specification);
+        pipeline.store(outputDirectory, specification.isPopulateLibDir());
+        return outputDirectory;
+    }
+
+    /**
+     * Compiles and stores the specifications in the given files concurrently.
+     *
+     * @param specificationFiles The specification files.
+     * @param threads            The number of specifications compiled at the same time.
+     * @return For each specification file the exception that made its compilation fail or <tt>null</tt> if it was
+     * compiled and stored successfully. The iteration order of the map is the order of <tt>specificationFiles</tt>.
+     */
+    public Map<File, Exception> compileAndStore(List<File> specificationFiles, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            Map<File, Future<File>> futures = new LinkedHashMap<>();
+            for (File specificationFile : specificationFiles)
+                futures.put(specificationFile, executor.submit(() -> compileAndStore(specificationFile)));
+            Map<File, Exception> results = new LinkedHashMap<>();
+            for (Map.Entry<File, Future<File>> entry : futures.entrySet()) {
+                try {
+                    File outputDirectory = entry.getValue().get();
+                    log.info("Compiled {} to {}", entry.getKey(), outputDirectory);
+                    results.put(entry.getKey(), null);
+                } catch (ExecutionException e) {
+                    log.error("Could not compile the pipeline specification {}", entry.getKey(), e.getCause());
+                    results.put(entry.getKey(), e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while compiling the pipeline specifications", e);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Plans the analysis engines that produce the output types of the specification from the outputs of the reader,
+     * the multipliers and the analysis engines already in the pipeline.
+     *
+     * @return Copies of the planned catalog descriptions.
+     */
+    private List<Description> planAnalysisEngines(PipelineSpecification specification, JCoReUIMAPipeline pipeline) throws PipelineEditingException {
+        List<Description> components = new ArrayList<>();
+        if (pipeline.getCrDescription() != null)
+            components.add(pipeline.getCrDescription());
+        components.addAll(pipeline.getCmDelegates());
+        components.addAll(pipeline.getAeDelegates());
+        PipelinePlanner planner = getPlanner();
+        List<Description> planned;
+        // the cost function depends on the specification while the planner caches the candidates of the catalog
+        synchronized (planner) {
+            planner.setCostFunction(d -> 1);
+            if (specification.getRunHistory() != null) {
+                try {
+                    planner.setCostFunction(PipelinePlanner.costsFromHistory(new RunHistory(new File(specification.getRunHistory())).read()));
+                } catch (IOException e) {
+                    throw new PipelineEditingException("Could not read the run history " + specification.getRunHistory() + ": " + e.getMessage(), e);
+                }
+            }
+            planned = planner.findAnalysisEngines(components, specification.getOutputTypes());
+        }
+        log.info("Planned the analysis engines {} for the output types {}", planned.stream().map(Description::getName).collect(Collectors.toList()), specification.getOutputTypes());
+        List<Description> copies = new ArrayList<>();
+        try {
+            for (Description ae : planned)
+                copies.add(ae.clone());
+        } catch (CloneNotSupportedException e) {
+            throw new PipelineEditingException(e);
+        }
+        return copies;
+    }
+
+    private synchronized PipelinePlanner getPlanner() {
+        if (planner == null)
+            planner = new PipelinePlanner(catalog);
+        return planner;
+    }
+
+    private Description createDescription(ComponentSpecification spec, Category category) throws PipelineEditingException {
+        if (spec.getComponent() == null)
+            throw new PipelineEditingException("A " + category + " component specification does not name a component.");
+        MetaDescription catalogEntry = componentsByName.getOrDefault(spec.getComponent(), componentsByArtifactId.get(spec.getComponent()));
+        if (catalogEntry == null)
+            throw new PipelineEditingException("The component " + spec.getComponent() + " is not contained in the component catalog.");
+        MetaDescription md = copy(catalogEntry);
+        if (spec.getVersion() != null) {
+            if (md.getMavenArtifactCoordinates() == null)
+                throw new PipelineEditingException("A version is specified for the component " + spec.getComponent() + " but it does not have a Maven artifact.");
+            md.getMavenArtifactCoordinates().setVersion(spec.getVersion());
+        }
+        Description description;
+        try {
+            List<Description> candidates = md.getJCoReDescriptions().stream()
+                    .filter(d -> spec.getDescriptor() != null ? spec.getDescriptor().equals(d.getLocation()) : d.getCategory() == null || d.getCategory() == category)
+                    .collect(Collectors.toList());
+            if (candidates.isEmpty())
+                throw new PipelineEditingException("The component " + spec.getComponent() + " does not have a " + (spec.getDescriptor() != null ? "descriptor " + spec.getDescriptor() : category + " descriptor") + ".");
+            if (candidates.size() > 1)
+                throw new PipelineEditingException("The component " + spec.getComponent() + " has multiple " + category + " descriptors, one of them must be specified: " + candidates.stream().map(Description::getLocation).collect(Collectors.joining(", ")));
+            description = candidates.get(0).clone();
+        } catch (DescriptorLoadingException | MetaDescriptionInteractionException | CloneNotSupportedException e) {
+            throw new PipelineEditingException("Could not load the descriptors of the component " + spec.getComponent() + ": " + e.getMessage(), e);
+        }
+        if (description.getDescriptor() == null)
+            throw new PipelineEditingException("The descriptor " + description.getLocation() + " of the component " + spec.getComponent() + " could not be loaded.");
+        if (spec.getName() != null)
+            description.setName(spec.getName());
+        description.setActive(spec.isActive());
+        for (Map.Entry<String, Object> parameter : spec.getParameters().entrySet()) {
+            ConfigurationParameter declaration = description.getConfigurationParameters().get(parameter.getKey());
+            if (declaration == null)
+                throw new PipelineEditingException("The component " + spec.getComponent() + " does not have the parameter " + parameter.getKey() + ". Its parameters are " + description.getConfigurationParameters().keySet() + ".");
+            try {
+                description.setConfigurationParameterValue(parameter.getKey(), convertParameterValue(declaration, parameter.getValue()));
+            } catch (RuntimeException e) {
+                throw new PipelineEditingException("Invalid value " + parameter.getValue() + " for the parameter " + parameter.getKey() + " of the component " + spec.getComponent() + ": " + e.getMessage(), e);
+            }
+        }
+        for (Map.Entry<String, ExternalResourceSpecification> resource : spec.getExternalResources().entrySet())
+            bindExternalResource(description, spec, resource.getKey(), resource.getValue());
+        return description;
+    }
+
+    private void bindExternalResource(Description description, ComponentSpecification spec, String key, ExternalResourceSpecification resource) throws PipelineEditingException {
+        ResourceCreationSpecifier descriptor = (ResourceCreationSpecifier) description.getDescriptor();
+        ExternalResourceDependency[] dependencies = descriptor.getExternalResourceDependencies() != null ? descriptor.getExternalResourceDependencies() : new ExternalResourceDependency[0];
+        if (Arrays.stream(dependencies).noneMatch(d -> d.getKey().equals(key)))
+            throw new PipelineEditingException("The component " + spec.getComponent() + " does not have the external resource dependency " + key + ".");
+        if (resource.getUrl() == null)
+            throw new PipelineEditingException("The external resource for the dependency " + key + " of the component " + spec.getComponent() + " does not specify a URL.");
+        FileResourceSpecifier_impl fileSpecifier = new FileResourceSpecifier_impl();
+        fileSpecifier.setFileUrl(resource.getUrl());
+        ExternalResourceDescription resourceDescription = new ExternalResourceDescription_impl();
+        resourceDescription.setName(resource.getName() != null ? resource.getName() : key);
+        resourceDescription.setDescription(resource.getDescription());
+        resourceDescription.setImplementationName(resource.getImplementation());
+        resourceDescription.setResourceSpecifier(fileSpecifier);
+        ExternalResourceFactory.bindExternalResource(descriptor, key, resourceDescription);
+        description.markModified();
+    }
+
+    private MetaDescription copy(MetaDescription catalogEntry) throws PipelineEditingException {
+        ObjectMapper mapper = Repositories.getCatalogMapper();
+        try {
+            MetaDescription copy = mapper.readValue(mapper.writeValueAsBytes(catalogEntry), MetaDescription.class);
+            copy.setModule(catalogEntry.getModule());
+            return copy;
+        } catch (IOException e) {
+            throw new PipelineEditingException("Could not copy the meta description of the component " + catalogEntry.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import java.io.File;
+
+/**
+ * Receives progress events while a pipeline is stored by
+ * {@link JCoReUIMAPipeline#store(File, boolean, PipelineStoreListener)}. The events are sent from the storing thread.
+ */
+public interface PipelineStoreListener {
+    PipelineStoreListener NONE = new PipelineStoreListener() {
+    };
+
+    /**
+     * The phases of storing a pipeline in the order of their execution. All phases but {@link #ARTIFACTS} read the
+     * current state of the pipeline. The artifacts phase only works on the list of artifacts determined when it starts.
+     */
+    enum Phase {
+        DESCRIPTORS, CPE, MISSING_CONFIGURATION, SERIALIZATION, ARTIFACTS
+    }
+
+    default void phaseStarted(Phase phase) {
+    }
+
+    default void phaseFinished(Phase phase, long millis) {
+    }
+
+    default void fileWritten(File file) {
+    }
+
+    /**
+     * @param artifacts The number of component artifacts whose libraries are resolved and copied in the artifacts
+     *                  phase.
+     */
+    default void artifactsResolving(int artifacts) {
+    }
+
+    /**
+     * Reports the current content of the library directory during the artifacts phase.
+     *
+     * @param files The number of library files stored so far.
+     * @param bytes The total size of these files.
+     */
+    default void librariesStored(int files, long bytes) {
+    }
+}
@@ -0,0 +1,170 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * <p>Stores a pipeline in the background and forwards the progress events to a {@link PipelineStoreListener}. While
+ * the libraries are stored, the content of the library directory is reported periodically.</p>
+ * <p>The pipeline must not be edited before {@link #getStateStored()} has completed. Afterwards, only the libraries
+ * are stored which does not read the pipeline anymore.</p>
+ */
+public class PipelineStoreTask {
+    private final static Logger log = LoggerFactory.getLogger(PipelineStoreTask.class);
+    private static final long LIBRARY_POLL_INTERVAL = 1000;
+    private static final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "pipeline-store");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final ScheduledExecutorService libraryMonitor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "pipeline-store-library-monitor");
+        t.setDaemon(true);
+        return t;
+    });
+    private final JCoReUIMAPipeline pipeline;
+    private final File directory;
+    private final boolean populateLibDir;
+    private final PipelineStoreListener listener;
+    private final CompletableFuture<Void> stateStored = new CompletableFuture<>();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile PipelineStoreListener.Phase phase;
+    private Future<?> future;
+
+    /**
+     * @param pipeline       The pipeline to store.
+     * @param directory      The pipeline directory.
+     * @param populateLibDir Whether the libraries should be resolved and stored anew.
+     * @param listener       The receiver of the progress events. The events are sent from background threads.
+     */
+    public PipelineStoreTask(JCoReUIMAPipeline pipeline, File directory, boolean populateLibDir, PipelineStoreListener listener) {
+        this.pipeline = pipeline;
+        this.directory = directory;
+        this.populateLibDir = populateLibDir;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts storing the pipeline in the background.
+     *
+     * @return This task.
+     */
+    public synchronized PipelineStoreTask start() {
+        if (future != null)
+            throw new IllegalStateException("The task has already been started.");
+        future = executor.submit(this::run);
+        return this;
+    }
+
+    private void run() {
+        if (started.getAndSet(true))
+            return;
+        ProgressForwarder progressForwarder = new ProgressForwarder();
+        try {
+            pipeline.store(directory, populateLibDir, progressForwarder);
+            stateStored.complete(null);
+            completion.complete(null);
+        } catch (Throwable t) {
+            log.debug("Storing the pipeline to {} did not complete", directory, t);
+            stateStored.completeExceptionally(t);
+            completion.completeExceptionally(t);
+        } finally {
+            progressForwarder.stopLibraryPolling();
+        }
+    }
+
+    /**
+     * Cancels storing the pipeline. If the libraries are currently stored, the library directory is emptied.
+     */
+    public synchronized void cancel() {
+        if (!started.getAndSet(true)) {
+            CancellationException e = new CancellationException("Storing the pipeline has been cancelled.");
+            stateStored.completeExceptionally(e);
+            completion.completeExceptionally(e);
+        } else if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * @return A future that completes when all phases that read the pipeline have finished.
+     */
+    public CompletableFuture<Void> getStateStored() {
+        return stateStored;
+    }
+
+    /**
+     * @return A future that completes when the pipeline has been stored completely. It completes exceptionally
+     * with a {@link CancellationException} if the task has been cancelled.
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * @return The phase currently running, <tt>null</tt> if the task has not started yet.
+     */
+    public PipelineStoreListener.Phase getPhase() {
+        return phase;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    private class ProgressForwarder implements PipelineStoreListener {
+        private ScheduledFuture<?> libraryPolling;
+
+        @Override
+        public void phaseStarted(Phase phase) {
+            PipelineStoreTask.this.phase = phase;
+            if (phase == Phase.ARTIFACTS) {
+                stateStored.complete(null);
+                File libDir = new File(directory, JCoReUIMAPipeline.DIR_LIB);
+                libraryPolling = libraryMonitor.scheduleWithFixedDelay(() -> {
+                    File[] libFiles = libDir.listFiles();
+                    if (libFiles != null)
+                        listener.librariesStored(libFiles.length, Stream.of(libFiles).mapToLong(File::length).sum());
+                }, LIBRARY_POLL_INTERVAL, LIBRARY_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+            listener.phaseStarted(phase);
+        }
+
+        @Override
+        public void phaseFinished(Phase phase, long millis) {
+            stopLibraryPolling();
+            listener.phaseFinished(phase, millis);
+        }
+
+        @Override
+        public void fileWritten(File file) {
+            listener.fileWritten(file);
+        }
+
+        @Override
+        public void artifactsResolving(int artifacts) {
+            listener.artifactsResolving(artifacts);
+        }
+
+        @Override
+        public void librariesStored(int files, long bytes) {
+            stopLibraryPolling();
+            listener.librariesStored(files, bytes);
+        }
+
+        private void stopLibraryPolling() {
+            if (libraryPolling != null)
+                libraryPolling.cancel(false);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package de.julielab.jcore.pipeline.builder.base.main;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import de.julielab.java.utilities.FileUtilities;
 import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants;
 import de.julielab.jcore.pipeline.builder.base.exceptions.GithubInformationException;
@@ -32,6 +33,15 @@ public class Repositories {
             new GitHubRepository("jcore-projects", null, "JULIELab")
     );
     private final static Logger log = LoggerFactory.getLogger(Repositories.class);
+    /**
+     * Reads and writes the component lists. ObjectMappers are thread safe and expensive to create, thus this
+     * instance is shared.
+     */
+    private static final ObjectMapper CATALOG_MAPPER = createCatalogMapper(new ObjectMapper());
+    /**
+     * Encodes the entries of the {@link CatalogSnapshot}s in the binary Smile format.
+     */
+    private static final ObjectMapper SNAPSHOT_MAPPER = createCatalogMapper(new ObjectMapper(new SmileFactory()));
 
     private static List<ComponentRepository> activeRepositories = new ArrayList<>();
 
@@ -44,6 +54,38 @@ public class Repositories {
     private Repositories() {
     }
 
+    private static ObjectMapper createCatalogMapper(ObjectMapper mapper) {
+        mapper.setDefaultPropertyInclusion(JsonInclude.Include.NON_ABSENT);
+        mapper.setDefaultPropertyInclusion(JsonInclude.Include.NON_NULL);
+        mapper.setDefaultPropertyInclusion(JsonInclude.Include.NON_EMPTY);
+        mapper.addMixIn(Description.class, DescriptionRepositoryStorageMixin.class);
+        return mapper;
+    }
+
+    /**
+     * @return The shared mapper for reading and writing the repository component lists.
+     */
+    public static ObjectMapper getCatalogMapper() {
+        return CATALOG_MAPPER;
+    }
+
+    /**
+     * @return The shared mapper for reading and writing the binary entries of the {@link CatalogSnapshot}s.
+     */
+    public static ObjectMapper getSnapshotMapper() {
+        return SNAPSHOT_MAPPER;
+    }
+
+    /**
+     * The binary snapshots of the component lists are used unless the system property
+     * {@link PipelineBuilderConstants.JcoreMeta#CATALOG_SNAPSHOT_PROPERTY} is set to <tt>false</tt>.
+     *
+     * @return Whether to read and write {@link CatalogSnapshot}s.
+     */
+    public static boolean isCatalogSnapshotEnabled() {
+        return !"false".equalsIgnoreCase(System.getProperty(PipelineBuilderConstants.JcoreMeta.CATALOG_SNAPSHOT_PROPERTY));
+    }
+
     /**
      * Looks in the local repository JSON meta information file for currently active repositories. Found repositories
      * are set to this class as the active repositories from which components will be offered.
@@ -123,19 +165,32 @@ public class Repositories {
                 metaFile.delete();
                 metaFile.createNewFile();
             }
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.setDefaultPropertyInclusion(JsonInclude.Include.NON_ABSENT);
-            mapper.setDefaultPropertyInclusion(JsonInclude.Include.NON_NULL);
-            mapper.setDefaultPropertyInclusion(JsonInclude.Include.NON_EMPTY);
-            mapper.addMixIn(Description.class, DescriptionRepositoryStorageMixin.class);
-            // enable pretty printing
-            mapper.enable(SerializationFeature.INDENT_OUTPUT);
-            mapper.writeValue(FileUtilities.getWriterToFile(metaFile), ComponentMetaInformationService.getInstance().getMetaInformation(repository));
+            Collection<MetaDescription> metaDescriptions = ComponentMetaInformationService.getInstance().getMetaInformation(repository);
+            // the JSON is pretty printed for humans, the snapshot is what is read on startup
+            CATALOG_MAPPER.writer(SerializationFeature.INDENT_OUTPUT).writeValue(FileUtilities.getWriterToFile(metaFile), metaDescriptions);
+            saveCatalogSnapshot(metaFile, metaDescriptions);
         } catch (IOException e) {
             throw new GithubInformationException(e);
         }
     }
 
+    /**
+     * Writes the {@link CatalogSnapshot} for the component list <tt>metaFile</tt> if snapshots are enabled. Failures
+     * are only logged since the JSON component list is still available.
+     *
+     * @param metaFile         The JSON component list file.
+     * @param metaDescriptions The meta descriptions stored in <tt>metaFile</tt>.
+     */
+    static void saveCatalogSnapshot(File metaFile, Collection<MetaDescription> metaDescriptions) {
+        if (!isCatalogSnapshotEnabled())
+            return;
+        try {
+            CatalogSnapshot.write(metaFile, metaDescriptions, SNAPSHOT_MAPPER.writer());
+        } catch (IOException e) {
+            log.warn("Could not write the catalog snapshot for {}: {}", metaFile, e.getMessage());
+        }
+    }
+
     public boolean hasComponentListMetaFile(ComponentRepository repository) {
         return getMetaFile(repository).exists();
     }
@@ -143,6 +198,7 @@ public class Repositories {
     public static void deleteComponentList(String repositoryName, String version) {
         final File metaFile = getMetaFile(repositoryName, version);
         if (metaFile.exists()) {
+            // this also removes the catalog snapshot
             Stream.of(metaFile.getParentFile().listFiles()).forEach(File::delete);
             metaFile.getParentFile().delete();
         }
@@ -0,0 +1,195 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Compares the per-document costs of the components between a baseline and a candidate, each consisting of one
+ * or more {@link RunRecord}s, typically the runs of two versions of a pipeline. For multiple runs, the median cost of
+ * each component is compared. Components whose cost changed by more than the threshold are flagged, together with
+ * their artifact versions in both, so that a version update causing a throughput regression becomes visible.</p>
+ * <p>The costs are summed over the threads of a run and depend on the machine. When the runs differ in the
+ * {@link #ENVIRONMENT_KEYS environment} entries, the differences are reported with the comparison because the
+ * changed costs may be caused by them instead of the pipeline.</p>
+ */
+public class RunComparison {
+    public static final double DEFAULT_THRESHOLD = 0.2;
+    /**
+     * The {@link RunRecord#getEnvironment() environment} entries that must be equal for the costs to be comparable.
+     */
+    public static final List<String> ENVIRONMENT_KEYS = List.of("host", "processors", "threads");
+    private final List<ComponentChange> changes = new ArrayList<>();
+    private final Map<String, String> environmentDifferences = new LinkedHashMap<>();
+    private final double threshold;
+    private double baselineThroughput;
+    private double candidateThroughput;
+
+    private RunComparison(double threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Compares the candidate runs to the baseline runs.
+     *
+     * @param baseline  The baseline runs.
+     * @param candidate The candidate runs.
+     * @param threshold The relative change of the per-document cost, e.g. <tt>0.2</tt> for 20%, above which a
+     *                  component is flagged.
+     * @return The comparison.
+     */
+    public static RunComparison compare(List<RunRecord> baseline, List<RunRecord> candidate, double threshold) {
+        if (baseline.isEmpty() || candidate.isEmpty())
+            throw new IllegalArgumentException("Both the baseline and the candidate must contain at least one run.");
+        RunComparison comparison = new RunComparison(threshold);
+        comparison.baselineThroughput = median(baseline.stream().map(RunRecord::getDocumentsPerSecond).collect(Collectors.toList()));
+        comparison.candidateThroughput = median(candidate.stream().map(RunRecord::getDocumentsPerSecond).collect(Collectors.toList()));
+        Map<String, String> baselineVersions = baseline.get(baseline.size() - 1).getArtifactVersions();
+        Map<String, String> candidateVersions = candidate.get(candidate.size() - 1).getArtifactVersions();
+        for (String key : ENVIRONMENT_KEYS) {
+            Set<String> baselineValues = getEnvironmentValues(baseline, key);
+            Set<String> candidateValues = getEnvironmentValues(candidate, key);
+            // records without the entry are not taken as different
+            if (!baselineValues.isEmpty() && !candidateValues.isEmpty() && !baselineValues.equals(candidateValues))
+                comparison.environmentDifferences.put(key, String.join(", ", baselineValues) + " -> " + String.join(", ", candidateValues));
+        }
+        Set<String> components = new LinkedHashSet<>();
+        candidate.forEach(r -> components.addAll(r.getComponentTimes().keySet()));
+        baseline.forEach(r -> components.addAll(r.getComponentTimes().keySet()));
+        for (String component : components) {
+            ComponentChange change = new ComponentChange();
+            change.component = component;
+            change.baselineCost = median(baseline.stream().map(r -> r.getCostPerDocument(component)).collect(Collectors.toList()));
+            change.candidateCost = median(candidate.stream().map(r -> r.getCostPerDocument(component)).collect(Collectors.toList()));
+            change.baselineVersion = baselineVersions.get(component);
+            change.candidateVersion = candidateVersions.get(component);
+            change.flagged = Math.abs(change.getChange()) > threshold;
+            comparison.changes.add(change);
+        }
+        return comparison;
+    }
+
+    private static Set<String> getEnvironmentValues(List<RunRecord> runs, String key) {
+        return runs.stream().map(r -> r.getEnvironment().get(key)).filter(Objects::nonNull).collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    /**
+     * @return The median of the values that are not <tt>NaN</tt>, <tt>NaN</tt> if there are none.
+     */
+    private static double median(List<Double> values) {
+        List<Double> sorted = values.stream().filter(v -> !v.isNaN()).sorted().collect(Collectors.toList());
+        if (sorted.isEmpty())
+            return Double.NaN;
+        int middle = sorted.size() / 2;
+        return sorted.size() % 2 == 1 ? sorted.get(middle) : (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+    }
+
+    public List<ComponentChange> getChanges() {
+        return changes;
+    }
+
+    /**
+     * @return The components whose per-document cost changed by more than the threshold.
+     */
+    public List<ComponentChange> getFlagged() {
+        return changes.stream().filter(ComponentChange::isFlagged).collect(Collectors.toList());
+    }
+
+    /**
+     * @return The {@link #ENVIRONMENT_KEYS environment} entries in which the baseline and the candidate runs differ,
+     * mapped to their values in the form <tt>baseline -&gt; candidate</tt>.
+     */
+    public Map<String, String> getEnvironmentDifferences() {
+        return environmentDifferences;
+    }
+
+    /**
+     * @return Whether the runs were made with the same number of threads on the same machine, so that a change of the
+     * costs is caused by the pipeline.
+     */
+    public boolean isComparable() {
+        return environmentDifferences.isEmpty();
+    }
+
+    public double getBaselineThroughput() {
+        return baselineThroughput;
+    }
+
+    public double getCandidateThroughput() {
+        return candidateThroughput;
+    }
+
+    @Override
+    public String toString() {
+        String ls = System.lineSeparator();
+        StringBuilder sb = new StringBuilder();
+        environmentDifferences.forEach((key, values) -> sb.append("Warning: the runs differ in ").append(key).append(" (").append(values).append("), the costs may have changed because of this instead of the pipeline.").append(ls));
+        sb.append(String.format("Throughput: %.1f -> %.1f documents/s (%+.0f%%)", baselineThroughput, candidateThroughput, (candidateThroughput / baselineThroughput - 1) * 100)).append(ls);
+        for (ComponentChange change : changes)
+            sb.append(change.isFlagged() ? "! " : "  ").append(change).append(ls);
+        List<ComponentChange> flagged = getFlagged();
+        sb.append(flagged.size()).append(" of ").append(changes.size()).append(" components changed their per-document cost by more than ").append(Math.round(threshold * 100)).append("%.");
+        return sb.toString();
+    }
+
+    public static class ComponentChange {
+        private String component;
+        private double baselineCost;
+        private double candidateCost;
+        private String baselineVersion;
+        private String candidateVersion;
+        private boolean flagged;
+
+        public String getComponent() {
+            return component;
+        }
+
+        /**
+         * @return The per-document cost in the baseline in milliseconds, <tt>NaN</tt> if the component was not timed.
+         */
+        public double getBaselineCost() {
+            return baselineCost;
+        }
+
+        /**
+         * @return The per-document cost in the candidate in milliseconds, <tt>NaN</tt> if the component was not timed.
+         */
+        public double getCandidateCost() {
+            return candidateCost;
+        }
+
+        public String getBaselineVersion() {
+            return baselineVersion;
+        }
+
+        public String getCandidateVersion() {
+            return candidateVersion;
+        }
+
+        /**
+         * @return The relative change of the per-document cost, <tt>0</tt> if the component is missing in the baseline
+         * or the candidate.
+         */
+        public double getChange() {
+            if (Double.isNaN(baselineCost) || Double.isNaN(candidateCost) || baselineCost == 0)
+                return 0;
+            return candidateCost / baselineCost - 1;
+        }
+
+        public boolean isFlagged() {
+            return flagged;
+        }
+
+        @Override
+        public String toString() {
+            String costs;
+            if (Double.isNaN(baselineCost))
+                costs = String.format("added, %.2f ms/document", candidateCost);
+            else if (Double.isNaN(candidateCost))
+                costs = String.format("removed, %.2f ms/document", baselineCost);
+            else
+                costs = String.format("%.2f -> %.2f ms/document (%+.0f%%)", baselineCost, candidateCost, getChange() * 100);
+            String versions = Objects.equals(baselineVersion, candidateVersion) ? "" : ", version " + baselineVersion + " -> " + candidateVersion;
+            return component + ": " + costs + versions;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * <p>A local store of the {@link RunRecord}s of pipeline runs. The records are appended as one JSON object per line
+ * to the history file, so that the file can be inspected with standard tools. Each line is written while the file
+ * is locked, so that the lines of concurrent runs do not interleave.</p>
+ * <p>Runs are selected by their ID or, to select all runs of a pipeline version, by a prefix of the pipeline
+ * fingerprint.</p>
+ */
+public class RunHistory {
+    public static final String FILE_NAME = "history.jsonl";
+    private final static Logger log = LoggerFactory.getLogger(RunHistory.class);
+    private final File file;
+    private final ObjectMapper om = new ObjectMapper();
+
+    public RunHistory(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Appends the record to the history file, creating the file if necessary. The file is locked for other processes
+     * while the line is written.
+     *
+     * @param record The record of a run.
+     * @throws IOException If the file cannot be written.
+     */
+    public void append(RunRecord record) throws IOException {
+        if (file.getAbsoluteFile().getParentFile() != null)
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        ByteBuffer line = ByteBuffer.wrap((om.writeValueAsString(record) + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        // file locks are held by the JVM, so the threads of this JVM are serialized by the class lock
+        synchronized (RunHistory.class) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                 FileLock ignored = channel.lock()) {
+                while (line.hasRemaining())
+                    channel.write(line);
+            }
+        }
+    }
+
+    /**
+     * Reads all records of the history. Lines that cannot be read are skipped with a warning.
+     *
+     * @return The records, ordered by their timestamps. Empty if the history file does not exist.
+     * @throws IOException If the file cannot be read.
+     */
+    public List<RunRecord> read() throws IOException {
+        if (!file.exists())
+            return Collections.emptyList();
+        List<RunRecord> records = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            ++lineNumber;
+            if (line.isBlank())
+                continue;
+            try {
+                records.add(om.readValue(line, RunRecord.class));
+            } catch (IOException e) {
+                log.warn("Skipping line {} of the run history {} that cannot be read: {}", lineNumber, file, e.getMessage());
+            }
+        }
+        records.sort(Comparator.comparingLong(RunRecord::getTimestamp));
+        return records;
+    }
+
+    /**
+     * Selects the run with the given ID or all runs of the pipeline version whose fingerprint starts with the given
+     * string.
+     *
+     * @param records The records of the history.
+     * @param run     A run ID or a fingerprint prefix.
+     * @return The selected records.
+     * @throws IllegalArgumentException If no run matches or the fingerprint prefix is ambiguous.
+     */
+    public static List<RunRecord> select(List<RunRecord> records, String run) {
+        Optional<RunRecord> byId = records.stream().filter(r -> run.equals(r.getId())).findAny();
+        if (byId.isPresent())
+            return List.of(byId.get());
+        List<RunRecord> byFingerprint = records.stream().filter(r -> r.getFingerprint() != null && r.getFingerprint().startsWith(run)).collect(Collectors.toList());
+        if (byFingerprint.isEmpty())
+            throw new IllegalArgumentException("There is no run with the ID or the fingerprint prefix " + run + " in the run history.");
+        if (byFingerprint.stream().map(RunRecord::getFingerprint).distinct().count() > 1)
+            throw new IllegalArgumentException("The fingerprint prefix " + run + " matches multiple pipeline versions.");
+        return byFingerprint;
+    }
+
+    /**
+     * Finds the runs of the version of the same pipeline that preceded the version of the given run. The pipeline is
+     * identified by its path.
+     *
+     * @param records The records of the history.
+     * @param run     A run.
+     * @return The runs of the previous version, empty if there is none.
+     */
+    public static List<RunRecord> findPreviousVersion(List<RunRecord> records, RunRecord run) {
+        String previousFingerprint = null;
+        for (RunRecord record : records) {
+            if (record.getTimestamp() >= run.getTimestamp())
+                break;
+            if (Objects.equals(record.getPipelinePath(), run.getPipelinePath()) && !Objects.equals(record.getFingerprint(), run.getFingerprint()))
+                previousFingerprint = record.getFingerprint();
+        }
+        if (previousFingerprint == null)
+            return Collections.emptyList();
+        String fingerprint = previousFingerprint;
+        return records.stream().filter(r -> fingerprint.equals(r.getFingerprint())).collect(Collectors.toList());
+    }
+}
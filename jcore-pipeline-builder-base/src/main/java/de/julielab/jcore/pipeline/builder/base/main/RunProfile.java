@@ -0,0 +1,403 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * <p>The structured performance profile of a pipeline run. It is written by the CPE runner when the run is complete
+ * and read by the pipeline runner to analyse the run and to start later runs of the same pipeline from the best known
+ * settings.</p>
+ * <p>The times are given in milliseconds. The stages are the top-level delegates of the CPE aggregate, i.e. the
+ * multiplier, analysis engine and consumer aggregates or the single components standing in for them. Their CPU and
+ * wall times are measured by the runner. The wall times of the single components are taken from the UIMA process
+ * trace.</p>
+ * <ul>
+ *     <li>The reader time is the time the collection reader spent in reading documents.</li>
+ *     <li>The reader wait time is the time the processing threads spent between their documents, waiting for the
+ *     next document.</li>
+ *     <li>The reader idle time is the run time in which the reader did not read. The CPE does not report how long
+ *     the reader waited for a free CAS or for room in the work queue, so the idle time serves as an estimate of
+ *     these waits.</li>
+ * </ul>
+ * <p>Profiles are stored as properties files in a directory per pipeline {@link #computeFingerprint(File)
+ * fingerprint}.</p>
+ */
+public class RunProfile {
+    private final static Logger log = LoggerFactory.getLogger(RunProfile.class);
+    private static final String STAGE_PREFIX = "stage.";
+    private static final String COMPONENT_PREFIX = "component.";
+    private static final String CPU_TIME_SUFFIX = ".cpuTime";
+    private static final String WALL_TIME_SUFFIX = ".wallTime";
+    /**
+     * The descriptor copies with another flow controller that earlier versions of the CPE runner wrote next to the
+     * pipeline descriptors and that may have been left behind by killed runs.
+     */
+    private static final Pattern DESCRIPTOR_COPY = Pattern.compile(".*-(quarantine|watchdog)-\\d+\\.xml");
+    private long timestamp;
+    private int documents;
+    private long runTime;
+    private int numThreads;
+    private int casPoolSize;
+    private long maxHeap;
+    private int casHeapSize;
+    private int availableProcessors;
+    private long readerTime;
+    private long readerWaitTime;
+    private long readerIdleTime;
+    private long threadBusyTime;
+    private long gcTime;
+    private boolean multipleDeploymentAllowed = true;
+    private List<String> singleDeploymentComponents = new ArrayList<>();
+    private String consumerStage;
+    private Map<String, Long> stageCpuTimes = new LinkedHashMap<>();
+    private Map<String, Long> stageWallTimes = new LinkedHashMap<>();
+    private Map<String, Long> componentWallTimes = new LinkedHashMap<>();
+
+    /**
+     * Computes a fingerprint of the pipeline from the contents of its UIMA descriptors and the names and sizes of the
+     * artifacts in its {@value JCoReUIMAPipeline#DIR_LIB} directory. Pipelines with the same components, component
+     * versions and configuration have the same fingerprint, while updating the artifacts of a pipeline changes it.
+     *
+     * @param pipelineDir The pipeline directory.
+     * @return The hexadecimal SHA-256 fingerprint.
+     * @throws IOException If a descriptor cannot be read.
+     */
+    public static String computeFingerprint(File pipelineDir) throws IOException {
+        File[] descriptors = new File(pipelineDir, JCoReUIMAPipeline.DIR_DESC).listFiles((dir, name) -> name.endsWith(".xml") && !DESCRIPTOR_COPY.matcher(name).matches());
+        if (descriptors == null)
+            throw new IOException("The pipeline directory " + pipelineDir + " does not contain the descriptor directory " + JCoReUIMAPipeline.DIR_DESC);
+        Arrays.sort(descriptors, Comparator.comparing(File::getName));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (File descriptor : descriptors) {
+                digest.update(descriptor.getName().getBytes(StandardCharsets.UTF_8));
+                digest.update(Files.readAllBytes(descriptor.toPath()));
+            }
+            File[] artifacts = new File(pipelineDir, JCoReUIMAPipeline.DIR_LIB).listFiles(File::isFile);
+            if (artifacts != null) {
+                Arrays.sort(artifacts, Comparator.comparing(File::getName));
+                for (File artifact : artifacts) {
+                    // the artifact file names contain the versions, the sizes distinguish rebuilt snapshots
+                    digest.update(artifact.getName().getBytes(StandardCharsets.UTF_8));
+                    digest.update(Long.toString(artifact.length()).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest())
+                sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads all profiles in the given directory.
+     *
+     * @param profileDir The profile directory of a pipeline fingerprint.
+     * @return The profiles, ordered by their timestamps. Empty if the directory does not exist.
+     */
+    public static List<RunProfile> loadAll(File profileDir) {
+        File[] files = profileDir.listFiles((dir, name) -> name.endsWith(".properties"));
+        if (files == null)
+            return Collections.emptyList();
+        List<RunProfile> profiles = new ArrayList<>();
+        for (File file : files) {
+            try {
+                profiles.add(load(file));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not read the run profile {}: {}", file, e.getMessage());
+            }
+        }
+        profiles.sort(Comparator.comparingLong(RunProfile::getTimestamp));
+        return profiles;
+    }
+
+    /**
+     * @param profiles Run profiles of a pipeline.
+     * @return The profile with the highest throughput, ignoring runs that did not process any documents.
+     */
+    public static Optional<RunProfile> findBest(Collection<RunProfile> profiles) {
+        return profiles.stream().filter(p -> p.getDocuments() > 0 && p.getRunTime() > 0).max(Comparator.comparingDouble(RunProfile::getThroughput));
+    }
+
+    public static RunProfile load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        RunProfile profile = new RunProfile();
+        profile.timestamp = getLong(properties, "timestamp");
+        profile.documents = (int) getLong(properties, "documents");
+        profile.runTime = getLong(properties, "runTime");
+        profile.numThreads = (int) getLong(properties, "numThreads");
+        profile.casPoolSize = (int) getLong(properties, "casPoolSize");
+        profile.maxHeap = getLong(properties, "maxHeap");
+        profile.casHeapSize = (int) getLong(properties, "casHeapSize");
+        profile.availableProcessors = (int) getLong(properties, "availableProcessors");
+        profile.readerTime = getLong(properties, "readerTime");
+        profile.readerWaitTime = getLong(properties, "readerWaitTime");
+        // profiles written before the idle time was named as such
+        profile.readerIdleTime = getLong(properties, properties.containsKey("readerIdleTime") ? "readerIdleTime" : "casPoolWaitTime");
+        profile.threadBusyTime = getLong(properties, "threadBusyTime");
+        profile.gcTime = getLong(properties, "gcTime");
+        profile.multipleDeploymentAllowed = Boolean.parseBoolean(properties.getProperty("multipleDeploymentAllowed", "true"));
+        String singleDeploymentComponents = properties.getProperty("singleDeploymentComponents", "");
+        if (!singleDeploymentComponents.isBlank())
+            profile.singleDeploymentComponents = new ArrayList<>(List.of(singleDeploymentComponents.split("\\|")));
+        profile.consumerStage = properties.getProperty("consumerStage");
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            if (key.startsWith(STAGE_PREFIX) && key.endsWith(CPU_TIME_SUFFIX))
+                profile.stageCpuTimes.put(key.substring(STAGE_PREFIX.length(), key.length() - CPU_TIME_SUFFIX.length()), getLong(properties, key));
+            else if (key.startsWith(STAGE_PREFIX) && key.endsWith(WALL_TIME_SUFFIX))
+                profile.stageWallTimes.put(key.substring(STAGE_PREFIX.length(), key.length() - WALL_TIME_SUFFIX.length()), getLong(properties, key));
+            else if (key.startsWith(COMPONENT_PREFIX) && key.endsWith(WALL_TIME_SUFFIX))
+                profile.componentWallTimes.put(key.substring(COMPONENT_PREFIX.length(), key.length() - WALL_TIME_SUFFIX.length()), getLong(properties, key));
+        }
+        return profile;
+    }
+
+    private static long getLong(Properties properties, String key) {
+        return Long.parseLong(properties.getProperty(key, "0").trim());
+    }
+
+    /**
+     * Writes the profile to the given file, creating its directory if necessary.
+     *
+     * @param file The profile file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void store(File file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("timestamp", String.valueOf(timestamp));
+        properties.setProperty("documents", String.valueOf(documents));
+        properties.setProperty("runTime", String.valueOf(runTime));
+        properties.setProperty("numThreads", String.valueOf(numThreads));
+        properties.setProperty("casPoolSize", String.valueOf(casPoolSize));
+        properties.setProperty("maxHeap", String.valueOf(maxHeap));
+        properties.setProperty("casHeapSize", String.valueOf(casHeapSize));
+        properties.setProperty("availableProcessors", String.valueOf(availableProcessors));
+        properties.setProperty("readerTime", String.valueOf(readerTime));
+        properties.setProperty("readerWaitTime", String.valueOf(readerWaitTime));
+        properties.setProperty("readerIdleTime", String.valueOf(readerIdleTime));
+        properties.setProperty("threadBusyTime", String.valueOf(threadBusyTime));
+        properties.setProperty("gcTime", String.valueOf(gcTime));
+        properties.setProperty("multipleDeploymentAllowed", String.valueOf(multipleDeploymentAllowed));
+        properties.setProperty("singleDeploymentComponents", String.join("|", singleDeploymentComponents));
+        if (consumerStage != null)
+            properties.setProperty("consumerStage", consumerStage);
+        stageCpuTimes.forEach((stage, time) -> properties.setProperty(STAGE_PREFIX + stage + CPU_TIME_SUFFIX, String.valueOf(time)));
+        stageWallTimes.forEach((stage, time) -> properties.setProperty(STAGE_PREFIX + stage + WALL_TIME_SUFFIX, String.valueOf(time)));
+        componentWallTimes.forEach((component, time) -> properties.setProperty(COMPONENT_PREFIX + component + WALL_TIME_SUFFIX, String.valueOf(time)));
+        if (file.getAbsoluteFile().getParentFile() != null)
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            properties.store(writer, "Pipeline run profile");
+        }
+    }
+
+    /**
+     * @return The processed documents per second.
+     */
+    public double getThroughput() {
+        return runTime > 0 ? documents * 1000d / runTime : 0;
+    }
+
+    /**
+     * @return The share of the run time the processing threads were processing documents, between 0 and 1.
+     */
+    public double getThreadUtilization() {
+        return runTime > 0 && numThreads > 0 ? Math.min(1, threadBusyTime / ((double) runTime * numThreads)) : 0;
+    }
+
+    /**
+     * @return The time the run was started, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public int getDocuments() {
+        return documents;
+    }
+
+    public void setDocuments(int documents) {
+        this.documents = documents;
+    }
+
+    /**
+     * @return The time from the completed initialization to the end of the run.
+     */
+    public long getRunTime() {
+        return runTime;
+    }
+
+    public void setRunTime(long runTime) {
+        this.runTime = runTime;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    public int getCasPoolSize() {
+        return casPoolSize;
+    }
+
+    public void setCasPoolSize(int casPoolSize) {
+        this.casPoolSize = casPoolSize;
+    }
+
+    /**
+     * @return The maximum heap size of the JVM in bytes.
+     */
+    public long getMaxHeap() {
+        return maxHeap;
+    }
+
+    public void setMaxHeap(long maxHeap) {
+        this.maxHeap = maxHeap;
+    }
+
+    /**
+     * @return The initial CAS heap size in cells, 0 for the UIMA default.
+     */
+    public int getCasHeapSize() {
+        return casHeapSize;
+    }
+
+    public void setCasHeapSize(int casHeapSize) {
+        this.casHeapSize = casHeapSize;
+    }
+
+    public int getAvailableProcessors() {
+        return availableProcessors;
+    }
+
+    public void setAvailableProcessors(int availableProcessors) {
+        this.availableProcessors = availableProcessors;
+    }
+
+    public long getReaderTime() {
+        return readerTime;
+    }
+
+    public void setReaderTime(long readerTime) {
+        this.readerTime = readerTime;
+    }
+
+    public long getReaderWaitTime() {
+        return readerWaitTime;
+    }
+
+    public void setReaderWaitTime(long readerWaitTime) {
+        this.readerWaitTime = readerWaitTime;
+    }
+
+    /**
+     * @return The run time in which the reader did not read, an estimate of the time it waited for free CASes.
+     */
+    public long getReaderIdleTime() {
+        return readerIdleTime;
+    }
+
+    public void setReaderIdleTime(long readerIdleTime) {
+        this.readerIdleTime = readerIdleTime;
+    }
+
+    /**
+     * @return The sum of the times the processing threads were processing documents.
+     */
+    public long getThreadBusyTime() {
+        return threadBusyTime;
+    }
+
+    public void setThreadBusyTime(long threadBusyTime) {
+        this.threadBusyTime = threadBusyTime;
+    }
+
+    public long getGcTime() {
+        return gcTime;
+    }
+
+    public void setGcTime(long gcTime) {
+        this.gcTime = gcTime;
+    }
+
+    /**
+     * @return Whether the CPE aggregate may be deployed once per processing thread. If not, the pipeline runs
+     * single-threaded.
+     */
+    public boolean isMultipleDeploymentAllowed() {
+        return multipleDeploymentAllowed;
+    }
+
+    public void setMultipleDeploymentAllowed(boolean multipleDeploymentAllowed) {
+        this.multipleDeploymentAllowed = multipleDeploymentAllowed;
+    }
+
+    /**
+     * @return The names of the components that do not allow multiple deployment.
+     */
+    public List<String> getSingleDeploymentComponents() {
+        return singleDeploymentComponents;
+    }
+
+    public void setSingleDeploymentComponents(List<String> singleDeploymentComponents) {
+        this.singleDeploymentComponents = singleDeploymentComponents;
+    }
+
+    /**
+     * @return The stage holding the consumers, <tt>null</tt> if the pipeline has no consumer.
+     */
+    public String getConsumerStage() {
+        return consumerStage;
+    }
+
+    public void setConsumerStage(String consumerStage) {
+        this.consumerStage = consumerStage;
+    }
+
+    public Map<String, Long> getStageCpuTimes() {
+        return stageCpuTimes;
+    }
+
+    public void setStageCpuTimes(Map<String, Long> stageCpuTimes) {
+        this.stageCpuTimes = stageCpuTimes;
+    }
+
+    public Map<String, Long> getStageWallTimes() {
+        return stageWallTimes;
+    }
+
+    public void setStageWallTimes(Map<String, Long> stageWallTimes) {
+        this.stageWallTimes = stageWallTimes;
+    }
+
+    public Map<String, Long> getComponentWallTimes() {
+        return componentWallTimes;
+    }
+
+    public void setComponentWallTimes(Map<String, Long> componentWallTimes) {
+        this.componentWallTimes = componentWallTimes;
+    }
+}
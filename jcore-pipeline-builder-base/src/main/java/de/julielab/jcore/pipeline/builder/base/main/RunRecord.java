@@ -0,0 +1,201 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import de.julielab.utilities.aether.MavenArtifact;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * <p>The record of a pipeline run in the {@link RunHistory}. It holds the pipeline fingerprint, the artifact versions
+ * of the components, the timings of the components taken from the {@link RunProfile} of the run, the throughput and
+ * the environment of the run.</p>
+ * <p>The component times are the summed wall times of all threads. The {@link #getCostPerDocument(String) cost per
+ * document} of a component thus grows when the threads compete for processors, memory bandwidth or I/O, and it is
+ * only comparable between runs with the same number of threads on the same machine. {@link RunComparison} reports
+ * runs that differ in these respects.</p>
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RunRecord {
+    private String id;
+    private long timestamp;
+    private String fingerprint;
+    private String pipelinePath;
+    private int documents;
+    private long runTime;
+    private double documentsPerSecond;
+    private Map<String, String> artifactVersions = new TreeMap<>();
+    private Map<String, Long> componentTimes = new LinkedHashMap<>();
+    private Map<String, Long> stageCpuTimes = new LinkedHashMap<>();
+    private Map<String, String> environment = new TreeMap<>();
+
+    /**
+     * Creates the record of a run of the given pipeline.
+     *
+     * @param pipeline    The pipeline.
+     * @param fingerprint The {@link RunProfile#computeFingerprint(java.io.File) fingerprint} of the pipeline.
+     * @param profile     The profile of the run.
+     * @return The run record.
+     */
+    public static RunRecord create(JCoReUIMAPipeline pipeline, String fingerprint, RunProfile profile) {
+        RunRecord record = new RunRecord();
+        record.timestamp = profile.getTimestamp();
+        record.fingerprint = fingerprint;
+        record.id = fingerprint.substring(0, Math.min(8, fingerprint.length())) + "-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(profile.getTimestamp()));
+        record.pipelinePath = pipeline.getLoadDirectory() != null ? pipeline.getLoadDirectory().getAbsolutePath() : null;
+        record.documents = profile.getDocuments();
+        record.runTime = profile.getRunTime();
+        record.documentsPerSecond = profile.getThroughput();
+        Stream<Description> descriptions = Stream.of(Stream.ofNullable(pipeline.getCrDescription()), streamOf(pipeline.getCmDelegates()), streamOf(pipeline.getAeDelegates()), streamOf(pipeline.getCcDelegates())).flatMap(s -> s);
+        descriptions.filter(Description::isActive).forEach(d -> record.artifactVersions.put(d.getName(), getArtifactVersion(d)));
+        record.componentTimes.putAll(profile.getComponentWallTimes().isEmpty() ? profile.getStageWallTimes() : profile.getComponentWallTimes());
+        record.stageCpuTimes.putAll(profile.getStageCpuTimes());
+        record.environment.put("host", getHostName());
+        record.environment.put("java.version", System.getProperty("java.version"));
+        record.environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        record.environment.put("processors", String.valueOf(profile.getAvailableProcessors()));
+        record.environment.put("threads", String.valueOf(profile.getNumThreads()));
+        record.environment.put("casPoolSize", String.valueOf(profile.getCasPoolSize()));
+        record.environment.put("maxHeap", String.valueOf(profile.getMaxHeap()));
+        return record;
+    }
+
+    private static Stream<Description> streamOf(List<Description> descriptions) {
+        return descriptions != null ? descriptions.stream() : Stream.empty();
+    }
+
+    private static String getArtifactVersion(Description description) {
+        MetaDescription metaDescription = description.getMetaDescription();
+        if (metaDescription == null)
+            return "unknown";
+        if (Boolean.TRUE.equals(metaDescription.isPear()))
+            return "pear";
+        MavenArtifact artifact = metaDescription.getMavenArtifactCoordinates();
+        if (artifact == null)
+            return "unknown";
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+    }
+
+    private static String getHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return Objects.requireNonNullElse(System.getenv("HOSTNAME"), "unknown");
+        }
+    }
+
+    /**
+     * @param component The name of a component.
+     * @return The summed processing time of the component per document in milliseconds, <tt>NaN</tt> if the component
+     * was not timed.
+     */
+    public double getCostPerDocument(String component) {
+        Long time = componentTimes.get(component);
+        return time != null && documents > 0 ? time / (double) documents : Double.NaN;
+    }
+
+    /**
+     * @return The identifier of the run, the beginning of the fingerprint and the start time.
+     */
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getPipelinePath() {
+        return pipelinePath;
+    }
+
+    public void setPipelinePath(String pipelinePath) {
+        this.pipelinePath = pipelinePath;
+    }
+
+    public int getDocuments() {
+        return documents;
+    }
+
+    public void setDocuments(int documents) {
+        this.documents = documents;
+    }
+
+    public long getRunTime() {
+        return runTime;
+    }
+
+    public void setRunTime(long runTime) {
+        this.runTime = runTime;
+    }
+
+    public double getDocumentsPerSecond() {
+        return documentsPerSecond;
+    }
+
+    public void setDocumentsPerSecond(double documentsPerSecond) {
+        this.documentsPerSecond = documentsPerSecond;
+    }
+
+    /**
+     * @return The Maven coordinates <tt>groupId:artifactId:version</tt> of the active components by component name.
+     */
+    public Map<String, String> getArtifactVersions() {
+        return artifactVersions;
+    }
+
+    public void setArtifactVersions(Map<String, String> artifactVersions) {
+        this.artifactVersions = artifactVersions;
+    }
+
+    /**
+     * @return The summed processing times of the components in milliseconds.
+     */
+    public Map<String, Long> getComponentTimes() {
+        return componentTimes;
+    }
+
+    public void setComponentTimes(Map<String, Long> componentTimes) {
+        this.componentTimes = componentTimes;
+    }
+
+    public Map<String, Long> getStageCpuTimes() {
+        return stageCpuTimes;
+    }
+
+    public void setStageCpuTimes(Map<String, Long> stageCpuTimes) {
+        this.stageCpuTimes = stageCpuTimes;
+    }
+
+    public Map<String, String> getEnvironment() {
+        return environment;
+    }
+
+    public void setEnvironment(Map<String, String> environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d documents, %.1f documents/s, %s threads on %s", id, documents, documentsPerSecond, environment.get("threads"), environment.get("host"));
+    }
+}
@@ -0,0 +1,155 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
+import org.apache.uima.resource.metadata.MetaDataObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * <p>Tracks which input type capabilities of the components of a {@link JCoReUIMAPipeline} are satisfied by the
+ * output capabilities of the components running before them.</p>
+ * <p>The components are ordered as they are run by the CPE: the collection reader, the CAS multipliers, the analysis
+ * engines and finally the CAS consumers. An input type is satisfied at position <tt>k</tt> if an active component
+ * at a position before <tt>k</tt> outputs this type or one of its subtypes. The type hierarchy is assembled from the
+ * type systems of the component descriptors, see {@link TypeHierarchy}.</p>
+ * <p>The graph is brought up to date by {@link #update(JCoReUIMAPipeline)}. The update compares the current
+ * component sequence with the one of the last update and only recomputes the positions from the first changed
+ * component on. Thus, adding, removing, reordering and (de-)activating components - also when done by in-place
+ * modifications of the delegate lists - is reflected without recomputing the unchanged prefix of the pipeline.
+ * The unsatisfied inputs of each component are computed during the update and just looked up by the query
+ * methods.</p>
+ */
+public class TypeCapabilityGraph {
+    private final static Logger log = LoggerFactory.getLogger(TypeCapabilityGraph.class);
+    private final TypeHierarchy typeHierarchy = new TypeHierarchy();
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<Description, Node> nodesByDescription = new IdentityHashMap<>();
+
+    private static Stream<Description> getComponentSequence(JCoReUIMAPipeline pipeline) {
+        Stream<Description> cr = pipeline.getCrDescription() != null ? Stream.of(pipeline.getCrDescription()) : Stream.empty();
+        Stream<Description> cms = pipeline.getCmDelegates() != null ? pipeline.getCmDelegates().stream() : Stream.empty();
+        Stream<Description> aes = pipeline.getAeDelegates() != null ? pipeline.getAeDelegates().stream() : Stream.empty();
+        Stream<Description> ccs = pipeline.getCcDelegates() != null ? pipeline.getCcDelegates().stream() : Stream.empty();
+        return Stream.of(cr, cms, aes, ccs).flatMap(s -> s).filter(Objects::nonNull);
+    }
+
+    /**
+     * Brings the graph up to date with the current state of <tt>pipeline</tt>.
+     *
+     * @param pipeline The pipeline this graph represents.
+     * @return This graph.
+     */
+    public synchronized TypeCapabilityGraph update(JCoReUIMAPipeline pipeline) {
+        List<Description> components = new ArrayList<>();
+        getComponentSequence(pipeline).forEach(components::add);
+        boolean hierarchyChanged = false;
+        for (Description component : components)
+            hierarchyChanged |= typeHierarchy.addTypeSystems(component.getDescriptor());
+        // When the type hierarchy changed, the closure over supertypes must be computed anew for all components
+        int firstChange = hierarchyChanged ? 0 : Math.min(components.size(), nodes.size());
+        for (int i = 0; i < firstChange; i++) {
+            Node node = nodes.get(i);
+            Description component = components.get(i);
+            if (node.description != component || node.active != component.isActive() || node.descriptor != component.getDescriptor()) {
+                firstChange = i;
+                break;
+            }
+        }
+        if (firstChange == components.size() && firstChange == nodes.size())
+            return this;
+        for (int i = nodes.size() - 1; i >= firstChange; i--)
+            nodesByDescription.remove(nodes.remove(i).description);
+        Set<String> available = firstChange > 0 ? nodes.get(firstChange - 1).availableAfter : Collections.emptySet();
+        for (int i = firstChange; i < components.size(); i++) {
+            // The reader is the first component and has nothing to rely on
+            Node node = new Node(components.get(i), available, components.get(i) != pipeline.getCrDescription());
+            nodes.add(node);
+            nodesByDescription.put(node.description, node);
+            available = node.availableAfter;
+        }
+        log.trace("Updated the type capability graph from position {} of {}.", firstChange, components.size());
+        return this;
+    }
+
+    /**
+     * Returns the unsatisfied input capabilities of the component at <tt>position</tt> as of the last update.
+     * Position 0 is the collection reader, if present, followed by the CAS multipliers, the analysis engines and
+     * the CAS consumers.
+     *
+     * @param position The component position.
+     * @return The input capabilities not satisfied by the active components before <tt>position</tt>.
+     */
+    public synchronized List<String> getUnsatisfiedInputs(int position) {
+        return nodes.get(position).unsatisfied;
+    }
+
+    /**
+     * Returns the unsatisfied input capabilities of the given component as of the last update.
+     *
+     * @param description A component of the pipeline.
+     * @return The input capabilities not satisfied by the active components before <tt>description</tt>.
+     */
+    public synchronized List<String> getUnsatisfiedInputs(Description description) {
+        Node node = nodesByDescription.get(description);
+        return node != null ? node.unsatisfied : Collections.emptyList();
+    }
+
+    /**
+     * @return The names of all active components with unsatisfied input capabilities, mapped to these capabilities.
+     */
+    public synchronized Multimap<String, String> getUnsatisfiedInputsByComponentName() {
+        Multimap<String, String> ret = LinkedHashMultimap.create();
+        for (Node node : nodes)
+            ret.putAll(node.description.getName(), node.unsatisfied);
+        return ret;
+    }
+
+    /**
+     * Returns whether <tt>type</tt> is <tt>supertype</tt> or one of its subtypes according to the known type hierarchy.
+     *
+     * @param type      The type to check.
+     * @param supertype The potential supertype.
+     * @return Whether <tt>type</tt> is subsumed by <tt>supertype</tt>.
+     */
+    public synchronized boolean subsumes(String supertype, String type) {
+        return typeHierarchy.subsumes(supertype, type);
+    }
+
+    private class Node {
+        private final Description description;
+        private final boolean active;
+        private final MetaDataObject descriptor;
+        /**
+         * The types and features available to the components after this one, closed under supertypes.
+         */
+        private final Set<String> availableAfter;
+        private final List<String> unsatisfied;
+
+        public Node(Description description, Set<String> availableBefore, boolean checkInputs) {
+            this.description = description;
+            this.active = description.isActive();
+            this.descriptor = description.getDescriptor();
+            List<String> outputs = description.getOutputCapabilities();
+            if (active && !outputs.isEmpty()) {
+                availableAfter = new HashSet<>(availableBefore);
+                outputs.forEach(type -> typeHierarchy.addWithSupertypes(type, availableAfter));
+            } else {
+                availableAfter = availableBefore;
+            }
+            if (active && checkInputs) {
+                List<String> unsatisfied = new ArrayList<>();
+                for (String input : description.getInputCapabilities()) {
+                    if (!availableBefore.contains(input))
+                        unsatisfied.add(input);
+                }
+                this.unsatisfied = unsatisfied.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(unsatisfied);
+            } else {
+                this.unsatisfied = Collections.emptyList();
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.resource.ResourceCreationSpecifier;
+import org.apache.uima.resource.ResourceManager;
+import org.apache.uima.resource.ResourceSpecifier;
+import org.apache.uima.resource.metadata.MetaDataObject;
+import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
+import org.apache.uima.resource.metadata.ResourceMetaData;
+import org.apache.uima.resource.metadata.TypeDescription;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.InvalidXMLException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * <p>The supertype relation between UIMA type names, merged from the type systems of component descriptors.</p>
+ * <p>Type system imports are resolved on a copy of the type system where possible, i.e. when the imported type
+ * descriptors are on the classpath. Otherwise only the local type declarations are used. Features, given as
+ * <tt>type:feature</tt>, are not part of the hierarchy and thus only subsume themselves. This class is not
+ * thread safe.</p>
+ */
+class TypeHierarchy {
+    private final static Logger log = LoggerFactory.getLogger(TypeHierarchy.class);
+    private static final String TOP = "uima.cas.TOP";
+    /**
+     * The supertype name for each type name we know of. Type declarations are only ever added, since a type name
+     * identifies a type regardless of the component declaring it.
+     */
+    private final Map<String, String> supertypes = new HashMap<>();
+    /**
+     * The descriptors whose type system declarations have already been added to {@link #supertypes}.
+     */
+    private final Set<MetaDataObject> typeSystemsAdded = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    TypeHierarchy() {
+        supertypes.put("uima.cas.AnnotationBase", TOP);
+        supertypes.put("uima.tcas.Annotation", "uima.cas.AnnotationBase");
+        supertypes.put("uima.tcas.DocumentAnnotation", "uima.tcas.Annotation");
+    }
+
+    /**
+     * Returns whether <tt>type</tt> is <tt>supertype</tt> or one of its subtypes according to the known type hierarchy.
+     *
+     * @param type      The type to check.
+     * @param supertype The potential supertype.
+     * @return Whether <tt>type</tt> is subsumed by <tt>supertype</tt>.
+     */
+    boolean subsumes(String supertype, String type) {
+        for (String t = type; t != null; t = supertypes.get(t)) {
+            if (t.equals(supertype))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the type declarations from the type system of <tt>descriptor</tt> - or its delegates, if it is an
+     * aggregate - to the type hierarchy. Each descriptor is only processed once.
+     *
+     * @return Whether a new type has been added to the hierarchy.
+     */
+    boolean addTypeSystems(MetaDataObject descriptor) {
+        if (descriptor == null || !typeSystemsAdded.add(descriptor))
+            return false;
+        boolean changed = false;
+        for (TypeSystemDescription tsd : getTypeSystems(descriptor)) {
+            try {
+                // Don't resolve the imports in the original since it will be stored later.
+                TypeSystemDescription resolved = (TypeSystemDescription) tsd.clone();
+                ResourceManager resourceManager = UIMAFramework.newDefaultResourceManager();
+                resolved.resolveImports(resourceManager);
+                tsd = resolved;
+            } catch (InvalidXMLException e) {
+                log.debug("Could not resolve the type system imports of a descriptor; only its local type declarations are used for the type hierarchy: {}", e.getMessage());
+            }
+            for (TypeDescription type : tsd.getTypes()) {
+                if (type.getSupertypeName() != null && !type.getSupertypeName().equals(supertypes.get(type.getName()))) {
+                    supertypes.put(type.getName(), type.getSupertypeName());
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    private List<TypeSystemDescription> getTypeSystems(MetaDataObject descriptor) {
+        List<TypeSystemDescription> ret = new ArrayList<>();
+        if (descriptor instanceof ResourceCreationSpecifier) {
+            ResourceMetaData metaData = ((ResourceCreationSpecifier) descriptor).getMetaData();
+            if (metaData instanceof ProcessingResourceMetaData && ((ProcessingResourceMetaData) metaData).getTypeSystem() != null)
+                ret.add(((ProcessingResourceMetaData) metaData).getTypeSystem());
+        }
+        if (descriptor instanceof AnalysisEngineDescription && !((AnalysisEngineDescription) descriptor).isPrimitive()) {
+            try {
+                for (ResourceSpecifier delegate : ((AnalysisEngineDescription) descriptor).getDelegateAnalysisEngineSpecifiers().values())
+                    ret.addAll(getTypeSystems(delegate));
+            } catch (InvalidXMLException e) {
+                log.debug("Could not get the delegates of an aggregate for its type systems: {}", e.getMessage());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Adds <tt>type</tt> and all its supertypes to <tt>types</tt>.
+     */
+    void addWithSupertypes(String type, Set<String> types) {
+        for (String t = type; t != null && types.add(t); t = supertypes.get(t)) ;
+    }
+}
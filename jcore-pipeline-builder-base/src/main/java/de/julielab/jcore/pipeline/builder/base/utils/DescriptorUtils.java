@@ -1,26 +1,15 @@
 package de.julielab.jcore.pipeline.builder.base.utils;
 
-import org.apache.uima.UIMAFramework;
 import org.apache.uima.resource.ResourceSpecifier;
-import org.apache.uima.util.InvalidXMLException;
-import org.apache.uima.util.XMLInputSource;
-import org.apache.uima.util.XMLParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.net.URISyntaxException;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 public class DescriptorUtils {
     private final static Logger log = LoggerFactory.getLogger(DescriptorUtils.class);
@@ -32,7 +21,8 @@ public class DescriptorUtils {
     }};
 
     /**
-     * Searches the {@code artifact} for all descriptor files ending in {@code .xml} and residing directly in {@code ../desc/}.
+     * Searches the {@code artifact} for all descriptor files ending in {@code .xml}. The lookup is served by the
+     * {@link JarDescriptorIndex}.
      *
      * @param artifact
      * @throws IOException
@@ -40,22 +30,8 @@ public class DescriptorUtils {
      */
     public static Map<URI, ResourceSpecifier> searchDescriptor(File artifact) throws IOException {
         Map<URI, ResourceSpecifier> descriptors = new HashMap<>();
-        XMLParser parser = UIMAFramework.getXMLParser();
-        try (FileSystem zipFs = FileSystems.newFileSystem(artifact.toPath(), null)) {
-            for (Path rootDir : zipFs.getRootDirectories()) {
-                Iterator<Path> xmlIt = Files.walk(rootDir).filter(p -> p.getFileName().toString().toLowerCase().endsWith(".xml")).iterator();
-                while (xmlIt.hasNext()) {
-                    Path xmlFile = xmlIt.next();
-                    try {
-                        ResourceSpecifier resourceSpecifier = parser.parseResourceSpecifier(new XMLInputSource(xmlFile.toUri().toURL().openStream(), null));
-                        descriptors.put(xmlFile.toUri(), resourceSpecifier);
-                    } catch (InvalidXMLException e) {
-                        log.debug("XML file {} could not be parsed as a UIMA descriptor and is skipped in the search of descriptors in {}", xmlFile, artifact);
-                    }
-                }
-
-            }
-        }
+        for (Map.Entry<String, ResourceSpecifier> entry : JarDescriptorIndex.getInstance().getDescriptors(artifact).entrySet())
+            descriptors.put(getJarEntryUri(artifact, entry.getKey()), entry.getValue());
 
         if (descriptors.isEmpty())
             log.debug("No descriptors were found for artifact file {}", artifact);
@@ -63,28 +39,32 @@ public class DescriptorUtils {
     }
 
     /**
-     * Searches the {@code artifact} for a descriptor that is given by {@code descLocation}.
+     * Creates the <tt>jar:</tt> URI of an entry of a JAR file. Characters of the file path and the entry name that
+     * are not allowed in URIs, e.g. spaces, are escaped.
+     *
+     * @param artifact The JAR file.
+     * @param entry    The name of the entry in the JAR.
+     * @return The URI of the entry.
+     */
+    public static URI getJarEntryUri(File artifact, String entry) {
+        URI fileUri = artifact.toURI();
+        try {
+            return new URI("jar", fileUri.getScheme() + ":" + fileUri.getSchemeSpecificPart() + "!/" + entry, null);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Cannot create the URI of the entry " + entry + " of " + artifact, e);
+        }
+    }
+
+    /**
+     * Searches the {@code artifact} for a descriptor that is given by {@code descLocation}. The lookup is served by
+     * the {@link JarDescriptorIndex}.
      *
      * @param artifactPath
      * @param descLocation
      * @return
      */
     public static ResourceSpecifier searchDescriptor(File artifactPath, String descLocation) throws IOException {
-        ResourceSpecifier spec = null;
-        XMLParser parser = UIMAFramework.getXMLParser();
-        try (ZipFile zipFile = new ZipFile(artifactPath)) {
-            String path = descLocation.replaceAll("\\.", "/") + ".xml";
-            ZipEntry entry = zipFile.getEntry(path);
-            if (entry == null)
-                throw new IllegalStateException("The meta descriptor provides the descriptor location " + descLocation + " which could not be found in " + artifactPath.getAbsolutePath());
-            InputStream inputStream = zipFile.getInputStream(entry);
-            spec = parser.parseResourceSpecifier(new XMLInputSource(inputStream, null));
-        } catch (InvalidXMLException e) {
-            log.error("Could not load XML descriptor {} in file {}", descLocation, artifactPath, e);
-        }
-
-
-        return spec;
+        return JarDescriptorIndex.getInstance().getDescriptor(artifactPath, descLocation);
     }
 
     public static Map<String, String> getDescRoots() {
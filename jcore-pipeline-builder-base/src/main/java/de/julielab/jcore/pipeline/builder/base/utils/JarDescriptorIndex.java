@@ -0,0 +1,419 @@
+package de.julielab.jcore.pipeline.builder.base.utils;
+
+import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.collection.CasConsumerDescription;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.flow.FlowControllerDescription;
+import org.apache.uima.resource.ResourceCreationSpecifier;
+import org.apache.uima.resource.ResourceSpecifier;
+import org.apache.uima.util.InvalidXMLException;
+import org.apache.uima.util.XMLInputSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * <p>An index of the UIMA descriptors contained in component JAR files.</p>
+ * <p>For each JAR, the index maps the paths of the XML entries that are UIMA descriptors to their kind and name.
+ * The index of a JAR is built once by parsing all its XML entries in parallel and is then stored in the
+ * <tt>descriptor-index</tt> directory of the {@link PipelineBuilderConstants.JcoreMeta#LOCAL_STORAGE}. The stored
+ * indexes are keyed by the SHA-1 checksum of the JAR so that they are reused across sessions and for copies of the
+ * same JAR but are never applied to a changed JAR.</p>
+ * <p>Parsed descriptors are cached in memory through soft references. Thus, they may be reclaimed when memory gets
+ * scarce and are then parsed anew from the JAR. Since descriptors are modified when components are configured, the
+ * lookup methods always return copies of the cached descriptors.</p>
+ * <p>The index is thread safe. Each JAR is indexed only once, concurrent requests for the same JAR wait for the index
+ * being built, and a reclaimed descriptor is parsed anew by only one thread.</p>
+ */
+public class JarDescriptorIndex {
+    public static final String INDEX_DIR = "descriptor-index";
+    private final static Logger log = LoggerFactory.getLogger(JarDescriptorIndex.class);
+    private static final String FORMAT_HEADER = "#jcore-descriptor-index 1";
+    private static JarDescriptorIndex instance;
+    private final File storageDir;
+    /**
+     * The indexes of the JARs seen in this session, keyed by the path, size and modification time of the JAR.
+     */
+    private final Map<String, CompletableFuture<JarIndex>> jarIndexes = new ConcurrentHashMap<>();
+
+    public JarDescriptorIndex(File storageDir) {
+        this.storageDir = storageDir;
+    }
+
+    public static synchronized JarDescriptorIndex getInstance() {
+        if (instance == null)
+            instance = new JarDescriptorIndex(new File(PipelineBuilderConstants.JcoreMeta.LOCAL_STORAGE, INDEX_DIR));
+        return instance;
+    }
+
+    public static Kind getKind(ResourceSpecifier spec) {
+        if (spec instanceof CollectionReaderDescription)
+            return Kind.COLLECTION_READER;
+        if (spec instanceof AnalysisEngineDescription) {
+            AnalysisEngineDescription aeDesc = (AnalysisEngineDescription) spec;
+            return aeDesc.getAnalysisEngineMetaData().getOperationalProperties() != null && aeDesc.getAnalysisEngineMetaData().getOperationalProperties().getOutputsNewCASes() ? Kind.CAS_MULTIPLIER : Kind.ANALYSIS_ENGINE;
+        }
+        if (spec instanceof CasConsumerDescription)
+            return Kind.CAS_CONSUMER;
+        if (spec instanceof FlowControllerDescription)
+            return Kind.FLOW_CONTROLLER;
+        return Kind.OTHER;
+    }
+
+    private static String getName(ResourceSpecifier spec) {
+        if (spec instanceof ResourceCreationSpecifier && ((ResourceCreationSpecifier) spec).getMetaData() != null) {
+            String name = ((ResourceCreationSpecifier) spec).getMetaData().getName();
+            return name != null ? name : "";
+        }
+        return "";
+    }
+
+    private static ResourceSpecifier parse(byte[] xml) throws InvalidXMLException {
+        return UIMAFramework.getXMLParser().parseResourceSpecifier(new XMLInputSource(new ByteArrayInputStream(xml), null));
+    }
+
+    private static ResourceSpecifier copy(ResourceSpecifier spec) {
+        return spec != null ? (ResourceSpecifier) spec.clone() : null;
+    }
+
+    /**
+     * Returns the SHA-1 checksum of <tt>jar</tt>. If the Maven repository holds a checksum file for the JAR that
+     * is not older than the JAR itself, its value is used instead of reading the JAR.
+     *
+     * @param jar The JAR file.
+     * @return The hex encoded SHA-1 checksum.
+     * @throws IOException If the JAR cannot be read.
+     */
+    static String getChecksum(File jar) throws IOException {
+        File sha1File = new File(jar.getAbsolutePath() + ".sha1");
+        if (sha1File.exists() && sha1File.lastModified() >= jar.lastModified()) {
+            String sha1 = new String(Files.readAllBytes(sha1File.toPath()), StandardCharsets.UTF_8).trim().split("\\s+")[0];
+            if (sha1.matches("[0-9a-fA-F]{40}"))
+                return sha1.toLowerCase();
+        }
+        try (InputStream is = new BufferedInputStream(new FileInputStream(jar))) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1)
+                digest.update(buffer, 0, read);
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest())
+                sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the descriptor at <tt>descLocation</tt> in <tt>jar</tt>.
+     *
+     * @param jar          The JAR file.
+     * @param descLocation The descriptor location in dot notation, e.g. <tt>de.julielab.desc.my-ae</tt>.
+     * @return A copy of the descriptor or <tt>null</tt> if the entry could not be parsed as a UIMA descriptor.
+     * @throws IOException           If the JAR cannot be read.
+     * @throws IllegalStateException If there is no XML entry for <tt>descLocation</tt> in <tt>jar</tt>.
+     */
+    public ResourceSpecifier getDescriptor(File jar, String descLocation) throws IOException {
+        JarIndex index = getJarIndex(jar);
+        IndexEntry entry = getEntry(index, descLocation);
+        if (entry == null) {
+            log.error("Could not load XML descriptor {} in file {} because it is not a UIMA descriptor", descLocation, jar);
+            return null;
+        }
+        return copy(index.getSpec(entry));
+    }
+
+    /**
+     * Returns the size of the XML of the descriptor at <tt>descLocation</tt> in <tt>jar</tt>. The size is known
+     * as soon as the descriptor has been parsed in this session, e.g. by {@link #getDescriptor(File, String)}.
+     *
+     * @param jar          The JAR file.
+     * @param descLocation The descriptor location in dot notation, e.g. <tt>de.julielab.desc.my-ae</tt>.
+     * @return The number of bytes of the descriptor XML or <tt>-1</tt> if the descriptor has not been parsed yet or
+     * is not a UIMA descriptor.
+     * @throws IOException           If the JAR cannot be read.
+     * @throws IllegalStateException If there is no XML entry for <tt>descLocation</tt> in <tt>jar</tt>.
+     */
+    public long getDescriptorSize(File jar, String descLocation) throws IOException {
+        IndexEntry entry = getEntry(getJarIndex(jar), descLocation);
+        return entry != null ? entry.size : -1;
+    }
+
+    private IndexEntry getEntry(JarIndex index, String descLocation) {
+        String path = descLocation.replaceAll("\\.", "/") + ".xml";
+        if (!index.xmlEntries.contains(path))
+            throw new IllegalStateException("The meta descriptor provides the descriptor location " + descLocation + " which could not be found in " + index.jar.getAbsolutePath());
+        return index.entries.get(path);
+    }
+
+    /**
+     * Returns all descriptors in <tt>jar</tt>.
+     *
+     * @param jar The JAR file.
+     * @return Copies of the descriptors, keyed by their entry paths.
+     * @throws IOException If the JAR cannot be read.
+     */
+    public Map<String, ResourceSpecifier> getDescriptors(File jar) throws IOException {
+        Map<String, ResourceSpecifier> ret = getJarIndex(jar).getSpecs();
+        ret.replaceAll((path, spec) -> copy(spec));
+        return ret;
+    }
+
+    /**
+     * @param jar The JAR file.
+     * @return The kinds and names of the descriptors in <tt>jar</tt>, keyed by their entry paths.
+     * @throws IOException If the JAR cannot be read.
+     */
+    public Map<String, IndexEntry> getEntries(File jar) throws IOException {
+        return Collections.unmodifiableMap(getJarIndex(jar).entries);
+    }
+
+    /**
+     * Makes sure that the indexes of all given JARs are available, building missing indexes in parallel.
+     *
+     * @param jars The JAR files.
+     */
+    public void index(Collection<File> jars) {
+        jars.parallelStream().forEach(jar -> {
+            try {
+                getJarIndex(jar);
+            } catch (IOException e) {
+                log.warn("Could not index the descriptors of {}: {}", jar, e.getMessage());
+            }
+        });
+    }
+
+    private JarIndex getJarIndex(File jar) throws IOException {
+        String key = jar.getAbsolutePath() + "|" + jar.length() + "|" + jar.lastModified();
+        CompletableFuture<JarIndex> future = new CompletableFuture<>();
+        CompletableFuture<JarIndex> existing = jarIndexes.putIfAbsent(key, future);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException)
+                    throw (IOException) e.getCause();
+                throw e;
+            }
+        }
+        try {
+            JarIndex index = loadOrBuild(jar);
+            future.complete(index);
+            return index;
+        } catch (IOException | RuntimeException e) {
+            // do not remember failures, the JAR might be fixed later on
+            jarIndexes.remove(key);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private JarIndex loadOrBuild(File jar) throws IOException {
+        String checksum = getChecksum(jar);
+        File indexFile = new File(storageDir, checksum + ".idx");
+        if (indexFile.exists()) {
+            try {
+                JarIndex index = read(jar, indexFile);
+                if (index != null) {
+                    log.trace("Loaded the descriptor index of {} from {}.", jar, indexFile);
+                    return index;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Could not read the descriptor index file {}, rebuilding it: {}", indexFile, e.getMessage());
+            }
+        }
+        JarIndex index = build(jar);
+        try {
+            write(index, indexFile);
+        } catch (IOException e) {
+            log.warn("Could not store the descriptor index of {} to {}: {}", jar, indexFile, e.getMessage());
+        }
+        return index;
+    }
+
+    private JarIndex build(File jar) throws IOException {
+        long time = System.nanoTime();
+        Map<String, byte[]> xmlData = new LinkedHashMap<>();
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry zipEntry = zipEntries.nextElement();
+                if (!zipEntry.isDirectory() && zipEntry.getName().toLowerCase().endsWith(".xml")) {
+                    try (InputStream is = zipFile.getInputStream(zipEntry)) {
+                        xmlData.put(zipEntry.getName(), is.readAllBytes());
+                    }
+                }
+            }
+        }
+        List<IndexEntry> entries = xmlData.entrySet().parallelStream().map(e -> {
+            try {
+                ResourceSpecifier spec = parse(e.getValue());
+                IndexEntry entry = new IndexEntry(e.getKey(), getKind(spec), getName(spec));
+                entry.setSpec(spec, e.getValue().length);
+                return entry;
+            } catch (InvalidXMLException ex) {
+                log.debug("XML file {} could not be parsed as a UIMA descriptor and is skipped in the index of {}", e.getKey(), jar);
+                return null;
+            }
+        }).filter(Objects::nonNull).collect(Collectors.toList());
+        log.debug("Indexed {} descriptors of {} XML files in {} in {}ms.", entries.size(), xmlData.size(), jar, (System.nanoTime() - time) / 1000000);
+        return new JarIndex(jar, xmlData.keySet(), entries);
+    }
+
+    private JarIndex read(File jar, File indexFile) throws IOException {
+        List<String> lines = Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(FORMAT_HEADER))
+            return null;
+        Set<String> xmlEntries = new LinkedHashSet<>();
+        List<IndexEntry> entries = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split("\t", -1);
+            xmlEntries.add(fields[0]);
+            // XML entries that are no descriptors only have the path field
+            if (fields.length == 3)
+                entries.add(new IndexEntry(fields[0], Kind.valueOf(fields[1]), fields[2]));
+        }
+        return new JarIndex(jar, xmlEntries, entries);
+    }
+
+    private void write(JarIndex index, File indexFile) throws IOException {
+        if (!storageDir.exists() && !storageDir.mkdirs() && !storageDir.exists())
+            throw new IOException("Could not create the directory " + storageDir);
+        File tmpFile = new File(storageDir, indexFile.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8))) {
+            w.write(FORMAT_HEADER);
+            w.write("\n");
+            for (String path : index.xmlEntries) {
+                IndexEntry entry = index.entries.get(path);
+                w.write(path);
+                if (entry != null)
+                    w.write("\t" + entry.kind + "\t" + entry.name.replaceAll("[\t\n\r]", " "));
+                w.write("\n");
+            }
+        }
+        Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public enum Kind {COLLECTION_READER, ANALYSIS_ENGINE, CAS_MULTIPLIER, CAS_CONSUMER, FLOW_CONTROLLER, OTHER}
+
+    /**
+     * A descriptor entry of a JAR.
+     */
+    public static class IndexEntry {
+        private final String path;
+        private final Kind kind;
+        private final String name;
+        private volatile SoftReference<ResourceSpecifier> spec;
+        private volatile long size = -1;
+
+        private IndexEntry(String path, Kind kind, String name) {
+            this.path = path;
+            this.kind = kind;
+            this.name = name;
+        }
+
+        private ResourceSpecifier getCachedSpec() {
+            SoftReference<ResourceSpecifier> ref = spec;
+            return ref != null ? ref.get() : null;
+        }
+
+        private void setSpec(ResourceSpecifier spec, long size) {
+            this.spec = new SoftReference<>(spec);
+            this.size = size;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static class JarIndex {
+        private final File jar;
+        private final Set<String> xmlEntries;
+        private final Map<String, IndexEntry> entries = new LinkedHashMap<>();
+
+        private JarIndex(File jar, Set<String> xmlEntries, List<IndexEntry> entries) {
+            this.jar = jar;
+            this.xmlEntries = xmlEntries;
+            entries.forEach(e -> this.entries.put(e.path, e));
+        }
+
+        private ResourceSpecifier getSpec(IndexEntry entry) throws IOException {
+            ResourceSpecifier spec = entry.getCachedSpec();
+            if (spec == null) {
+                synchronized (entry) {
+                    spec = entry.getCachedSpec();
+                    if (spec == null) {
+                        try (ZipFile zipFile = new ZipFile(jar)) {
+                            spec = load(entry, zipFile);
+                        }
+                    }
+                }
+            }
+            return spec;
+        }
+
+        /**
+         * @return The descriptors of all entries, keyed by their entry paths. Reclaimed descriptors are parsed anew
+         * while the JAR is opened only once.
+         */
+        private Map<String, ResourceSpecifier> getSpecs() throws IOException {
+            Map<String, ResourceSpecifier> specs = new LinkedHashMap<>();
+            ZipFile zipFile = null;
+            try {
+                for (IndexEntry entry : entries.values()) {
+                    synchronized (entry) {
+                        ResourceSpecifier spec = entry.getCachedSpec();
+                        if (spec == null) {
+                            if (zipFile == null)
+                                zipFile = new ZipFile(jar);
+                            spec = load(entry, zipFile);
+                        }
+                        specs.put(entry.path, spec);
+                    }
+                }
+            } finally {
+                if (zipFile != null)
+                    zipFile.close();
+            }
+            return specs;
+        }
+
+        private ResourceSpecifier load(IndexEntry entry, ZipFile zipFile) throws IOException {
+            try (InputStream is = zipFile.getInputStream(zipFile.getEntry(entry.path))) {
+                byte[] xml = is.readAllBytes();
+                ResourceSpecifier spec = parse(xml);
+                entry.setSpec(spec, xml.length);
+                return spec;
+            } catch (InvalidXMLException e) {
+                throw new IOException("The indexed descriptor " + entry.path + " in " + jar + " could not be parsed", e);
+            }
+        }
+    }
+}
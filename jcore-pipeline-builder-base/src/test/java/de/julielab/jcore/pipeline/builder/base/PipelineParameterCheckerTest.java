@@ -0,0 +1,60 @@
+package de.julielab.jcore.pipeline.builder.base;
+
+import de.julielab.jcore.pipeline.builder.base.PipelineParameterChecker.Missing;
+import de.julielab.jcore.pipeline.builder.base.PipelineParameterChecker.MissingComponentConfiguration;
+import de.julielab.jcore.pipeline.builder.base.main.Description;
+import de.julielab.jcore.pipeline.builder.base.main.JCoReUIMAPipeline;
+import org.apache.uima.collection.impl.CollectionReaderDescription_impl;
+import org.apache.uima.resource.metadata.ConfigurationParameter;
+import org.apache.uima.resource.metadata.impl.ConfigurationParameter_impl;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PipelineParameterCheckerTest {
+
+    private Description createReader() {
+        CollectionReaderDescription_impl cr = new CollectionReaderDescription_impl();
+        cr.getMetaData().setName("The CR");
+        ConfigurationParameter parameter = new ConfigurationParameter_impl();
+        parameter.setName("InputDirectory");
+        parameter.setType(ConfigurationParameter.TYPE_STRING);
+        parameter.setMandatory(true);
+        cr.getMetaData().getConfigurationParameterDeclarations().addConfigurationParameter(parameter);
+        Description crDesc = new Description();
+        crDesc.setDescriptor(cr);
+        return crDesc;
+    }
+
+    @Test
+    public void testFindMissingConfiguration() {
+        JCoReUIMAPipeline pipeline = new JCoReUIMAPipeline();
+        Description crDesc = createReader();
+        pipeline.setCrDescription(crDesc);
+        List<MissingComponentConfiguration> missing = PipelineParameterChecker.findMissingConfiguration(pipeline);
+        assertThat(missing).extracting(MissingComponentConfiguration::getMissingItem).containsExactly(Missing.PARAMETER, Missing.AE_AND_CC);
+        assertThat(missing.get(0).getParameterName()).isEqualTo("InputDirectory");
+
+        crDesc.setConfigurationParameterValue("InputDirectory", "data");
+        assertThat(PipelineParameterChecker.findMissingConfiguration(pipeline)).extracting(MissingComponentConfiguration::getMissingItem).containsExactly(Missing.AE_AND_CC);
+    }
+
+    @Test
+    public void testValidationCache() {
+        Description crDesc = createReader();
+        ComponentValidation validation = crDesc.getValidation();
+        assertThat(validation.getMandatoryParameters()).containsExactly("InputDirectory");
+        assertThat(validation.getMissingParameters()).hasSize(1);
+        // unchanged components are not checked again
+        assertThat(crDesc.getValidation()).isSameAs(validation);
+
+        // a direct change of the descriptor is only noticed when the description is marked as modified
+        crDesc.getDescriptorAsCollectionReaderDescription().getMetaData().getConfigurationParameterSettings().setParameterValue("InputDirectory", "data");
+        assertThat(crDesc.getValidation()).isSameAs(validation);
+        crDesc.markModified();
+        assertThat(crDesc.getValidation()).isNotSameAs(validation);
+        assertThat(crDesc.getValidation().getMissingParameters()).isEmpty();
+    }
+}
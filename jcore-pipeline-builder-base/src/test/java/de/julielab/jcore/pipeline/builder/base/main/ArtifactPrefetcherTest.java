@@ -0,0 +1,50 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.utilities.aether.MavenArtifact;
+import de.julielab.utilities.aether.MavenException;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ArtifactPrefetcherTest {
+
+    @Test
+    public void testResolve() throws Exception {
+        AtomicInteger resolutions = new AtomicInteger();
+        ArtifactPrefetcher prefetcher = new ArtifactPrefetcher(2, artifact -> {
+            resolutions.incrementAndGet();
+            MavenArtifact resolved = new MavenArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion());
+            resolved.setFile(new File(artifact.getArtifactId() + ".jar"));
+            return resolved;
+        });
+        MavenArtifact a = new MavenArtifact("de.julielab", "jcore-a", "1.0");
+        MavenArtifact b = new MavenArtifact("de.julielab", "jcore-b", "1.0");
+        prefetcher.prefetch(Arrays.asList(a, b, a));
+        MavenArtifact resolvedB = prefetcher.resolve(b);
+        assertThat(resolvedB.getFile()).hasName("jcore-b.jar");
+        // equal coordinates are served from the cache
+        assertThat(prefetcher.resolve(new MavenArtifact("de.julielab", "jcore-b", "1.0"))).isSameAs(resolvedB);
+        assertThat(prefetcher.resolve(a).getFile()).hasName("jcore-a.jar");
+        assertThat(prefetcher.isResolved(a)).isTrue();
+        assertThat(resolutions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFailuresAreRetried() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        ArtifactPrefetcher prefetcher = new ArtifactPrefetcher(1, artifact -> {
+            if (attempts.incrementAndGet() == 1)
+                throw new MavenException("Repository not reachable");
+            return artifact;
+        });
+        MavenArtifact a = new MavenArtifact("de.julielab", "jcore-a", "1.0");
+        assertThatThrownBy(() -> prefetcher.resolve(a)).isInstanceOf(MavenException.class);
+        assertThat(prefetcher.isResolved(a)).isFalse();
+        assertThat(prefetcher.resolve(a)).isSameAs(a);
+    }
+}
@@ -0,0 +1,68 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.utilities.aether.MavenArtifact;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ArtifactVersionServiceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private void writeMetadata(File repository, String groupId, String artifactId, String... versions) throws Exception {
+        File dir = new File(repository, groupId.replace('.', '/') + "/" + artifactId);
+        dir.mkdirs();
+        StringBuilder sb = new StringBuilder("<metadata><groupId>" + groupId + "</groupId><artifactId>" + artifactId + "</artifactId><versioning><versions>");
+        for (String version : versions)
+            sb.append("<version>").append(version).append("</version>");
+        sb.append("</versions></versioning></metadata>");
+        Files.writeString(new File(dir, "maven-metadata.xml").toPath(), sb.toString());
+    }
+
+    @Test
+    public void testNewestVersions() throws Exception {
+        File repository = folder.newFolder("repository");
+        writeMetadata(repository, "de.julielab", "jcore-xmi-reader", "2.5.0", "2.10.0-SNAPSHOT", "2.6.1", "2.10.0");
+        writeMetadata(repository, "de.julielab", "jcore-xmi-writer", "2.6.0");
+        AtomicInteger lookups = new AtomicInteger();
+        ArtifactVersionService.RepositoryMetadataLister repositoryLister = new ArtifactVersionService.RepositoryMetadataLister(repository.toURI());
+        ArtifactVersionService.VersionLister lister = (g, a) -> {
+            lookups.incrementAndGet();
+            return repositoryLister.getVersions(g, a);
+        };
+        File cacheDir = folder.newFolder("cache");
+        ArtifactVersionService service = new ArtifactVersionService(lister, cacheDir, Duration.ofHours(1), 4);
+
+        List<MavenArtifact> artifacts = Arrays.asList(
+                new MavenArtifact("de.julielab", "jcore-xmi-reader", "2.5.0"),
+                new MavenArtifact("de.julielab", "jcore-xmi-writer", "2.5.0"),
+                new MavenArtifact("de.julielab", "jcore-xmi-reader", "2.6.1"),
+                new MavenArtifact("de.julielab", "jcore-missing", "1.0"));
+        Map<String, String> newestVersions = service.getNewestVersions(artifacts);
+        assertThat(newestVersions).containsEntry("de.julielab:jcore-xmi-reader", "2.10.0")
+                .containsEntry("de.julielab:jcore-xmi-writer", "2.6.0")
+                .containsEntry("de.julielab:jcore-missing", null);
+        assertThat(lookups.get()).isEqualTo(3);
+        assertThat(service.getVersions(artifacts.get(0))).containsExactly("2.5.0", "2.6.1", "2.10.0-SNAPSHOT", "2.10.0");
+        assertThat(lookups.get()).isEqualTo(3);
+
+        // a new session is served from the cached metadata
+        ArtifactVersionService newSession = new ArtifactVersionService(lister, cacheDir, Duration.ofHours(1), 4);
+        assertThat(newSession.getNewestVersion(artifacts.get(1))).isEqualTo("2.6.0");
+        assertThat(lookups.get()).isEqualTo(3);
+        // unless the cache has expired
+        ArtifactVersionService expired = new ArtifactVersionService(lister, cacheDir, Duration.ZERO, 4);
+        assertThat(expired.getNewestVersion(artifacts.get(1))).isEqualTo("2.6.0");
+        assertThat(lookups.get()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,74 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.java.utilities.FileUtilities;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CatalogSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndDecode() throws Exception {
+        MetaDescription reader = new MetaDescription();
+        reader.setName("JCoRe XMI Reader");
+        reader.setGroup("general");
+        reader.setBase("jcore-xmi-reader");
+        MetaDescription writer = new MetaDescription();
+        writer.setName("JCoRe XMI Writer");
+        writer.setDescription("Writes XMI.");
+        List<MetaDescription> metaDescriptions = List.of(reader, writer);
+
+        File metaFile = new File(folder.getRoot(), "componentlist.json");
+        try (Writer w = FileUtilities.getWriterToFile(metaFile)) {
+            Repositories.getCatalogMapper().writeValue(w, metaDescriptions);
+        }
+        CatalogSnapshot.write(metaFile, metaDescriptions, Repositories.getSnapshotMapper().writer());
+
+        GitHubRepository repository = new GitHubRepository("jcore-base", "v2.6", "JULIELab");
+        CatalogSnapshot snapshot = CatalogSnapshot.open(metaFile, repository);
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.getComponentNames()).containsExactly("JCoRe XMI Reader", "JCoRe XMI Writer");
+        MetaDescription decoded = snapshot.decode("JCoRe XMI Writer", Repositories.getSnapshotMapper().readerFor(MetaDescription.class));
+        assertThat(decoded.getName()).isEqualTo("JCoRe XMI Writer");
+        assertThat(decoded.getDescription()).isEqualTo("Writes XMI.");
+        assertThat(decoded.getModule()).isSameAs(repository);
+        assertThat(snapshot.decode("unknown", Repositories.getSnapshotMapper().readerFor(MetaDescription.class))).isNull();
+
+        // the summaries are built from the table of contents and only decode their entry when it is needed
+        List<String> decodedNames = new ArrayList<>();
+        List<MetaDescription> summaries = snapshot.getSummaries(name -> {
+            decodedNames.add(name);
+            try {
+                return snapshot.decode(name, Repositories.getSnapshotMapper().readerFor(MetaDescription.class));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        assertThat(summaries).extracting(MetaDescription::getName).containsExactly("JCoRe XMI Reader", "JCoRe XMI Writer");
+        assertThat(summaries.get(0).getGroup()).isEqualTo("general");
+        assertThat(summaries.get(1).getDescription()).isEqualTo("Writes XMI.");
+        assertThat(summaries.get(0).getModule()).isSameAs(repository);
+        assertThat(decodedNames).isEmpty();
+        assertThat(summaries.get(0).isSnapshotSummary()).isTrue();
+        assertThat(summaries.get(0).getBase()).isEqualTo("jcore-xmi-reader");
+        assertThat(summaries.get(0).isSnapshotSummary()).isFalse();
+        assertThat(decodedNames).containsExactly("JCoRe XMI Reader");
+
+        // the snapshot is invalidated by changes to the JSON component list
+        try (Writer w = FileUtilities.getWriterToFile(metaFile)) {
+            Repositories.getCatalogMapper().writeValue(w, List.of(reader));
+        }
+        assertThat(CatalogSnapshot.open(metaFile, repository)).isNull();
+    }
+}
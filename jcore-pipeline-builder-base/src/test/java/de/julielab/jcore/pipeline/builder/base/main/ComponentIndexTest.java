@@ -0,0 +1,71 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants.JcoreMeta.Category;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ComponentIndexTest {
+
+    private static MetaDescription createMetaDescription(String name, String description, String group) {
+        MetaDescription md = new MetaDescription();
+        md.setName(name);
+        md.setDescription(description);
+        md.setGroup(group);
+        return md;
+    }
+
+    @Test
+    public void testSearch() {
+        MetaDescription sentenceAnnotator = createMetaDescription("JCoRe Sentence Annotator", "Splits text into sentences using a machine learning model.", "general");
+        MetaDescription tokenAnnotator = createMetaDescription("JCoRe Token Annotator", "Splits sentences into tokens.", "general");
+        MetaDescription xmiWriter = createMetaDescription("JCoRe XMI Writer", "Writes CAS data to XMI files.", "io");
+        ComponentIndex index = new ComponentIndex(Arrays.asList(sentenceAnnotator, tokenAnnotator, xmiWriter));
+
+        // prefix query; both annotators mention sentences but the name match ranks first
+        List<MetaDescription> hits = index.search("sent");
+        assertThat(hits).containsExactly(sentenceAnnotator, tokenAnnotator);
+        // AND semantics
+        assertThat(index.search("splits token")).containsExactly(tokenAnnotator);
+        // field restriction
+        assertThat(index.search("group:io")).containsExactly(xmiWriter);
+        assertThat(index.search("name:splits")).isEmpty();
+        // fuzzy fallback for typos
+        assertThat(index.search("anotator")).containsExactlyInAnyOrder(sentenceAnnotator, tokenAnnotator);
+        assertThat(index.search("")).isEmpty();
+    }
+
+    @Test
+    public void testTypeCapabilitiesOnDemand() {
+        MetaDescription tokenizer = TestDescriptions.createMetaDescription("JCoRe Tokenizer", Category.ae,
+                TestDescriptions.createAe("tokenizer", List.of("de.julielab.jcore.types.Sentence"), List.of("de.julielab.jcore.types.Token")));
+        List<Runnable> typeIndexTasks = new ArrayList<>();
+        ComponentIndex index = new ComponentIndex(List.of(tokenizer), typeIndexTasks::add);
+        // the descriptors have not been loaded, so the types are not searched yet and the results are partial
+        assertThat(index.search("out:token")).isEmpty();
+        assertThat(index.isPartial("out:token")).isTrue();
+        assertThat(index.isPartial("name:token")).isFalse();
+        assertThat(index.search("sentence")).isEmpty();
+        assertThat(index.getComponentsWithInputType("de.julielab.jcore.types.Sentence")).isEmpty();
+        // the type query has started loading the descriptors in the background, once
+        assertThat(typeIndexTasks).hasSize(1);
+        typeIndexTasks.get(0).run();
+        assertThat(index.indexAllTypeCapabilities()).isDone();
+        assertThat(index.isTypeIndexComplete()).isTrue();
+        assertThat(index.isPartial("out:token")).isFalse();
+        assertThat(index.search("out:token")).containsExactly(tokenizer);
+        assertThat(index.getComponentsWithInputType("de.julielab.jcore.types.Sentence")).containsExactly(tokenizer);
+        assertThat(index.search("sentence")).containsExactly(tokenizer);
+    }
+
+    @Test
+    public void testBoundedEditDistance() {
+        assertThat(ComponentIndex.boundedEditDistance("annotator", "anotator", 2)).isEqualTo(1);
+        assertThat(ComponentIndex.boundedEditDistance("writer", "reader", 2)).isEqualTo(3);
+        assertThat(ComponentIndex.boundedEditDistance("xmi", "xmi", 0)).isEqualTo(0);
+    }
+}
@@ -0,0 +1,68 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DescriptorCacheTest {
+
+    @Test
+    public void testEviction() {
+        List<String> released = new ArrayList<>();
+        DescriptorCache cache = new DescriptorCache(100);
+        MetaDescription md1 = createMetaDescription("md1", released);
+        MetaDescription md2 = createMetaDescription("md2", released);
+        MetaDescription md3 = createMetaDescription("md3", released);
+        MetaDescription md4 = createMetaDescription("md4", released);
+        cache.materialized(md1, 40);
+        cache.materialized(md2, 40);
+        cache.materialized(md3, 10);
+        cache.releaseEvicted();
+        assertThat(released).isEmpty();
+        // md1 is used again, so md2 is the least recently used component
+        cache.accessed(md1);
+        cache.materialized(md4, 20);
+        // the evicted components are only released outside of the lock of the materialized component
+        assertThat(released).isEmpty();
+        cache.releaseEvicted();
+        assertThat(released).containsExactly("md2");
+        assertThat(cache.getSize()).isEqualTo(70);
+        assertThat(cache.getNumberOfComponents()).isEqualTo(3);
+        // a component exceeding the maximum on its own is kept while all others are released
+        MetaDescription md5 = createMetaDescription("md5", released);
+        cache.materialized(md5, 200);
+        cache.releaseEvicted();
+        assertThat(released).containsExactly("md2", "md3", "md1", "md4");
+        assertThat(cache.getSize()).isEqualTo(200);
+        assertThat(cache.getNumberOfComponents()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRematerializedComponentIsKept() {
+        List<String> released = new ArrayList<>();
+        DescriptorCache cache = new DescriptorCache(100);
+        MetaDescription md1 = createMetaDescription("md1", released);
+        MetaDescription md2 = createMetaDescription("md2", released);
+        cache.materialized(md1, 60);
+        cache.materialized(md2, 60);
+        // md1 is evicted but materialized again before the eviction is carried out
+        cache.materialized(md1, 60);
+        cache.releaseEvicted();
+        assertThat(released).containsExactly("md2");
+        assertThat(cache.getNumberOfComponents()).isEqualTo(1);
+    }
+
+    private MetaDescription createMetaDescription(String name, List<String> released) {
+        MetaDescription md = new MetaDescription() {
+            @Override
+            synchronized void releaseDescriptors() {
+                released.add(getName());
+            }
+        };
+        md.setName(name);
+        return md;
+    }
+}
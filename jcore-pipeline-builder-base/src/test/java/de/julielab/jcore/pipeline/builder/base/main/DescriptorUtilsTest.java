@@ -0,0 +1,35 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.jcore.pipeline.builder.base.utils.DescriptorUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DescriptorUtilsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testJarEntryUri() throws Exception {
+        File jar = new File(folder.newFolder("my components"), "component#1.jar");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(jar))) {
+            zos.putNextEntry(new ZipEntry("de/julielab/desc/test ae.xml"));
+            zos.write("<analysisEngineDescription/>".getBytes(StandardCharsets.UTF_8));
+        }
+        URI uri = DescriptorUtils.getJarEntryUri(jar, "de/julielab/desc/test ae.xml");
+        assertThat(uri.toString()).endsWith("/my%20components/component%231.jar!/de/julielab/desc/test%20ae.xml");
+        try (InputStream is = uri.toURL().openStream()) {
+            assertThat(new String(is.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("<analysisEngineDescription/>");
+        }
+    }
+}
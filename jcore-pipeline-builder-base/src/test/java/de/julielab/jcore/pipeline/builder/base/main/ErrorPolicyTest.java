@@ -0,0 +1,60 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ErrorPolicyTest {
+    @Test
+    public void testDefault() {
+        ErrorPolicy policy = new ErrorPolicy();
+        assertThat(policy.terminatesOnFirstError()).isTrue();
+        assertThat(policy.toThresholdString()).isEqualTo("0/1");
+        assertThat(policy.getAction(Collections.emptyList(), List.of(new IllegalStateException()))).isEqualTo(ErrorPolicy.Action.TERMINATE);
+    }
+
+    @Test
+    public void testComponentActions() throws Exception {
+        ErrorPolicy policy = new ErrorPolicy();
+        policy.setAction(ErrorPolicy.Action.QUARANTINE);
+        policy.applyThreshold("10 / 1000");
+        policy.getComponentActions().put("The Writer", ErrorPolicy.Action.TERMINATE);
+        policy.getComponentClasses().put("The Writer", ErrorPolicyTest.class.getName());
+        assertThat(policy.terminatesOnFirstError()).isFalse();
+        assertThat(policy.getMaxErrors()).isEqualTo(10);
+        assertThat(policy.getWindow()).isEqualTo(1000);
+
+        // the runner receives the component actions by implementation class
+        ErrorPolicy runnerPolicy = new ErrorPolicy();
+        runnerPolicy.applyComponentActions(policy.toComponentActionsString() + ",Other=skip");
+        Exception inComponent = new RuntimeException(new IllegalArgumentException());
+        assertThat(runnerPolicy.getAction(Collections.emptyList(), List.of(inComponent))).isEqualTo(ErrorPolicy.Action.TERMINATE);
+        Exception elsewhere = new RuntimeException();
+        elsewhere.setStackTrace(new StackTraceElement[]{new StackTraceElement("some.Annotator", "process", null, 1)});
+        assertThat(runnerPolicy.getAction(List.of("Other"), List.of(elsewhere))).isEqualTo(ErrorPolicy.Action.SKIP);
+        assertThat(runnerPolicy.getAction(List.of("CPE AAE"), List.of(elsewhere))).isEqualTo(ErrorPolicy.Action.TERMINATE);
+        // errors in classes shared with another component are attributed to the component called by the framework
+        runnerPolicy.applyComponentActions("some.Annotator=skip");
+        Exception inSharedClass = new RuntimeException();
+        inSharedClass.setStackTrace(new StackTraceElement[]{
+                new StackTraceElement("some.Annotator", "tokenize", null, 1),
+                new StackTraceElement(ErrorPolicyTest.class.getName(), "process", null, 1),
+                new StackTraceElement("org.apache.uima.analysis_component.JCasAnnotator_ImplBase", "process", null, 1),
+                new StackTraceElement("some.Annotator", "process", null, 1),
+                new StackTraceElement("org.apache.uima.analysis_component.JCasAnnotator_ImplBase", "process", null, 1)});
+        assertThat(runnerPolicy.getAction(Collections.emptyList(), List.of(inSharedClass))).isEqualTo(ErrorPolicy.Action.TERMINATE);
+
+        ObjectMapper om = new ObjectMapper();
+        ErrorPolicy read = om.readValue(om.writeValueAsString(policy), ErrorPolicy.class);
+        assertThat(read.toString()).isEqualTo(policy.toString());
+        assertThat(read.getComponentClasses()).isEqualTo(policy.getComponentClasses());
+
+        assertThatThrownBy(() -> policy.applyThreshold("1/0")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ErrorPolicy.Action.parse("retry")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,102 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.jcore.pipeline.builder.base.utils.JarDescriptorIndex;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.impl.AnalysisEngineDescription_impl;
+import org.apache.uima.resource.ResourceSpecifier;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JarDescriptorIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testIndex() throws Exception {
+        AnalysisEngineDescription_impl ae = new AnalysisEngineDescription_impl();
+        ae.setPrimitive(true);
+        ae.setAnnotatorImplementationName("de.julielab.TestAnnotator");
+        ae.getMetaData().setName("Test Annotator");
+        StringWriter sw = new StringWriter();
+        ae.toXML(sw);
+        File jar = folder.newFile("component.jar");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(jar))) {
+            zos.putNextEntry(new ZipEntry("de/julielab/desc/test-ae.xml"));
+            zos.write(sw.toString().getBytes(StandardCharsets.UTF_8));
+            zos.putNextEntry(new ZipEntry("de/julielab/pom.xml"));
+            zos.write("<project/>".getBytes(StandardCharsets.UTF_8));
+        }
+        File storageDir = folder.newFolder("index");
+
+        JarDescriptorIndex index = new JarDescriptorIndex(storageDir);
+        assertThat(index.getEntries(jar)).containsOnlyKeys("de/julielab/desc/test-ae.xml");
+        assertThat(index.getEntries(jar).get("de/julielab/desc/test-ae.xml").getKind()).isEqualTo(JarDescriptorIndex.Kind.ANALYSIS_ENGINE);
+        ResourceSpecifier spec = index.getDescriptor(jar, "de.julielab.desc.test-ae");
+        assertThat(spec).isInstanceOf(AnalysisEngineDescription.class);
+        // callers may modify the descriptors, they must get copies
+        assertThat(index.getDescriptor(jar, "de.julielab.desc.test-ae")).isNotSameAs(spec);
+        assertThat(storageDir.listFiles()).hasSize(1);
+
+        // a new session reads the stored index and parses the descriptor on demand
+        JarDescriptorIndex reloaded = new JarDescriptorIndex(storageDir);
+        assertThat(reloaded.getEntries(jar).get("de/julielab/desc/test-ae.xml").getName()).isEqualTo("Test Annotator");
+        assertThat(((AnalysisEngineDescription) reloaded.getDescriptor(jar, "de.julielab.desc.test-ae")).getAnnotatorImplementationName()).isEqualTo("de.julielab.TestAnnotator");
+        assertThat(reloaded.getDescriptorSize(jar, "de.julielab.desc.test-ae")).isEqualTo(sw.toString().getBytes(StandardCharsets.UTF_8).length);
+        assertThat(reloaded.getDescriptor(jar, "de.julielab.pom")).isNull();
+        assertThatThrownBy(() -> reloaded.getDescriptor(jar, "de.julielab.desc.missing")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        AnalysisEngineDescription_impl ae = new AnalysisEngineDescription_impl();
+        ae.setPrimitive(true);
+        ae.setAnnotatorImplementationName("de.julielab.TestAnnotator");
+        ae.getMetaData().setName("Test Annotator");
+        StringWriter sw = new StringWriter();
+        ae.toXML(sw);
+        File jar = folder.newFile("component.jar");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(jar))) {
+            for (int i = 0; i < 20; i++) {
+                zos.putNextEntry(new ZipEntry("de/julielab/desc/test-ae" + i + ".xml"));
+                zos.write(sw.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        JarDescriptorIndex index = new JarDescriptorIndex(folder.newFolder("index"));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<ResourceSpecifier>>> tasks = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    List<ResourceSpecifier> specs = new ArrayList<>();
+                    for (int i = 0; i < 20; i++)
+                        specs.add(index.getDescriptor(jar, "de.julielab.desc.test-ae" + i));
+                    return specs;
+                }));
+            }
+            start.countDown();
+            List<ResourceSpecifier> first = tasks.get(0).get(30, TimeUnit.SECONDS);
+            List<ResourceSpecifier> second = tasks.get(1).get(30, TimeUnit.SECONDS);
+            assertThat(first).hasSize(20).allMatch(spec -> ((AnalysisEngineDescription) spec).getAnnotatorImplementationName().equals("de.julielab.TestAnnotator"));
+            for (int i = 0; i < 20; i++)
+                assertThat(first.get(i)).isNotSameAs(second.get(i)).isEqualTo(second.get(i));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import org.apache.uima.analysis_engine.impl.AnalysisEngineDescription_impl;
+import org.apache.uima.collection.impl.CollectionReaderDescription_impl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PipelineBatchProcessorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testExpandPipelineDirectories() throws Exception {
+        File variant1 = folder.newFolder("pipelines", "ner-variant1");
+        File variant2 = folder.newFolder("pipelines", "ner-variant2");
+        File other = folder.newFolder("pipelines", "other");
+        File listFile = folder.newFile("pipelines.txt");
+        Files.writeString(listFile.toPath(), "# comment\n" + other.getAbsolutePath() + "\n" + variant1.getAbsolutePath() + "\n");
+
+        String glob = new File(folder.getRoot(), "pipelines").getAbsolutePath() + File.separator + "ner-*";
+        List<File> directories = PipelineBatchProcessor.expandPipelineDirectories(Arrays.asList(glob, "@" + listFile.getAbsolutePath()));
+        assertThat(directories).containsExactly(variant1, variant2, other);
+    }
+
+    @Test
+    public void testFailuresAreReported() throws Exception {
+        File notAPipeline = folder.newFolder("empty");
+        List<PipelineBatchProcessor.Result> results = new PipelineBatchProcessor(2, false).process(Collections.singletonList(notAPipeline));
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0).isSuccessful()).isFalse();
+        assertThat(PipelineBatchProcessor.getReport(results)).contains("FAILED").contains("1 pipelines processed, 1 failed.");
+    }
+
+    @Test
+    public void testConcurrentPipelines() throws Exception {
+        File first = folder.newFolder("first");
+        File second = folder.newFolder("second");
+        createPipeline("First").store(first);
+        createPipeline("Second").store(second);
+        List<PipelineBatchProcessor.Result> results = new PipelineBatchProcessor(2, false).process(Arrays.asList(first, second));
+        assertThat(results).allMatch(PipelineBatchProcessor.Result::isSuccessful);
+        JCoReUIMAPipeline reloaded = new JCoReUIMAPipeline(second);
+        reloaded.load(false);
+        assertThat(reloaded.getCrDescription().getName()).isEqualTo("Second CR");
+    }
+
+    private JCoReUIMAPipeline createPipeline(String name) {
+        JCoReUIMAPipeline pipeline = new JCoReUIMAPipeline();
+        Description crDesc = new Description();
+        CollectionReaderDescription_impl cr = new CollectionReaderDescription_impl();
+        cr.getMetaData().setName(name + " CR");
+        crDesc.setDescriptor(cr);
+        pipeline.setCrDescription(crDesc);
+        Description aeDesc = new Description();
+        aeDesc.setMetaDescription(new MetaDescription());
+        AnalysisEngineDescription_impl ae = new AnalysisEngineDescription_impl();
+        ae.getMetaData().setName(name + " AE");
+        ae.setPrimitive(true);
+        aeDesc.setDescriptor(ae);
+        pipeline.addDelegateAe(aeDesc);
+        return pipeline;
+    }
+}
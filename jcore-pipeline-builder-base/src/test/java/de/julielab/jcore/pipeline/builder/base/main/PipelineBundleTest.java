@@ -0,0 +1,78 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineIOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PipelineBundleTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCreateAndExtract() throws Exception {
+        File pipelineDir = folder.newFolder("pipeline");
+        File descriptor = new File(pipelineDir, JCoReUIMAPipeline.DIR_DESC + File.separator + "CPE.xml");
+        File library = new File(pipelineDir, JCoReUIMAPipeline.DIR_LIB + File.separator + "component.jar");
+        descriptor.getParentFile().mkdirs();
+        library.getParentFile().mkdirs();
+        Files.write(descriptor.toPath(), "<cpeDescription/>".getBytes(StandardCharsets.UTF_8));
+        Files.write(library.toPath(), new byte[1000]);
+
+        File bundleFile = new File(folder.getRoot(), "pipeline" + PipelineBundle.FILE_EXTENSION);
+        String checksum = PipelineBundle.create(pipelineDir, bundleFile);
+        assertThat(PipelineBundle.getChecksum(bundleFile)).isEqualTo(checksum);
+        try (ZipFile zipFile = new ZipFile(bundleFile)) {
+            assertThat(Collections.list(zipFile.entries())).extracting(ZipEntry::getName)
+                    .containsExactly("desc/CPE.xml", "lib/component.jar", PipelineBundle.INDEX_ENTRY);
+            assertThat(Collections.list(zipFile.entries())).allMatch(e -> e.getMethod() == ZipEntry.STORED);
+        }
+
+        File extracted = PipelineBundle.extract(bundleFile);
+        assertThat(extracted).isEqualTo(new File(folder.getRoot(), "pipeline.d"));
+        assertThat(new File(extracted, "desc/CPE.xml")).hasContent("<cpeDescription/>");
+        assertThat(new File(extracted, "lib/component.jar")).hasSize(1000);
+        // the extracted directory is reused for the same bundle
+        File marker = new File(extracted, "lib/marker");
+        assertThat(marker.createNewFile()).isTrue();
+        PipelineBundle.extract(bundleFile);
+        assertThat(marker).exists();
+
+        // a corrupt bundle is rejected
+        try (RandomAccessFile raf = new RandomAccessFile(bundleFile, "rw")) {
+            raf.seek(bundleFile.length() / 2);
+            int b = raf.read();
+            raf.seek(bundleFile.length() / 2);
+            raf.write(b ^ 0xff);
+        }
+        assertThatThrownBy(() -> PipelineBundle.extract(bundleFile, folder.newFolder("corrupt"))).isInstanceOf(PipelineIOException.class);
+    }
+
+    @Test
+    public void testExtractToPathWithParentReference() throws Exception {
+        File pipelineDir = folder.newFolder("pipeline");
+        File descriptor = new File(pipelineDir, JCoReUIMAPipeline.DIR_DESC + File.separator + "CPE.xml");
+        descriptor.getParentFile().mkdirs();
+        Files.write(descriptor.toPath(), "<cpeDescription/>".getBytes(StandardCharsets.UTF_8));
+        File pipelinesDir = folder.newFolder("pipelines");
+        PipelineBundle.create(pipelineDir, new File(pipelinesDir, "x.zip"));
+        folder.newFolder("run");
+
+        // the bundle is addressed like the relative path ../pipelines/x.zip from the run directory
+        File bundleFile = new File(folder.getRoot(), "run" + File.separator + ".." + File.separator + "pipelines" + File.separator + "x.zip");
+        File extracted = PipelineBundle.extract(bundleFile);
+        assertThat(new File(extracted, "desc/CPE.xml")).hasContent("<cpeDescription/>");
+        assertThat(pipelinesDir.list()).containsExactlyInAnyOrder("x.zip", "x.zip.d", "x.zip.d" + PipelineBundle.LOCK_FILE_SUFFIX);
+    }
+}
@@ -0,0 +1,77 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.internal.util.UIMAClassLoader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PipelineClassLoadersTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File createJar(String name, String resource) throws Exception {
+        File jar = folder.newFile(name);
+        try (JarOutputStream os = new JarOutputStream(new FileOutputStream(jar))) {
+            os.putNextEntry(new ZipEntry(resource));
+            os.write(name.getBytes(StandardCharsets.UTF_8));
+            os.closeEntry();
+        }
+        return jar;
+    }
+
+    @Test
+    public void testSharingAndRelease() throws Exception {
+        File jar1 = createJar("lib1.jar", "de/julielab/pipelinetest/lib1.txt");
+        File jar2 = createJar("lib2.jar", "de/julielab/pipelinetest/lib2.txt");
+        PipelineClassLoaders classLoaders = new PipelineClassLoaders(getClass().getClassLoader());
+
+        UIMAClassLoader loader = classLoaders.acquire(Arrays.asList(jar1, jar2));
+        // the order of the classpath elements does not matter for sharing
+        UIMAClassLoader sameLoader = classLoaders.acquire(Arrays.asList(jar2, jar1));
+        UIMAClassLoader otherLoader = classLoaders.acquire(Collections.singletonList(jar1));
+        assertThat(sameLoader).isSameAs(loader);
+        assertThat(otherLoader).isNotSameAs(loader);
+        assertThat(classLoaders.size()).isEqualTo(2);
+
+        assertThat(loader.getResource("de/julielab/pipelinetest/lib2.txt")).isNotNull();
+        assertThat(otherLoader.getResource("de/julielab/pipelinetest/lib2.txt")).isNull();
+        assertThat(getClass().getClassLoader().getResource("de/julielab/pipelinetest/lib1.txt")).isNull();
+
+        classLoaders.release(loader);
+        assertThat(loader.isClosed()).isFalse();
+        classLoaders.release(sameLoader);
+        assertThat(loader.isClosed()).isTrue();
+        assertThat(classLoaders.size()).isEqualTo(1);
+        classLoaders.release(otherLoader);
+        assertThat(classLoaders.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFrameworkClassesFromParent() throws Exception {
+        // a library that brings its own copy of the UIMA framework
+        File jar = folder.newFile("uima.jar");
+        String classFile = UIMAFramework.class.getName().replace('.', '/') + ".class";
+        try (JarOutputStream os = new JarOutputStream(new FileOutputStream(jar)); InputStream is = getClass().getClassLoader().getResourceAsStream(classFile)) {
+            os.putNextEntry(new ZipEntry(classFile));
+            os.write(is.readAllBytes());
+            os.closeEntry();
+        }
+        PipelineClassLoaders classLoaders = new PipelineClassLoaders(getClass().getClassLoader());
+        UIMAClassLoader loader = classLoaders.acquire(Collections.singletonList(jar));
+        assertThat(loader.loadClass(UIMAFramework.class.getName())).isSameAs(UIMAFramework.class);
+        assertThat(loader.getResource(classFile)).isEqualTo(getClass().getClassLoader().getResource(classFile));
+        classLoaders.release(loader);
+    }
+}
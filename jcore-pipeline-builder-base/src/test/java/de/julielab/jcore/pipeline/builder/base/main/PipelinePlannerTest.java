@@ -0,0 +1,39 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineEditingException;
+import org.apache.uima.collection.impl.CollectionReaderDescription_impl;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static de.julielab.jcore.pipeline.builder.base.main.TestDescriptions.createAe;
+import static de.julielab.jcore.pipeline.builder.base.main.TestDescriptions.createDescription;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class PipelinePlannerTest {
+
+    @Test
+    public void testFindAnalysisEngines() throws PipelineEditingException {
+        Description reader = createDescription(new CollectionReaderDescription_impl(), "reader", Collections.emptyList(), asList("test.Header"));
+        Description sentences = createAe("sentences", Collections.emptyList(), asList("test.Sentence"));
+        Description tokens = createAe("tokens", asList("test.Sentence"), asList("test.Token"));
+        Description sentencesAndTokens = createAe("sentences and tokens", Collections.emptyList(), asList("test.Sentence", "test.Token"));
+        Description pos = createAe("pos", asList("test.Token"), asList("test.POSTag"));
+        Description unrelated = createAe("unrelated", Collections.emptyList(), asList("test.Gene"));
+        List<Description> candidates = asList(sentences, tokens, sentencesAndTokens, pos, unrelated);
+
+        PipelinePlanner planner = new PipelinePlanner(Collections.emptyList());
+        assertThat(planner.findAnalysisEngines(reader, asList("test.POSTag"), candidates)).containsExactly(sentencesAndTokens, pos);
+        assertThat(planner.findAnalysisEngines(reader, asList("test.Header"), candidates)).isEmpty();
+
+        // make the combined component expensive
+        planner.setCostFunction(PipelinePlanner.costsFromThroughput(Map.of("sentences", 100d, "tokens", 100d, "sentences and tokens", 10d, "pos", 50d)));
+        assertThat(planner.findAnalysisEngines(reader, asList("test.POSTag"), candidates)).containsExactly(sentences, tokens, pos);
+
+        assertThatExceptionOfType(PipelineEditingException.class).isThrownBy(() -> planner.findAnalysisEngines(reader, asList("test.Chunk"), candidates));
+    }
+}
@@ -0,0 +1,74 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import org.apache.uima.collection.impl.CollectionReaderDescription_impl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PipelineSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStoreAndLoad() throws Exception {
+        JCoReUIMAPipeline pipeline = new JCoReUIMAPipeline();
+        Description crDesc = new Description();
+        CollectionReaderDescription_impl cr = new CollectionReaderDescription_impl();
+        cr.getMetaData().setName("The CR");
+        crDesc.setDescriptor(cr);
+        pipeline.setCrDescription(crDesc);
+        File directory = folder.newFolder("pipeline");
+        pipeline.store(directory, false, PipelineStoreListener.NONE);
+
+        File snapshotFile = PipelineSnapshot.getSnapshotFile(directory);
+        assertThat(snapshotFile).exists();
+        File descriptor = new File(directory, JCoReUIMAPipeline.DIR_DESC_ALL + File.separator + "The CR.xml");
+        PipelineSnapshot snapshot = PipelineSnapshot.open(directory);
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.contains(descriptor)).isTrue();
+        assertThat(snapshot.getInputStream(descriptor).readAllBytes()).hasSize((int) descriptor.length());
+
+        JCoReUIMAPipeline loaded = new JCoReUIMAPipeline(directory);
+        loaded.load(true);
+        assertThat(loaded.getCrDescription().getName()).isEqualTo("The CR");
+
+        // manual edits of the regular layout invalidate the snapshot
+        long lastModified = descriptor.lastModified();
+        assertThat(descriptor.setLastModified(lastModified - 10000)).isTrue();
+        assertThat(PipelineSnapshot.open(directory)).isNull();
+        assertThat(descriptor.setLastModified(lastModified)).isTrue();
+        assertThat(PipelineSnapshot.open(directory)).isNotNull();
+        assertThat(snapshot.listDescriptorFiles(descriptor.getParentFile())).containsExactly(descriptor);
+
+        // edits that keep the size and the modification time are detected by the descriptor checksum
+        byte[] content = Files.readAllBytes(descriptor.toPath());
+        byte[] edited = new String(content, StandardCharsets.UTF_8).replace("The CR", "The XY").getBytes(StandardCharsets.UTF_8);
+        assertThat(edited).hasSameSizeAs(content);
+        Files.write(descriptor.toPath(), edited);
+        assertThat(descriptor.setLastModified(lastModified)).isTrue();
+        assertThat(PipelineSnapshot.open(directory)).isNull();
+        Files.write(descriptor.toPath(), content);
+        assertThat(descriptor.setLastModified(lastModified)).isTrue();
+        assertThat(PipelineSnapshot.open(directory)).isNotNull();
+
+        assertThat(new File(directory, JCoReUIMAPipeline.DIR_DESC_ALL + File.separator + "Another.xml").createNewFile()).isTrue();
+        assertThat(PipelineSnapshot.open(directory)).isNull();
+    }
+
+    @Test
+    public void testFailedWriteLeavesNoTemporaryFile() throws Exception {
+        File directory = folder.newFolder("pipeline");
+        File unreadable = folder.newFolder("pipeline", "descriptors.xml");
+        assertThatThrownBy(() -> PipelineSnapshot.write(directory, List.of(unreadable))).isInstanceOf(IOException.class);
+        assertThat(directory.list()).containsExactly("descriptors.xml");
+    }
+}
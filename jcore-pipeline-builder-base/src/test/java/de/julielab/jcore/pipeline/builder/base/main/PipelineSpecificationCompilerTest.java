@@ -0,0 +1,127 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants.JcoreMeta.Category;
+import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineEditingException;
+import org.apache.uima.resource.metadata.ConfigurationParameter;
+import org.apache.uima.resource.metadata.impl.ConfigurationParameter_impl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static de.julielab.jcore.pipeline.builder.base.main.TestDescriptions.createAe;
+import static de.julielab.jcore.pipeline.builder.base.main.TestDescriptions.createMetaDescription;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PipelineSpecificationCompilerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReadSpecification() throws Exception {
+        File specFile = folder.newFile("ner.yaml");
+        Files.writeString(specFile.toPath(), String.join("\n",
+                "output: pipelines/ner",
+                "parentPom:",
+                "  groupId: de.julielab",
+                "  artifactId: jcore-pipelines-parent",
+                "  version: 1.0.0",
+                "reader:",
+                "  component: JCoRe XMI Reader",
+                "  parameters:",
+                "    InputDirectory: data/xmi",
+                "analysisEngines:",
+                "  - component: jcore-jsbd-ae-biomedical-english",
+                "    version: 2.6.0",
+                "    active: false",
+                "    externalResources:",
+                "      Model:",
+                "        url: file:model.gz",
+                "        implementation: de.julielab.ModelProvider"));
+        PipelineSpecification spec = PipelineSpecificationCompiler.readSpecification(specFile);
+        assertThat(spec.getOutput()).isEqualTo("pipelines/ner");
+        assertThat(spec.getParentPom().getArtifactId()).isEqualTo("jcore-pipelines-parent");
+        assertThat(spec.getReader().getParameters()).containsEntry("InputDirectory", "data/xmi");
+        assertThat(spec.getAnalysisEngines()).hasSize(1);
+        assertThat(spec.getAnalysisEngines().get(0).isActive()).isFalse();
+        assertThat(spec.getAnalysisEngines().get(0).getExternalResources().get("Model").getUrl()).isEqualTo("file:model.gz");
+        assertThat(spec.getConsumers()).isEmpty();
+    }
+
+    @Test
+    public void testConvertParameterValue() {
+        ConfigurationParameter floats = new ConfigurationParameter_impl();
+        floats.setType(ConfigurationParameter.TYPE_FLOAT);
+        floats.setMultiValued(true);
+        assertThat((Float[]) PipelineSpecificationCompiler.convertParameterValue(floats, Arrays.asList(1, 0.5))).containsExactly(1f, 0.5f);
+        ConfigurationParameter bool = new ConfigurationParameter_impl();
+        bool.setType(ConfigurationParameter.TYPE_BOOLEAN);
+        assertThat(PipelineSpecificationCompiler.convertParameterValue(bool, "true")).isEqualTo(true);
+    }
+
+    @Test
+    public void testUnknownComponent() {
+        PipelineSpecification spec = new PipelineSpecification();
+        PipelineSpecification.ComponentSpecification reader = new PipelineSpecification.ComponentSpecification();
+        reader.setComponent("No Such Reader");
+        spec.setReader(reader);
+        assertThatThrownBy(() -> new PipelineSpecificationCompiler(Collections.emptyList()).compile(spec))
+                .isInstanceOf(PipelineEditingException.class).hasMessageContaining("No Such Reader");
+    }
+
+    @Test
+    public void testPlanOutputTypes() throws Exception {
+        List<MetaDescription> catalog = List.of(
+                createMetaDescription("Sentences", Category.ae, createAe("sentences", Collections.emptyList(), List.of("test.Sentence"))),
+                createMetaDescription("Slow Tokens", Category.ae, createAe("slow tokens", List.of("test.Sentence"), List.of("test.Token"))),
+                createMetaDescription("Fast Tokens", Category.ae, createAe("fast tokens", List.of("test.Sentence"), List.of("test.Token"))));
+        RunRecord run = new RunRecord();
+        run.setDocuments(100);
+        run.getComponentTimes().put("slow tokens", 5000L);
+        run.getComponentTimes().put("fast tokens", 500L);
+        File historyFile = new File(folder.getRoot(), RunHistory.FILE_NAME);
+        new RunHistory(historyFile).append(run);
+
+        PipelineSpecification spec = new PipelineSpecification();
+        spec.setOutputTypes(List.of("test.Token"));
+        spec.setRunHistory(historyFile.getAbsolutePath());
+        JCoReUIMAPipeline pipeline = new PipelineSpecificationCompiler(catalog).compile(spec);
+        assertThat(pipeline.getAeDelegates()).extracting(Description::getName).containsExactly("sentences", "fast tokens");
+
+        spec.setOutputTypes(List.of("test.Chunk"));
+        assertThatThrownBy(() -> new PipelineSpecificationCompiler(catalog).compile(spec))
+                .isInstanceOf(PipelineEditingException.class).hasMessageContaining("test.Chunk");
+    }
+
+    @Test
+    public void testCompileConcurrently() throws Exception {
+        List<MetaDescription> catalog = List.of(
+                createMetaDescription("Sentences", Category.ae, createAe("sentences", Collections.emptyList(), List.of("test.Sentence"))),
+                createMetaDescription("Tokens", Category.ae, createAe("tokens", List.of("test.Sentence"), List.of("test.Token"))));
+        File sentencesSpec = folder.newFile("sentences.yaml");
+        Files.writeString(sentencesSpec.toPath(), "output: pipelines/sentences\npopulateLibDir: false\noutputTypes:\n  - test.Sentence");
+        File tokensSpec = folder.newFile("tokens.yaml");
+        Files.writeString(tokensSpec.toPath(), "output: pipelines/tokens\npopulateLibDir: false\noutputTypes:\n  - test.Token");
+        File brokenSpec = folder.newFile("broken.yaml");
+        Files.writeString(brokenSpec.toPath(), "output: pipelines/broken\npopulateLibDir: false\noutputTypes:\n  - test.Chunk");
+
+        Map<File, Exception> results = new PipelineSpecificationCompiler(catalog).compileAndStore(List.of(sentencesSpec, tokensSpec, brokenSpec), 3);
+        assertThat(results).containsKeys(sentencesSpec, tokensSpec, brokenSpec);
+        assertThat(results.get(sentencesSpec)).isNull();
+        assertThat(results.get(tokensSpec)).isNull();
+        assertThat(results.get(brokenSpec)).isInstanceOf(PipelineEditingException.class);
+        JCoReUIMAPipeline tokens = new JCoReUIMAPipeline(new File(folder.getRoot(), "pipelines/tokens"));
+        tokens.load(true);
+        assertThat(tokens.getAeDelegates()).extracting(Description::getName).containsExactly("sentences", "tokens");
+        JCoReUIMAPipeline sentences = new JCoReUIMAPipeline(new File(folder.getRoot(), "pipelines/sentences"));
+        sentences.load(true);
+        assertThat(sentences.getAeDelegates()).extracting(Description::getName).containsExactly("sentences");
+    }
+}
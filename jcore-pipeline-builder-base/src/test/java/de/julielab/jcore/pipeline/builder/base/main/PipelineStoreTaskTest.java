@@ -0,0 +1,64 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import org.apache.uima.collection.impl.CollectionReaderDescription_impl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PipelineStoreTaskTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private JCoReUIMAPipeline createPipeline() {
+        JCoReUIMAPipeline pipeline = new JCoReUIMAPipeline();
+        Description crDesc = new Description();
+        CollectionReaderDescription_impl cr = new CollectionReaderDescription_impl();
+        cr.getMetaData().setName("The CR");
+        crDesc.setDescriptor(cr);
+        pipeline.setCrDescription(crDesc);
+        return pipeline;
+    }
+
+    @Test
+    public void testPhases() throws Exception {
+        List<PipelineStoreListener.Phase> phases = new CopyOnWriteArrayList<>();
+        List<String> files = new CopyOnWriteArrayList<>();
+        PipelineStoreListener listener = new PipelineStoreListener() {
+            @Override
+            public void phaseFinished(Phase phase, long millis) {
+                phases.add(phase);
+            }
+
+            @Override
+            public void fileWritten(File file) {
+                files.add(file.getName());
+            }
+        };
+        File directory = folder.newFolder("pipeline");
+        PipelineStoreTask task = new PipelineStoreTask(createPipeline(), directory, false, listener).start();
+        task.getCompletion().get(1, TimeUnit.MINUTES);
+        assertThat(task.getStateStored()).isDone();
+        assertThat(phases).containsExactly(PipelineStoreListener.Phase.DESCRIPTORS, PipelineStoreListener.Phase.CPE,
+                PipelineStoreListener.Phase.MISSING_CONFIGURATION, PipelineStoreListener.Phase.SERIALIZATION);
+        assertThat(files).contains("The CR.xml", "CPE.xml");
+        assertThat(new File(directory, JCoReUIMAPipeline.DIR_DESC + File.separator + "CPE.xml")).exists();
+    }
+
+    @Test
+    public void testCancel() {
+        PipelineStoreTask task = new PipelineStoreTask(createPipeline(), new File(folder.getRoot(), "cancelled"), true, PipelineStoreListener.NONE);
+        task.cancel();
+        task.start();
+        assertThatThrownBy(() -> task.getCompletion().get(1, TimeUnit.MINUTES)).isInstanceOf(CancellationException.class);
+        assertThat(new File(folder.getRoot(), "cancelled")).doesNotExist();
+    }
+}
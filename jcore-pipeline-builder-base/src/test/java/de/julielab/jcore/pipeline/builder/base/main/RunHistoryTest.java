@@ -0,0 +1,115 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class RunHistoryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static RunRecord record(String fingerprint, long timestamp, long gazetteerTime, String gazetteerVersion) {
+        RunRecord record = new RunRecord();
+        record.setId(fingerprint + "-" + timestamp);
+        record.setFingerprint(fingerprint);
+        record.setTimestamp(timestamp);
+        record.setPipelinePath("/pipelines/genes");
+        record.setDocuments(1000);
+        record.setDocumentsPerSecond(100000d / (gazetteerTime + 10000));
+        record.getComponentTimes().put("JCoRe Gazetteer", gazetteerTime);
+        record.getComponentTimes().put("JCoRe Tokenizer", 10000L);
+        record.getArtifactVersions().put("JCoRe Gazetteer", "de.julielab:jcore-gazetteer:" + gazetteerVersion);
+        record.getArtifactVersions().put("JCoRe Tokenizer", "de.julielab:jcore-tokenizer:2.5.0");
+        return record;
+    }
+
+    @Test
+    public void testHistory() throws Exception {
+        RunHistory history = new RunHistory(new File(folder.getRoot(), "store/" + RunHistory.FILE_NAME));
+        history.append(record("aaaa1111", 1000, 20000, "2.5.0"));
+        history.append(record("aaaa1111", 2000, 22000, "2.5.0"));
+        history.append(record("bbbb2222", 3000, 30000, "2.6.0"));
+        List<RunRecord> records = history.read();
+        assertThat(records).extracting(RunRecord::getTimestamp).containsExactly(1000L, 2000L, 3000L);
+        assertThat(records.get(2).getArtifactVersions()).containsEntry("JCoRe Gazetteer", "de.julielab:jcore-gazetteer:2.6.0");
+        assertThat(records.get(2).getCostPerDocument("JCoRe Gazetteer")).isEqualTo(30);
+
+        assertThat(RunHistory.select(records, "aaaa")).hasSize(2);
+        assertThat(RunHistory.select(records, "aaaa1111-2000")).extracting(RunRecord::getTimestamp).containsExactly(2000L);
+        assertThatThrownBy(() -> RunHistory.select(records, "cccc")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(RunHistory.findPreviousVersion(records, records.get(2))).extracting(RunRecord::getFingerprint).containsOnly("aaaa1111");
+        assertThat(RunHistory.findPreviousVersion(records, records.get(0))).isEmpty();
+    }
+
+    @Test
+    public void testComparison() {
+        RunComparison comparison = RunComparison.compare(List.of(record("aaaa1111", 1000, 20000, "2.5.0"), record("aaaa1111", 2000, 22000, "2.5.0")), List.of(record("bbbb2222", 3000, 30000, "2.6.0")), RunComparison.DEFAULT_THRESHOLD);
+        assertThat(comparison.getFlagged()).extracting(RunComparison.ComponentChange::getComponent).containsExactly("JCoRe Gazetteer");
+        RunComparison.ComponentChange change = comparison.getFlagged().get(0);
+        assertThat(change.getBaselineCost()).isEqualTo(21);
+        assertThat(change.getCandidateCost()).isEqualTo(30);
+        assertThat(change.getCandidateVersion()).endsWith("2.6.0");
+        assertThat(comparison.getChanges()).filteredOn(c -> c.getComponent().equals("JCoRe Tokenizer")).allMatch(c -> c.getChange() == 0 && !c.isFlagged());
+        assertThat(comparison.toString()).contains("! JCoRe Gazetteer: 21.00 -> 30.00 ms/document (+43%), version de.julielab:jcore-gazetteer:2.5.0 -> de.julielab:jcore-gazetteer:2.6.0");
+
+        RunRecord withNewComponent = record("bbbb2222", 3000, 20000, "2.5.0");
+        withNewComponent.getComponentTimes().put("JCoRe Sentence Splitter", 5000L);
+        assertThat(RunComparison.compare(List.of(record("aaaa1111", 1000, 20000, "2.5.0")), List.of(withNewComponent), 0.2).getChanges())
+                .extracting(RunComparison.ComponentChange::getComponent, RunComparison.ComponentChange::isFlagged)
+                .contains(tuple("JCoRe Sentence Splitter", false));
+    }
+
+    @Test
+    public void testComparisonEnvironment() {
+        RunRecord baseline = record("aaaa1111", 1000, 20000, "2.5.0");
+        baseline.getEnvironment().put("host", "node1");
+        baseline.getEnvironment().put("threads", "4");
+        RunRecord candidate = record("bbbb2222", 2000, 30000, "2.6.0");
+        candidate.getEnvironment().put("host", "node1");
+        candidate.getEnvironment().put("threads", "8");
+        RunComparison comparison = RunComparison.compare(List.of(baseline), List.of(candidate), RunComparison.DEFAULT_THRESHOLD);
+        assertThat(comparison.isComparable()).isFalse();
+        assertThat(comparison.getEnvironmentDifferences()).containsOnlyKeys("threads").containsEntry("threads", "4 -> 8");
+        assertThat(comparison.toString()).startsWith("Warning: the runs differ in threads (4 -> 8)");
+
+        candidate.getEnvironment().put("threads", "4");
+        assertThat(RunComparison.compare(List.of(baseline), List.of(candidate), RunComparison.DEFAULT_THRESHOLD).isComparable()).isTrue();
+    }
+
+    @Test
+    public void testConcurrentAppends() throws Exception {
+        File historyFile = new File(folder.getRoot(), RunHistory.FILE_NAME);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                RunRecord record = record("aaaa1111", i, 20000, "2.5.0");
+                // lines longer than the buffers of a writer
+                for (int j = 0; j < 200; j++)
+                    record.getComponentTimes().put("JCoRe Component With A Long Name " + j, (long) j);
+                futures.add(executor.submit(() -> {
+                    new RunHistory(historyFile).append(record);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(Files.readAllLines(historyFile.toPath())).hasSize(40).allMatch(line -> line.length() > 8192);
+        assertThat(new RunHistory(historyFile).read()).hasSize(40).allMatch(r -> r.getComponentTimes().size() == 202);
+    }
+}
@@ -0,0 +1,85 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RunProfileTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStoreAndLoad() throws Exception {
+        RunProfile profile = new RunProfile();
+        profile.setTimestamp(1000);
+        profile.setDocuments(200);
+        profile.setRunTime(10000);
+        profile.setNumThreads(4);
+        profile.setCasPoolSize(6);
+        profile.setMaxHeap(2048L << 20);
+        profile.setThreadBusyTime(30000);
+        profile.setMultipleDeploymentAllowed(false);
+        profile.setSingleDeploymentComponents(List.of("JCoRe Gazetteer", "JCoRe XMI Writer"));
+        profile.setConsumerStage("JCoRe Consumer AAE");
+        profile.getStageWallTimes().put("JCoRe Pipeline AAE", 25000L);
+        profile.getStageCpuTimes().put("JCoRe Pipeline AAE", 20000L);
+        profile.getComponentWallTimes().put("JCoRe Gazetteer", 15000L);
+
+        File file = new File(folder.getRoot(), "profiles/run.properties");
+        profile.store(file);
+        RunProfile read = RunProfile.load(file);
+        assertThat(read.getDocuments()).isEqualTo(200);
+        assertThat(read.getThroughput()).isEqualTo(20);
+        assertThat(read.getThreadUtilization()).isEqualTo(0.75);
+        assertThat(read.getMaxHeap()).isEqualTo(2048L << 20);
+        assertThat(read.isMultipleDeploymentAllowed()).isFalse();
+        assertThat(read.getSingleDeploymentComponents()).containsExactly("JCoRe Gazetteer", "JCoRe XMI Writer");
+        assertThat(read.getConsumerStage()).isEqualTo("JCoRe Consumer AAE");
+        assertThat(read.getStageWallTimes()).containsEntry("JCoRe Pipeline AAE", 25000L);
+        assertThat(read.getStageCpuTimes()).containsEntry("JCoRe Pipeline AAE", 20000L);
+        assertThat(read.getComponentWallTimes()).containsEntry("JCoRe Gazetteer", 15000L);
+
+        RunProfile faster = new RunProfile();
+        faster.setTimestamp(2000);
+        faster.setDocuments(200);
+        faster.setRunTime(5000);
+        faster.store(new File(folder.getRoot(), "profiles/run2.properties"));
+        List<RunProfile> profiles = RunProfile.loadAll(file.getParentFile());
+        assertThat(profiles).extracting(RunProfile::getTimestamp).containsExactly(1000L, 2000L);
+        assertThat(RunProfile.findBest(profiles)).hasValueSatisfying(p -> assertThat(p.getRunTime()).isEqualTo(5000));
+    }
+
+    @Test
+    public void testFingerprint() throws Exception {
+        File pipelineDir = folder.newFolder("pipeline");
+        File descDir = new File(pipelineDir, JCoReUIMAPipeline.DIR_DESC);
+        descDir.mkdirs();
+        Files.write(new File(descDir, "CPE.xml").toPath(), "<cpeDescription/>".getBytes(StandardCharsets.UTF_8));
+        String fingerprint = RunProfile.computeFingerprint(pipelineDir);
+        assertThat(fingerprint).hasSize(64);
+
+        // descriptor copies left behind by killed runs do not change the fingerprint
+        Files.write(new File(descDir, "cpeAAE-watchdog-123456.xml").toPath(), "<copy/>".getBytes(StandardCharsets.UTF_8));
+        assertThat(RunProfile.computeFingerprint(pipelineDir)).isEqualTo(fingerprint);
+
+        Files.write(new File(descDir, "CPE.xml").toPath(), "<cpeDescription></cpeDescription>".getBytes(StandardCharsets.UTF_8));
+        assertThat(RunProfile.computeFingerprint(pipelineDir)).isNotEqualTo(fingerprint);
+        fingerprint = RunProfile.computeFingerprint(pipelineDir);
+
+        // updating an artifact changes the fingerprint
+        File libDir = new File(pipelineDir, JCoReUIMAPipeline.DIR_LIB);
+        libDir.mkdirs();
+        Files.write(new File(libDir, "jcore-xmi-reader-2.6.0.jar").toPath(), new byte[10]);
+        String withArtifact = RunProfile.computeFingerprint(pipelineDir);
+        assertThat(withArtifact).isNotEqualTo(fingerprint);
+        new File(libDir, "jcore-xmi-reader-2.6.0.jar").renameTo(new File(libDir, "jcore-xmi-reader-2.6.1.jar"));
+        assertThat(RunProfile.computeFingerprint(pipelineDir)).isNotEqualTo(withArtifact);
+    }
+}
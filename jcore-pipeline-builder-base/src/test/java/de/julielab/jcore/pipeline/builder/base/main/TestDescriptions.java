@@ -0,0 +1,57 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants.JcoreMeta.Category;
+import org.apache.uima.analysis_engine.impl.AnalysisEngineDescription_impl;
+import org.apache.uima.resource.ResourceCreationSpecifier;
+import org.apache.uima.resource.metadata.Capability;
+import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
+import org.apache.uima.resource.metadata.impl.Capability_impl;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Creates component descriptions with type capabilities for the tests.
+ */
+final class TestDescriptions {
+    private TestDescriptions() {
+    }
+
+    static Description createDescription(ResourceCreationSpecifier spec, String name, List<String> inputs, List<String> outputs) {
+        spec.getMetaData().setName(name);
+        Capability capability = new Capability_impl();
+        inputs.forEach(t -> capability.addInputType(t, true));
+        outputs.forEach(t -> capability.addOutputType(t, true));
+        ((ProcessingResourceMetaData) spec.getMetaData()).setCapabilities(new Capability[]{capability});
+        Description description = new Description();
+        description.setMetaDescription(new MetaDescription());
+        description.setDescriptor(spec);
+        return description;
+    }
+
+    static Description createAe(String name, List<String> inputs, List<String> outputs) {
+        AnalysisEngineDescription_impl ae = new AnalysisEngineDescription_impl();
+        ae.setPrimitive(true);
+        return createDescription(ae, name, inputs, outputs);
+    }
+
+    /**
+     * Creates a catalog entry whose descriptors are the given descriptions instead of being loaded from the
+     * component artifact.
+     */
+    static MetaDescription createMetaDescription(String name, Category category, Description... descriptions) {
+        MetaDescription md = new MetaDescription() {
+            @Override
+            public synchronized Collection<Description> getJCoReDescriptions() {
+                return List.of(descriptions);
+            }
+
+            @Override
+            public List<Category> getCategories() {
+                return List.of(category);
+            }
+        };
+        md.setName(name);
+        return md;
+    }
+}
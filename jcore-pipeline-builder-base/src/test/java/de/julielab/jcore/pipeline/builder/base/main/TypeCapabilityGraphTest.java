@@ -0,0 +1,50 @@
+package de.julielab.jcore.pipeline.builder.base.main;
+
+import org.apache.uima.collection.impl.CollectionReaderDescription_impl;
+import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static de.julielab.jcore.pipeline.builder.base.main.TestDescriptions.createAe;
+import static de.julielab.jcore.pipeline.builder.base.main.TestDescriptions.createDescription;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TypeCapabilityGraphTest {
+
+    @Test
+    public void testUnsatisfiedInputs() {
+        CollectionReaderDescription_impl cr = new CollectionReaderDescription_impl();
+        TypeSystemDescription_impl tsd = new TypeSystemDescription_impl();
+        tsd.addType("test.Sentence", "", "uima.tcas.Annotation");
+        tsd.addType("test.Token", "", "uima.tcas.Annotation");
+        cr.getCollectionReaderMetaData().setTypeSystem(tsd);
+        Description crDesc = createDescription(cr, "reader", Collections.emptyList(), List.of("test.Sentence"));
+        Description annotationConsumer = createAe("annotation consumer", List.of("uima.tcas.Annotation"), Collections.emptyList());
+        Description tokenConsumer = createAe("token consumer", List.of("test.Token"), Collections.emptyList());
+        Description tokenizer = createAe("tokenizer", List.of("test.Sentence"), List.of("test.Token"));
+
+        JCoReUIMAPipeline pipeline = new JCoReUIMAPipeline();
+        pipeline.setCrDescription(crDesc);
+        pipeline.getAeDelegates().add(annotationConsumer);
+        pipeline.getAeDelegates().add(tokenConsumer);
+        pipeline.getAeDelegates().add(tokenizer);
+
+        TypeCapabilityGraph graph = pipeline.getTypeCapabilityGraph();
+        // a subtype of the required type is output by the reader
+        assertThat(graph.getUnsatisfiedInputs(annotationConsumer)).isEmpty();
+        // the tokenizer runs too late
+        assertThat(graph.getUnsatisfiedInputs(2)).containsExactly("test.Token");
+        assertThat(graph.getUnsatisfiedInputs(tokenizer)).isEmpty();
+
+        // reorder in place
+        pipeline.getAeDelegates().remove(tokenizer);
+        pipeline.getAeDelegates().add(0, tokenizer);
+        assertThat(pipeline.getTypeCapabilityGraph().getUnsatisfiedInputs(tokenConsumer)).isEmpty();
+
+        tokenizer.setActive(false);
+        assertThat(pipeline.getTypeCapabilityGraph().getUnsatisfiedInputsByComponentName().asMap())
+                .containsOnlyKeys("token consumer");
+    }
+}
@@ -3,12 +3,19 @@ package de.julielab.jcore.pipeline.builder.cli.main;
 import de.julielab.java.utilities.prerequisites.PrerequisiteChecker;
 import de.julielab.jcore.pipeline.builder.base.exceptions.GithubInformationException;
 import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineIOException;
+import de.julielab.jcore.pipeline.builder.base.main.ComponentMetaInformationService;
 import de.julielab.jcore.pipeline.builder.base.main.JCoReUIMAPipeline;
+import de.julielab.jcore.pipeline.builder.base.main.PipelineBatchProcessor;
+import de.julielab.jcore.pipeline.builder.base.main.PipelineBundle;
+import de.julielab.jcore.pipeline.builder.base.main.PipelineSpecificationCompiler;
 import de.julielab.jcore.pipeline.builder.base.main.Repositories;
 import de.julielab.jcore.pipeline.builder.cli.menu.TerminalPrefixes;
 import de.julielab.jcore.pipeline.builder.cli.menu.dialog.IndexDialog;
 import de.julielab.jcore.pipeline.builder.cli.menu.dialog.RepositoryAddDialog;
+import de.julielab.jcore.pipeline.builder.cli.menu.dialog.SavePipelineDialog;
+import de.julielab.jcore.pipeline.builder.cli.util.ComponentCatalog;
 import de.julielab.jcore.pipeline.builder.cli.util.MenuItemExecutionException;
+import de.julielab.jcore.pipeline.builder.cli.util.StartupTimer;
 import de.julielab.jcore.pipeline.builder.cli.util.StatusPrinter;
 import org.beryx.textio.TextIO;
 import org.beryx.textio.TextIoFactory;
@@ -16,7 +23,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 import static de.julielab.jcore.pipeline.builder.cli.menu.TerminalPrefixes.DEFAULT;
 import static de.julielab.jcore.pipeline.builder.cli.menu.TerminalPrefixes.WELCOME;
@@ -43,15 +55,29 @@ public class PipelineBuilderCLI {
     public static void main(String[] args) {
         System.setProperty(PrerequisiteChecker.PREREQUISITE_CHECKS_ENABLED, "true");
 
+        if (args.length > 0 && args[0].equalsIgnoreCase("-b")) {
+            System.exit(runBatch(Arrays.asList(args).subList(1, args.length)));
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("-c")) {
+            System.exit(compileSpecifications(Arrays.asList(args).subList(1, args.length)));
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("-m")) {
+            System.exit(measureStartup(Arrays.asList(args).subList(1, args.length)));
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("-bundle")) {
+            System.exit(bundle(Arrays.asList(args).subList(1, args.length)));
+        }
         TextIO textIO = null;
         JCoReUIMAPipeline pipeline = new JCoReUIMAPipeline();
         try {
+            // The pipeline is loaded in the background while the catalog is loaded and the welcome message is shown
+            CompletableFuture<Void> pipelineLoading = CompletableFuture.completedFuture(null);
             if (args.length > 0) {
-                pipeline.setLoadDirectory(new File(args[0]));
-                pipeline.load(true);
+                pipelineLoading = loadPipeline(pipeline, new File(args[0]));
                 pipelinePath = args[0];
             }
             if (args.length > 1 && args[1].equalsIgnoreCase("-s")){
+                awaitPipeline(pipelineLoading);
                 log.info("Storing pipeline to {} and updating libraries.", pipelinePath);
                 pipeline.store(new File(pipelinePath), true);
             } else {
@@ -70,19 +96,22 @@ public class PipelineBuilderCLI {
                                 "JCoRe and the individual JCoRe components is necessary. For help and " +
                                 "pointers to the adequate documentation, please refer to the README of " +
                                 "the pipeline modules at https://github.com/JULIELab/jcore-pipeline-modules"));
+                if (!pipelineLoading.isDone())
+                    textIO.getTextTerminal().println("Loading pipeline from " + pipeline.getLoadDirectory().getAbsolutePath() + "...");
+                awaitPipeline(pipelineLoading);
                 indexDialog.enterInputLoop(pipeline, textIO, new ArrayDeque<>());
+                SavePipelineDialog.awaitBackgroundSave(textIO);
             }
-        } catch (GithubInformationException | MenuItemExecutionException e) {
-            if (e instanceof GithubInformationException || e.getCause() instanceof GithubInformationException) {
+        } catch (MenuItemExecutionException e) {
+            if (e.getCause() instanceof GithubInformationException) {
                 log.debug("Error when loading component list", e);
                 String ls = System.getProperty("line.separator");
                 textIO.getTextTerminal().executeWithPropertiesPrefix(TerminalPrefixes.ERROR, t ->
                         t.print("Could not load JCoRe component list, the program is aborted."
                                 + ls + "The error is: " + e.getMessage() + ls));
-            } else if (e instanceof MenuItemExecutionException)
+            } else {
                 log.debug("Error when running menu", e.getCause());
-            else
-                log.error("Error occurred while running application menu", e);
+            }
         } catch (PipelineIOException e) {
             log.error("Could not load the pipeline at {}: ", pipeline.getLoadDirectory(), e);
         } finally {
@@ -94,4 +123,185 @@ public class PipelineBuilderCLI {
             }
         }
     }
+
+    private static CompletableFuture<Void> loadPipeline(JCoReUIMAPipeline pipeline, File directory) {
+        pipeline.setLoadDirectory(directory);
+        return CompletableFuture.runAsync(() -> {
+            try {
+                pipeline.load(true);
+                StartupTimer.mark(StartupTimer.PIPELINE_LOADED);
+            } catch (PipelineIOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private static void awaitPipeline(CompletableFuture<Void> pipelineLoading) throws PipelineIOException {
+        try {
+            pipelineLoading.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PipelineIOException)
+                throw (PipelineIOException) e.getCause();
+            throw new PipelineIOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PipelineIOException(e);
+        }
+    }
+
+    /**
+     * Performs the startup of the interactive pipeline builder without user interaction and reports the time from
+     * the start of the JVM to the first prompt and until the pipeline, if given, and the component catalog have been
+     * loaded. The arguments are an optional pipeline directory.
+     *
+     * @param args The measurement arguments.
+     * @return The exit code, 0 if the startup was successful, 1 otherwise.
+     */
+    private static int measureStartup(List<String> args) {
+        JCoReUIMAPipeline pipeline = new JCoReUIMAPipeline();
+        CompletableFuture<Void> pipelineLoading = args.isEmpty() ? CompletableFuture.completedFuture(null) : loadPipeline(pipeline, new File(args.get(0)));
+        CompletableFuture<ComponentCatalog> catalog = ComponentCatalog.load(false);
+        try {
+            awaitPipeline(pipelineLoading);
+            StartupTimer.mark(StartupTimer.FIRST_PROMPT);
+            catalog.get();
+        } catch (PipelineIOException | ExecutionException e) {
+            log.error("Startup failed", e);
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+        StringBuilder sb = new StringBuilder();
+        StartupTimer.getEvents().forEach((event, millis) -> sb.append(System.getProperty("line.separator")).append(String.format("%-26s %8d ms", event, millis)));
+        log.info("Startup times since JVM start:{}", sb);
+        return 0;
+    }
+
+    /**
+     * Packs a stored pipeline into a {@link PipelineBundle}. The arguments are the pipeline directory and, optionally,
+     * the bundle file. The bundle is written next to the pipeline directory by default.
+     *
+     * @param args The bundle arguments.
+     * @return The exit code, 0 if the bundle was written successfully, 1 otherwise.
+     */
+    private static int bundle(List<String> args) {
+        if (args.isEmpty() || args.size() > 2) {
+            log.error("Usage: -bundle <pipeline directory> [<bundle file>]");
+            return 1;
+        }
+        File pipelineDir = new File(args.get(0)).getAbsoluteFile();
+        File bundleFile = args.size() > 1 ? new File(args.get(1)) : new File(pipelineDir.getParentFile(), pipelineDir.getName() + PipelineBundle.FILE_EXTENSION);
+        try {
+            String checksum = PipelineBundle.create(pipelineDir, bundleFile);
+            log.info("Wrote the pipeline bundle {} with checksum {}", bundleFile, checksum);
+            return 0;
+        } catch (PipelineIOException e) {
+            log.error("Could not bundle the pipeline at {}", pipelineDir, e);
+            return 1;
+        }
+    }
+
+    /**
+     * Stores the pipelines given by the arguments and updates their libraries. The arguments are an optional
+     * <tt>-t &lt;threads&gt;</tt> option followed by pipeline directories, glob patterns or <tt>@</tt>-prefixed files
+     * listing such specifications.
+     *
+     * @param args The batch mode arguments.
+     * @return The exit code, 0 if all pipelines were processed successfully, 1 otherwise.
+     */
+    private static int runBatch(List<String> args) {
+        int threads = getThreads(args);
+        if (threads < 1)
+            return 1;
+        List<String> specifications = getNonOptionArguments(args);
+        if (specifications.isEmpty()) {
+            log.error("Usage: -b [-t <threads>] <pipeline directory | glob | @list file>...");
+            return 1;
+        }
+        try {
+            List<File> directories = PipelineBatchProcessor.expandPipelineDirectories(specifications);
+            log.info("Storing {} pipelines with {} threads and updating their libraries.", directories.size(), threads);
+            List<PipelineBatchProcessor.Result> results = new PipelineBatchProcessor(threads, true).process(directories);
+            log.info("Batch processing finished:{}{}", System.getProperty("line.separator"), PipelineBatchProcessor.getReport(results));
+            return results.stream().allMatch(PipelineBatchProcessor.Result::isSuccessful) ? 0 : 1;
+        } catch (IOException e) {
+            log.error("Could not determine the pipeline directories", e);
+            return 1;
+        }
+    }
+
+    /**
+     * Compiles the pipeline specification files given by the arguments and stores the resulting pipelines. The
+     * arguments are an optional <tt>-t &lt;threads&gt;</tt> option followed by specification files, glob patterns or
+     * <tt>@</tt>-prefixed files listing such specifications.
+     *
+     * @param args The compilation arguments.
+     * @return The exit code, 0 if all specifications were compiled successfully, 1 otherwise.
+     * @see PipelineSpecificationCompiler
+     */
+    private static int compileSpecifications(List<String> args) {
+        int threads = getThreads(args);
+        if (threads < 1)
+            return 1;
+        List<String> specifications = getNonOptionArguments(args);
+        if (specifications.isEmpty()) {
+            log.error("Usage: -c [-t <threads>] <specification file | glob | @list file>...");
+            return 1;
+        }
+        try {
+            List<File> specificationFiles = PipelineBatchProcessor.expandFiles(specifications);
+            if (Repositories.loadActiveRepositories().isEmpty()) {
+                log.error("There are no active component repositories to take the components from.");
+                return 1;
+            }
+            PipelineSpecificationCompiler compiler = new PipelineSpecificationCompiler(ComponentMetaInformationService.getInstance().getMetaInformation());
+            log.info("Compiling {} pipeline specifications with {} threads.", specificationFiles.size(), threads);
+            Map<File, Exception> results = compiler.compileAndStore(specificationFiles, threads);
+            long failures = results.values().stream().filter(Objects::nonNull).count();
+            log.info("{} pipeline specifications compiled, {} failed.", results.size(), failures);
+            results.forEach((file, e) -> {
+                if (e != null)
+                    log.error("{}: {}", file, e.getMessage());
+            });
+            return failures == 0 ? 0 : 1;
+        } catch (IOException | GithubInformationException e) {
+            log.error("Could not compile the pipeline specifications", e);
+            return 1;
+        }
+    }
+
+    /**
+     * @return The number of threads given by the <tt>-t</tt> option, a default if the option is missing or -1 if
+     * its value is not a positive integer. The error is logged.
+     */
+    private static int getThreads(List<String> args) {
+        int i = args.indexOf("-t");
+        if (i < 0)
+            return Math.min(4, Runtime.getRuntime().availableProcessors());
+        if (i + 1 >= args.size()) {
+            log.error("The option -t requires the number of threads.");
+            return -1;
+        }
+        try {
+            int threads = Integer.parseInt(args.get(i + 1).trim());
+            if (threads > 0)
+                return threads;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        log.error("The number of threads given by -t must be a positive integer but is '{}'.", args.get(i + 1));
+        return -1;
+    }
+
+    private static List<String> getNonOptionArguments(List<String> args) {
+        List<String> arguments = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++) {
+            if (args.get(i).equals("-t"))
+                ++i;
+            else
+                arguments.add(args.get(i));
+        }
+        return arguments;
+    }
 }
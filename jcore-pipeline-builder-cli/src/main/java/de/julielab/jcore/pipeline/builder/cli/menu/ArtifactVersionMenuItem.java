@@ -1,17 +1,17 @@
 package de.julielab.jcore.pipeline.builder.cli.menu;
 
 import de.julielab.java.utilities.prerequisites.PrerequisiteChecker;
+import de.julielab.jcore.pipeline.builder.base.main.ArtifactVersionService;
 import de.julielab.jcore.pipeline.builder.base.main.Description;
 import de.julielab.jcore.pipeline.builder.base.main.JCoReUIMAPipeline;
-import de.julielab.utilities.aether.AetherUtilities;
 import de.julielab.utilities.aether.MavenArtifact;
 import de.julielab.utilities.aether.MavenException;
 import org.apache.commons.lang3.StringUtils;
 import org.beryx.textio.TextIO;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * For a concrete description, lists the available maven artifact versions to choose from.
@@ -32,7 +32,7 @@ public class ArtifactVersionMenuItem implements IMenuItem {
 
         MavenArtifact artifact = description.getMetaDescription().getMavenArtifactCoordinates();
         try {
-            List<String> versionList = AetherUtilities.getVersions(artifact).collect(Collectors.toList());
+            List<String> versionList = new ArrayList<>(ArtifactVersionService.getInstance().getVersions(artifact));
             if (versionList.isEmpty() && !StringUtils.isBlank(description.getMetaDescription().getMavenArtifactCoordinates().getVersion())) {
                 versionList = List.of(description.getMetaDescription().getMavenArtifactCoordinates().getVersion());
                 textIO.getTextTerminal().executeWithPropertiesPrefix(TerminalPrefixes.WARN, t -> t.print("Could not retrieve any versions for component " + description.getName() + ", Maven artifact " + artifact));
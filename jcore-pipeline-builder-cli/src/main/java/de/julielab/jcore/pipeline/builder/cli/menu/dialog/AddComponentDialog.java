@@ -2,6 +2,7 @@ package de.julielab.jcore.pipeline.builder.cli.menu.dialog;
 
 import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants.JcoreMeta.Category;
 import de.julielab.jcore.pipeline.builder.base.exceptions.DescriptorLoadingException;
+import de.julielab.jcore.pipeline.builder.base.main.ComponentMetaInformationService;
 import de.julielab.jcore.pipeline.builder.base.main.Description;
 import de.julielab.jcore.pipeline.builder.base.main.JCoReUIMAPipeline;
 import de.julielab.jcore.pipeline.builder.base.main.MetaDescription;
@@ -20,10 +21,13 @@ public class AddComponentDialog implements ILoopablePipelineManipulationDialog {
     private final static Logger log = LoggerFactory.getLogger(AddComponentDialog.class);
     private final Category category;
     private final MenuItemList<IMenuItem> menuItemList;
+    private final List<MetaDescription> descriptions;
+    private boolean prefetched;
 
     public AddComponentDialog(Map<Category, List<MetaDescription>> categoryMap, Category category) {
         List<MetaDescription> aeDescriptions = categoryMap.getOrDefault(category, Collections.emptyList());
         this.category = category;
+        this.descriptions = aeDescriptions;
         menuItemList = new MenuItemList<>();
         for (MetaDescription aeDesc : aeDescriptions)
             menuItemList.add(new EditMenuItem(aeDesc, category));
@@ -34,90 +38,111 @@ public class AddComponentDialog implements ILoopablePipelineManipulationDialog {
     @Override
     public IMenuItem executeMenuItem(JCoReUIMAPipeline pipeline, TextIO textIO, Deque<String> path) {
         printPosition(textIO, path);
+        // Resolve the artifacts of the listed components while the user is choosing. The dialog is shown again
+        // after each added component, the artifacts are scheduled only the first time.
+        if (!prefetched) {
+            ComponentMetaInformationService.getInstance().prefetchArtifacts(descriptions);
+            prefetched = true;
+        }
         StatusPrinter.printPipelineStatus(pipeline, PipelineBuilderCLI.statusVerbosity, textIO);
         IMenuItem choice = textIO.<IMenuItem>newGenericInputReader(null)
                 .withNumberedPossibleValues(menuItemList).withDefaultValue(BackMenuItem.get())
                 .read("\nChoose a component.");
         boolean errorPrinted = false;
+        if (choice instanceof EditMenuItem)
+            errorPrinted = addComponent(((EditMenuItem) choice).getDescription(), pipeline, textIO, path);
+        IMenuItem iMenuItem = category == Category.reader ? BackMenuItem.get() : choice;
+        if (iMenuItem instanceof BackMenuItem && !errorPrinted)
+            clearTerminal(textIO);
+        if (choice instanceof EditMenuItem) {
+            textIO.getTextTerminal().executeWithPropertiesPrefix(TerminalPrefixes.EMPHASIS, t -> t.println("Added component:"));
+            StatusPrinter.printComponentMetaData(((EditMenuItem) choice).getDescription(), textIO);
+            textIO.getTextTerminal().println(System.getProperty("line.separator"));
+        }
+        return iMenuItem;
+    }
+
+    /**
+     * Loads the descriptors of the given component, lets the user choose a descriptor if there are multiple and
+     * adds the chosen descriptor to the pipeline with respect to the category of this dialog.
+     *
+     * @return Whether an error message has been printed.
+     */
+    boolean addComponent(MetaDescription description, JCoReUIMAPipeline pipeline, TextIO textIO, Deque<String> path) {
+        boolean errorPrinted = false;
         try {
-            if (choice instanceof EditMenuItem) {
-                EditMenuItem addItem = (EditMenuItem) choice;
-                MetaDescription description = addItem.getDescription();
-                textIO.getTextTerminal().print("Loading component..." + System.getProperty("line.separator"));
-                Collection<Description> jCoReDescriptions;
-                try {
-                    jCoReDescriptions = description.getJCoReDescriptions();
-                } catch (DescriptorLoadingException e) {
-                    clearTerminal(textIO);
-                    textIO.getTextTerminal().executeWithPropertiesPrefix(ERROR, t -> t.println("Could not load the " +
-                            "component due to an exception: " + e.getMessage()));
-                    errorPrinted = true;
-                    throw e;
-                }
+            textIO.getTextTerminal().print("Loading component..." + System.getProperty("line.separator"));
+            Collection<Description> jCoReDescriptions;
+            try {
+                jCoReDescriptions = description.getJCoReDescriptions();
+            } catch (DescriptorLoadingException e) {
                 clearTerminal(textIO);
-                if (jCoReDescriptions.size() > 1) {
-                    new SingleDescriptionSelectionDialog(description, d -> d.getCategory() == category).chooseDescription(textIO, path);
-                } else {
-                    clearTerminal(textIO);
-                }
-                Description jCoReDescription = description.getChosenDescriptor().clone();
-                if (jCoReDescription != null) {
-                    try {
-                        switch (category) {
-                            case reader:
-                                pipeline.setCrDescription(jCoReDescription);
-                                break;
-                            case multiplier:
-                                pipeline.addCasMultiplier(jCoReDescription);
-                                break;
-                            case ae:
-                                pipeline.addDelegateAe(jCoReDescription);
-                                break;
-                            case consumer:
-                                pipeline.addCcDesc(jCoReDescription);
-                                break;
-                            case flowcontroller:
-                                if (getName().equals(AddFlowControllerDialog.ANALYSIS_ENGINE_AGGREGATE)) {
-                                    pipeline.setAeFlowController(jCoReDescription);
-                                    break;
-                                } else if (getName().equals(AddFlowControllerDialog.CAS_CONSUMER_AGGREGATE)) {
-                                    pipeline.setCcFlowController(jCoReDescription);
-                                    break;
-                                }
-                            default:
-                                textIO.getTextTerminal().executeWithPropertiesPrefix(ERROR, t ->
-                                        t.println("Could not set the component because it belongs to the unsupported " +
-                                                "component category \"" + category.name() + "\"."));
+                textIO.getTextTerminal().executeWithPropertiesPrefix(ERROR, t -> t.println("Could not load the " +
+                        "component due to an exception: " + e.getMessage()));
+                errorPrinted = true;
+                throw e;
+            }
+            clearTerminal(textIO);
+            if (jCoReDescriptions.size() > 1) {
+                new SingleDescriptionSelectionDialog(description, d -> d.getCategory() == category).chooseDescription(textIO, path);
+            } else {
+                clearTerminal(textIO);
+            }
+            Description jCoReDescription = description.getChosenDescriptor().clone();
+            if (jCoReDescription != null) {
+                try {
+                    switch (category) {
+                        case reader:
+                            pipeline.setCrDescription(jCoReDescription);
+                            break;
+                        case multiplier:
+                            pipeline.addCasMultiplier(jCoReDescription);
+                            break;
+                        case ae:
+                            pipeline.addDelegateAe(jCoReDescription);
+                            break;
+                        case consumer:
+                            pipeline.addCcDesc(jCoReDescription);
+                            break;
+                        case flowcontroller:
+                            if (getName().equals(AddFlowControllerDialog.ANALYSIS_ENGINE_AGGREGATE)) {
+                                pipeline.setAeFlowController(jCoReDescription);
+                            } else if (getName().equals(AddFlowControllerDialog.CAS_CONSUMER_AGGREGATE)) {
+                                pipeline.setCcFlowController(jCoReDescription);
+                            } else {
+                                printUnsupportedCategory(textIO);
                                 errorPrinted = true;
-                        }
-                        PipelineBuilderCLI.dependenciesHaveChanged = true;
-                        clearTerminal(textIO);
-                    } catch (Exception e) {
-                        textIO.getTextTerminal().executeWithPropertiesPrefix(
-                                TerminalPrefixes.ERROR, t -> t.print("Could not add the analysis engine: " + e.getMessage()));
-                        errorPrinted = true;
-                        e.printStackTrace();
+                            }
+                            break;
+                        default:
+                            printUnsupportedCategory(textIO);
+                            errorPrinted = true;
                     }
-                } else {
-                    textIO.getTextTerminal().executeWithPropertiesPrefix(TerminalPrefixes.ERROR,
-                            t -> t.println("Could not add the analysis engine because there is no descriptor."));
+                    PipelineBuilderCLI.dependenciesHaveChanged = true;
+                    clearTerminal(textIO);
+                } catch (Exception e) {
+                    textIO.getTextTerminal().executeWithPropertiesPrefix(
+                            TerminalPrefixes.ERROR, t -> t.print("Could not add the analysis engine: " + e.getMessage()));
                     errorPrinted = true;
+                    e.printStackTrace();
                 }
+            } else {
+                textIO.getTextTerminal().executeWithPropertiesPrefix(TerminalPrefixes.ERROR,
+                        t -> t.println("Could not add the analysis engine because there is no descriptor."));
+                errorPrinted = true;
             }
         } catch (DescriptorLoadingException e) {
             log.debug("Could not load descriptors", e);
         } catch (CloneNotSupportedException e) {
             log.error("Could not clone the description", e);
         }
-        IMenuItem iMenuItem = category == Category.reader ? BackMenuItem.get() : choice;
-        if (iMenuItem instanceof BackMenuItem && !errorPrinted)
-            clearTerminal(textIO);
-        if (choice instanceof EditMenuItem) {
-            textIO.getTextTerminal().executeWithPropertiesPrefix(TerminalPrefixes.EMPHASIS, t -> t.println("Added component:"));
-            StatusPrinter.printComponentMetaData(((EditMenuItem) choice).getDescription(), textIO);
-            textIO.getTextTerminal().println(System.getProperty("line.separator"));
-        }
-        return iMenuItem;
+        return errorPrinted;
+    }
+
+    private void printUnsupportedCategory(TextIO textIO) {
+        textIO.getTextTerminal().executeWithPropertiesPrefix(ERROR, t ->
+                t.println("Could not set the component because it belongs to the unsupported " +
+                        "component category \"" + category.name() + "\"."));
     }
 
     @Override
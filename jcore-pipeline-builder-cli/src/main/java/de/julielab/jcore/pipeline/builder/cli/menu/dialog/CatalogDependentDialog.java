@@ -0,0 +1,82 @@
+package de.julielab.jcore.pipeline.builder.cli.menu.dialog;
+
+import de.julielab.jcore.pipeline.builder.base.main.JCoReUIMAPipeline;
+import de.julielab.jcore.pipeline.builder.cli.menu.BackMenuItem;
+import de.julielab.jcore.pipeline.builder.cli.menu.IMenuItem;
+import de.julielab.jcore.pipeline.builder.cli.menu.TerminalPrefixes;
+import de.julielab.jcore.pipeline.builder.cli.util.ComponentCatalog;
+import de.julielab.jcore.pipeline.builder.cli.util.MenuItemExecutionException;
+import org.beryx.textio.TextIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A menu item for a dialog that requires the component catalog. The menu item is available immediately, the dialog
+ * itself is created when it is chosen. Only then it is waited for the catalog to be loaded.
+ */
+public class CatalogDependentDialog implements ILoopablePipelineManipulationDialog {
+    private final static Logger log = LoggerFactory.getLogger(CatalogDependentDialog.class);
+    private final Supplier<CompletableFuture<ComponentCatalog>> catalogSupplier;
+    private final Function<ComponentCatalog, ILoopablePipelineManipulationDialog> dialogFactory;
+    private final String name;
+    private ComponentCatalog catalog;
+    private ILoopablePipelineManipulationDialog dialog;
+
+    /**
+     * @param catalogSupplier Delivers the current catalog future. It is queried each time the dialog is chosen since
+     *                        the catalog might have been reloaded in the meantime.
+     * @param dialogFactory   Creates the actual dialog from the catalog.
+     */
+    public CatalogDependentDialog(Supplier<CompletableFuture<ComponentCatalog>> catalogSupplier, Function<ComponentCatalog, ILoopablePipelineManipulationDialog> dialogFactory) {
+        this.catalogSupplier = catalogSupplier;
+        this.dialogFactory = dialogFactory;
+        this.name = dialogFactory.apply(ComponentCatalog.EMPTY).getName();
+    }
+
+    @Override
+    public void enterInputLoop(JCoReUIMAPipeline pipeline, TextIO textIO, Deque<String> path) throws MenuItemExecutionException {
+        if (getDialog(textIO) != null)
+            dialog.enterInputLoop(pipeline, textIO, path);
+    }
+
+    @Override
+    public IMenuItem executeMenuItem(JCoReUIMAPipeline pipeline, TextIO textIO, Deque<String> path) throws MenuItemExecutionException {
+        return getDialog(textIO) != null ? dialog.executeMenuItem(pipeline, textIO, path) : BackMenuItem.get();
+    }
+
+    private ILoopablePipelineManipulationDialog getDialog(TextIO textIO) {
+        CompletableFuture<ComponentCatalog> catalogFuture = catalogSupplier.get();
+        if (!catalogFuture.isDone())
+            textIO.getTextTerminal().println("Waiting for the component catalog to be loaded...");
+        try {
+            ComponentCatalog currentCatalog = catalogFuture.get();
+            if (currentCatalog != catalog) {
+                catalog = currentCatalog;
+                dialog = dialogFactory.apply(currentCatalog);
+            }
+            return dialog;
+        } catch (ExecutionException e) {
+            log.debug("Error when loading component list", e.getCause());
+            textIO.getTextTerminal().executeWithPropertiesPrefix(TerminalPrefixes.ERROR, t -> t.println("Could not load the JCoRe component list: " + e.getCause().getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
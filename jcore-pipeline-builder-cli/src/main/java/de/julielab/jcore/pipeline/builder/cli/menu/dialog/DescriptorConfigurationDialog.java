@@ -160,6 +160,9 @@ public class DescriptorConfigurationDialog implements ILoopablePipelineManipulat
                 }
             }
         }
+        // The menu items edit the descriptor directly, thus the cached configuration checks must be renewed
+        if (!(choice instanceof BackMenuItem))
+            description.markModified();
         return choice;
     }
 }
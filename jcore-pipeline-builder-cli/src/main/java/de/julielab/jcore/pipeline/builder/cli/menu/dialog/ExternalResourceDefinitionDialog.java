@@ -4,7 +4,6 @@ import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineIOException;
 import de.julielab.jcore.pipeline.builder.base.main.Description;
 import de.julielab.jcore.pipeline.builder.base.main.JCoReUIMAPipeline;
 import de.julielab.jcore.pipeline.builder.cli.menu.TerminalPrefixes;
-import de.julielab.jcore.pipeline.builder.cli.util.ArtifactLoader;
 import de.julielab.jcore.pipeline.builder.cli.util.MenuItemExecutionException;
 import io.github.lukehutch.fastclasspathscanner.FastClasspathScanner;
 import org.apache.commons.lang3.StringUtils;
@@ -47,10 +46,10 @@ public class ExternalResourceDefinitionDialog implements IMenuDialog {
                     "external resource implementations for the resource interface " + dependencyInterfaceName + "...");
             if (log.isTraceEnabled())
                 pipeline.getClasspathElements().forEach(e -> log.trace("Loading classpath element {}", e));
-            pipeline.getClasspathElements().forEach(ArtifactLoader::loadArtifact);
+            ClassLoader classLoader = pipeline.getClassLoader();
             if (!StringUtils.isBlank(dependencyInterfaceName)) {
-                Class<?> forName = Class.forName(dependencyInterfaceName);
-                FastClasspathScanner fcs = new FastClasspathScanner();
+                Class<?> forName = Class.forName(dependencyInterfaceName, false, classLoader);
+                FastClasspathScanner fcs = new FastClasspathScanner().overrideClassLoaders(classLoader);
                 List<Object> list = new ArrayList<>();
                 fcs.matchClassesImplementing(forName, list::add);
                 textIO.getTextTerminal().printf("Searching for implementations of the external resource dependency " +
@@ -72,7 +71,7 @@ public class ExternalResourceDefinitionDialog implements IMenuDialog {
             Class<? extends SharedResourceObject> implementationClass = null;
             while (implementationClass == null && !StringUtils.isBlank(dependencyInterfaceName)) {
                 try {
-                    implementationClass = (Class<? extends SharedResourceObject>) Class.forName(sharedResourceObjectClass);
+                    implementationClass = (Class<? extends SharedResourceObject>) Class.forName(sharedResourceObjectClass, false, classLoader);
                 } catch (ClassNotFoundException e) {
                     String message = "The resource implementation class " + sharedResourceObjectClass + " could not be found.";
                     textIO.getTextTerminal().executeWithPropertiesPrefix(TerminalPrefixes.ERROR, t -> t.print(message));
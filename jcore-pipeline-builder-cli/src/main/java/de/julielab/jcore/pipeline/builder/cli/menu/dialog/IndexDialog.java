@@ -3,52 +3,39 @@ package de.julielab.jcore.pipeline.builder.cli.menu.dialog;
 import de.julielab.jcore.pipeline.builder.base.exceptions.GithubInformationException;
 import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineIOException;
 import de.julielab.jcore.pipeline.builder.base.main.JCoReUIMAPipeline;
-import de.julielab.jcore.pipeline.builder.base.main.ComponentMetaInformationService;
-import de.julielab.jcore.pipeline.builder.base.main.MetaDescription;
 import de.julielab.jcore.pipeline.builder.base.main.Repositories;
 import de.julielab.jcore.pipeline.builder.cli.main.PipelineBuilderCLI;
 import de.julielab.jcore.pipeline.builder.cli.menu.*;
-import de.julielab.jcore.pipeline.builder.cli.util.MenuItemExecutionException;
-import de.julielab.jcore.pipeline.builder.cli.util.StatusPrinter;
-import de.julielab.jcore.pipeline.builder.cli.util.TextIOUtils;
+import de.julielab.jcore.pipeline.builder.cli.util.*;
 import org.beryx.textio.TextIO;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants.JcoreMeta.Category;
 
 public class IndexDialog implements ILoopablePipelineManipulationDialog {
 
     public static final QuitMenuItem QUIT_MENU_ITEM = new QuitMenuItem();
-    private Map<Category, List<MetaDescription>> categoryMap;
-    private List<IMenuItem> menuItems;
+    private final List<IMenuItem> menuItems;
+    private CompletableFuture<ComponentCatalog> catalog;
 
-    public IndexDialog() throws GithubInformationException {
-        initComponentRepository(false);
-    }
-
-    private void initComponentRepository(boolean loadNew) throws GithubInformationException {
-        categoryMap = new HashMap<>();
-        // Groups the meta descriptions by their categories. We cannot just use the groupBy Java8 collector because
-        // we have multiple categories. In Java9 there is the stream group by which should work here:
-        // http://www.baeldung.com/java9-stream-collectors
-        ComponentMetaInformationService.getInstance().getMetaInformation(loadNew).forEach(md -> {
-            for (Category category : md.getCategories()) {
-                categoryMap.compute(category, (k, v) -> {
-                    List<MetaDescription> ret = v;
-                    if (ret == null)
-                        ret = new ArrayList<>();
-                    ret.add(md);
-                    return ret;
-                });
-            }
-        });
+    /**
+     * Starts loading the component catalog in the background. The menu can be shown right away; the menu items that
+     * require the catalog wait for it when they are chosen.
+     */
+    public IndexDialog() {
+        catalog = ComponentCatalog.load(false);
         menuItems = new ArrayList<>();
-        menuItems.add(new AddComponentDialog(categoryMap, Category.reader));
-        menuItems.add(new AddComponentDialog(categoryMap, Category.multiplier));
-        menuItems.add(new AddComponentDialog(categoryMap, Category.ae));
-        menuItems.add(new AddComponentDialog(categoryMap, Category.consumer));
-        menuItems.add(new AddFlowControllerDialog(categoryMap));
+        menuItems.add(new CatalogDependentDialog(this::getCatalog, c -> new AddComponentDialog(c.getCategoryMap(), Category.reader)));
+        menuItems.add(new CatalogDependentDialog(this::getCatalog, c -> new AddComponentDialog(c.getCategoryMap(), Category.multiplier)));
+        menuItems.add(new CatalogDependentDialog(this::getCatalog, c -> new AddComponentDialog(c.getCategoryMap(), Category.ae)));
+        menuItems.add(new CatalogDependentDialog(this::getCatalog, c -> new AddComponentDialog(c.getCategoryMap(), Category.consumer)));
+        menuItems.add(new CatalogDependentDialog(this::getCatalog, c -> new AddFlowControllerDialog(c.getCategoryMap())));
+        menuItems.add(new CatalogDependentDialog(this::getCatalog, c -> new SearchComponentDialog(c.getComponentIndex())));
         menuItems.add(new ConfigurePipelineDialog());
         menuItems.add(new SavePipelineDialog());
         menuItems.add(new LoadPipelineDialog());
@@ -60,6 +47,27 @@ public class IndexDialog implements ILoopablePipelineManipulationDialog {
         menuItems.add(QUIT_MENU_ITEM);
     }
 
+    /**
+     * @return The component catalog as it is currently loaded or being loaded.
+     */
+    public CompletableFuture<ComponentCatalog> getCatalog() {
+        return catalog;
+    }
+
+    private void reloadComponentRepository(boolean loadNew) throws GithubInformationException {
+        catalog = ComponentCatalog.load(loadNew);
+        try {
+            catalog.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GithubInformationException)
+                throw (GithubInformationException) e.getCause();
+            throw new GithubInformationException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GithubInformationException(e);
+        }
+    }
+
 
     @Override
     public String getName() {
@@ -70,6 +78,7 @@ public class IndexDialog implements ILoopablePipelineManipulationDialog {
     public IMenuItem executeMenuItem(JCoReUIMAPipeline pipeline, TextIO textIO, Deque<String> path) {
         printPosition(textIO, path);
         StatusPrinter.printPipelineStatus(pipeline, PipelineBuilderCLI.statusVerbosity, textIO);
+        StartupTimer.mark(StartupTimer.FIRST_PROMPT);
         if (Repositories.getRepositories().count() == 0)
             TextIOUtils.printLine(TextIOUtils.createPrintLine("There are currently no component repositories active. Navigate to the repository management dialog to add components to build pipelines from.", TerminalPrefixes.WARN), textIO);
         IMenuItem choice = textIO.<IMenuItem>newGenericInputReader(null)
@@ -98,7 +107,7 @@ public class IndexDialog implements ILoopablePipelineManipulationDialog {
             } else if (choice instanceof RefreshComponentRepositoryMenuItem) {
                 try {
                     textIO.getTextTerminal().print("Refreshing component repository...");
-                    initComponentRepository(true);
+                    reloadComponentRepository(true);
                     textIO.getTextTerminal().println("Done.");
                 } catch (GithubInformationException e) {
                     throw new MenuItemExecutionException(e);
@@ -107,9 +116,9 @@ public class IndexDialog implements ILoopablePipelineManipulationDialog {
                 ((SpecifyStatusVerbosityDialog) choice).chooseVerbosity(textIO);
             } else if (choice instanceof RepositoryManagementDialog) {
                 ((RepositoryManagementDialog) choice).enterInputLoop(textIO, path);
-                textIO.getTextTerminal().executeWithPropertiesPrefix(TerminalPrefixes.EMPHASIS, t -> t.print("Applying repository changes. It might take a while to fetch remote component meta data." + System.getProperty("line.separator")));
+                textIO.getTextTerminal().executeWithPropertiesPrefix(TerminalPrefixes.EMPHASIS, t -> t.print("Applying repository changes. Remote component meta data is fetched in the background." + System.getProperty("line.separator")));
                 Repositories.saveRepositoryConfiguration();
-                initComponentRepository(false);
+                catalog = ComponentCatalog.load(false);
                 clearTerminal(textIO);
             } else if (choice instanceof ParentPomSettingDialog) {
                 ((ParentPomSettingDialog) choice).execute(pipeline, textIO, path);
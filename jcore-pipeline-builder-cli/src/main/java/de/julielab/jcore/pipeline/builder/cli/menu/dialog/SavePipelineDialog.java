@@ -3,6 +3,8 @@ package de.julielab.jcore.pipeline.builder.cli.menu.dialog;
 import com.google.common.collect.Multiset;
 import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineIOException;
 import de.julielab.jcore.pipeline.builder.base.main.JCoReUIMAPipeline;
+import de.julielab.jcore.pipeline.builder.base.main.PipelineStoreListener;
+import de.julielab.jcore.pipeline.builder.base.main.PipelineStoreTask;
 import de.julielab.jcore.pipeline.builder.cli.main.PipelineBuilderCLI;
 import org.beryx.textio.TextIO;
 
@@ -10,10 +12,20 @@ import java.io.File;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
-import static de.julielab.jcore.pipeline.builder.cli.menu.TerminalPrefixes.ERROR;
+import static de.julielab.jcore.pipeline.builder.cli.menu.TerminalPrefixes.*;
 
+/**
+ * Saves the pipeline in the background. The dialog returns as soon as the descriptors and the pipeline state have
+ * been written. The libraries are stored afterwards while the pipeline can be edited further. Choosing the dialog
+ * again while the libraries are stored offers to cancel the save.
+ */
 public class SavePipelineDialog implements IMenuDialog {
+    private static PipelineStoreTask backgroundSave;
+
     @Override
     public String getName() {
         return "Save Pipeline";
@@ -23,6 +35,12 @@ public class SavePipelineDialog implements IMenuDialog {
         path.add(getName());
         printPosition(textIO, path);
 
+        if (backgroundSave != null && !backgroundSave.isDone()) {
+            offerCancellation(textIO);
+            path.removeLast();
+            return;
+        }
+
         // Check if the component names are unique because otherwise, saving the pipeline will make it invalid
         final Multiset<String> existingDescriptorNames = pipeline.getExistingDescriptorNames();
         final Optional<Integer> max = existingDescriptorNames.stream().map(existingDescriptorNames::count).max(Comparator.reverseOrder());
@@ -56,20 +74,155 @@ public class SavePipelineDialog implements IMenuDialog {
                     textIO.getTextTerminal().println("Aborting.");
                 }
             }
-            if (store) {
-                textIO.getTextTerminal().println("Storing pipeline. It may take a while to gather all transitive " +
-                        "dependencies, please wait...");
-                pipeline.store(destinationFile, storeLibraries);
-                if (storeLibraries)
-                    PipelineBuilderCLI.dependenciesHaveChanged = false;
-                textIO.getTextTerminal().println("Saved pipeline to " + destinationFile.getAbsolutePath());
-            }
+            if (store)
+                startSave(pipeline, destinationFile, storeLibraries, textIO);
         }
         path.removeLast();
     }
 
+    private void startSave(JCoReUIMAPipeline pipeline, File destinationFile, boolean storeLibraries, TextIO textIO) throws PipelineIOException {
+        textIO.getTextTerminal().println("Storing pipeline to " + destinationFile.getAbsolutePath() + "...");
+        // The libraries are stored as determined now. Later changes require another save.
+        if (storeLibraries)
+            PipelineBuilderCLI.dependenciesHaveChanged = false;
+        TerminalProgressListener progressListener = new TerminalProgressListener(textIO);
+        PipelineStoreTask task = new PipelineStoreTask(pipeline, destinationFile, storeLibraries, progressListener).start();
+        backgroundSave = task;
+        try {
+            task.getStateStored().get();
+        } catch (ExecutionException e) {
+            if (storeLibraries)
+                PipelineBuilderCLI.dependenciesHaveChanged = true;
+            if (e.getCause() instanceof PipelineIOException)
+                throw (PipelineIOException) e.getCause();
+            throw new PipelineIOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.cancel();
+            throw new PipelineIOException(e);
+        }
+        task.getCompletion().whenComplete((v, t) -> {
+            Throwable cause = t instanceof CompletionException ? t.getCause() : t;
+            if (cause == null) {
+                textIO.getTextTerminal().println("Saved pipeline to " + destinationFile.getAbsolutePath() + progressListener.getLibrarySummary());
+                return;
+            }
+            if (storeLibraries)
+                PipelineBuilderCLI.dependenciesHaveChanged = true;
+            if (cause instanceof CancellationException)
+                textIO.getTextTerminal().executeWithPropertiesPrefix(WARN, term -> term.println("Saving the pipeline to " + destinationFile.getAbsolutePath() + " has been cancelled. The libraries will be stored when the pipeline is loaded or saved again."));
+            else
+                textIO.getTextTerminal().executeWithPropertiesPrefix(ERROR, term -> term.println("Storing the libraries of the pipeline failed: " + cause.getMessage()));
+        });
+        if (!task.isDone())
+            textIO.getTextTerminal().println("The libraries are stored in the background. You may continue to edit the pipeline. Choose '" + getName() + "' again to cancel.");
+    }
+
+    private void offerCancellation(TextIO textIO) {
+        Boolean cancel = textIO.newBooleanInputReader()
+                .withDefaultValue(false)
+                .withFalseInput("N")
+                .withTrueInput("Y")
+                .read("The pipeline is currently saved to " + backgroundSave.getDirectory().getAbsolutePath() + " (" + backgroundSave.getPhase() + "). Do you wish to cancel this?");
+        if (cancel) {
+            backgroundSave.cancel();
+            awaitBackgroundSave(textIO);
+        }
+    }
+
+    /**
+     * Waits for a pipeline save running in the background, if any. This is required before the application exits
+     * because the saving thread does not keep the application alive.
+     *
+     * @param textIO The terminal to print a waiting message to.
+     */
+    public static void awaitBackgroundSave(TextIO textIO) {
+        PipelineStoreTask task = backgroundSave;
+        if (task == null)
+            return;
+        if (!task.isDone())
+            textIO.getTextTerminal().println("Waiting for the pipeline to be saved to " + task.getDirectory().getAbsolutePath() + "...");
+        try {
+            task.getCompletion().handle((v, t) -> null).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // cannot happen since all errors are handled
+        }
+    }
+
     @Override
     public String toString() {
         return getName();
     }
+
+    /**
+     * Prints the progress of the save to the terminal. The state of the library directory is printed at most every
+     * few seconds to not disturb the user too much.
+     */
+    private static class TerminalProgressListener implements PipelineStoreListener {
+        private static final long LIBRARY_PRINT_INTERVAL = 5000;
+        private final TextIO textIO;
+        private int filesWritten;
+        private volatile int libraryFiles;
+        private volatile long libraryBytes;
+        private long lastLibraryPrint;
+
+        private TerminalProgressListener(TextIO textIO) {
+            this.textIO = textIO;
+        }
+
+        @Override
+        public void phaseStarted(Phase phase) {
+            filesWritten = 0;
+        }
+
+        @Override
+        public void phaseFinished(Phase phase, long millis) {
+            if (phase != Phase.ARTIFACTS)
+                textIO.getTextTerminal().println(String.format("  %s: %d files written in %d ms", getPhaseName(phase), filesWritten, millis));
+        }
+
+        @Override
+        public void fileWritten(File file) {
+            ++filesWritten;
+        }
+
+        @Override
+        public void artifactsResolving(int artifacts) {
+            textIO.getTextTerminal().println(String.format("  %s: resolving the libraries of %d component artifacts", getPhaseName(Phase.ARTIFACTS), artifacts));
+        }
+
+        @Override
+        public void librariesStored(int files, long bytes) {
+            libraryFiles = files;
+            libraryBytes = bytes;
+            long now = System.currentTimeMillis();
+            if (now - lastLibraryPrint >= LIBRARY_PRINT_INTERVAL) {
+                lastLibraryPrint = now;
+                textIO.getTextTerminal().executeWithPropertiesPrefix(EMPHASIS, t -> t.println(String.format("  %s: %d files, %.1f MB stored", getPhaseName(Phase.ARTIFACTS), files, bytes / 1048576d)));
+            }
+        }
+
+        private String getLibrarySummary() {
+            return libraryFiles > 0 ? String.format(" with %d library files, %.1f MB", libraryFiles, libraryBytes / 1048576d) : "";
+        }
+
+        private String getPhaseName(Phase phase) {
+            switch (phase) {
+                case DESCRIPTORS:
+                    return "Descriptors";
+                case CPE:
+                    return "CPE descriptor";
+                case MISSING_CONFIGURATION:
+                    return "Missing configuration check";
+                case SERIALIZATION:
+                    return "Pipeline state";
+                case ARTIFACTS:
+                    return "Libraries";
+                default:
+                    return phase.name();
+            }
+        }
+    }
 }
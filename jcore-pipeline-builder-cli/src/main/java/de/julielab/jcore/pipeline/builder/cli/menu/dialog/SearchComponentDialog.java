@@ -0,0 +1,110 @@
+package de.julielab.jcore.pipeline.builder.cli.menu.dialog;
+
+import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants.JcoreMeta.Category;
+import de.julielab.jcore.pipeline.builder.base.main.ComponentIndex;
+import de.julielab.jcore.pipeline.builder.base.main.ComponentMetaInformationService;
+import de.julielab.jcore.pipeline.builder.base.main.JCoReUIMAPipeline;
+import de.julielab.jcore.pipeline.builder.base.main.MetaDescription;
+import de.julielab.jcore.pipeline.builder.cli.main.PipelineBuilderCLI;
+import de.julielab.jcore.pipeline.builder.cli.menu.BackMenuItem;
+import de.julielab.jcore.pipeline.builder.cli.menu.IMenuItem;
+import de.julielab.jcore.pipeline.builder.cli.menu.NoopMenuItem;
+import de.julielab.jcore.pipeline.builder.cli.menu.TerminalPrefixes;
+import de.julielab.jcore.pipeline.builder.cli.util.StatusPrinter;
+import de.julielab.jcore.pipeline.builder.cli.util.TextIOUtils;
+import org.beryx.textio.TextIO;
+
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Searches the component catalog through a {@link ComponentIndex}. The query can be refined incrementally: Input
+ * starting with '+' is appended to the current query so that the result list narrows down with each step.
+ */
+public class SearchComponentDialog implements ILoopablePipelineManipulationDialog {
+    private static final int MAX_DISPLAYED_HITS = 20;
+    private final ComponentIndex index;
+    private String query = "";
+    private List<MetaDescription> hits = Collections.emptyList();
+
+    public SearchComponentDialog(ComponentIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public IMenuItem executeMenuItem(JCoReUIMAPipeline pipeline, TextIO textIO, Deque<String> path) {
+        printPosition(textIO, path);
+        StatusPrinter.printPipelineStatus(pipeline, PipelineBuilderCLI.statusVerbosity, textIO);
+        printHits(textIO);
+        String input = textIO.newStringInputReader().withMinLength(0)
+                .read("\nEnter a search query, '+<text>' to extend the current query, the number of a component to add it or nothing to go back. Restrict terms with name:, desc:, group:, cat:, in: or out:.").trim();
+        clearTerminal(textIO);
+        if (input.isEmpty()) {
+            query = "";
+            hits = Collections.emptyList();
+            return BackMenuItem.get();
+        }
+        if (input.matches("[0-9]+")) {
+            int hitNumber = Integer.parseInt(input);
+            if (hitNumber < 1 || hitNumber > Math.min(hits.size(), MAX_DISPLAYED_HITS)) {
+                textIO.getTextTerminal().executeWithPropertiesPrefix(TerminalPrefixes.WARN, t -> t.println("There is no search result with number " + hitNumber + "."));
+                return new NoopMenuItem();
+            }
+            addComponent(hits.get(hitNumber - 1), pipeline, textIO, path);
+            return new NoopMenuItem();
+        }
+        query = input.startsWith("+") ? (query + " " + input.substring(1)).trim() : input;
+        long time = System.nanoTime();
+        hits = index.search(query);
+        time = System.nanoTime() - time;
+        ComponentMetaInformationService.getInstance().prefetchArtifacts(hits.subList(0, Math.min(hits.size(), MAX_DISPLAYED_HITS)));
+        final long finalTime = time;
+        textIO.getTextTerminal().executeWithPropertiesPrefix(TerminalPrefixes.EMPHASIS, t -> t.println(String.format("%d components match \"%s\" (%.2fms).", hits.size(), query, finalTime / 1000000d)));
+        if (index.isPartial(query))
+            textIO.getTextTerminal().executeWithPropertiesPrefix(TerminalPrefixes.WARN, t -> t.println(String.format("The results are partial: the input and output types of %d of %d components are still being loaded in the background. Repeat the query for complete results.", index.size() - index.getNumTypeIndexed(), index.size())));
+        return new NoopMenuItem();
+    }
+
+    private void printHits(TextIO textIO) {
+        for (int i = 0; i < hits.size() && i < MAX_DISPLAYED_HITS; i++) {
+            MetaDescription md = hits.get(i);
+            String categories = md.getCategories() != null ? md.getCategories().stream().map(Category::name).collect(Collectors.joining(", ")) : "";
+            TextIOUtils.printLine(TextIOUtils.createPrintLine(String.format("%3d: ", i + 1), TerminalPrefixes.DEFAULT, md.getName(), TerminalPrefixes.COMPONENT_NAME, " [" + categories + "]", TerminalPrefixes.DEFAULT), textIO);
+        }
+        if (hits.size() > MAX_DISPLAYED_HITS)
+            textIO.getTextTerminal().println("... and " + (hits.size() - MAX_DISPLAYED_HITS) + " more. Extend the query to narrow down the results.");
+    }
+
+    private void addComponent(MetaDescription md, JCoReUIMAPipeline pipeline, TextIO textIO, Deque<String> path) {
+        // Flow controllers are set via their own dialog because it must be specified which aggregate they belong to
+        List<Category> categories = md.getCategories() != null ? md.getCategories().stream().filter(c -> c != Category.flowcontroller).collect(Collectors.toList()) : Collections.emptyList();
+        if (categories.isEmpty()) {
+            textIO.getTextTerminal().executeWithPropertiesPrefix(TerminalPrefixes.WARN, t -> t.println("The component " + md.getName() + " can only be added as a flow controller from the respective menu."));
+            return;
+        }
+        Category category = categories.get(0);
+        if (categories.size() > 1)
+            category = textIO.<Category>newGenericInputReader(null).withNumberedPossibleValues(categories)
+                    .read("The component " + md.getName() + " belongs to multiple categories. Choose the category to add it as.");
+        boolean errorPrinted = new AddComponentDialog(Collections.emptyMap(), category).addComponent(md, pipeline, textIO, path);
+        if (!errorPrinted) {
+            // The descriptors have been loaded now so we can also search for the component by type.
+            index.indexTypeCapabilities(md);
+            textIO.getTextTerminal().executeWithPropertiesPrefix(TerminalPrefixes.EMPHASIS, t -> t.println("Added component:"));
+            StatusPrinter.printComponentMetaData(md, textIO);
+            textIO.getTextTerminal().println(System.getProperty("line.separator"));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Search Component";
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -1,21 +1,17 @@
 package de.julielab.jcore.pipeline.builder.cli.menu.dialog;
 
+import de.julielab.jcore.pipeline.builder.base.main.ArtifactVersionService;
 import de.julielab.jcore.pipeline.builder.base.main.Description;
 import de.julielab.jcore.pipeline.builder.base.main.JCoReUIMAPipeline;
 import de.julielab.jcore.pipeline.builder.cli.menu.ArtifactVersionMenuItem;
 import de.julielab.jcore.pipeline.builder.cli.menu.TerminalPrefixes;
 import de.julielab.jcore.pipeline.builder.cli.util.TextIOUtils;
-import de.julielab.utilities.aether.AetherUtilities;
 import de.julielab.utilities.aether.MavenArtifact;
-import de.julielab.utilities.aether.MavenException;
 import org.beryx.textio.TextIO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Stream;
 
 public class UpdateAllArtifactsDialog implements IMenuDialog {
@@ -52,6 +48,7 @@ public class UpdateAllArtifactsDialog implements IMenuDialog {
                 .read("Would you like to update all components at once or select a specific version for each component individually?");
 
         if (updateAll.equals(response)) {
+            List<MavenArtifact> artifacts = new ArrayList<>();
             for (Description description : itemList) {
                 if (description.getMetaDescription().isPear()) {
                     String msg = "Description \"" + description.getName() + "\" is a PEAR and cannot be updated automatically.";
@@ -59,16 +56,25 @@ public class UpdateAllArtifactsDialog implements IMenuDialog {
                     log.info(msg);
                     continue;
                 }
-                try {
-                    String newestVersion = AetherUtilities.getNewestVersion(description.getMetaDescription().getMavenArtifactCoordinates());
-                    if (newestVersion != null && ! newestVersion.isBlank()) {
-                        description.getMetaDescription().getMavenArtifactCoordinates().setVersion(newestVersion);
-                        textIO.getTextTerminal().print("Set artifact version of component " + description.getName() + " to " + newestVersion + System.getProperty("line.separator"));
-                    } else {
-                        textIO.getTextTerminal().print("Could not obtain any version for component " + description.getName() + ", retaining current version." + System.getProperty("line.separator"));
-                    }
-                } catch (MavenException e) {
-                    log.error("Could not set the new version to component {}", description.getName(), e);
+                artifacts.add(description.getMetaDescription().getMavenArtifactCoordinates());
+            }
+            // Look up the versions of all artifacts concurrently, each artifact only once
+            Map<String, String> newestVersions = ArtifactVersionService.getInstance().getNewestVersions(artifacts);
+            for (Description description : itemList) {
+                if (description.getMetaDescription().isPear())
+                    continue;
+                MavenArtifact coordinates = description.getMetaDescription().getMavenArtifactCoordinates();
+                String key = ArtifactVersionService.getKey(coordinates.getGroupId(), coordinates.getArtifactId());
+                if (!newestVersions.containsKey(key)) {
+                    textIO.getTextTerminal().print("Could not look up the versions for component " + description.getName() + ", retaining current version." + System.getProperty("line.separator"));
+                    continue;
+                }
+                String newestVersion = newestVersions.get(key);
+                if (newestVersion != null && ! newestVersion.isBlank()) {
+                    coordinates.setVersion(newestVersion);
+                    textIO.getTextTerminal().print("Set artifact version of component " + description.getName() + " to " + newestVersion + System.getProperty("line.separator"));
+                } else {
+                    textIO.getTextTerminal().print("Could not obtain any version for component " + description.getName() + ", retaining current version." + System.getProperty("line.separator"));
                 }
             }
         } else {
@@ -0,0 +1,73 @@
+package de.julielab.jcore.pipeline.builder.cli.util;
+
+import de.julielab.jcore.pipeline.builder.base.main.ComponentIndex;
+import de.julielab.jcore.pipeline.builder.base.main.ComponentMetaInformationService;
+import de.julielab.jcore.pipeline.builder.base.main.MetaDescription;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants.JcoreMeta.Category;
+
+/**
+ * The component catalog as required by the menus: The components grouped by category and the search index. The
+ * catalog is loaded in the background by {@link #load(boolean)} so that the menus can be shown before all repository
+ * catalogs have been read.
+ */
+public class ComponentCatalog {
+    public static final ComponentCatalog EMPTY = new ComponentCatalog(Collections.emptyList());
+    /**
+     * All catalog loads run on this one thread so that a reload does not compete with a still running load.
+     */
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "catalog-loader");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<Category, List<MetaDescription>> categoryMap = new HashMap<>();
+    private final ComponentIndex componentIndex;
+
+    public ComponentCatalog(Collection<MetaDescription> metaInformation) {
+        // Groups the meta descriptions by their categories. We cannot just use the groupBy Java8 collector because
+        // we have multiple categories. In Java9 there is the stream group by which should work here:
+        // http://www.baeldung.com/java9-stream-collectors
+        metaInformation.forEach(md -> {
+            for (Category category : md.getCategories())
+                categoryMap.computeIfAbsent(category, k -> new ArrayList<>()).add(md);
+        });
+        // The index is built once for each catalog snapshot
+        componentIndex = new ComponentIndex(metaInformation);
+    }
+
+    /**
+     * Starts loading the component catalog of the active repositories in the background.
+     *
+     * @param loadNew Whether the catalogs should be fetched anew from the repositories.
+     * @return The future catalog. It completes exceptionally with a
+     * {@link de.julielab.jcore.pipeline.builder.base.exceptions.GithubInformationException} if a catalog could not be
+     * loaded.
+     */
+    public static CompletableFuture<ComponentCatalog> load(boolean loadNew) {
+        CompletableFuture<ComponentCatalog> catalog = new CompletableFuture<>();
+        loader.execute(() -> {
+            try {
+                ComponentCatalog componentCatalog = new ComponentCatalog(ComponentMetaInformationService.getInstance().getMetaInformation(loadNew));
+                StartupTimer.mark(StartupTimer.CATALOG_LOADED);
+                catalog.complete(componentCatalog);
+            } catch (Throwable t) {
+                catalog.completeExceptionally(t);
+            }
+        });
+        return catalog;
+    }
+
+    public Map<Category, List<MetaDescription>> getCategoryMap() {
+        return categoryMap;
+    }
+
+    public ComponentIndex getComponentIndex() {
+        return componentIndex;
+    }
+}
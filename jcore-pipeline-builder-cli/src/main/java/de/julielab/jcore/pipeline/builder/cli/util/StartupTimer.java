@@ -0,0 +1,45 @@
+package de.julielab.jcore.pipeline.builder.cli.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records the time of startup events like the first prompt of the pipeline builder, measured from the start of the
+ * JVM. Only the first occurrence of each event is recorded.
+ */
+public class StartupTimer {
+    public static final String FIRST_PROMPT = "first prompt";
+    public static final String PIPELINE_LOADED = "pipeline loaded";
+    public static final String CATALOG_LOADED = "component catalog loaded";
+    private final static Logger log = LoggerFactory.getLogger(StartupTimer.class);
+    private static final Map<String, Long> events = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Records the given event unless it has already been recorded.
+     *
+     * @param event The name of the event.
+     */
+    public static void mark(String event) {
+        long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        if (events.putIfAbsent(event, millis) == null)
+            log.debug("Startup: {} after {} ms", event, millis);
+    }
+
+    /**
+     * @return The recorded events and their times in milliseconds since the start of the JVM, in the order of their
+     * occurrence.
+     */
+    public static Map<String, Long> getEvents() {
+        synchronized (events) {
+            return new LinkedHashMap<>(events);
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package de.julielab.jcore.pipeline.builder.cli.util;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multiset;
 import de.julielab.jcore.pipeline.builder.base.configurations.PipelineBuilderConstants;
@@ -22,7 +20,6 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -117,8 +114,9 @@ public class StatusPrinter {
         Stream<Description> aeStream = pipeline.getAeDelegates() != null ? pipeline.getAeDelegates().stream() : Stream.empty();
         Stream<Description> ccStream = pipeline.getCcDelegates() != null ? pipeline.getCcDelegates().stream() : Stream.empty();
         Stream<Description> aes = Stream.concat(Stream.concat(cmStream, aeStream), ccStream).filter(d -> d.getDescriptor() instanceof AnalysisEngineDescription);
-        Map<String, List<ExternalResourceDescription>> resourcesByName = aes.filter(ae -> ae.isActive()).map(Description::getDescriptorAsAnalysisEngineDescription).filter(ae -> ae.getResourceManagerConfiguration() != null).filter(ae -> ae.getResourceManagerConfiguration() != null).flatMap(ae -> Stream.of(ae.getResourceManagerConfiguration().getExternalResources())).collect(Collectors.groupingBy(ExternalResourceDescription::getName));
-        resourcesByName.entrySet().stream().filter(e -> e.getValue().size() > 1).forEach(e -> records.add(createPrintLine("Configuration error: There are multiple external resources with the name " + e.getKey() + ".\n    Go to the configuration dialog and adapt the names.", ERROR)));
+        // The resource names are cached with the components and only collected anew for changed components
+        Map<String, Long> resourcesByName = aes.filter(ae -> ae.isActive()).map(Description::getValidation).flatMap(v -> v.getExternalResourceNames().stream()).collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        resourcesByName.entrySet().stream().filter(e -> e.getValue() > 1).forEach(e -> records.add(createPrintLine("Configuration error: There are multiple external resources with the name " + e.getKey() + ".\n    Go to the configuration dialog and adapt the names.", ERROR)));
 
         // Check if there is a component name repeated
         final Multiset<String> existingDescriptorNames = pipeline.getExistingDescriptorNames();
@@ -129,25 +127,8 @@ public class StatusPrinter {
             }
         }
 
-        Multimap<String, String> component2unsatisfiedTypeCapability = LinkedHashMultimap.create();
-        Set<String> existingOutputCapability = new HashSet<>();
-        // Collect all types produced by the pipeline
-        if (pipeline.getCrDescription() != null)
-            pipeline.getCrDescription().getOutputCapabilities().forEach(existingOutputCapability::add);
-        pipeline.getCmDelegates().stream().flatMap(d -> d.getOutputCapabilities().stream()).forEach(existingOutputCapability::add);
-        pipeline.getAeDelegates().stream().flatMap(d -> d.getOutputCapabilities().stream()).forEach(existingOutputCapability::add);
-        pipeline.getCcDelegates().stream().flatMap(d -> d.getOutputCapabilities().stream()).forEach(existingOutputCapability::add);
-
-        // Now check all components to find unsatisfied input capabilities
-        pipeline.getCmDelegates().stream().filter(Description::isActive).forEach(cm -> {
-            cm.getInputCapabilities().stream().filter(Predicate.not(existingOutputCapability::contains)).forEach(capability -> component2unsatisfiedTypeCapability.put(cm.getName(), capability));
-        });
-        pipeline.getAeDelegates().stream().filter(Description::isActive).forEach(ae -> {
-            ae.getInputCapabilities().stream().filter(Predicate.not(existingOutputCapability::contains)).forEach(capability -> component2unsatisfiedTypeCapability.put(ae.getName(), capability));
-        });
-        pipeline.getCcDelegates().stream().filter(Description::isActive).forEach(cc -> {
-            cc.getInputCapabilities().stream().filter(Predicate.not(existingOutputCapability::contains)).forEach(capability -> component2unsatisfiedTypeCapability.put(cc.getName(), capability));
-        });
+        // Only the components changed since the last rendering are checked anew
+        Multimap<String, String> component2unsatisfiedTypeCapability = pipeline.getTypeCapabilityGraph().getUnsatisfiedInputsByComponentName();
 
         // If there were unsatisfied input capabilities, issue warnings
         if (!component2unsatisfiedTypeCapability.isEmpty()) {
@@ -201,8 +182,7 @@ public class StatusPrinter {
                     records.add(createPrintLine("    Maven artifact: " + getArtifactString(description), color.apply(DEFAULT)));
                     if (metaData != null) {
                         NameValuePair[] parameterSettings = metaData.getConfigurationParameterSettings().getParameterSettings();
-                        Set<String> mandatorySet = Stream.of(metaData.getConfigurationParameterDeclarations().getConfigurationParameters()).
-                                filter(ConfigurationParameter::isMandatory).map(ConfigurationParameter::getName).collect(Collectors.toSet());
+                        Set<String> mandatorySet = new HashSet<>(description.getValidation().getMandatoryParameters());
                         if ((parameterSettings != null && parameterSettings.length > 0) || !mandatorySet.isEmpty())
                             records.add(createPrintLine("    Mandatory Parameters:", color.apply(PARAMETERS)));
                         if (parameterSettings != null) {
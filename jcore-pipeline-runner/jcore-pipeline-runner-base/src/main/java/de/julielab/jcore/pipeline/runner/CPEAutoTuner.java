@@ -0,0 +1,139 @@
+package de.julielab.jcore.pipeline.runner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Properties;
+
+/**
+ * <p>Derives the runner settings for a pipeline from the measurements of a calibration run of the CPE runner with a
+ * single processing thread. The properties keys are those written by the <tt>CalibrationRecorder</tt> of the CPE
+ * runner.</p>
+ * <ul>
+ *     <li>The number of threads is the number of processors divided by the share of CPU time in the processing time
+ *     of the documents, so that threads waiting for I/O are compensated. It is limited to the number of threads the
+ *     collection reader can keep busy if the calibration run was bound by the reader.</li>
+ *     <li>The CAS pool holds one and a half CASes per thread.</li>
+ *     <li>The initial CAS heap size is set to hold an average document without growing.</li>
+ *     <li>The heap size covers the heap of the JVM without the pipeline, the components of each thread and the CASes
+ *     of the pool at the 99th percentile footprint, plus headroom for the garbage collector. If this exceeds the
+ *     memory limit, the number of threads is reduced.</li>
+ * </ul>
+ */
+public class CPEAutoTuner {
+    private final static Logger log = LoggerFactory.getLogger(CPEAutoTuner.class);
+    /**
+     * The ratio of the heap memory of a CAS to its serialized size, accounting for the indexes and JCas objects.
+     */
+    private static final double CAS_MEMORY_FACTOR = 3;
+    private static final double HEAP_HEADROOM = 1.5;
+    private static final long MIN_HEAP = 512L << 20;
+    private static final int MIN_CAS_HEAP_SIZE = 50000;
+    /**
+     * The share of the memory limit that may be used for the Java heap, leaving room for the JVM itself.
+     */
+    private static final double MAX_HEAP_SHARE = 0.75;
+
+    private CPEAutoTuner() {
+    }
+
+    /**
+     * Computes the settings from the calibration.
+     *
+     * @param calibration The measurements of the calibration run.
+     * @param processors  The number of processors available for the run.
+     * @param memoryLimit The memory in bytes available for the run.
+     * @return The settings.
+     * @throws IllegalArgumentException If the calibration did not process any document.
+     */
+    public static Settings tune(Properties calibration, int processors, long memoryLimit) {
+        int documents = getInt(calibration, "documents");
+        if (documents == 0)
+            throw new IllegalArgumentException("The calibration run did not process any documents.");
+        double processingTime = Math.max(1, getLong(calibration, "processingTime"));
+        double cpuTime = getLong(calibration, "cpuTime");
+        double runTime = Math.max(1, getLong(calibration, "runTime"));
+        long casFootprintAvg = getLong(calibration, "casFootprint.avg");
+        long casFootprintP99 = getLong(calibration, "casFootprint.p99");
+        long heapBase = getLong(calibration, "heap.base");
+        long componentMemory = Math.max(0, getLong(calibration, "heap.initialized") - heapBase);
+
+        double cpuShare = cpuTime > 0 ? Math.min(1, Math.max(0.1, cpuTime / processingTime)) : 1;
+        int numThreads = (int) Math.max(1, Math.min(2L * processors, Math.round(processors / cpuShare)));
+        // With a single processing thread, a run taking clearly longer than its processing waited for the reader
+        if (runTime > 1.2 * processingTime) {
+            int readerBound = (int) Math.max(1, Math.ceil(processingTime / (runTime - processingTime)));
+            numThreads = Math.min(numThreads, readerBound);
+            log.info("The calibration run was bound by the collection reader, limiting the threads to {}", numThreads);
+        }
+
+        long maxHeap = (long) (memoryLimit * MAX_HEAP_SHARE);
+        long heap = getRequiredHeap(numThreads, heapBase, componentMemory, casFootprintP99);
+        while (heap > maxHeap && numThreads > 1) {
+            --numThreads;
+            heap = getRequiredHeap(numThreads, heapBase, componentMemory, casFootprintP99);
+        }
+        if (heap > maxHeap)
+            log.warn("The pipeline requires an estimated heap of {} MB which exceeds the memory limit of {} MB.", heap >> 20, memoryLimit >> 20);
+        heap = Math.min(maxHeap, heap);
+
+        Settings settings = new Settings();
+        settings.numThreads = numThreads;
+        settings.casPoolSize = getCasPoolSize(numThreads);
+        settings.casHeapSize = (int) Math.max(MIN_CAS_HEAP_SIZE, Math.ceil(casFootprintAvg * 1.25 / 4));
+        settings.heapSizeMb = Math.max(1, heap >> 20);
+        log.info("Tuned the runner from {} calibration documents with a CPU share of {}, CAS footprints of {} bytes on average and {} bytes at the 99th percentile and {} MB of component memory per thread: {}", documents, String.format("%.2f", cpuShare), casFootprintAvg, casFootprintP99, componentMemory >> 20, settings);
+        return settings;
+    }
+
+    private static long getRequiredHeap(int numThreads, long heapBase, long componentMemory, long casFootprintP99) {
+        long casMemory = (long) (casFootprintP99 * CAS_MEMORY_FACTOR);
+        return Math.max(MIN_HEAP, (long) ((heapBase + numThreads * componentMemory + getCasPoolSize(numThreads) * casMemory) * HEAP_HEADROOM));
+    }
+
+    static int getCasPoolSize(int numThreads) {
+        return numThreads + Math.max(1, numThreads / 2);
+    }
+
+    private static long getLong(Properties properties, String key) {
+        return Long.parseLong(properties.getProperty(key, "0"));
+    }
+
+    private static int getInt(Properties properties, String key) {
+        return Integer.parseInt(properties.getProperty(key, "0"));
+    }
+
+    public static class Settings {
+        private int numThreads;
+        private int casPoolSize;
+        private int casHeapSize;
+        private long heapSizeMb;
+
+        public int getNumThreads() {
+            return numThreads;
+        }
+
+        public int getCasPoolSize() {
+            return casPoolSize;
+        }
+
+        /**
+         * @return The initial CAS heap size in cells.
+         */
+        public int getCasHeapSize() {
+            return casHeapSize;
+        }
+
+        /**
+         * @return The heap size in the format of the <tt>-Xmx</tt> JVM option.
+         */
+        public String getHeapSize() {
+            return heapSizeMb + "m";
+        }
+
+        @Override
+        public String toString() {
+            return "Settings{numThreads=" + numThreads + ", casPoolSize=" + casPoolSize + ", casHeapSize=" + casHeapSize + ", heapSize=" + getHeapSize() + "}";
+        }
+    }
+}
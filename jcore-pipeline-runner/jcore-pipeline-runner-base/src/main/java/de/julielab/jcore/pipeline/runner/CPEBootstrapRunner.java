@@ -1,11 +1,18 @@
 package de.julielab.jcore.pipeline.runner;
 
 import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineIOException;
+import de.julielab.jcore.pipeline.builder.base.main.ErrorPolicy;
 import de.julielab.jcore.pipeline.builder.base.main.JCoReUIMAPipeline;
+import de.julielab.jcore.pipeline.builder.base.main.RunComparison;
+import de.julielab.jcore.pipeline.builder.base.main.RunHistory;
+import de.julielab.jcore.pipeline.builder.base.main.RunProfile;
+import de.julielab.jcore.pipeline.builder.base.main.RunRecord;
 import de.julielab.jcore.pipeline.runner.spi.IPipelineRunner;
+import de.julielab.jcore.pipeline.runner.util.ContainerResources;
 import de.julielab.jcore.pipeline.runner.util.PipelineRunningException;
 import org.apache.commons.configuration2.HierarchicalConfiguration;
 import org.apache.commons.configuration2.tree.ImmutableNode;
+import org.apache.commons.configuration2.tree.xpath.XPathExpressionEngine;
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
@@ -23,11 +30,16 @@ import org.xml.sax.SAXException;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.Properties;
+import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -39,25 +51,50 @@ import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDesc
 public class CPEBootstrapRunner implements IPipelineRunner {
 
     private final static Logger log = LoggerFactory.getLogger(CPEBootstrapRunner.class);
+    private static final String DEFAULT_QUARANTINE_FILE = "pipeline-quarantine.txt";
+    private static final String DEFAULT_LATENCY_REPORT = "pipeline-latency.txt";
+    private static final int DEFAULT_QUARANTINE_RERUN_TIMEOUT = 600000;
+    private static final String DEFAULT_MEMORY_THRESHOLDS = "0.8/0.92";
+    private static final int DEFAULT_CALIBRATION_DOCUMENTS = 100;
+    private static final int DEFAULT_HEAP_SHARE = 75;
+    private static final int DEFAULT_NUM_THREADS = 2;
+    private static final String DEFAULT_HEAP_SIZE = "2G";
+    /**
+     * The share of the available memory up to which the heap size of a previous run is used for an automatic heap
+     * size.
+     */
+    private static final double MAX_PROFILE_HEAP_SHARE = 0.9;
+    private final ContainerResources containerResources = new ContainerResources();
 
     @Override
     public void runPipeline(JCoReUIMAPipeline pipeline, HierarchicalConfiguration<ImmutableNode> runnerConfig) throws PipelineRunningException, PipelineIOException {
         try {
-            final String plp = pipeline.getLoadDirectory().getAbsolutePath();
-            int numThreads = runnerConfig.containsKey(NUMTHREADS) ? runnerConfig.getInt(NUMTHREADS) : 2;
-            String memory = runnerConfig.containsKey(HEAP_SIZE) ? runnerConfig.getString(HEAP_SIZE) : "2G";
+            if (runnerConfig.getBoolean(AUTOTUNE, false))
+                autoTune(pipeline, runnerConfig);
+            File profileDir = null;
+            try {
+                profileDir = getProfileDirectory(runnerConfig, pipeline.getLoadDirectory());
+            } catch (IOException e) {
+                log.warn("The pipeline fingerprint could not be computed, the run is not profiled: {}", e.getMessage());
+            }
+            RunProfile bestProfile = profileDir != null ? RunProfile.findBest(RunProfile.loadAll(profileDir)).orElse(null) : null;
+            if (bestProfile != null)
+                log.info("The fastest previous run of this pipeline processed {} documents/s with {} threads, a CAS pool of {} and a heap of {} MB.", String.format("%.1f", bestProfile.getThroughput()), bestProfile.getNumThreads(), bestProfile.getCasPoolSize(), bestProfile.getMaxHeap() >> 20);
+            int numThreads = getNumThreads(runnerConfig, bestProfile);
             String numToProcess = runnerConfig.containsKey(NUMTOPROCESS) ? runnerConfig.getString(NUMTOPROCESS) : "";
-            String[] jvmOptions = ((runnerConfig.containsKey(JVM_OPTS) ? runnerConfig.getString(JVM_OPTS) : "") + " -Xmx"+memory).trim().split("\\s+") ;
-            final File cpeRunnerJar = findCpeRunnerJar();
-            Stream<File> classpathElements = pipeline.getClasspathElements();
-            classpathElements = Stream.concat(classpathElements, Stream.of(cpeRunnerJar, new File(plp + File.separator + JCoReUIMAPipeline.DIR_CONF), new File(plp + File.separator + "resources")));
-            String classpath = classpathElements.map(File::getAbsolutePath).collect(Collectors.joining(File.pathSeparator));
-
-            String javaPath = "java";
-            if (System.getenv("JAVA_HOME") != null)
-                javaPath = Path.of(System.getenv("JAVA_HOME"), "bin", "java").toString();
-
-            List<String> cmdList = Stream.of(javaPath, "-Dfile.encoding=UTF-8", "-cp", classpath, "de.julielab.jcore.pipeline.runner.cpe.CPERunner", "-d", plp + File.separator + JCoReUIMAPipeline.DIR_DESC + File.separator + "CPE.xml", "-t", String.valueOf(numThreads), "-a", String.valueOf((int)(numThreads * 1.5))).collect(Collectors.toList());
+            int casPoolSize;
+            if (!runnerConfig.getString(CAS_POOL_SIZE, "").isBlank())
+                casPoolSize = runnerConfig.getInt(CAS_POOL_SIZE);
+            else if (bestProfile != null && isAutomatic(runnerConfig, NUMTHREADS) && numThreads == bestProfile.getNumThreads())
+                casPoolSize = bestProfile.getCasPoolSize();
+            else
+                casPoolSize = (int) (numThreads * 1.5);
+
+            List<String> baseCmdList = getBaseCommand(pipeline, runnerConfig, bestProfile);
+            List<String> cmdList = new ArrayList<>(baseCmdList);
+            cmdList.addAll(List.of("-t", String.valueOf(numThreads), "-a", String.valueOf(casPoolSize)));
+            if (!runnerConfig.getString(CAS_HEAP_SIZE, "").isBlank())
+                cmdList.addAll(List.of("-s", String.valueOf(runnerConfig.getInt(CAS_HEAP_SIZE))));
             if (!numToProcess.isBlank()) {
                 try {
                     int i = Integer.parseInt(numToProcess);
@@ -70,28 +107,62 @@ public class CPEBootstrapRunner implements IPipelineRunner {
                 cmdList.add(numToProcess);
             }
 
-            String[] cmdarray = cmdList.toArray(new String[0]);
-            if (jvmOptions.length > 0) {
-                String[] tmp = new String[cmdarray.length + jvmOptions.length];
-                tmp[0] = javaPath;
-                System.arraycopy(jvmOptions, 0, tmp, 1, jvmOptions.length);
-                System.arraycopy(cmdarray, 1, tmp, jvmOptions.length+1, cmdarray.length-1);
-                cmdarray = tmp;
+            // A relative quarantine file belongs to the pipeline, not to the directory the runner is started from
+            File quarantineFile = new File(runnerConfig.getString(QUARANTINE_FILE, "").isBlank() ? DEFAULT_QUARANTINE_FILE : runnerConfig.getString(QUARANTINE_FILE));
+            if (!quarantineFile.isAbsolute())
+                quarantineFile = new File(pipeline.getLoadDirectory().getAbsoluteFile(), quarantineFile.getPath());
+            cmdList.addAll(getErrorPolicyArguments(pipeline, runnerConfig));
+            cmdList.addAll(List.of("-q", quarantineFile.getAbsolutePath()));
+            if (!runnerConfig.getString(DOCUMENT_TIMEOUT, "").isBlank())
+                cmdList.addAll(List.of("-w", String.valueOf(runnerConfig.getInt(DOCUMENT_TIMEOUT))));
+            if (runnerConfig.getBoolean(MEMORY_GOVERNOR, false))
+                cmdList.addAll(List.of("-m", runnerConfig.getString(MEMORY_THRESHOLDS, "").isBlank() ? DEFAULT_MEMORY_THRESHOLDS : runnerConfig.getString(MEMORY_THRESHOLDS)));
+            File profileFile = profileDir != null ? getProfileFile(profileDir) : null;
+            if (profileFile != null)
+                cmdList.addAll(List.of("-o", profileFile.getAbsolutePath()));
+            // A relative latency report belongs to the pipeline as well
+            File latencyReport = new File(runnerConfig.getString(LATENCY_REPORT, "").isBlank() ? DEFAULT_LATENCY_REPORT : runnerConfig.getString(LATENCY_REPORT));
+            if (!latencyReport.isAbsolute())
+                latencyReport = new File(pipeline.getLoadDirectory().getAbsoluteFile(), latencyReport.getPath());
+            cmdList.addAll(List.of("-l", latencyReport.getAbsolutePath()));
+            if (!runnerConfig.getString(SLOWEST_DOCUMENTS, "").isBlank())
+                cmdList.addAll(List.of("-g", String.valueOf(runnerConfig.getInt(SLOWEST_DOCUMENTS))));
+
+            // File systems may store modification times with a resolution of seconds
+            long runStart = System.currentTimeMillis() / 1000 * 1000;
+            log.debug("Running the pipeline at {} with the following command line: {}", pipeline.getLoadDirectory(), cmdList);
+            RuntimeException runFailure = null;
+            try {
+                runProcess(cmdList);
+            } catch (RuntimeException e) {
+                // The run may have been terminated by the error policy, the watchdog or a lack of memory after it
+                // quarantined documents, so the quarantined documents and the profile are still handled
+                log.error("The pipeline run failed: {}", e.getMessage());
+                runFailure = e;
             }
-            log.debug("Running the pipeline at {} with the following command line: {}", pipeline.getLoadDirectory(), Arrays.toString(cmdarray));
-            final Process exec = Runtime.getRuntime().exec(cmdarray);
-            final InputStreamGobbler isg = new InputStreamGobbler(exec.getInputStream(), "StdInGobbler", "std");
-            isg.start();
-            final InputStreamGobbler errg = new InputStreamGobbler(exec.getErrorStream(), "ErrInGobbler", "err");
-            errg.start();
-
-            final int i = exec.waitFor();
-            if (i != 0) {
-                isg.join();
-                errg.join();
-                throw new RuntimeException("Pipeline runner process exited with status " + i);
+            if (profileFile != null && profileFile.exists()) {
+                logAdvice(profileFile);
+                recordHistory(pipeline, runnerConfig, profileFile);
             }
 
+            // Give the quarantined documents of this run a second chance in a JVM of their own
+            if (runnerConfig.getBoolean(QUARANTINE_RERUN, false) && quarantineFile.exists() && quarantineFile.lastModified() >= runStart) {
+                List<String> rerunCmdList = new ArrayList<>(baseCmdList);
+                File rerunQuarantineFile = new File(quarantineFile.getAbsolutePath() + ".rerun");
+                rerunCmdList.addAll(List.of("-t", "1", "-a", "1", "-f", quarantineFile.getAbsolutePath(), "-q", rerunQuarantineFile.getAbsolutePath(), "-e", "quarantine"));
+                String rerunTimeout = String.valueOf(runnerConfig.getInt(QUARANTINE_RERUN_TIMEOUT, DEFAULT_QUARANTINE_RERUN_TIMEOUT));
+                rerunCmdList.addAll(List.of("-x", rerunTimeout, "-w", rerunTimeout, "-v"));
+                log.info("Processing the documents quarantined in {} again with a single thread. Documents that fail again are recorded in {}.", quarantineFile, rerunQuarantineFile);
+                log.debug("Running the quarantined documents with the following command line: {}", rerunCmdList);
+                try {
+                    runProcess(rerunCmdList);
+                } catch (RuntimeException e) {
+                    // The rerun also fails when the reader did not deliver any of the quarantined documents again
+                    log.warn("The quarantined documents in {} could not be processed again: {}. See the log of the rerun for details.", quarantineFile, e.getMessage());
+                }
+            }
+            if (runFailure != null)
+                throw new PipelineRunningException("The pipeline run failed: " + runFailure.getMessage(), runFailure);
         } catch (IOException | InterruptedException e) {
             throw new PipelineRunningException(e);
         } finally {
@@ -99,6 +170,274 @@ public class CPEBootstrapRunner implements IPipelineRunner {
         }
     }
 
+    /**
+     * Creates the command line to start the CPE runner for the pipeline in a new JVM, without the arguments for the
+     * processing.
+     */
+    private List<String> getBaseCommand(JCoReUIMAPipeline pipeline, HierarchicalConfiguration<ImmutableNode> runnerConfig, RunProfile bestProfile) throws PipelineIOException, PipelineRunningException {
+        final String plp = pipeline.getLoadDirectory().getAbsolutePath();
+        String memory = getHeapSize(runnerConfig, bestProfile);
+        String userJvmOptions = runnerConfig.containsKey(JVM_OPTS) ? runnerConfig.getString(JVM_OPTS) : "";
+        String[] jvmOptions = (userJvmOptions + " -Xmx" + memory + " " + getGcOptions(runnerConfig, memory, userJvmOptions)).trim().split("\\s+") ;
+        final File cpeRunnerJar = findCpeRunnerJar();
+        Stream<File> classpathElements = pipeline.getClasspathElements();
+        classpathElements = Stream.concat(classpathElements, Stream.of(cpeRunnerJar, new File(plp + File.separator + JCoReUIMAPipeline.DIR_CONF), new File(plp + File.separator + "resources")));
+        String classpath = classpathElements.map(File::getAbsolutePath).collect(Collectors.joining(File.pathSeparator));
+
+        String javaPath = "java";
+        if (System.getenv("JAVA_HOME") != null)
+            javaPath = Path.of(System.getenv("JAVA_HOME"), "bin", "java").toString();
+
+        List<String> baseCmdList = new ArrayList<>();
+        baseCmdList.add(javaPath);
+        baseCmdList.addAll(Arrays.asList(jvmOptions));
+        baseCmdList.addAll(List.of("-Dfile.encoding=UTF-8", "-cp", classpath, "de.julielab.jcore.pipeline.runner.cpe.CPERunner", "-d", plp + File.separator + JCoReUIMAPipeline.DIR_DESC + File.separator + "CPE.xml"));
+        return baseCmdList;
+    }
+
+    /**
+     * Processes the first documents of the collection with a single thread while measuring the resource usage and
+     * sets the number of threads, the CAS pool and heap sizes and the JVM heap size derived from the measurements by
+     * the {@link CPEAutoTuner} to the runner configuration. The automatic tuning is switched off in the configuration
+     * afterwards so that subsequent runs use the tuned settings. If the calibration process fails or does not process
+     * any document, the configuration is left unchanged and the run continues with the configured settings.
+     */
+    private void autoTune(JCoReUIMAPipeline pipeline, HierarchicalConfiguration<ImmutableNode> runnerConfig) throws IOException, InterruptedException, PipelineIOException, PipelineRunningException {
+        File calibrationFile = File.createTempFile("jcore-pipeline-calibration-", ".properties");
+        File calibrationQuarantineFile = File.createTempFile("jcore-pipeline-calibration-quarantine-", ".txt");
+        try {
+            int calibrationDocuments = runnerConfig.getString(CALIBRATION_DOCUMENTS, "").isBlank() ? DEFAULT_CALIBRATION_DOCUMENTS : runnerConfig.getInt(CALIBRATION_DOCUMENTS);
+            List<String> cmdList = getBaseCommand(pipeline, runnerConfig, null);
+            cmdList.addAll(List.of("-t", "1", "-a", "2", "-n", String.valueOf(calibrationDocuments), "-e", "skip", "-q", calibrationQuarantineFile.getAbsolutePath(), "-k", calibrationFile.getAbsolutePath()));
+            log.info("Calibrating the runner settings with {} documents.", calibrationDocuments);
+            log.debug("Running the calibration with the following command line: {}", cmdList);
+            runProcess(cmdList);
+
+            Properties calibration = new Properties();
+            try (Reader reader = Files.newBufferedReader(calibrationFile.toPath(), StandardCharsets.UTF_8)) {
+                calibration.load(reader);
+            }
+            CPEAutoTuner.Settings settings = CPEAutoTuner.tune(calibration, containerResources.getAvailableProcessors(), containerResources.getMemoryLimit());
+            setConfigurationValue(runnerConfig, NUMTHREADS, settings.getNumThreads());
+            setConfigurationValue(runnerConfig, CAS_POOL_SIZE, settings.getCasPoolSize());
+            setConfigurationValue(runnerConfig, CAS_HEAP_SIZE, settings.getCasHeapSize());
+            setConfigurationValue(runnerConfig, HEAP_SIZE, settings.getHeapSize());
+            setConfigurationValue(runnerConfig, AUTOTUNE, false);
+        } catch (RuntimeException e) {
+            // a failed calibration process or a calibration without documents
+            log.warn("The runner settings could not be tuned, the configured settings are used: {}", e.getMessage());
+        } finally {
+            calibrationFile.delete();
+            calibrationQuarantineFile.delete();
+        }
+    }
+
+    private void logAdvice(File profileFile) {
+        try {
+            RunAdvisor.Advice advice = RunAdvisor.advise(RunProfile.load(profileFile), containerResources.getAvailableProcessors(), containerResources.getMemoryLimit());
+            log.info("Analysis of the run profile {}:{}{}", profileFile, System.lineSeparator(), advice);
+        } catch (IOException e) {
+            log.warn("Could not read the run profile {}: {}", profileFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Appends the record of the run to the run history and compares the run to the runs of the previous version of
+     * the pipeline, if there are any. Components whose per-document cost changed by more than the regression
+     * threshold are logged as warnings.
+     */
+    private void recordHistory(JCoReUIMAPipeline pipeline, HierarchicalConfiguration<ImmutableNode> runnerConfig, File profileFile) {
+        RunHistory history = new RunHistory(getHistoryFile(runnerConfig));
+        try {
+            RunRecord record = RunRecord.create(pipeline, profileFile.getParentFile().getName(), RunProfile.load(profileFile));
+            record.getEnvironment().put("memoryLimit", String.valueOf(containerResources.getMemoryLimit()));
+            history.append(record);
+            log.info("Recorded the run {} in the run history {}", record.getId(), history.getFile());
+            List<RunRecord> previousVersion = RunHistory.findPreviousVersion(history.read(), record);
+            if (!previousVersion.isEmpty()) {
+                double threshold = runnerConfig.getString(REGRESSION_THRESHOLD, "").isBlank() ? RunComparison.DEFAULT_THRESHOLD : runnerConfig.getDouble(REGRESSION_THRESHOLD);
+                RunComparison comparison = RunComparison.compare(previousVersion, List.of(record), threshold);
+                if (comparison.getFlagged().isEmpty() && comparison.isComparable())
+                    log.info("Comparison to the {} runs of the previous pipeline version {}:{}{}", previousVersion.size(), previousVersion.get(0).getFingerprint(), System.lineSeparator(), comparison);
+                else
+                    log.warn("The per-document cost of components changed compared to the {} runs of the previous pipeline version {}:{}{}", previousVersion.size(), previousVersion.get(0).getFingerprint(), System.lineSeparator(), comparison);
+            }
+        } catch (IOException e) {
+            log.warn("Could not record the run in the run history {}: {}", history.getFile(), e.getMessage());
+        }
+    }
+
+    private static File getProfileStore(HierarchicalConfiguration<ImmutableNode> runnerConfig) {
+        String profileStore = runnerConfig.getString(PROFILE_DIRECTORY, "");
+        return profileStore.isBlank() ? Path.of(System.getProperty("user.home"), ".jcore-pipeline-runner", "profiles").toFile() : new File(profileStore);
+    }
+
+    /**
+     * Determines the directory of the run profiles of the pipeline. It is named by the fingerprint of the pipeline
+     * within the configured profile directory or, by default, <tt>.jcore-pipeline-runner/profiles</tt> in the home
+     * directory of the user.
+     *
+     * @param runnerConfig The runner configuration.
+     * @param pipelineDir  The pipeline directory.
+     * @return The profile directory of the pipeline.
+     * @throws IOException If the pipeline descriptors cannot be read.
+     */
+    public static File getProfileDirectory(HierarchicalConfiguration<ImmutableNode> runnerConfig, File pipelineDir) throws IOException {
+        return new File(getProfileStore(runnerConfig), RunProfile.computeFingerprint(pipelineDir));
+    }
+
+    /**
+     * @param runnerConfig The runner configuration.
+     * @return The configured run history file or, by default, {@value RunHistory#FILE_NAME} in the profile directory.
+     */
+    public static File getHistoryFile(HierarchicalConfiguration<ImmutableNode> runnerConfig) {
+        String historyFile = runnerConfig.getString(HISTORY_FILE, "");
+        return historyFile.isBlank() ? new File(getProfileStore(runnerConfig), RunHistory.FILE_NAME) : new File(historyFile);
+    }
+
+    private boolean isAutomatic(HierarchicalConfiguration<ImmutableNode> runnerConfig, String key) {
+        return runnerConfig.getString(key, "").trim().equalsIgnoreCase(AUTO);
+    }
+
+    /**
+     * @return A new profile file in <tt>profileDir</tt>. The name starts with the time of the run; a random suffix
+     * keeps the profiles of runs started in the same millisecond, e.g. on other hosts sharing the directory, apart.
+     */
+    private static File getProfileFile(File profileDir) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        return new File(profileDir, "run-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + "-" + suffix + ".properties");
+    }
+
+    /**
+     * @return The configured number of threads, {@value #DEFAULT_NUM_THREADS} without configuration or, for
+     * <tt>auto</tt>, the number of threads of the fastest previous run or the number of CPUs available to the process.
+     * The threads of the previous run are limited to the available CPUs because the run may have been made on a
+     * larger machine.
+     */
+    private int getNumThreads(HierarchicalConfiguration<ImmutableNode> runnerConfig, RunProfile bestProfile) {
+        String numThreads = runnerConfig.getString(NUMTHREADS, "").trim();
+        if (numThreads.isEmpty())
+            return DEFAULT_NUM_THREADS;
+        if (!isAutomatic(runnerConfig, NUMTHREADS))
+            return Integer.parseInt(numThreads);
+        int processors = containerResources.getAvailableProcessors();
+        if (bestProfile != null && bestProfile.getNumThreads() > 0) {
+            if (bestProfile.getNumThreads() > processors) {
+                log.info("Using {} threads for the {} available CPUs instead of the {} threads of the fastest previous run.", processors, processors, bestProfile.getNumThreads());
+                return processors;
+            }
+            log.info("Using the {} threads of the fastest previous run.", bestProfile.getNumThreads());
+            return bestProfile.getNumThreads();
+        }
+        log.info("Using {} threads for the {} available CPUs.", processors, processors);
+        return processors;
+    }
+
+    /**
+     * @return The configured heap size, {@value #DEFAULT_HEAP_SIZE} without configuration or, for <tt>auto</tt> or a
+     * percentage, the share of the memory available to the process in megabytes. <tt>auto</tt> uses the heap size of
+     * the fastest previous run if it fits into the available memory and {@value #DEFAULT_HEAP_SHARE}% otherwise.
+     * @throws PipelineRunningException If the percentage is not a number between 0 and 100.
+     */
+    private String getHeapSize(HierarchicalConfiguration<ImmutableNode> runnerConfig, RunProfile bestProfile) throws PipelineRunningException {
+        String heapSize = runnerConfig.getString(HEAP_SIZE, "").trim();
+        if (heapSize.isEmpty())
+            return DEFAULT_HEAP_SIZE;
+        if (!heapSize.equalsIgnoreCase(AUTO) && !heapSize.endsWith("%"))
+            return heapSize;
+        long memoryLimit = containerResources.getMemoryLimit();
+        if (!heapSize.endsWith("%") && bestProfile != null && bestProfile.getMaxHeap() > 0) {
+            // The JVM reports a maximum heap slightly below the -Xmx value for some collectors
+            long heapSizeMb = ((bestProfile.getMaxHeap() >> 20) + 63) / 64 * 64;
+            if (heapSizeMb << 20 <= memoryLimit * MAX_PROFILE_HEAP_SHARE) {
+                log.info("Using the heap size of {} MB of the fastest previous run.", heapSizeMb);
+                return heapSizeMb + "m";
+            }
+            log.info("The heap size of {} MB of the fastest previous run exceeds the {} MB of memory available.", heapSizeMb, memoryLimit >> 20);
+        }
+        double share = DEFAULT_HEAP_SHARE / 100d;
+        if (heapSize.endsWith("%")) {
+            try {
+                share = Double.parseDouble(heapSize.substring(0, heapSize.length() - 1).trim()) / 100;
+            } catch (NumberFormatException e) {
+                share = Double.NaN;
+            }
+            if (!(share > 0 && share <= 1))
+                throw new PipelineRunningException("The " + HEAP_SIZE + " parameter needs to be a JVM heap size like 2G, a percentage of the available memory between 0% and 100% or " + AUTO + ". But it is set to " + heapSize);
+        }
+        long heapSizeMb = Math.max(64, (long) (memoryLimit * share) >> 20);
+        log.info("Using a heap size of {} MB, {}% of the {} MB of memory available.", heapSizeMb, Math.round(share * 100), memoryLimit >> 20);
+        return heapSizeMb + "m";
+    }
+
+    /**
+     * Chooses the garbage collector for a heap size that has been derived from the available memory, unless the JVM
+     * options already select one. The JVM would choose the serial collector in containers with little memory or one
+     * CPU, which does not scale to the heap sizes of pipeline runs.
+     */
+    private String getGcOptions(HierarchicalConfiguration<ImmutableNode> runnerConfig, String heapSize, String userJvmOptions) {
+        String configuredHeapSize = runnerConfig.getString(HEAP_SIZE, "").trim();
+        boolean automaticHeapSize = configuredHeapSize.equalsIgnoreCase(AUTO) || configuredHeapSize.endsWith("%");
+        if (!automaticHeapSize || userJvmOptions.matches(".*-XX:\\+Use\\w*GC.*"))
+            return "";
+        long heapSizeMb = Long.parseLong(heapSize.substring(0, heapSize.length() - 1));
+        if (heapSizeMb < 1792)
+            return "";
+        String gcOptions = "-XX:+UseG1GC -XX:+ParallelRefProcEnabled";
+        if (heapSizeMb >= 16384)
+            gcOptions += " -XX:+UseStringDeduplication";
+        log.info("Using the garbage collector options {}", gcOptions);
+        return gcOptions;
+    }
+
+    private void setConfigurationValue(HierarchicalConfiguration<ImmutableNode> configuration, String key, Object value) {
+        // The XPath expression engine of the runner configuration expects the parent path and the new node separated by a space
+        if (configuration.containsKey(key))
+            configuration.setProperty(key, value);
+        else
+            configuration.addProperty(configuration.getExpressionEngine() instanceof XPathExpressionEngine ? " " + key : key, value);
+    }
+
+    private void runProcess(List<String> cmdList) throws IOException, InterruptedException {
+        final Process exec = Runtime.getRuntime().exec(cmdList.toArray(new String[0]));
+        final InputStreamGobbler isg = new InputStreamGobbler(exec.getInputStream(), "StdInGobbler", "std");
+        isg.start();
+        final InputStreamGobbler errg = new InputStreamGobbler(exec.getErrorStream(), "ErrInGobbler", "err");
+        errg.start();
+
+        final int i = exec.waitFor();
+        if (i != 0) {
+            isg.join();
+            errg.join();
+            throw new RuntimeException("Pipeline runner process exited with status " + i);
+        }
+    }
+
+    /**
+     * Creates the CPE runner arguments for the error policy of the pipeline, overridden by the runner configuration.
+     */
+    private List<String> getErrorPolicyArguments(JCoReUIMAPipeline pipeline, HierarchicalConfiguration<ImmutableNode> runnerConfig) throws PipelineRunningException {
+        ErrorPolicy errorPolicy = pipeline.getErrorPolicy() != null ? pipeline.getErrorPolicy() : new ErrorPolicy();
+        try {
+            if (!runnerConfig.getString(ERROR_ACTION, "").isBlank())
+                errorPolicy.setAction(ErrorPolicy.Action.parse(runnerConfig.getString(ERROR_ACTION)));
+            if (!runnerConfig.getString(ERROR_THRESHOLD, "").isBlank())
+                errorPolicy.applyThreshold(runnerConfig.getString(ERROR_THRESHOLD));
+            if (!runnerConfig.getString(COMPONENT_ERROR_ACTIONS, "").isBlank())
+                errorPolicy.applyComponentActions(runnerConfig.getString(COMPONENT_ERROR_ACTIONS));
+        } catch (IllegalArgumentException e) {
+            throw new PipelineRunningException(e.getMessage());
+        }
+        log.info("Running the pipeline with the error policy {}", errorPolicy);
+        List<String> arguments = new ArrayList<>(List.of("-e", errorPolicy.getAction().name().toLowerCase(), "-r", errorPolicy.toThresholdString()));
+        String componentActions = errorPolicy.toComponentActionsString();
+        if (!componentActions.isEmpty()) {
+            arguments.add("-c");
+            arguments.add(componentActions);
+        }
+        return arguments;
+    }
+
     private static class InputStreamGobbler extends Thread {
         private final InputStream is;
         private final String type;
@@ -150,10 +489,28 @@ public class CPEBootstrapRunner implements IPipelineRunner {
     public void exposeParameters(String basePath, HierarchicalConfiguration<ImmutableNode> template) {
         template.addProperty(slash(basePath, NAME), getName());
         template.addProperty(slash(basePath, PIPELINEPATH), ".");
-        template.addProperty(slash(basePath, NUMTHREADS), "1");
-        template.addProperty(slash(basePath, HEAP_SIZE), "512M");
+        template.addProperty(slash(basePath, NUMTHREADS), AUTO);
+        template.addProperty(slash(basePath, HEAP_SIZE), AUTO);
         template.addProperty(slash(basePath, NUMTOPROCESS), "");
         template.addProperty(slash(basePath, JVM_OPTS), "");
+        template.addProperty(slash(basePath, ERROR_ACTION), "");
+        template.addProperty(slash(basePath, ERROR_THRESHOLD), "");
+        template.addProperty(slash(basePath, COMPONENT_ERROR_ACTIONS), "");
+        template.addProperty(slash(basePath, QUARANTINE_FILE), "");
+        template.addProperty(slash(basePath, QUARANTINE_RERUN), "false");
+        template.addProperty(slash(basePath, QUARANTINE_RERUN_TIMEOUT), "");
+        template.addProperty(slash(basePath, DOCUMENT_TIMEOUT), "");
+        template.addProperty(slash(basePath, MEMORY_GOVERNOR), "false");
+        template.addProperty(slash(basePath, MEMORY_THRESHOLDS), DEFAULT_MEMORY_THRESHOLDS);
+        template.addProperty(slash(basePath, CAS_POOL_SIZE), "");
+        template.addProperty(slash(basePath, CAS_HEAP_SIZE), "");
+        template.addProperty(slash(basePath, AUTOTUNE), "false");
+        template.addProperty(slash(basePath, CALIBRATION_DOCUMENTS), String.valueOf(DEFAULT_CALIBRATION_DOCUMENTS));
+        template.addProperty(slash(basePath, PROFILE_DIRECTORY), "");
+        template.addProperty(slash(basePath, HISTORY_FILE), "");
+        template.addProperty(slash(basePath, REGRESSION_THRESHOLD), String.valueOf(RunComparison.DEFAULT_THRESHOLD));
+        template.addProperty(slash(basePath, LATENCY_REPORT), "");
+        template.addProperty(slash(basePath, SLOWEST_DOCUMENTS), "");
 
     }
 
@@ -0,0 +1,204 @@
+package de.julielab.jcore.pipeline.runner;
+
+import de.julielab.jcore.pipeline.builder.base.main.RunProfile;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static de.julielab.jcore.pipeline.runner.util.PipelineRunnerConstants.*;
+
+/**
+ * <p>Analyses the {@link RunProfile} of a finished run, determines what limited its throughput and recommends
+ * runner settings for a faster run. The bottlenecks are checked in the following order:</p>
+ * <ol>
+ *     <li>{@link Bottleneck#GARBAGE_COLLECTION}: the garbage collector took more than {@value #MAX_GC_SHARE} of the
+ *     run time.</li>
+ *     <li>{@link Bottleneck#SINGLE_DEPLOYMENT}: a component does not allow multiple deployment which makes the whole
+ *     pipeline run single-threaded.</li>
+ *     <li>{@link Bottleneck#READER}: the processing threads were mostly idle while the collection reader was busy.</li>
+ *     <li>{@link Bottleneck#CAS_POOL}: the processing threads and the reader were both mostly idle, the reader waiting
+ *     for free CASes.</li>
+ *     <li>{@link Bottleneck#CONSUMER}: the consumers took more than half of the processing time.</li>
+ *     <li>{@link Bottleneck#ANALYSIS_ENGINE}: a single component took more than half of the processing time.</li>
+ * </ol>
+ * <p>The recommended settings are given by their keys in the runner configuration.</p>
+ */
+public class RunAdvisor {
+    private static final double MAX_GC_SHARE = 0.15;
+    private static final double MIN_UTILIZATION = 0.7;
+    private static final double MIN_READER_SHARE = 0.7;
+    private static final double DOMINANT_SHARE = 0.5;
+    /**
+     * The share of CPU time in the processing time below which the components mostly wait for I/O and more threads
+     * than processors pay off.
+     */
+    private static final double IO_BOUND_CPU_SHARE = 0.5;
+    private static final double MAX_HEAP_SHARE = 0.75;
+
+    private RunAdvisor() {
+    }
+
+    /**
+     * Analyses the given run profile.
+     *
+     * @param profile     The profile of the run.
+     * @param processors  The number of processors available for the next run.
+     * @param memoryLimit The memory in bytes available for the next run.
+     * @return The bottleneck, findings and recommended settings.
+     */
+    public static Advice advise(RunProfile profile, int processors, long memoryLimit) {
+        Advice advice = new Advice();
+        double runTime = Math.max(1, profile.getRunTime());
+        double gcShare = profile.getGcTime() / runTime;
+        double utilization = profile.getThreadUtilization();
+        double readerShare = profile.getReaderTime() / runTime;
+        double readerIdleShare = profile.getReaderIdleTime() / runTime;
+        long stageWallTime = Math.max(1, profile.getStageWallTimes().values().stream().mapToLong(Long::longValue).sum());
+        long stageCpuTime = profile.getStageCpuTimes().values().stream().mapToLong(Long::longValue).sum();
+        double cpuShare = stageCpuTime / (double) stageWallTime;
+        int numThreads = Math.max(1, profile.getNumThreads());
+        advice.findings.add(String.format("%d documents in %d ms (%.1f documents/s) with %d threads, a CAS pool of %d and a heap of %d MB.", profile.getDocuments(), profile.getRunTime(), profile.getThroughput(), numThreads, profile.getCasPoolSize(), profile.getMaxHeap() >> 20));
+        advice.findings.add(String.format("Thread utilization %.2f, reader busy %.2f, reader idle (estimated wait for CASes) %.2f, garbage collection %.2f, CPU share of the processing %.2f.", utilization, readerShare, readerIdleShare, gcShare, cpuShare));
+
+        String consumerStage = profile.getConsumerStage();
+        double consumerShare = consumerStage != null ? profile.getStageWallTimes().getOrDefault(consumerStage, 0L) / (double) stageWallTime : 0;
+        Map<String, Long> componentTimes = profile.getComponentWallTimes().isEmpty() ? profile.getStageWallTimes() : profile.getComponentWallTimes();
+        long componentTime = Math.max(1, componentTimes.values().stream().mapToLong(Long::longValue).sum());
+        Map.Entry<String, Long> dominant = componentTimes.entrySet().stream().max(Map.Entry.comparingByValue()).orElse(null);
+        double dominantShare = dominant != null ? dominant.getValue() / (double) componentTime : 0;
+
+        if (gcShare > MAX_GC_SHARE) {
+            advice.bottleneck = Bottleneck.GARBAGE_COLLECTION;
+            advice.findings.add(String.format("The garbage collector took %.0f%% of the run time.", gcShare * 100));
+            long maxHeap = (long) (memoryLimit * MAX_HEAP_SHARE);
+            long heap = Math.min(maxHeap, (long) (profile.getMaxHeap() * 1.5));
+            if (heap > profile.getMaxHeap() * 1.1) {
+                advice.settings.put(HEAP_SIZE, (heap >> 20) + "m");
+                advice.findings.add("Increase the heap size to reduce the garbage collection.");
+            } else {
+                int threads = Math.max(1, numThreads * 2 / 3);
+                recommendThreads(advice, profile, threads, memoryLimit);
+                advice.findings.add("The heap cannot grow within the memory limit. Reduce the threads and CAS pool to reduce the live data.");
+            }
+            advice.settings.put(MEMORY_GOVERNOR, "true");
+        } else if (!profile.isMultipleDeploymentAllowed() && numThreads > 1) {
+            advice.bottleneck = Bottleneck.SINGLE_DEPLOYMENT;
+            advice.component = String.join(", ", profile.getSingleDeploymentComponents());
+            advice.findings.add("The components " + profile.getSingleDeploymentComponents() + " do not allow multiple deployment, so the pipeline runs single-threaded.");
+            advice.findings.add("Isolate these components in a pipeline stage of their own, e.g. write the results of the other components as XMI and process them with these components in a second, single-threaded pipeline. Alternatively, replace them by components that allow multiple deployment.");
+            advice.settings.put(NUMTHREADS, "1");
+            advice.settings.put(CAS_POOL_SIZE, "2");
+        } else if (utilization < MIN_UTILIZATION && readerShare > MIN_READER_SHARE) {
+            advice.bottleneck = Bottleneck.READER;
+            advice.findings.add("The collection reader cannot keep the processing threads busy.");
+            advice.findings.add("Use a multiplier reader that only reads the document references and let a CAS multiplier read the documents in the processing threads, or speed up the reader, e.g. by a larger fetch size for database readers.");
+            int threads = (int) Math.max(1, Math.ceil(numThreads * utilization * 1.2));
+            if (threads < numThreads) {
+                advice.findings.add("Until then, " + threads + " threads process the documents as fast and save memory.");
+                recommendThreads(advice, profile, threads, memoryLimit);
+            }
+        } else if (utilization < MIN_UTILIZATION) {
+            advice.bottleneck = Bottleneck.CAS_POOL;
+            advice.findings.add("The processing threads were idle while the reader waited for free CASes.");
+            int poolSize = Math.max(CPEAutoTuner.getCasPoolSize(numThreads), profile.getCasPoolSize() * 2);
+            advice.settings.put(CAS_POOL_SIZE, String.valueOf(poolSize));
+            advice.findings.add("Increase the CAS pool size to " + poolSize + ".");
+        } else if (consumerShare > DOMINANT_SHARE) {
+            advice.bottleneck = Bottleneck.CONSUMER;
+            advice.component = consumerStage;
+            double consumerCpuShare = profile.getStageCpuTimes().getOrDefault(consumerStage, 0L) / (double) Math.max(1, profile.getStageWallTimes().get(consumerStage));
+            advice.findings.add(String.format("The consumers took %.0f%% of the processing time.", consumerShare * 100));
+            if (consumerCpuShare < IO_BOUND_CPU_SHARE && numThreads < 2 * processors) {
+                advice.findings.add("The consumers mostly wait for I/O. More threads keep the writes in flight.");
+                recommendThreads(advice, profile, Math.min(2 * processors, numThreads * 2), memoryLimit);
+            }
+            advice.findings.add("Increase the batch size of the consumers or isolate them in a pipeline stage of their own that reads the XMI output of the analysis.");
+        } else if (dominant != null && dominantShare > DOMINANT_SHARE) {
+            advice.bottleneck = Bottleneck.ANALYSIS_ENGINE;
+            advice.component = dominant.getKey();
+            advice.findings.add(String.format("The component %s took %.0f%% of the processing time.", dominant.getKey(), dominantShare * 100));
+            int threads = cpuShare < IO_BOUND_CPU_SHARE ? 2 * processors : processors;
+            if (numThreads < threads)
+                recommendThreads(advice, profile, threads, memoryLimit);
+            advice.findings.add("Check the configuration of " + dominant.getKey() + " or isolate it in a pipeline stage of its own that can be run with more threads or on more machines.");
+        } else if (numThreads < processors) {
+            advice.findings.add("The run is balanced and all threads were busy. More threads use the remaining processors.");
+            recommendThreads(advice, profile, processors, memoryLimit);
+        } else {
+            advice.findings.add("The run is balanced and all threads were busy.");
+        }
+        if (!advice.settings.containsKey(CAS_POOL_SIZE) && profile.getCasPoolSize() < numThreads)
+            advice.settings.put(CAS_POOL_SIZE, String.valueOf(CPEAutoTuner.getCasPoolSize(numThreads)));
+        return advice;
+    }
+
+    /**
+     * Recommends the given number of threads with a matching CAS pool. When the threads are increased, the heap grows
+     * proportionally within the memory limit.
+     */
+    private static void recommendThreads(Advice advice, RunProfile profile, int threads, long memoryLimit) {
+        advice.settings.put(NUMTHREADS, String.valueOf(threads));
+        advice.settings.put(CAS_POOL_SIZE, String.valueOf(CPEAutoTuner.getCasPoolSize(threads)));
+        if (threads > profile.getNumThreads() && profile.getNumThreads() > 0 && profile.getMaxHeap() > 0) {
+            long heap = Math.min((long) (memoryLimit * MAX_HEAP_SHARE), profile.getMaxHeap() * threads / profile.getNumThreads());
+            if (heap > profile.getMaxHeap())
+                advice.settings.put(HEAP_SIZE, (heap >> 20) + "m");
+        }
+    }
+
+    public enum Bottleneck {
+        READER, CAS_POOL, SINGLE_DEPLOYMENT, ANALYSIS_ENGINE, CONSUMER, GARBAGE_COLLECTION,
+        /**
+         * No single bottleneck, the run was limited by the available processors.
+         */
+        NONE
+    }
+
+    public static class Advice {
+        private final List<String> findings = new ArrayList<>();
+        private final Map<String, String> settings = new LinkedHashMap<>();
+        private Bottleneck bottleneck = Bottleneck.NONE;
+        private String component;
+
+        public Bottleneck getBottleneck() {
+            return bottleneck;
+        }
+
+        /**
+         * @return The component or stage causing the bottleneck, <tt>null</tt> if it is not caused by a component.
+         */
+        public String getComponent() {
+            return component;
+        }
+
+        public List<String> getFindings() {
+            return findings;
+        }
+
+        /**
+         * @return The recommended runner settings by their configuration keys.
+         */
+        public Map<String, String> getSettings() {
+            return settings;
+        }
+
+        @Override
+        public String toString() {
+            String ls = System.lineSeparator();
+            StringBuilder sb = new StringBuilder();
+            sb.append("Bottleneck: ").append(bottleneck);
+            if (component != null)
+                sb.append(" (").append(component).append(")");
+            sb.append(ls);
+            for (String finding : findings)
+                sb.append("  ").append(finding).append(ls);
+            if (!settings.isEmpty()) {
+                sb.append("Recommended runner settings:").append(ls);
+                settings.forEach((key, value) -> sb.append("  <").append(key).append(">").append(value).append("</").append(key).append(">").append(ls));
+            }
+            return sb.toString();
+        }
+    }
+}
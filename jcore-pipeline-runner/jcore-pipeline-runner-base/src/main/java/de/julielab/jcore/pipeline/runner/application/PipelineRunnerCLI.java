@@ -2,7 +2,15 @@ package de.julielab.jcore.pipeline.runner.application;
 
 import de.julielab.java.utilities.ConfigurationUtilities;
 import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineIOException;
+import de.julielab.jcore.pipeline.builder.base.main.PipelineBundle;
+import de.julielab.jcore.pipeline.builder.base.main.RunComparison;
+import de.julielab.jcore.pipeline.builder.base.main.RunHistory;
+import de.julielab.jcore.pipeline.builder.base.main.RunProfile;
+import de.julielab.jcore.pipeline.builder.base.main.RunRecord;
+import de.julielab.jcore.pipeline.runner.CPEBootstrapRunner;
+import de.julielab.jcore.pipeline.runner.RunAdvisor;
 import de.julielab.jcore.pipeline.runner.services.PipelineRunnerService;
+import de.julielab.jcore.pipeline.runner.util.ContainerResources;
 import de.julielab.jcore.pipeline.runner.util.PipelineInstantiationException;
 import de.julielab.jcore.pipeline.runner.util.PipelineRunningException;
 import de.julielab.jssf.commons.spi.ConfigurationTemplateGenerator;
@@ -13,20 +21,53 @@ import org.apache.commons.configuration2.tree.ImmutableNode;
 import org.apache.commons.configuration2.tree.xpath.XPathExpressionEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.Collectors;
 
 import static de.julielab.java.utilities.ConfigurationUtilities.slash;
-import static de.julielab.jcore.pipeline.runner.util.PipelineRunnerConstants.RUNNER;
-import static de.julielab.jcore.pipeline.runner.util.PipelineRunnerConstants.RUNNERS;
+import static de.julielab.jcore.pipeline.runner.util.PipelineRunnerConstants.*;
 
 public class PipelineRunnerCLI implements ConfigurationTemplateGenerator {
     private final static Logger log = LoggerFactory.getLogger(PipelineRunnerCLI.class);
 
     public static void main(String[] args) {
+        if (args.length == 2 && args[0].equals("-advise")) {
+            new PipelineRunnerCLI().advise(new File(args[1]));
+            return;
+        }
+        if ((args.length == 2 || args.length == 4 || args.length == 5) && args[0].equals("-compare")) {
+            new PipelineRunnerCLI().compare(new File(args[1]), args.length > 2 ? args[2] : null, args.length > 2 ? args[3] : null, args.length > 4 ? args[4] : null);
+            return;
+        }
         if (args.length != 1) {
             log.error("Usage: {} <XML configuration file path; configuration template will be written if " +
                     "path does not exist>", PipelineRunnerCLI.class.getSimpleName());
+            log.error("Usage: {} -advise <XML configuration file path or run profile file; analyses the latest run " +
+                    "of the configured pipelines or the given run>", PipelineRunnerCLI.class.getSimpleName());
+            log.error("Usage: {} -compare <XML configuration file path or run history file> [<baseline run ID or " +
+                    "fingerprint prefix> <candidate run ID or fingerprint prefix> [<threshold like 0.2 or 20%>]; " +
+                    "without runs, the latest pipeline version is compared to the previous one>", PipelineRunnerCLI.class.getSimpleName());
             System.exit(1);
         }
         File configurationFile = new File(args[0]);
@@ -40,9 +81,16 @@ public class PipelineRunnerCLI implements ConfigurationTemplateGenerator {
             try {
                 XMLConfiguration configuration = ConfigurationUtilities.loadXmlConfiguration(configurationFile);
                 configuration.setExpressionEngine(new XPathExpressionEngine());
-                for (HierarchicalConfiguration<ImmutableNode> runnerConfig :
-                        configuration.configurationsAt(slash(RUNNERS, RUNNER)))
+                // The runner configurations are connected to the file configuration so that runners can store settings
+                List<HierarchicalConfiguration<ImmutableNode>> runnerConfigs = configuration.configurationsAt(slash(RUNNERS, RUNNER), true);
+                List<Map<String, String>> originalSettings = runnerConfigs.stream().map(PipelineRunnerCLI::getSettings).collect(Collectors.toList());
+                for (HierarchicalConfiguration<ImmutableNode> runnerConfig : runnerConfigs)
                     runnerService.runPipeline(runnerConfig);
+                try {
+                    saveChangedSettings(configurationFile, originalSettings, runnerConfigs);
+                } catch (IOException e) {
+                    log.error("The settings updated by the runners could not be written to {}: {}", configurationFile, e.getMessage());
+                }
             } catch (PipelineInstantiationException e) {
                 log.error("The given pipeline could not be created: {}", e.getMessage());
             } catch (PipelineRunningException e) {
@@ -68,6 +116,175 @@ public class PipelineRunnerCLI implements ConfigurationTemplateGenerator {
         }
     }
 
+    static Map<String, String> getSettings(HierarchicalConfiguration<ImmutableNode> runnerConfig) {
+        Map<String, String> settings = new LinkedHashMap<>();
+        runnerConfig.getKeys().forEachRemaining(key -> settings.put(key, runnerConfig.getString(key)));
+        return settings;
+    }
+
+    /**
+     * Writes the settings that the runners changed in their configurations into the configuration file. Only the
+     * changed elements of the runners are updated in the file, so that comments and formatting are preserved.
+     * Settings are only written for elements directly below a <tt>runner</tt> element, which are the ones the runners
+     * store.
+     *
+     * @param configurationFile The runner configuration file.
+     * @param originalSettings  The settings of each runner before it was run, as returned by {@link #getSettings}.
+     * @param runnerConfigs     The configurations of the runners in the order of the file.
+     * @throws IOException If the file cannot be read or written.
+     */
+    static void saveChangedSettings(File configurationFile, List<Map<String, String>> originalSettings, List<HierarchicalConfiguration<ImmutableNode>> runnerConfigs) throws IOException {
+        List<Map<String, String>> changedSettings = new ArrayList<>();
+        for (int i = 0; i < runnerConfigs.size(); i++) {
+            Map<String, String> original = originalSettings.get(i);
+            Map<String, String> changed = new LinkedHashMap<>(getSettings(runnerConfigs.get(i)));
+            changed.entrySet().removeIf(e -> Objects.equals(e.getValue(), original.get(e.getKey())));
+            changedSettings.add(changed);
+        }
+        if (changedSettings.stream().allMatch(Map::isEmpty))
+            return;
+        log.info("Writing the settings updated by the runners to {}", configurationFile);
+        try {
+            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(configurationFile);
+            XPath xpath = XPathFactory.newInstance().newXPath();
+            for (int i = 0; i < changedSettings.size(); i++) {
+                Element runner = (Element) xpath.evaluate("/*/" + slash(RUNNERS, RUNNER) + "[" + (i + 1) + "]", document, XPathConstants.NODE);
+                for (Map.Entry<String, String> setting : changedSettings.get(i).entrySet()) {
+                    if (!setting.getKey().matches("[\\w.-]+")) {
+                        log.warn("The runner setting {} is not written to the configuration file because it is not a direct child of the runner element.", setting.getKey());
+                        continue;
+                    }
+                    Element element = (Element) xpath.evaluate(setting.getKey(), runner, XPathConstants.NODE);
+                    if (element == null)
+                        element = appendElement(runner, setting.getKey());
+                    element.setTextContent(setting.getValue());
+                }
+            }
+            File tmpFile = new File(configurationFile.getAbsoluteFile().getParentFile(), configurationFile.getName() + ".tmp");
+            try {
+                Transformer transformer = TransformerFactory.newInstance().newTransformer();
+                transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+                transformer.transform(new DOMSource(document), new StreamResult(tmpFile));
+                Files.move(tmpFile.toPath(), configurationFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmpFile.toPath());
+            }
+        } catch (ParserConfigurationException | SAXException | XPathExpressionException | TransformerException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Appends a new element to <tt>parent</tt>, indented like the first child of <tt>parent</tt>.
+     */
+    private static Element appendElement(Element parent, String name) {
+        Element element = parent.getOwnerDocument().createElement(name);
+        Node first = parent.getFirstChild();
+        Node last = parent.getLastChild();
+        if (first != null && first.getNodeType() == Node.TEXT_NODE && last.getNodeType() == Node.TEXT_NODE && first != last) {
+            parent.insertBefore(first.cloneNode(false), last);
+            parent.insertBefore(element, last);
+        } else {
+            parent.appendChild(element);
+        }
+        return element;
+    }
+
+    /**
+     * Analyses a pipeline run by means of the {@link RunAdvisor} and logs the results. For a run profile file, this
+     * run is analysed. For a runner configuration, the latest run of each configured pipeline is analysed.
+     *
+     * @param file A run profile or a runner configuration file.
+     */
+    private void advise(File file) {
+        ContainerResources resources = new ContainerResources();
+        try {
+            if (file.getName().endsWith(".properties")) {
+                log.info("Analysis of the run profile {}:{}{}", file, System.lineSeparator(), RunAdvisor.advise(RunProfile.load(file), resources.getAvailableProcessors(), resources.getMemoryLimit()));
+                return;
+            }
+            XMLConfiguration configuration = ConfigurationUtilities.loadXmlConfiguration(file);
+            configuration.setExpressionEngine(new XPathExpressionEngine());
+            for (HierarchicalConfiguration<ImmutableNode> runnerConfig : configuration.configurationsAt(slash(RUNNERS, RUNNER))) {
+                File pipelineDir = new File(runnerConfig.getString(PIPELINEPATH, "."));
+                if (pipelineDir.isFile())
+                    pipelineDir = PipelineBundle.extract(pipelineDir);
+                File profileDir = CPEBootstrapRunner.getProfileDirectory(runnerConfig, pipelineDir);
+                List<RunProfile> profiles = RunProfile.loadAll(profileDir);
+                if (profiles.isEmpty()) {
+                    log.warn("There are no run profiles of the pipeline at {} in {}.", pipelineDir, profileDir);
+                    continue;
+                }
+                RunProfile latest = profiles.get(profiles.size() - 1);
+                log.info("Analysis of the latest of {} runs of the pipeline at {}:{}{}", profiles.size(), pipelineDir, System.lineSeparator(), RunAdvisor.advise(latest, resources.getAvailableProcessors(), resources.getMemoryLimit()));
+                Optional<RunProfile> best = RunProfile.findBest(profiles);
+                if (best.isPresent() && best.get() != latest)
+                    log.info("The fastest run processed {} documents/s with {} threads, a CAS pool of {} and a heap of {} MB.", String.format("%.1f", best.get().getThroughput()), best.get().getNumThreads(), best.get().getCasPoolSize(), best.get().getMaxHeap() >> 20);
+            }
+        } catch (IOException | PipelineIOException e) {
+            log.error("The run could not be analysed: {}", e.getMessage());
+        } catch (org.apache.commons.configuration2.ex.ConfigurationException e) {
+            log.error("Configuration file {} could not be read: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Compares the per-document costs of the components between two runs or pipeline versions in the run history and
+     * logs the comparison. Without runs, the runs of the latest pipeline version are compared to the runs of the
+     * previous version of the same pipeline.
+     *
+     * @param file      A runner configuration or a run history file.
+     * @param baseline  The ID of the baseline run or the fingerprint prefix of the baseline pipeline version.
+     * @param candidate The ID of the candidate run or the fingerprint prefix of the candidate pipeline version.
+     * @param threshold The relative change above which components are flagged, as a fraction or a percentage.
+     */
+    private void compare(File file, String baseline, String candidate, String threshold) {
+        try {
+            File historyFile = file;
+            double changeThreshold = RunComparison.DEFAULT_THRESHOLD;
+            if (file.getName().endsWith(".xml")) {
+                XMLConfiguration configuration = ConfigurationUtilities.loadXmlConfiguration(file);
+                configuration.setExpressionEngine(new XPathExpressionEngine());
+                HierarchicalConfiguration<ImmutableNode> runnerConfig = configuration.configurationAt(slash(RUNNERS, RUNNER));
+                historyFile = CPEBootstrapRunner.getHistoryFile(runnerConfig);
+                if (!runnerConfig.getString(REGRESSION_THRESHOLD, "").isBlank())
+                    changeThreshold = runnerConfig.getDouble(REGRESSION_THRESHOLD);
+            }
+            if (threshold != null)
+                changeThreshold = threshold.endsWith("%") ? Double.parseDouble(threshold.substring(0, threshold.length() - 1)) / 100 : Double.parseDouble(threshold);
+            List<RunRecord> records = new RunHistory(historyFile).read();
+            if (records.isEmpty()) {
+                log.warn("There are no runs in the run history {}.", historyFile);
+                return;
+            }
+            List<RunRecord> baselineRuns;
+            List<RunRecord> candidateRuns;
+            if (baseline != null) {
+                baselineRuns = RunHistory.select(records, baseline);
+                candidateRuns = RunHistory.select(records, candidate);
+            } else {
+                log.info("Runs in the run history {}:{}{}", historyFile, System.lineSeparator(), records.stream().map(RunRecord::toString).collect(Collectors.joining(System.lineSeparator())));
+                RunRecord latest = records.get(records.size() - 1);
+                candidateRuns = RunHistory.select(records, latest.getFingerprint());
+                baselineRuns = RunHistory.findPreviousVersion(records, candidateRuns.get(0));
+                if (baselineRuns.isEmpty()) {
+                    log.info("There is no previous version of the pipeline at {} in the run history.", latest.getPipelinePath());
+                    return;
+                }
+            }
+            RunComparison comparison = RunComparison.compare(baselineRuns, candidateRuns, changeThreshold);
+            if (!comparison.isComparable())
+                log.warn("The baseline and candidate runs were not made with the same threads on the same machine: {}", comparison.getEnvironmentDifferences());
+            log.info("Comparison of {} baseline runs of version {} and {} candidate runs of version {}:{}{}", baselineRuns.size(), baselineRuns.get(0).getFingerprint(), candidateRuns.size(), candidateRuns.get(0).getFingerprint(), System.lineSeparator(), comparison);
+        } catch (IOException e) {
+            log.error("The run history could not be read: {}", e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.error(e.getMessage());
+        } catch (org.apache.commons.configuration2.ex.ConfigurationException e) {
+            log.error("Configuration file {} could not be read: {}", file, e.getMessage());
+        }
+    }
+
     @Override
     public void exposeParameters(String basePath, HierarchicalConfiguration<ImmutableNode> template) {
        PipelineRunnerService.getInstance().exposeParameters(slash(RUNNERS, RUNNER), template);
@@ -3,6 +3,7 @@ package de.julielab.jcore.pipeline.runner.services;
 import de.julielab.java.utilities.ConfigurationUtilities;
 import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineIOException;
 import de.julielab.jcore.pipeline.builder.base.main.JCoReUIMAPipeline;
+import de.julielab.jcore.pipeline.builder.base.main.PipelineBundle;
 import de.julielab.jcore.pipeline.runner.spi.IPipelineRunner;
 import de.julielab.jcore.pipeline.runner.util.PipelineInstantiationException;
 import de.julielab.jcore.pipeline.runner.util.PipelineRunningException;
@@ -52,7 +53,11 @@ public class PipelineRunnerService implements ParameterExposing{
 
     public void runPipeline(HierarchicalConfiguration<ImmutableNode> runnerConfig) throws ConfigurationException, PipelineIOException, PipelineRunningException, PipelineInstantiationException {
         String pipelinePath = ConfigurationUtilities.requirePresent(PIPELINEPATH, runnerConfig::getString);
-        JCoReUIMAPipeline jCoReUIMAPipeline = new JCoReUIMAPipeline(new File(pipelinePath));
+        File pipelineDir = new File(pipelinePath);
+        // A pipeline bundle is extracted next to it on the first run and reused afterwards
+        if (pipelineDir.isFile())
+            pipelineDir = PipelineBundle.extract(pipelineDir);
+        JCoReUIMAPipeline jCoReUIMAPipeline = new JCoReUIMAPipeline(pipelineDir);
         jCoReUIMAPipeline.load(false);
         runPipeline(jCoReUIMAPipeline,runnerConfig );
     }
@@ -0,0 +1,154 @@
+package de.julielab.jcore.pipeline.runner.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * <p>Determines the CPUs and the memory available to the pipeline run. On Linux, the CPU quota and the memory limit
+ * of the cgroup of the process are read, supporting cgroup v2 and v1. Without a limit, or on other systems, the
+ * processors and the physical memory of the machine are used.</p>
+ * <p>This makes the resource settings of runs in containers, e.g. Kubernetes pods, follow the resources of the pod
+ * instead of the node.</p>
+ */
+public class ContainerResources {
+    private final static Logger log = LoggerFactory.getLogger(ContainerResources.class);
+    private static final Path CGROUP_ROOT = Path.of("/sys/fs/cgroup");
+    /**
+     * cgroup v1 reports no memory limit as a value close to <tt>Long.MAX_VALUE</tt>, rounded to the page size.
+     */
+    private static final long UNLIMITED_THRESHOLD = Long.MAX_VALUE / 2;
+    private final Path cgroupRoot;
+    private final Path procSelfCgroup;
+
+    public ContainerResources() {
+        this(CGROUP_ROOT, Path.of("/proc/self/cgroup"));
+    }
+
+    ContainerResources(Path cgroupRoot, Path procSelfCgroup) {
+        this.cgroupRoot = cgroupRoot;
+        this.procSelfCgroup = procSelfCgroup;
+    }
+
+    /**
+     * @return The number of CPUs available to this process, at least 1.
+     */
+    public int getAvailableProcessors() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        OptionalLong quota = getCpuQuotaMillis();
+        if (quota.isPresent())
+            processors = (int) Math.max(1, Math.min(processors, Math.ceil(quota.getAsLong() / 1000d)));
+        return processors;
+    }
+
+    /**
+     * @return The memory in bytes available to this process.
+     */
+    public long getMemoryLimit() {
+        long physicalMemory = ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getTotalPhysicalMemorySize();
+        OptionalLong limit = getCgroupMemoryLimit();
+        return limit.isPresent() ? Math.min(physicalMemory, limit.getAsLong()) : physicalMemory;
+    }
+
+    /**
+     * @return The CPU quota of the cgroup in thousandths of a CPU, empty if there is no quota or it cannot be parsed.
+     */
+    OptionalLong getCpuQuotaMillis() {
+        try {
+            // cgroup v2: "<quota> <period>" or "max <period>"
+            Optional<String> cpuMax = readCgroupFile("", "cpu.max");
+            if (cpuMax.isPresent()) {
+                String[] parts = cpuMax.get().split("\\s+");
+                if (parts.length == 2 && !parts[0].equals("max"))
+                    return getQuotaMillis(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+                return OptionalLong.empty();
+            }
+            for (String controller : List.of("cpu", "cpu,cpuacct", "cpuacct,cpu")) {
+                Optional<String> quota = readCgroupFile(controller, "cpu.cfs_quota_us");
+                Optional<String> period = readCgroupFile(controller, "cpu.cfs_period_us");
+                if (quota.isPresent() && period.isPresent())
+                    return getQuotaMillis(Long.parseLong(quota.get()), Long.parseLong(period.get()));
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Could not parse the CPU quota of the cgroup, the processors of the machine are used: {}", e.getMessage());
+        }
+        return OptionalLong.empty();
+    }
+
+    private OptionalLong getQuotaMillis(long quota, long period) {
+        return quota > 0 && period > 0 ? OptionalLong.of(quota * 1000 / period) : OptionalLong.empty();
+    }
+
+    /**
+     * @return The memory limit of the cgroup in bytes, empty if there is no limit or it cannot be parsed.
+     */
+    OptionalLong getCgroupMemoryLimit() {
+        try {
+            Optional<String> memoryMax = readCgroupFile("", "memory.max");
+            if (memoryMax.isPresent())
+                return memoryMax.get().equals("max") ? OptionalLong.empty() : OptionalLong.of(Long.parseLong(memoryMax.get()));
+            Optional<String> limit = readCgroupFile("memory", "memory.limit_in_bytes");
+            if (limit.isPresent()) {
+                long l = Long.parseLong(limit.get());
+                return l > 0 && l < UNLIMITED_THRESHOLD ? OptionalLong.of(l) : OptionalLong.empty();
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Could not parse the memory limit of the cgroup, the physical memory of the machine is used: {}", e.getMessage());
+        }
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Reads a file of the cgroup of this process. The file is looked up in the directory of the cgroup given by
+     * <tt>/proc/self/cgroup</tt> first and at the root of the controller second, which is where it is found in
+     * containers with their own cgroup namespace.
+     *
+     * @param controller The cgroup v1 controller, empty for cgroup v2.
+     * @param file       The file name.
+     * @return The trimmed file content or empty if the file does not exist or cannot be read.
+     */
+    private Optional<String> readCgroupFile(String controller, String file) {
+        Path controllerRoot = controller.isEmpty() ? cgroupRoot : cgroupRoot.resolve(controller);
+        Optional<String> cgroupPath = getCgroupPath(controller);
+        try {
+            if (cgroupPath.isPresent()) {
+                Path path = controllerRoot.resolve(cgroupPath.get().replaceFirst("^/", "")).resolve(file);
+                if (Files.isReadable(path))
+                    return Optional.of(Files.readString(path, StandardCharsets.UTF_8).trim());
+            }
+            Path path = controllerRoot.resolve(file);
+            if (Files.isReadable(path))
+                return Optional.of(Files.readString(path, StandardCharsets.UTF_8).trim());
+        } catch (IOException e) {
+            log.debug("Could not read the cgroup file {} of controller {}", file, controller, e);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Determines the path of the cgroup of this process from the lines <tt>id:controllers:path</tt> of
+     * <tt>/proc/self/cgroup</tt>. cgroup v2 has a single line with empty controllers.
+     */
+    private Optional<String> getCgroupPath(String controller) {
+        if (!Files.isReadable(procSelfCgroup))
+            return Optional.empty();
+        try {
+            for (String line : Files.readAllLines(procSelfCgroup, StandardCharsets.UTF_8)) {
+                String[] parts = line.split(":", 3);
+                if (parts.length == 3 && List.of(parts[1].split(",")).containsAll(List.of(controller.split(","))) && (controller.isEmpty() == parts[1].isEmpty()))
+                    return Optional.of(parts[2]);
+            }
+        } catch (IOException e) {
+            log.debug("Could not read {}", procSelfCgroup, e);
+        }
+        return Optional.empty();
+    }
+}
@@ -9,6 +9,28 @@ public class PipelineRunnerConstants {
     public static final String NUMTOPROCESS = "numtoprocess";
     public static final String HEAP_SIZE = "heapsize";
     public static final String JVM_OPTS = "jvmoptions";
+    public static final String ERROR_ACTION = "erroraction";
+    public static final String ERROR_THRESHOLD = "errorthreshold";
+    public static final String COMPONENT_ERROR_ACTIONS = "componenterroractions";
+    public static final String QUARANTINE_FILE = "quarantinefile";
+    public static final String QUARANTINE_RERUN = "quarantinererun";
+    public static final String QUARANTINE_RERUN_TIMEOUT = "quarantinereruntimeout";
+    public static final String DOCUMENT_TIMEOUT = "documenttimeout";
+    public static final String MEMORY_GOVERNOR = "memorygovernor";
+    public static final String MEMORY_THRESHOLDS = "memorythresholds";
+    public static final String CAS_POOL_SIZE = "caspoolsize";
+    public static final String CAS_HEAP_SIZE = "casheapsize";
+    public static final String AUTOTUNE = "autotune";
+    public static final String CALIBRATION_DOCUMENTS = "calibrationdocuments";
+    public static final String PROFILE_DIRECTORY = "profiledirectory";
+    public static final String HISTORY_FILE = "historyfile";
+    public static final String REGRESSION_THRESHOLD = "regressionthreshold";
+    public static final String LATENCY_REPORT = "latencyreport";
+    public static final String SLOWEST_DOCUMENTS = "slowestdocuments";
+    /**
+     * The value of {@link #NUMTHREADS} and {@link #HEAP_SIZE} to derive them from the resources available to the run.
+     */
+    public static final String AUTO = "auto";
     public static final String DUCCHOMEPATH = "ducchomepath";
     public static final String CONFIGURATION = "configuration";
     public static final String JOBFILE = "jobfile";
@@ -0,0 +1,59 @@
+package de.julielab.jcore.pipeline.runner;
+
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CPEAutoTunerTest {
+    private static final long MB = 1L << 20;
+
+    private static Properties createCalibration(long processingTime, long cpuTime, long runTime) {
+        Properties calibration = new Properties();
+        calibration.setProperty("documents", "100");
+        calibration.setProperty("processingTime", String.valueOf(processingTime));
+        calibration.setProperty("cpuTime", String.valueOf(cpuTime));
+        calibration.setProperty("runTime", String.valueOf(runTime));
+        calibration.setProperty("casFootprint.avg", "400000");
+        calibration.setProperty("casFootprint.p99", String.valueOf(MB));
+        calibration.setProperty("heap.base", String.valueOf(100 * MB));
+        calibration.setProperty("heap.initialized", String.valueOf(200 * MB));
+        return calibration;
+    }
+
+    @Test
+    public void testThreadsCompensateIo() {
+        // half of the processing time is spent waiting, so twice as many threads as processors are used
+        CPEAutoTuner.Settings settings = CPEAutoTuner.tune(createCalibration(10000, 5000, 10000), 8, 64L << 30);
+        assertThat(settings.getNumThreads()).isEqualTo(16);
+        assertThat(settings.getCasPoolSize()).isEqualTo(24);
+        assertThat(settings.getCasHeapSize()).isEqualTo(125000);
+        // (100 MB base + 16 * 100 MB components + 24 CASes * 3 MB) * 1.5 headroom
+        assertThat(settings.getHeapSize()).isEqualTo("2658m");
+    }
+
+    @Test
+    public void testReaderBound() {
+        // the single thread waited as long for the reader as it processed, so more threads would only wait
+        CPEAutoTuner.Settings settings = CPEAutoTuner.tune(createCalibration(10000, 10000, 20000), 8, 64L << 30);
+        assertThat(settings.getNumThreads()).isEqualTo(1);
+        assertThat(settings.getCasPoolSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void testMemoryLimitReducesThreads() {
+        // 75% of 2 GB leave 1536 MB of heap which hold 8 threads: (100 + 8 * 100 + 12 * 3) * 1.5 = 1404 MB
+        CPEAutoTuner.Settings settings = CPEAutoTuner.tune(createCalibration(10000, 10000, 10000), 16, 2L << 30);
+        assertThat(settings.getNumThreads()).isEqualTo(8);
+        assertThat(settings.getHeapSize()).isEqualTo("1404m");
+    }
+
+    @Test
+    public void testNoDocuments() {
+        Properties calibration = createCalibration(0, 0, 1000);
+        calibration.setProperty("documents", "0");
+        assertThatThrownBy(() -> CPEAutoTuner.tune(calibration, 8, 64L << 30)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,114 @@
+package de.julielab.jcore.pipeline.runner;
+
+import de.julielab.jcore.pipeline.builder.base.main.RunProfile;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static de.julielab.jcore.pipeline.runner.util.PipelineRunnerConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RunAdvisorTest {
+    private static final long GB = 1L << 30;
+
+    /**
+     * Creates the profile of a balanced run of 10 seconds with 4 busy threads and a heap of 1 GB.
+     */
+    private static RunProfile createProfile() {
+        RunProfile profile = new RunProfile();
+        profile.setDocuments(1000);
+        profile.setRunTime(10000);
+        profile.setNumThreads(4);
+        profile.setCasPoolSize(6);
+        profile.setMaxHeap(GB);
+        profile.setThreadBusyTime(40000);
+        profile.setReaderTime(2000);
+        profile.getStageWallTimes().put("AEs", 20000L);
+        profile.getStageCpuTimes().put("AEs", 18000L);
+        profile.getStageWallTimes().put("Consumers", 4000L);
+        profile.getStageCpuTimes().put("Consumers", 4000L);
+        profile.setConsumerStage("Consumers");
+        profile.getComponentWallTimes().putAll(Map.of("Tokenizer", 8000L, "Tagger", 12000L, "Writer", 4000L));
+        return profile;
+    }
+
+    @Test
+    public void testGarbageCollection() {
+        RunProfile profile = createProfile();
+        profile.setGcTime(2000);
+        RunAdvisor.Advice advice = RunAdvisor.advise(profile, 8, 8 * GB);
+        assertThat(advice.getBottleneck()).isEqualTo(RunAdvisor.Bottleneck.GARBAGE_COLLECTION);
+        assertThat(advice.getSettings()).containsEntry(HEAP_SIZE, "1536m").containsEntry(MEMORY_GOVERNOR, "true");
+
+        // the heap cannot grow, so the threads are reduced
+        advice = RunAdvisor.advise(profile, 8, (long) (1.2 * GB));
+        assertThat(advice.getSettings()).containsEntry(NUMTHREADS, "2").containsEntry(CAS_POOL_SIZE, "3").doesNotContainKey(HEAP_SIZE);
+    }
+
+    @Test
+    public void testSingleDeployment() {
+        RunProfile profile = createProfile();
+        profile.setMultipleDeploymentAllowed(false);
+        profile.setSingleDeploymentComponents(List.of("Gazetteer"));
+        RunAdvisor.Advice advice = RunAdvisor.advise(profile, 8, 8 * GB);
+        assertThat(advice.getBottleneck()).isEqualTo(RunAdvisor.Bottleneck.SINGLE_DEPLOYMENT);
+        assertThat(advice.getComponent()).isEqualTo("Gazetteer");
+        assertThat(advice.getSettings()).containsEntry(NUMTHREADS, "1").containsEntry(CAS_POOL_SIZE, "2");
+    }
+
+    @Test
+    public void testReader() {
+        RunProfile profile = createProfile();
+        profile.setThreadBusyTime(12000);
+        profile.setReaderTime(9000);
+        RunAdvisor.Advice advice = RunAdvisor.advise(profile, 8, 8 * GB);
+        assertThat(advice.getBottleneck()).isEqualTo(RunAdvisor.Bottleneck.READER);
+        // a utilization of 0.3 is covered by ceil(4 * 0.3 * 1.2) threads
+        assertThat(advice.getSettings()).containsEntry(NUMTHREADS, "2").containsEntry(CAS_POOL_SIZE, "3");
+    }
+
+    @Test
+    public void testCasPool() {
+        RunProfile profile = createProfile();
+        profile.setThreadBusyTime(12000);
+        profile.setReaderIdleTime(8000);
+        RunAdvisor.Advice advice = RunAdvisor.advise(profile, 8, 8 * GB);
+        assertThat(advice.getBottleneck()).isEqualTo(RunAdvisor.Bottleneck.CAS_POOL);
+        assertThat(advice.getSettings()).containsEntry(CAS_POOL_SIZE, "12").doesNotContainKey(NUMTHREADS);
+    }
+
+    @Test
+    public void testConsumer() {
+        RunProfile profile = createProfile();
+        profile.getStageWallTimes().put("Consumers", 30000L);
+        profile.getStageCpuTimes().put("Consumers", 3000L);
+        RunAdvisor.Advice advice = RunAdvisor.advise(profile, 8, 8 * GB);
+        assertThat(advice.getBottleneck()).isEqualTo(RunAdvisor.Bottleneck.CONSUMER);
+        assertThat(advice.getComponent()).isEqualTo("Consumers");
+        // the consumers mostly wait for I/O, so the threads are doubled
+        assertThat(advice.getSettings()).containsEntry(NUMTHREADS, "8").containsEntry(HEAP_SIZE, "2048m");
+    }
+
+    @Test
+    public void testAnalysisEngine() {
+        RunProfile profile = createProfile();
+        profile.getComponentWallTimes().put("Tagger", 40000L);
+        RunAdvisor.Advice advice = RunAdvisor.advise(profile, 8, 8 * GB);
+        assertThat(advice.getBottleneck()).isEqualTo(RunAdvisor.Bottleneck.ANALYSIS_ENGINE);
+        assertThat(advice.getComponent()).isEqualTo("Tagger");
+        assertThat(advice.getSettings()).containsEntry(NUMTHREADS, "8").containsEntry(CAS_POOL_SIZE, "12");
+        // the heap grows with the threads but stays within 75% of the memory limit
+        assertThat(RunAdvisor.advise(profile, 8, 2 * GB).getSettings()).containsEntry(HEAP_SIZE, "1536m");
+    }
+
+    @Test
+    public void testBalanced() {
+        RunProfile profile = createProfile();
+        RunAdvisor.Advice advice = RunAdvisor.advise(profile, 4, 8 * GB);
+        assertThat(advice.getBottleneck()).isEqualTo(RunAdvisor.Bottleneck.NONE);
+        assertThat(advice.getSettings()).isEmpty();
+        // idle processors are used by more threads
+        assertThat(RunAdvisor.advise(profile, 8, 8 * GB).getSettings()).containsEntry(NUMTHREADS, "8");
+    }
+}
@@ -0,0 +1,60 @@
+package de.julielab.jcore.pipeline.runner.application;
+
+import de.julielab.java.utilities.ConfigurationUtilities;
+import org.apache.commons.configuration2.HierarchicalConfiguration;
+import org.apache.commons.configuration2.XMLConfiguration;
+import org.apache.commons.configuration2.tree.ImmutableNode;
+import org.apache.commons.configuration2.tree.xpath.XPathExpressionEngine;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static de.julielab.java.utilities.ConfigurationUtilities.slash;
+import static de.julielab.jcore.pipeline.runner.util.PipelineRunnerConstants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PipelineRunnerCLITest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSaveChangedSettingsKeepsComments() throws Exception {
+        File configurationFile = folder.newFile("runner.xml");
+        Files.writeString(configurationFile.toPath(), String.join("\n",
+                "<configuration>",
+                "    <runners>",
+                "        <!-- the NER pipeline -->",
+                "        <runner>",
+                "            <name>CPERunner</name>",
+                "            <numthreads>auto</numthreads>",
+                "            <!-- tuned on the first run -->",
+                "            <autotune>true</autotune>",
+                "        </runner>",
+                "    </runners>",
+                "</configuration>"));
+        XMLConfiguration configuration = ConfigurationUtilities.loadXmlConfiguration(configurationFile);
+        configuration.setExpressionEngine(new XPathExpressionEngine());
+        List<HierarchicalConfiguration<ImmutableNode>> runnerConfigs = configuration.configurationsAt(slash(RUNNERS, RUNNER), true);
+        List<Map<String, String>> originalSettings = runnerConfigs.stream().map(PipelineRunnerCLI::getSettings).collect(Collectors.toList());
+        HierarchicalConfiguration<ImmutableNode> runnerConfig = runnerConfigs.get(0);
+        runnerConfig.setProperty(NUMTHREADS, 6);
+        runnerConfig.setProperty(AUTOTUNE, false);
+        runnerConfig.addProperty(" " + CAS_POOL_SIZE, 9);
+
+        PipelineRunnerCLI.saveChangedSettings(configurationFile, originalSettings, runnerConfigs);
+
+        String saved = Files.readString(configurationFile.toPath());
+        assertThat(saved).contains("<!-- the NER pipeline -->", "<!-- tuned on the first run -->",
+                "<numthreads>6</numthreads>", "<autotune>false</autotune>", "            <caspoolsize>9</caspoolsize>\n        </runner>");
+        XMLConfiguration reloaded = ConfigurationUtilities.loadXmlConfiguration(configurationFile);
+        reloaded.setExpressionEngine(new XPathExpressionEngine());
+        assertThat(reloaded.getInt(slash(RUNNERS, RUNNER, CAS_POOL_SIZE))).isEqualTo(9);
+        assertThat(reloaded.getString(slash(RUNNERS, RUNNER, NAME))).isEqualTo("CPERunner");
+    }
+}
@@ -0,0 +1,95 @@
+package de.julielab.jcore.pipeline.runner.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContainerResourcesTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private void write(Path file, String content) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content + "\n");
+    }
+
+    @Test
+    public void testCgroupV2() throws Exception {
+        Path root = folder.getRoot().toPath().resolve("cgroup");
+        Path procSelfCgroup = folder.getRoot().toPath().resolve("proc-self-cgroup");
+        write(procSelfCgroup, "0::/kubepods/pod1");
+        write(root.resolve("kubepods/pod1/cpu.max"), "150000 100000");
+        write(root.resolve("kubepods/pod1/memory.max"), "1073741824");
+        ContainerResources resources = new ContainerResources(root, procSelfCgroup);
+        assertThat(resources.getCpuQuotaMillis()).hasValue(1500);
+        assertThat(resources.getCgroupMemoryLimit()).hasValue(1L << 30);
+        assertThat(resources.getAvailableProcessors()).isBetween(1, 2);
+        assertThat(resources.getMemoryLimit()).isLessThanOrEqualTo(1L << 30);
+    }
+
+    @Test
+    public void testCgroupV2Namespace() throws Exception {
+        // with a cgroup namespace, the cgroup of the process is the root of the hierarchy
+        Path root = folder.getRoot().toPath().resolve("cgroup");
+        Path procSelfCgroup = folder.getRoot().toPath().resolve("proc-self-cgroup");
+        write(procSelfCgroup, "0::/");
+        write(root.resolve("cpu.max"), "max 100000");
+        write(root.resolve("memory.max"), "max");
+        ContainerResources resources = new ContainerResources(root, procSelfCgroup);
+        assertThat(resources.getCpuQuotaMillis()).isEmpty();
+        assertThat(resources.getCgroupMemoryLimit()).isEmpty();
+        assertThat(resources.getAvailableProcessors()).isEqualTo(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Test
+    public void testCgroupV1() throws Exception {
+        Path root = folder.getRoot().toPath().resolve("cgroup");
+        Path procSelfCgroup = folder.getRoot().toPath().resolve("proc-self-cgroup");
+        write(procSelfCgroup, String.join("\n", "9:memory:/docker/abc", "4:cpu,cpuacct:/docker/abc", "1:name=systemd:/docker/abc"));
+        write(root.resolve("cpu/docker/abc/cpu.cfs_quota_us"), "200000");
+        write(root.resolve("cpu/docker/abc/cpu.cfs_period_us"), "100000");
+        write(root.resolve("memory/docker/abc/memory.limit_in_bytes"), "536870912");
+        ContainerResources resources = new ContainerResources(root, procSelfCgroup);
+        assertThat(resources.getCpuQuotaMillis()).hasValue(2000);
+        assertThat(resources.getCgroupMemoryLimit()).hasValue(512L << 20);
+    }
+
+    @Test
+    public void testCgroupV1Unlimited() throws Exception {
+        Path root = folder.getRoot().toPath().resolve("cgroup");
+        Path procSelfCgroup = folder.getRoot().toPath().resolve("proc-self-cgroup");
+        write(procSelfCgroup, String.join("\n", "9:memory:/", "4:cpu,cpuacct:/"));
+        write(root.resolve("cpu/cpu.cfs_quota_us"), "-1");
+        write(root.resolve("cpu/cpu.cfs_period_us"), "100000");
+        write(root.resolve("memory/memory.limit_in_bytes"), "9223372036854771712");
+        ContainerResources resources = new ContainerResources(root, procSelfCgroup);
+        assertThat(resources.getCpuQuotaMillis()).isEmpty();
+        assertThat(resources.getCgroupMemoryLimit()).isEmpty();
+    }
+
+    @Test
+    public void testMalformedValues() throws Exception {
+        Path root = folder.getRoot().toPath().resolve("cgroup");
+        Path procSelfCgroup = folder.getRoot().toPath().resolve("proc-self-cgroup");
+        write(procSelfCgroup, "0::/");
+        write(root.resolve("cpu.max"), "abc 100000");
+        write(root.resolve("memory.max"), "1G");
+        ContainerResources resources = new ContainerResources(root, procSelfCgroup);
+        assertThat(resources.getCpuQuotaMillis()).isEmpty();
+        assertThat(resources.getCgroupMemoryLimit()).isEmpty();
+    }
+
+    @Test
+    public void testNoCgroup() {
+        Path missing = folder.getRoot().toPath().resolve("missing");
+        ContainerResources resources = new ContainerResources(missing, missing.resolve("cgroup"));
+        assertThat(resources.getCpuQuotaMillis()).isEmpty();
+        assertThat(resources.getCgroupMemoryLimit()).isEmpty();
+        assertThat(resources.getMemoryLimit()).isPositive();
+    }
+}
@@ -18,25 +18,65 @@
 package de.julielab.jcore.pipeline.runner.cpe;
 
 import de.julielab.jcore.pipeline.builder.base.exceptions.PipelineIOException;
+import de.julielab.jcore.pipeline.builder.base.main.ErrorPolicy;
+import de.julielab.jcore.pipeline.builder.base.main.RunProfile;
+import ch.qos.logback.classic.Level;
 import org.apache.commons.cli.*;
 import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.metadata.FixedFlow;
+import org.apache.uima.analysis_engine.metadata.FlowConstraints;
+import org.apache.uima.analysis_engine.metadata.FlowControllerDeclaration;
+import org.apache.uima.analysis_engine.metadata.impl.FlowControllerDeclaration_impl;
 import org.apache.uima.collection.CollectionProcessingEngine;
 import org.apache.uima.collection.impl.metadata.cpe.CpeCheckpointImpl;
 import org.apache.uima.collection.impl.metadata.cpe.CpeConfigurationImpl;
+import org.apache.uima.collection.metadata.CpeCasProcessor;
+import org.apache.uima.collection.metadata.CpeComponentDescriptor;
 import org.apache.uima.collection.metadata.CpeDescription;
 import org.apache.uima.collection.metadata.CpeDescriptorException;
+import org.apache.uima.resource.Resource;
+import org.apache.uima.resource.ResourceCreationSpecifier;
 import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.ResourceSpecifier;
+import org.apache.uima.resource.metadata.Import;
+import org.apache.uima.resource.metadata.MetaDataObject;
+import org.apache.uima.resource.metadata.OperationalProperties;
+import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
 import org.apache.uima.util.InvalidXMLException;
+import org.apache.uima.fit.factory.FlowControllerFactory;
 import org.apache.uima.util.XMLInputSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class CPERunner {
 
     private final static Logger LOGGER = LoggerFactory
             .getLogger(CPERunner.class);
+    /**
+     * The name of the aggregate of the analysis engines in the CPE aggregate, as set by the pipeline builder.
+     */
+    private static final String PIPELINE_AAE_NAME = "JCoRe Pipeline AAE";
+    private static final String DEFAULT_QUARANTINE_FILE = "pipeline-quarantine.txt";
     /**
      * the descriptor file for the CPE;
      */
@@ -49,6 +89,53 @@ public class CPERunner {
     protected Integer casPoolSize;
     protected Integer numbersOfDocuments;
     protected Integer batchSize;
+    /**
+     * The error policy given on the command line, <tt>null</tt> to use the error threshold of the CPE descriptor.
+     */
+    protected ErrorPolicy errorPolicy;
+    /**
+     * The file to record quarantined documents in, by default <tt>pipeline-quarantine.txt</tt> in the pipeline
+     * directory.
+     */
+    protected File quarantineFile;
+    /**
+     * The quarantine file of a previous run whose documents should be processed again, <tt>null</tt> for a regular
+     * run.
+     */
+    protected File rerunFile;
+    protected Integer timeout;
+    /**
+     * The time in milliseconds after which the {@link ProcessingWatchdog} considers a document stalled, <tt>null</tt>
+     * to run without the watchdog.
+     */
+    protected Integer documentTimeout;
+    /**
+     * The elevated and critical heap occupancy thresholds of the {@link MemoryGovernor}, <tt>null</tt> to run without
+     * the governor.
+     */
+    protected double[] memoryThresholds;
+    /**
+     * The initial size of the CAS heaps in cells, <tt>null</tt> for the UIMA default.
+     */
+    protected Integer casHeapSize;
+    /**
+     * The file to write the measurements of a calibration run to, <tt>null</tt> for a regular run.
+     */
+    protected File calibrationFile;
+    /**
+     * The file to write the {@link RunProfile} of the run to, <tt>null</tt> to run without profiling.
+     */
+    protected File profileFile;
+    protected RunProfile runProfile;
+    /**
+     * The temporary directory with the descriptor copies written by {@link #setFlowController(Class, String, Object...)}.
+     */
+    private Path descriptorCopyDirectory;
+    /**
+     * The file to write the document latency report to, <tt>null</tt> to only log the latencies.
+     */
+    protected File latencyReportFile;
+    protected int slowestDocuments = LatencyRecorder.DEFAULT_SLOWEST_DOCUMENTS;
     protected boolean error;
 
     public CPERunner() {
@@ -59,6 +146,20 @@ public class CPERunner {
         options.addOption("t", true, "processing unit thread count (optional)");
         options.addOption("a", true, "CAS pool size (optional)");
         options.addOption("b", true, "batch size (optional)");
+        options.addOption("e", true, "error action: skip, quarantine or terminate (optional)");
+        options.addOption("r", true, "error threshold as <max errors>/<window size> (optional)");
+        options.addOption("c", true, "component error actions as <component class or name>=<action>,... (optional)");
+        options.addOption("q", true, "file to record quarantined documents in (optional)");
+        options.addOption("f", true, "quarantine file of a previous run, only its documents are processed (optional)");
+        options.addOption("x", true, "CAS processor timeout in milliseconds, enforced by the processing watchdog for integrated CAS processors (optional)");
+        options.addOption("w", true, "document processing timeout in milliseconds for the processing watchdog (optional)");
+        options.addOption("m", true, "heap occupancy thresholds <elevated>/<critical> like 0.8/0.92 to enable the memory governor (optional)");
+        options.addOption("s", true, "initial CAS heap size in cells (optional)");
+        options.addOption("k", true, "file to write the resource usage measurements of a calibration run to (optional)");
+        options.addOption("o", true, "file to write the run profile to (optional)");
+        options.addOption("l", true, "file to write the document latency histograms and the slowest documents to (optional)");
+        options.addOption("g", true, "number of slowest documents to report, default " + LatencyRecorder.DEFAULT_SLOWEST_DOCUMENTS + " (optional)");
+        options.addOption("v", false, "debug logging for the JCoRe components (optional)");
     }
 
     public static void main(String[] args) {
@@ -103,6 +204,76 @@ public class CPERunner {
         if (batchSizeString != null) {
             batchSize = Integer.valueOf(batchSizeString);
         }
+
+        try {
+            if (cmd.hasOption("e") || cmd.hasOption("r") || cmd.hasOption("c")) {
+                errorPolicy = new ErrorPolicy();
+                if (cmd.hasOption("e"))
+                    errorPolicy.setAction(ErrorPolicy.Action.parse(cmd.getOptionValue("e")));
+                if (cmd.hasOption("r"))
+                    errorPolicy.applyThreshold(cmd.getOptionValue("r"));
+                if (cmd.hasOption("c"))
+                    errorPolicy.applyComponentActions(cmd.getOptionValue("c"));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            error = true;
+        }
+
+        if (cmd.hasOption("q")) {
+            quarantineFile = new File(cmd.getOptionValue("q"));
+        } else if (descriptorPath != null) {
+            // the CPE descriptor is located in the desc directory of the pipeline
+            quarantineFile = new File(new File(descriptorPath).getAbsoluteFile().getParentFile().getParentFile(), DEFAULT_QUARANTINE_FILE);
+        }
+
+        if (cmd.hasOption("f")) {
+            rerunFile = new File(cmd.getOptionValue("f"));
+        }
+
+        if (cmd.hasOption("x")) {
+            timeout = Integer.valueOf(cmd.getOptionValue("x"));
+        }
+
+        if (cmd.hasOption("w")) {
+            documentTimeout = Integer.valueOf(cmd.getOptionValue("w"));
+        }
+
+        if (cmd.hasOption("m")) {
+            try {
+                String[] thresholds = cmd.getOptionValue("m").split("/");
+                memoryThresholds = new double[]{Double.parseDouble(thresholds[0]), Double.parseDouble(thresholds[1])};
+                if (memoryThresholds[0] <= 0 || memoryThresholds[0] > memoryThresholds[1] || memoryThresholds[1] >= 1)
+                    throw new NumberFormatException();
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                System.err.println("The memory thresholds must have the form <elevated>/<critical> with 0 < elevated <= critical < 1 but are " + cmd.getOptionValue("m"));
+                error = true;
+            }
+        }
+
+        if (cmd.hasOption("s")) {
+            casHeapSize = Integer.valueOf(cmd.getOptionValue("s"));
+        }
+
+        if (cmd.hasOption("k")) {
+            calibrationFile = new File(cmd.getOptionValue("k"));
+        }
+
+        if (cmd.hasOption("o")) {
+            profileFile = new File(cmd.getOptionValue("o"));
+        }
+
+        if (cmd.hasOption("l")) {
+            latencyReportFile = new File(cmd.getOptionValue("l"));
+        }
+
+        if (cmd.hasOption("g")) {
+            slowestDocuments = Integer.valueOf(cmd.getOptionValue("g"));
+        }
+
+        if (cmd.hasOption("v")) {
+            ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("de.julielab")).setLevel(Level.DEBUG);
+        }
     }
 
     /**
@@ -142,6 +313,31 @@ public class CPERunner {
             cpeDescription.setNumToProcess(numbersOfDocuments);
         }
 
+        applyErrorPolicy();
+
+        if (timeout != null) {
+            LOGGER.info("Setting the CAS processor timeout to " + timeout + " ms");
+            for (CpeCasProcessor casProcessor : cpeDescription.getCpeCasProcessors().getAllCpeCasProcessors())
+                casProcessor.setTimeout(timeout);
+            // The CPE only enforces the timeout for remote and managed CAS processors
+            if (documentTimeout == null && Arrays.stream(cpeDescription.getCpeCasProcessors().getAllCpeCasProcessors()).anyMatch(p -> "integrated".equals(p.getDeployment()))) {
+                LOGGER.info("Enforcing the CAS processor timeout for the integrated CAS processors by the processing watchdog");
+                documentTimeout = timeout;
+            }
+        }
+
+        // The descriptors must be read before they are replaced by the copies with the flow controllers
+        if (profileFile != null) {
+            runProfile = createRunProfile();
+        }
+
+        if (rerunFile != null) {
+            restrictToQuarantinedDocuments();
+        } else if (documentTimeout != null || memoryThresholds != null || calibrationFile != null || profileFile != null || (latencyReportFile != null && containsMultiplier())) {
+            // for the latency report of a pipeline with a multiplier, the flow controller records the created documents
+            setFlowController(WatchdogFlowController.class, "watchdog");
+        }
+
         if (batchSize != null) {
             LOGGER.info("Setting CPE checkpoint batch size to " + batchSize);
         } else {
@@ -159,6 +355,252 @@ public class CPERunner {
         }
     }
 
+    /**
+     * Sets the error threshold of the error policy to the CAS processors. Only errors exceeding the threshold for the
+     * whole pipeline terminate the CPE directly; other actions and component overrides are taken by the
+     * {@link StatusCallbackListener}. Without an error policy on the command line, the policy is derived from the
+     * threshold in the CPE descriptor.
+     *
+     * @throws CpeDescriptorException If the CAS processors cannot be read.
+     */
+    protected void applyErrorPolicy() throws CpeDescriptorException {
+        CpeCasProcessor[] casProcessors = cpeDescription.getCpeCasProcessors().getAllCpeCasProcessors();
+        if (errorPolicy == null) {
+            errorPolicy = new ErrorPolicy();
+            if (casProcessors.length > 0) {
+                errorPolicy.setMaxErrors(Math.max(0, casProcessors[0].getMaxErrorCount()));
+                errorPolicy.setWindow(Math.max(1, casProcessors[0].getMaxErrorSampleSize()));
+                if (!"terminate".equals(casProcessors[0].getActionOnMaxError()))
+                    errorPolicy.setAction(ErrorPolicy.Action.SKIP);
+            }
+        } else {
+            for (CpeCasProcessor casProcessor : casProcessors) {
+                casProcessor.setMaxErrorCount(errorPolicy.getMaxErrors());
+                casProcessor.setMaxErrorSampleSize(errorPolicy.getWindow());
+                casProcessor.setActionOnMaxError(errorPolicy.terminatesOnFirstError() ? "terminate" : "continue");
+            }
+        }
+        LOGGER.info("Using the error policy {}", errorPolicy);
+    }
+
+    /**
+     * Creates the run profile with the settings of the run and the deployment properties of the CAS processors. The
+     * measurements are added by the {@link RunProfiler}.
+     *
+     * @return The run profile.
+     * @throws CpeDescriptorException If the CAS processors cannot be read.
+     */
+    protected RunProfile createRunProfile() throws CpeDescriptorException {
+        RunProfile profile = new RunProfile();
+        profile.setNumThreads(cpeDescription.getCpeCasProcessors().getConcurrentPUCount());
+        profile.setCasPoolSize(cpeDescription.getCpeCasProcessors().getCasPoolSize());
+        profile.setMaxHeap(Runtime.getRuntime().maxMemory());
+        profile.setCasHeapSize(casHeapSize != null ? casHeapSize : 0);
+        profile.setAvailableProcessors(Runtime.getRuntime().availableProcessors());
+        File cpeDir = new File(descriptorPath).getAbsoluteFile().getParentFile();
+        for (CpeCasProcessor casProcessor : cpeDescription.getCpeCasProcessors().getAllCpeCasProcessors()) {
+            try {
+                AnalysisEngineDescription aaeDesc = UIMAFramework.getXMLParser().parseAnalysisEngineDescription(new XMLInputSource(getDescriptorFile(casProcessor, cpeDir)));
+                if (!aaeDesc.getAnalysisEngineMetaData().getOperationalProperties().isMultipleDeploymentAllowed())
+                    profile.setMultipleDeploymentAllowed(false);
+                addSingleDeploymentComponents(aaeDesc, profile.getSingleDeploymentComponents());
+                FlowConstraints flowConstraints = aaeDesc.getAnalysisEngineMetaData().getFlowConstraints();
+                if (flowConstraints instanceof FixedFlow) {
+                    // The consumers are the last stage after the analysis engines
+                    String[] flow = ((FixedFlow) flowConstraints).getFixedFlow();
+                    if (flow.length > 1 && !flow[flow.length - 1].equals(PIPELINE_AAE_NAME))
+                        profile.setConsumerStage(flow[flow.length - 1]);
+                }
+            } catch (InvalidXMLException | IOException e) {
+                LOGGER.warn("Could not determine the deployment properties of the CAS processor {} for the run profile: {}", casProcessor.getName(), e.getMessage());
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * @return Whether one of the CAS processors contains a CAS multiplier.
+     */
+    private boolean containsMultiplier() throws CpeDescriptorException {
+        File cpeDir = new File(descriptorPath).getAbsoluteFile().getParentFile();
+        for (CpeCasProcessor casProcessor : cpeDescription.getCpeCasProcessors().getAllCpeCasProcessors()) {
+            try {
+                if (containsMultiplier(UIMAFramework.getXMLParser().parseAnalysisEngineDescription(new XMLInputSource(getDescriptorFile(casProcessor, cpeDir)))))
+                    return true;
+            } catch (InvalidXMLException | IOException e) {
+                LOGGER.warn("Could not determine whether the CAS processor {} contains a CAS multiplier: {}", casProcessor.getName(), e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    private boolean containsMultiplier(AnalysisEngineDescription aggregate) throws InvalidXMLException {
+        if (aggregate.isPrimitive())
+            return false;
+        for (ResourceSpecifier delegate : aggregate.getDelegateAnalysisEngineSpecifiers().values()) {
+            if (delegate instanceof ResourceCreationSpecifier && ((ResourceCreationSpecifier) delegate).getMetaData() instanceof ProcessingResourceMetaData) {
+                OperationalProperties operationalProperties = ((ProcessingResourceMetaData) ((ResourceCreationSpecifier) delegate).getMetaData()).getOperationalProperties();
+                if (operationalProperties != null && operationalProperties.getOutputsNewCASes())
+                    return true;
+            }
+            if (delegate instanceof AnalysisEngineDescription && containsMultiplier((AnalysisEngineDescription) delegate))
+                return true;
+        }
+        return false;
+    }
+
+    private void addSingleDeploymentComponents(AnalysisEngineDescription aggregate, List<String> components) throws InvalidXMLException {
+        if (aggregate.isPrimitive())
+            return;
+        for (ResourceSpecifier delegate : aggregate.getDelegateAnalysisEngineSpecifiers().values()) {
+            if (delegate instanceof AnalysisEngineDescription && !((AnalysisEngineDescription) delegate).isPrimitive()) {
+                addSingleDeploymentComponents((AnalysisEngineDescription) delegate, components);
+            } else if (delegate instanceof ResourceCreationSpecifier && ((ResourceCreationSpecifier) delegate).getMetaData() instanceof ProcessingResourceMetaData) {
+                ProcessingResourceMetaData metaData = (ProcessingResourceMetaData) ((ResourceCreationSpecifier) delegate).getMetaData();
+                if (metaData.getOperationalProperties() != null && !metaData.getOperationalProperties().isMultipleDeploymentAllowed())
+                    components.add(metaData.getName());
+            }
+        }
+    }
+
+    /**
+     * Restricts the processing to the documents in the quarantine file of a previous run. The input of the collection
+     * reader is restricted to the quarantined documents by the {@link QuarantineInput} where possible; the
+     * {@link QuarantineFlowController} finishes all other documents right away.
+     *
+     * @throws InvalidXMLException    If a CAS processor descriptor cannot be parsed.
+     * @throws IOException            If a descriptor copy cannot be written.
+     * @throws CpeDescriptorException If the CAS processors cannot be read.
+     * @throws IllegalStateException  If the collection reader does not deliver the quarantined documents again.
+     * @see #setFlowController(Class, String, Object...)
+     */
+    protected void restrictToQuarantinedDocuments() throws InvalidXMLException, IOException, CpeDescriptorException {
+        LOGGER.info("Processing only the documents in the quarantine file " + rerunFile);
+        Map<String, String> quarantined = QuarantineFile.readKinds(rerunFile);
+        QuarantineInput.Restriction restriction = new QuarantineInput(quarantined).restrict(cpeDescription, new File(descriptorPath).getAbsoluteFile().getParentFile());
+        if (restriction == QuarantineInput.Restriction.NOT_DELIVERED_AGAIN)
+            throw new IllegalStateException("The collection reader does not deliver documents again that it has delivered before, like the JeDIS database readers that mark their rows as processed. Reset the rows of the " + quarantined.size() + " documents in the quarantine file " + rerunFile + " and process them with a regular run.");
+        if (restriction == QuarantineInput.Restriction.WHOLE_COLLECTION)
+            LOGGER.warn("The input of the collection reader could not be restricted to the quarantined documents. The whole collection is read again and only the quarantined documents are processed.");
+        setFlowController(QuarantineFlowController.class, "quarantine", QuarantineFlowController.PARAM_QUARANTINE_FILE, rerunFile.getAbsolutePath());
+    }
+
+    /**
+     * Replaces the aggregate descriptors of the CAS processors by copies that use the given flow controller. The
+     * copies are written to a temporary directory that is deleted on exit, so that the pipeline directory is neither
+     * written to nor required to be writable. The relative import locations of the copies are made absolute with
+     * respect to the original descriptors. Aggregates that already declare a flow controller other than the given one
+     * keep it.
+     *
+     * @param flowControllerClass  The flow controller, a {@link WatchdogFlowController}.
+     * @param suffix               The suffix for the names of the descriptor copies.
+     * @param configurationData    The parameters of the flow controller as name-value pairs.
+     * @throws InvalidXMLException    If a CAS processor descriptor cannot be parsed.
+     * @throws IOException            If a copy cannot be written.
+     * @throws CpeDescriptorException If the CAS processors cannot be read.
+     */
+    protected void setFlowController(Class<? extends WatchdogFlowController> flowControllerClass, String suffix, Object... configurationData) throws InvalidXMLException, IOException, CpeDescriptorException {
+        File cpeDir = new File(descriptorPath).getAbsoluteFile().getParentFile();
+        for (CpeCasProcessor casProcessor : cpeDescription.getCpeCasProcessors().getAllCpeCasProcessors()) {
+            CpeComponentDescriptor componentDescriptor = casProcessor.getCpeComponentDescriptor();
+            File aaeFile = getDescriptorFile(casProcessor, cpeDir);
+            AnalysisEngineDescription aaeDesc = UIMAFramework.getXMLParser().parseAnalysisEngineDescription(new XMLInputSource(aaeFile));
+            if (aaeDesc.getFlowControllerDeclaration() != null && flowControllerClass == WatchdogFlowController.class) {
+                LOGGER.warn("The CAS processor {} declares its own flow controller. Its documents are not watched by the processing watchdog, the memory governor and the calibration.", casProcessor.getName());
+                continue;
+            }
+            FlowControllerDeclaration flowControllerDeclaration = new FlowControllerDeclaration_impl();
+            flowControllerDeclaration.setKey(flowControllerClass.getSimpleName());
+            try {
+                flowControllerDeclaration.setSpecifier(FlowControllerFactory.createFlowControllerDescription(flowControllerClass, configurationData));
+            } catch (ResourceInitializationException e) {
+                throw new IOException(e);
+            }
+            aaeDesc.setFlowControllerDeclaration(flowControllerDeclaration);
+            makeImportLocationsAbsolute(aaeDesc, aaeFile.toURI().toURL());
+            File aaeCopyFile = File.createTempFile(aaeFile.getName().replace(".xml", "") + "-" + suffix + "-", ".xml", getDescriptorCopyDirectory().toFile());
+            try (Writer writer = new OutputStreamWriter(Files.newOutputStream(aaeCopyFile.toPath()), StandardCharsets.UTF_8)) {
+                aaeDesc.toXML(writer);
+            } catch (org.xml.sax.SAXException e) {
+                throw new IOException(e);
+            }
+            if (componentDescriptor.getImport() != null)
+                componentDescriptor.getImport().setLocation(aaeCopyFile.toURI().toString());
+            else
+                componentDescriptor.getInclude().set(aaeCopyFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * @return The temporary directory for the descriptor copies, created on the first call.
+     */
+    private Path getDescriptorCopyDirectory() throws IOException {
+        if (descriptorCopyDirectory == null) {
+            Path directory = Files.createTempDirectory("jcore-pipeline-descriptors-");
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try (Stream<Path> paths = Files.walk(directory)) {
+                    for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                        Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not delete the directory {} with the descriptor copies: {}", directory, e.getMessage());
+                }
+            }));
+            descriptorCopyDirectory = directory;
+        }
+        return descriptorCopyDirectory;
+    }
+
+    /**
+     * Resolves the relative import locations of the aggregate, its inline delegates and their type systems, type
+     * priorities, index collections and resource manager configurations against the URL of the original descriptor.
+     * Imports by name are resolved by the classpath and the data path and are kept.
+     *
+     * @param aaeDesc The analysis engine description.
+     * @param base    The URL of the file the description has been read from.
+     */
+    static void makeImportLocationsAbsolute(AnalysisEngineDescription aaeDesc, URL base) throws MalformedURLException {
+        List<Import> imports = new ArrayList<>();
+        collectImports(aaeDesc, imports);
+        for (Import anImport : imports) {
+            if (anImport.getLocation() != null)
+                anImport.setLocation(new URL(base, anImport.getLocation()).toString());
+        }
+    }
+
+    private static void collectImports(ResourceCreationSpecifier specifier, List<Import> imports) {
+        if (specifier.getResourceManagerConfiguration() != null)
+            imports.addAll(Arrays.asList(specifier.getResourceManagerConfiguration().getImports()));
+        if (specifier.getMetaData() instanceof ProcessingResourceMetaData) {
+            ProcessingResourceMetaData metaData = (ProcessingResourceMetaData) specifier.getMetaData();
+            if (metaData.getTypeSystem() != null)
+                imports.addAll(Arrays.asList(metaData.getTypeSystem().getImports()));
+            if (metaData.getTypePriorities() != null)
+                imports.addAll(Arrays.asList(metaData.getTypePriorities().getImports()));
+            if (metaData.getFsIndexCollection() != null)
+                imports.addAll(Arrays.asList(metaData.getFsIndexCollection().getImports()));
+        }
+        if (specifier instanceof AnalysisEngineDescription && !((AnalysisEngineDescription) specifier).isPrimitive()) {
+            AnalysisEngineDescription aggregate = (AnalysisEngineDescription) specifier;
+            for (MetaDataObject delegate : aggregate.getDelegateAnalysisEngineSpecifiersWithImports().values()) {
+                if (delegate instanceof Import)
+                    imports.add((Import) delegate);
+                else if (delegate instanceof ResourceCreationSpecifier)
+                    collectImports((ResourceCreationSpecifier) delegate, imports);
+            }
+            if (aggregate.getFlowControllerDeclaration() != null && aggregate.getFlowControllerDeclaration().getImport() != null)
+                imports.add(aggregate.getFlowControllerDeclaration().getImport());
+        }
+    }
+
+    private File getDescriptorFile(CpeCasProcessor casProcessor, File cpeDir) throws CpeDescriptorException {
+        return getDescriptorFile(casProcessor.getCpeComponentDescriptor(), cpeDir);
+    }
+
+    static File getDescriptorFile(CpeComponentDescriptor componentDescriptor, File cpeDir) {
+        String location = componentDescriptor.getImport() != null ? componentDescriptor.getImport().getLocation() : componentDescriptor.getInclude().get();
+        return new File(location).isAbsolute() ? new File(location) : new File(cpeDir, location);
+    }
+
     /**
      * @throws InvalidXMLException
      * @throws IOException
@@ -168,11 +610,32 @@ public class CPERunner {
     public void createCPE() throws InvalidXMLException, IOException,
             ResourceInitializationException, CpeDescriptorException {
         LOGGER.info("Creating CPE... ");
-        cpe = UIMAFramework.produceCollectionProcessingEngine(cpeDescription);
+        if (calibrationFile != null) {
+            CalibrationRecorder.start(calibrationFile);
+        }
+        if (profileFile != null) {
+            RunProfiler.start(profileFile, runProfile);
+        }
+        Map<String, Object> additionalParams = new HashMap<>();
+        if (casHeapSize != null) {
+            LOGGER.info("Setting the initial CAS heap size to " + casHeapSize);
+            Properties performanceTuningSettings = UIMAFramework.getDefaultPerformanceTuningProperties();
+            performanceTuningSettings.setProperty(UIMAFramework.CAS_INITIAL_HEAP_SIZE, String.valueOf(casHeapSize));
+            additionalParams.put(Resource.PARAM_PERFORMANCE_TUNING_SETTINGS, performanceTuningSettings);
+        }
+        cpe = UIMAFramework.produceCollectionProcessingEngine(cpeDescription, additionalParams);
 
         statusCallbackListener = new StatusCallbackListener(cpe,
-                batchSize);
+                batchSize, errorPolicy, quarantineFile, LatencyRecorder.start(latencyReportFile, slowestDocuments));
         cpe.addStatusCallbackListener(statusCallbackListener);
+
+        if (documentTimeout != null) {
+            ProcessingWatchdog.start(documentTimeout, cpeDescription.getCpeCasProcessors().getConcurrentPUCount(), statusCallbackListener);
+        }
+
+        if (memoryThresholds != null) {
+            MemoryGovernor.start(cpe, cpeDescription.getCpeCasProcessors().getConcurrentPUCount(), memoryThresholds[0], memoryThresholds[1]);
+        }
     }
 
     public boolean isError() {
@@ -265,4 +728,44 @@ public class CPERunner {
     public Integer getNumbersOfDocuments() {
         return numbersOfDocuments;
     }
+
+    public ErrorPolicy getErrorPolicy() {
+        return errorPolicy;
+    }
+
+    public File getQuarantineFile() {
+        return quarantineFile;
+    }
+
+    public File getRerunFile() {
+        return rerunFile;
+    }
+
+    public Integer getDocumentTimeout() {
+        return documentTimeout;
+    }
+
+    public double[] getMemoryThresholds() {
+        return memoryThresholds;
+    }
+
+    public Integer getCasHeapSize() {
+        return casHeapSize;
+    }
+
+    public File getCalibrationFile() {
+        return calibrationFile;
+    }
+
+    public File getProfileFile() {
+        return profileFile;
+    }
+
+    public File getLatencyReportFile() {
+        return latencyReportFile;
+    }
+
+    public int getSlowestDocuments() {
+        return slowestDocuments;
+    }
 }
\ No newline at end of file
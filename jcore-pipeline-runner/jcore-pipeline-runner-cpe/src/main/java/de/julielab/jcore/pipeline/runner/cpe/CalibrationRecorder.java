@@ -0,0 +1,205 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.impl.Serialization;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * <p>Measures the resource usage of a calibration run for the automatic tuning of the runner settings. For each
+ * document, the processing time, the CPU time per component, the bytes allocated by the processing thread and the
+ * footprint of the CAS are recorded. The footprint is the size of the binary serialization of the CAS after all
+ * components have processed it which is close to the size of the CAS heaps. In addition, the heap occupancy after
+ * garbage collection is recorded before the CPE is created and after the components have been initialized.</p>
+ * <p>The results are written as a properties file with the keys of the <tt>KEY_</tt> constants when the run is
+ * complete.</p>
+ */
+public class CalibrationRecorder {
+    public static final String KEY_DOCUMENTS = "documents";
+    public static final String KEY_PROCESSING_TIME = "processingTime";
+    public static final String KEY_CPU_TIME = "cpuTime";
+    public static final String KEY_RUN_TIME = "runTime";
+    public static final String KEY_CAS_FOOTPRINT_AVG = "casFootprint.avg";
+    public static final String KEY_CAS_FOOTPRINT_P99 = "casFootprint.p99";
+    public static final String KEY_ALLOCATED_AVG = "allocated.avg";
+    public static final String KEY_HEAP_BASE = "heap.base";
+    public static final String KEY_HEAP_INITIALIZED = "heap.initialized";
+    public static final String KEY_COMPONENT_CPU_TIME_PREFIX = "component.cpuTime.";
+    private final static Logger LOGGER = LoggerFactory.getLogger(CalibrationRecorder.class);
+    private static volatile CalibrationRecorder instance;
+    private final File outputFile;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final Map<Thread, DocumentMeasurement> inFlight = new HashMap<>();
+    private final List<Long> footprints = new ArrayList<>();
+    private final Map<String, Long> componentCpuTimes = new LinkedHashMap<>();
+    private final long heapBase;
+    private long heapInitialized;
+    private long initializationCompleteTime;
+    private long processingTime;
+    private long cpuTime;
+    private long allocated;
+
+    private CalibrationRecorder(File outputFile) {
+        this.outputFile = outputFile;
+        heapBase = getHeapAfterGc();
+        if (threadMXBean.isThreadCpuTimeSupported())
+            threadMXBean.setThreadCpuTimeEnabled(true);
+    }
+
+    /**
+     * Starts the calibration of this JVM. Must be called before the CPE is created to measure the heap without the
+     * components.
+     *
+     * @param outputFile The file to write the results to.
+     * @return The recorder.
+     */
+    public static synchronized CalibrationRecorder start(File outputFile) {
+        instance = new CalibrationRecorder(outputFile);
+        LOGGER.info("Recording a calibration of the resource usage to {}", outputFile);
+        return instance;
+    }
+
+    /**
+     * @return The recorder of this JVM or <tt>null</tt> if there is no calibration.
+     */
+    public static CalibrationRecorder getInstance() {
+        return instance;
+    }
+
+    private static long getHeapAfterGc() {
+        ManagementFactory.getMemoryMXBean().gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    public synchronized void initializationComplete() {
+        heapInitialized = getHeapAfterGc();
+        initializationCompleteTime = System.currentTimeMillis();
+    }
+
+    void documentStarted() {
+        DocumentMeasurement measurement = new DocumentMeasurement();
+        measurement.startTime = System.nanoTime();
+        measurement.lastCpuTime = getCurrentThreadCpuTime();
+        measurement.startAllocated = getCurrentThreadAllocatedBytes();
+        synchronized (this) {
+            inFlight.put(Thread.currentThread(), measurement);
+        }
+    }
+
+    void componentEntered(String component) {
+        DocumentMeasurement measurement;
+        synchronized (this) {
+            measurement = inFlight.get(Thread.currentThread());
+        }
+        if (measurement != null)
+            measurement.enter(component, getCurrentThreadCpuTime());
+    }
+
+    void documentFinished(CAS cas) {
+        DocumentMeasurement measurement;
+        synchronized (this) {
+            measurement = inFlight.remove(Thread.currentThread());
+        }
+        // Aborted documents are not part of the calibration
+        if (measurement == null || cas == null)
+            return;
+        long cpuTime = getCurrentThreadCpuTime();
+        measurement.enter(null, cpuTime);
+        long allocated = getCurrentThreadAllocatedBytes() - measurement.startAllocated;
+        long processingTime = System.nanoTime() - measurement.startTime;
+        CountingOutputStream os = new CountingOutputStream();
+        try {
+            Serialization.serializeCAS(cas, os);
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not determine the CAS footprint", e);
+        }
+        synchronized (this) {
+            this.processingTime += processingTime;
+            this.allocated += Math.max(0, allocated);
+            footprints.add(os.count);
+            for (Map.Entry<String, Long> e : measurement.componentCpuTimes.entrySet()) {
+                this.cpuTime += e.getValue();
+                componentCpuTimes.merge(e.getKey(), e.getValue(), Long::sum);
+            }
+        }
+    }
+
+    /**
+     * Writes the results of the calibration to the output file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized void write() throws IOException {
+        int documents = footprints.size();
+        List<Long> sorted = new ArrayList<>(footprints);
+        Collections.sort(sorted);
+        Properties properties = new Properties();
+        properties.setProperty(KEY_DOCUMENTS, String.valueOf(documents));
+        properties.setProperty(KEY_PROCESSING_TIME, String.valueOf(processingTime / 1000000));
+        properties.setProperty(KEY_CPU_TIME, String.valueOf(cpuTime / 1000000));
+        properties.setProperty(KEY_RUN_TIME, String.valueOf(System.currentTimeMillis() - initializationCompleteTime));
+        properties.setProperty(KEY_CAS_FOOTPRINT_AVG, String.valueOf(documents > 0 ? sorted.stream().mapToLong(Long::longValue).sum() / documents : 0));
+        properties.setProperty(KEY_CAS_FOOTPRINT_P99, String.valueOf(documents > 0 ? sorted.get(Math.min(documents - 1, (int) Math.ceil(documents * 0.99) - 1)) : 0));
+        properties.setProperty(KEY_ALLOCATED_AVG, String.valueOf(documents > 0 ? allocated / documents : 0));
+        properties.setProperty(KEY_HEAP_BASE, String.valueOf(heapBase));
+        properties.setProperty(KEY_HEAP_INITIALIZED, String.valueOf(heapInitialized));
+        for (Map.Entry<String, Long> e : componentCpuTimes.entrySet())
+            properties.setProperty(KEY_COMPONENT_CPU_TIME_PREFIX + e.getKey(), String.valueOf(e.getValue() / 1000000));
+        try (Writer writer = Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8)) {
+            properties.store(writer, "Pipeline calibration");
+        }
+        LOGGER.info("Wrote the calibration of {} documents to {}", documents, outputFile);
+    }
+
+    private long getCurrentThreadCpuTime() {
+        return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    private long getCurrentThreadAllocatedBytes() {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return 0;
+    }
+
+    private static class DocumentMeasurement {
+        private final Map<String, Long> componentCpuTimes = new HashMap<>();
+        private long startTime;
+        private long startAllocated;
+        private long lastCpuTime;
+        private String component;
+
+        /**
+         * Attributes the CPU time since the last step to the component of that step.
+         */
+        private void enter(String nextComponent, long cpuTime) {
+            if (component != null)
+                componentCpuTimes.merge(component, cpuTime - lastCpuTime, Long::sum);
+            component = nextComponent;
+            lastCpuTime = cpuTime;
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            ++count;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
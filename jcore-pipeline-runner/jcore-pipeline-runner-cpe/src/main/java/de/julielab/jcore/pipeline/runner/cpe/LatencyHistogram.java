@@ -0,0 +1,109 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import java.util.function.BiConsumer;
+
+/**
+ * <p>A histogram of latencies with logarithmic buckets in the manner of an HDR histogram. Values below
+ * {@value #SUB_BUCKETS} are counted exactly. Above, each power of two is divided into {@value #HALF_SUB_BUCKETS}
+ * equally sized buckets, so that the relative error of a recorded value is below 1/{@value #HALF_SUB_BUCKETS}, about
+ * 3%, independently of its magnitude. The memory is fixed and recording a value is a constant time operation.</p>
+ * <p>The histogram is not thread safe.</p>
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private final long[] counts = new long[getIndex(Long.MAX_VALUE) + 1];
+    private long count;
+    private long sum;
+    private long max;
+
+    static int getIndex(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return (exponent + 1) * HALF_SUB_BUCKETS + (int) (value >> exponent) - HALF_SUB_BUCKETS;
+    }
+
+    static long getLowerBound(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int exponent = index / HALF_SUB_BUCKETS - 1;
+        return (long) (index % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS) << exponent;
+    }
+
+    static long getUpperBound(int index) {
+        return index + 1 < SUB_BUCKETS ? index : getLowerBound(index + 1) - 1;
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value The latency.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        ++counts[getIndex(value)];
+        ++count;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count > 0 ? sum / (double) count : 0;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * @param percentile The percentile between 0 and 100.
+     * @return The upper bound of the bucket that contains the value at the given percentile, capped by the maximum
+     * value, 0 if the histogram is empty.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank)
+                return Math.min(getUpperBound(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * Passes the non-empty buckets in ascending order, as a range of the form <tt>lower-upper</tt>, with their counts
+     * to the given consumer.
+     *
+     * @param consumer The consumer of the buckets.
+     */
+    public void forEachBucket(BiConsumer<String, Long> consumer) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                long lower = getLowerBound(i);
+                long upper = getUpperBound(i);
+                consumer.accept(lower == upper ? String.valueOf(lower) : lower + "-" + upper, counts[i]);
+            }
+        }
+    }
+
+    /**
+     * @return The count, mean, 50th, 90th, 99th and 99.9th percentiles and the maximum.
+     */
+    @Override
+    public String toString() {
+        return String.format("count %d, mean %.1f, p50 %d, p90 %d, p99 %d, p99.9 %d, max %d", count, getMean(), getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99), getValueAtPercentile(99.9), max);
+    }
+}
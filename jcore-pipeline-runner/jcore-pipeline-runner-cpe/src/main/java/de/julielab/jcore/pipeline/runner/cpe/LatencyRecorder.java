@@ -0,0 +1,325 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import org.apache.uima.util.ProcessTrace;
+import org.apache.uima.util.ProcessTraceEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * <p>Records the latencies of the single documents from the process traces the CPE passes to the
+ * {@link StatusCallbackListener}. The end-to-end latency of each document and the latencies of the components it
+ * passed are added to {@link LatencyHistogram}s. The slowest documents are kept in a bounded heap together with their
+ * size and the component that took the most time on them. Thus, the long tail of the latency distribution and the
+ * documents causing it can be identified, e.g. to decide whether large documents should be split or routed
+ * differently.</p>
+ * <p>The latencies are measured in milliseconds. The documents that a multiplier creates from a CAS are recorded one
+ * by one by the {@link WatchdogFlowController} from their creation until they leave the last stage of the pipeline.
+ * Since their process traces are not available, the times they spent in the stages are recorded in histograms of
+ * their own, apart from the component histograms. The CAS meant for the multiplier is then not recorded. If
+ * the flow controller does not record the created documents, e.g. because the aggregate has a flow controller of its
+ * own, the CAS meant for the multiplier counts as one document whose latency includes the processing of all the
+ * documents created from it.</p>
+ * <p>There is one recorder per JVM so that the flow controllers created by UIMA can reach it.</p>
+ */
+public class LatencyRecorder {
+    public static final int DEFAULT_SLOWEST_DOCUMENTS = 20;
+    private final static Logger LOGGER = LoggerFactory.getLogger(LatencyRecorder.class);
+    private static volatile LatencyRecorder instance;
+    private final File reportFile;
+    private final int maxSlowestDocuments;
+    private final LatencyHistogram endToEnd = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> components = new LinkedHashMap<>();
+    /**
+     * The latencies of the stages, i.e. of the delegates of the CPE aggregate, for the documents created by
+     * multipliers.
+     */
+    private final Map<String, LatencyHistogram> stages = new LinkedHashMap<>();
+    /**
+     * The slowest documents with the fastest of them at the head.
+     */
+    private final PriorityQueue<SlowDocument> slowestDocuments = new PriorityQueue<>(Comparator.comparingLong(SlowDocument::getLatency));
+    private boolean recordingProducedDocuments;
+
+    /**
+     * @param reportFile          The file to write the latency report to, may be <tt>null</tt>.
+     * @param maxSlowestDocuments The number of slowest documents to keep.
+     */
+    public LatencyRecorder(File reportFile, int maxSlowestDocuments) {
+        this.reportFile = reportFile;
+        this.maxSlowestDocuments = maxSlowestDocuments;
+    }
+
+    /**
+     * Starts the latency recording of this JVM.
+     *
+     * @param reportFile          The file to write the latency report to, may be <tt>null</tt>.
+     * @param maxSlowestDocuments The number of slowest documents to keep.
+     * @return The recorder.
+     */
+    public static synchronized LatencyRecorder start(File reportFile, int maxSlowestDocuments) {
+        instance = new LatencyRecorder(reportFile, maxSlowestDocuments);
+        return instance;
+    }
+
+    /**
+     * @return The recorder of this JVM or <tt>null</tt> if the latencies are not recorded.
+     */
+    public static LatencyRecorder getInstance() {
+        return instance;
+    }
+
+    /**
+     * Adds the durations of the analysis engine events without analysis engine sub-events, i.e. of the primitive
+     * components, to the given map.
+     *
+     * @param events The events of a process trace.
+     * @param times  The durations in milliseconds by component name.
+     */
+    static void addComponentTimes(List<ProcessTraceEvent> events, Map<String, Long> times) {
+        for (ProcessTraceEvent event : events) {
+            List<ProcessTraceEvent> subEvents = event.getSubEvents() != null ? event.getSubEvents() : List.of();
+            boolean aggregate = subEvents.stream().anyMatch(e -> ProcessTraceEvent.ANALYSIS_ENGINE.equals(e.getType()));
+            if (ProcessTraceEvent.ANALYSIS_ENGINE.equals(event.getType()) && !aggregate)
+                times.merge(event.getComponentName(), (long) event.getDuration(), Long::sum);
+            else
+                addComponentTimes(subEvents, times);
+        }
+    }
+
+    /**
+     * Records the latencies of a document.
+     *
+     * @param trace     The process trace of the document.
+     * @param docId     The ID of the document.
+     * @param size      The length of the document text.
+     * @param documents The number of documents in the CAS, more than one for CASes meant for multipliers.
+     */
+    public synchronized void record(ProcessTrace trace, String docId, int size, int documents) {
+        if (trace == null || trace.getEvents().isEmpty())
+            return;
+        // The outermost event of the CPE encloses the processing of the document by all components
+        long latency = trace.getEvents().stream().mapToLong(ProcessTraceEvent::getDuration).max().getAsLong();
+        Map<String, Long> componentTimes = new LinkedHashMap<>();
+        addComponentTimes(trace.getEvents(), componentTimes);
+        record(docId, size, documents, latency, componentTimes, components, false);
+    }
+
+    /**
+     * Records the latencies of a document created by a multiplier.
+     *
+     * @param docId      The ID of the document.
+     * @param size       The length of the document text.
+     * @param latency    The time from the creation of the document until it left the last stage.
+     * @param stageTimes The times the document spent in the stages of the pipeline.
+     */
+    public synchronized void recordProduced(String docId, int size, long latency, Map<String, Long> stageTimes) {
+        recordingProducedDocuments = true;
+        record(docId, size, 1, latency, stageTimes, stages, true);
+    }
+
+    /**
+     * @return Whether documents created by multipliers are recorded on their own, so that the CASes meant for the
+     * multipliers must not be recorded.
+     */
+    public synchronized boolean isRecordingProducedDocuments() {
+        return recordingProducedDocuments;
+    }
+
+    private void record(String docId, int size, int documents, long latency, Map<String, Long> times, Map<String, LatencyHistogram> histograms, boolean stageTimes) {
+        endToEnd.record(latency);
+        times.forEach((name, time) -> histograms.computeIfAbsent(name, c -> new LatencyHistogram()).record(time));
+        if (slowestDocuments.size() < maxSlowestDocuments || (!slowestDocuments.isEmpty() && slowestDocuments.peek().getLatency() < latency)) {
+            Map.Entry<String, Long> slowest = times.entrySet().stream().max(Map.Entry.comparingByValue()).orElse(null);
+            slowestDocuments.add(new SlowDocument(docId, size, documents, latency, slowest, stageTimes));
+            if (slowestDocuments.size() > maxSlowestDocuments)
+                slowestDocuments.poll();
+        }
+    }
+
+    public synchronized LatencyHistogram getEndToEnd() {
+        return endToEnd;
+    }
+
+    /**
+     * @return The latencies of the primitive components by component name.
+     */
+    public synchronized Map<String, LatencyHistogram> getComponents() {
+        return new LinkedHashMap<>(components);
+    }
+
+    /**
+     * @return The latencies of the stages for the documents created by multipliers by stage name.
+     */
+    public synchronized Map<String, LatencyHistogram> getStages() {
+        return new LinkedHashMap<>(stages);
+    }
+
+    /**
+     * @return The slowest documents, the slowest first.
+     */
+    public synchronized List<SlowDocument> getSlowestDocuments() {
+        List<SlowDocument> documents = new ArrayList<>(slowestDocuments);
+        documents.sort(Comparator.comparingLong(SlowDocument::getLatency).reversed());
+        return documents;
+    }
+
+    public File getReportFile() {
+        return reportFile;
+    }
+
+    /**
+     * Logs the end-to-end latencies, the component and the stage with the highest 99th percentile and the slowest
+     * document.
+     */
+    public synchronized void log() {
+        if (endToEnd.getCount() == 0)
+            return;
+        LOGGER.info("Document latencies in ms: {}", endToEnd);
+        components.entrySet().stream().max(Comparator.comparingLong(e -> e.getValue().getValueAtPercentile(99))).ifPresent(e -> LOGGER.info("Component with the highest p99 latency: {}: {}", e.getKey(), e.getValue()));
+        stages.entrySet().stream().max(Comparator.comparingLong(e -> e.getValue().getValueAtPercentile(99))).ifPresent(e -> LOGGER.info("Stage with the highest p99 latency for documents created by multipliers: {}: {}", e.getKey(), e.getValue()));
+        List<SlowDocument> slowest = getSlowestDocuments();
+        if (!slowest.isEmpty())
+            LOGGER.info("Slowest document: {}", slowest.get(0));
+    }
+
+    /**
+     * Writes the latency report to the report file, if there is one. The report is replaced on each call.
+     *
+     * @throws IOException If the report cannot be written.
+     */
+    public synchronized void write() throws IOException {
+        if (reportFile == null)
+            return;
+        File dir = reportFile.getAbsoluteFile().getParentFile();
+        Files.createDirectories(dir.toPath());
+        File tmpFile = File.createTempFile(reportFile.getName(), ".tmp", dir);
+        try (BufferedWriter bw = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+            bw.write("Written on " + new Date());
+            bw.newLine();
+            bw.newLine();
+            bw.write("Latencies in ms");
+            bw.newLine();
+            bw.write("End-to-end: " + endToEnd);
+            bw.newLine();
+            for (Map.Entry<String, LatencyHistogram> component : components.entrySet()) {
+                bw.write(component.getKey() + ": " + component.getValue());
+                bw.newLine();
+            }
+            if (!stages.isEmpty()) {
+                bw.newLine();
+                bw.write("Stage latencies in ms of the documents created by multipliers");
+                bw.newLine();
+                for (Map.Entry<String, LatencyHistogram> stage : stages.entrySet()) {
+                    bw.write(stage.getKey() + ": " + stage.getValue());
+                    bw.newLine();
+                }
+            }
+            bw.newLine();
+            bw.write("The " + slowestDocuments.size() + " slowest documents");
+            bw.newLine();
+            for (SlowDocument document : getSlowestDocuments()) {
+                bw.write(document.toString());
+                bw.newLine();
+            }
+            writeBuckets(bw, "End-to-end", endToEnd);
+            for (Map.Entry<String, LatencyHistogram> component : components.entrySet())
+                writeBuckets(bw, component.getKey(), component.getValue());
+            for (Map.Entry<String, LatencyHistogram> stage : stages.entrySet())
+                writeBuckets(bw, "stage " + stage.getKey(), stage.getValue());
+        }
+        Files.move(tmpFile.toPath(), reportFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        LOGGER.debug("Wrote the latency report of {} documents to {}", endToEnd.getCount(), reportFile);
+    }
+
+    private void writeBuckets(BufferedWriter bw, String name, LatencyHistogram histogram) throws IOException {
+        bw.newLine();
+        bw.write("Distribution of " + name + " (ms: count, cumulative %)");
+        bw.newLine();
+        long[] cumulative = new long[1];
+        IOException[] exception = new IOException[1];
+        histogram.forEachBucket((range, count) -> {
+            cumulative[0] += count;
+            try {
+                bw.write(String.format("%s: %d, %.2f", range, count, cumulative[0] * 100d / histogram.getCount()));
+                bw.newLine();
+            } catch (IOException e) {
+                exception[0] = e;
+            }
+        });
+        if (exception[0] != null)
+            throw exception[0];
+    }
+
+    public static class SlowDocument {
+        private final String docId;
+        private final int size;
+        private final int documents;
+        private final long latency;
+        private final String component;
+        private final long componentLatency;
+        private final boolean stage;
+
+        private SlowDocument(String docId, int size, int documents, long latency, Map.Entry<String, Long> slowestComponent, boolean stage) {
+            this.docId = docId;
+            this.size = size;
+            this.documents = documents;
+            this.latency = latency;
+            this.component = slowestComponent != null ? slowestComponent.getKey() : null;
+            this.componentLatency = slowestComponent != null ? slowestComponent.getValue() : 0;
+            this.stage = stage;
+        }
+
+        public String getDocId() {
+            return docId;
+        }
+
+        /**
+         * @return The length of the document text.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        public int getDocuments() {
+            return documents;
+        }
+
+        public long getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return The component that took the most time on the document, the stage for documents created by
+         * multipliers, <tt>null</tt> if the components were not traced.
+         */
+        public String getComponent() {
+            return component;
+        }
+
+        /**
+         * @return Whether {@link #getComponent()} is a stage of the pipeline rather than a primitive component.
+         */
+        public boolean isStage() {
+            return stage;
+        }
+
+        public long getComponentLatency() {
+            return componentLatency;
+        }
+
+        @Override
+        public String toString() {
+            String content = documents > 1 ? documents + " documents" : size + " characters";
+            String slowestComponent = component != null ? ", " + componentLatency + " ms in " + (stage ? "stage " : "") + component : "";
+            return docId + ": " + latency + " ms, " + content + slowestComponent;
+        }
+    }
+}
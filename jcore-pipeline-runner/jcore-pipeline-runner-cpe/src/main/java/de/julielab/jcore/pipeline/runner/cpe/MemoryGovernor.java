@@ -0,0 +1,320 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import com.sun.management.GcInfo;
+import org.apache.uima.collection.CollectionProcessingEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Throttles the CPE before the heap runs full. The governor samples the heap occupancy after the most recent garbage
+ * collection and the share of time spent in garbage collection every {@value #SAMPLE_PERIOD} ms.</p>
+ * <ul>
+ *     <li>When the occupancy exceeds the elevated threshold or the collector takes more than
+ *     {@value #MAX_GC_SHARE} of the time, the number of documents that may be processed concurrently is halved.
+ *     Additional documents wait in the {@link WatchdogFlowController} before entering the components.</li>
+ *     <li>When the occupancy exceeds the critical threshold, the CPE is paused. The reader stops reading and the
+ *     processing units stop taking new documents while the documents in flight are finished. The CPE is resumed when
+ *     the occupancy is below the elevated threshold again or after {@value #MAX_PAUSE} ms. After such a forced
+ *     resume, the CPE is not paused again for a backoff time that starts at {@value #MAX_PAUSE} ms and doubles with
+ *     every forced resume in a row up to {@value #MAX_PAUSE_BACKOFF} ms. Meanwhile, one document is processed at a
+ *     time.</li>
+ *     <li>When the occupancy is more than {@value #RECOVERY_MARGIN} below the elevated threshold, the number of
+ *     concurrent documents is increased by one per sample up to the number of processing units. The margin keeps the
+ *     limit from alternating around the threshold.</li>
+ * </ul>
+ * <p>There is one governor per JVM because the flow controllers are created by UIMA. It is inactive unless
+ * {@link #start(CollectionProcessingEngine, int, double, double)} has been called.</p>
+ */
+public class MemoryGovernor {
+    private static final long SAMPLE_PERIOD = 1000;
+    private static final long MAX_PAUSE = 60000;
+    private static final long MAX_PAUSE_BACKOFF = 600000;
+    private static final double MAX_GC_SHARE = 0.25;
+    private static final double RECOVERY_MARGIN = 0.05;
+    private final static Logger LOGGER = LoggerFactory.getLogger(MemoryGovernor.class);
+    private static volatile MemoryGovernor instance;
+    private final CollectionProcessingEngine cpe;
+    private final int maxLimit;
+    private final double elevatedThreshold;
+    private final double criticalThreshold;
+    private final HeapMonitor heapMonitor;
+    private final ScheduledExecutorService executor;
+    /**
+     * The processing threads currently holding a document. Counting threads instead of acquisitions keeps the limit
+     * correct for flows that are left without an end notification.
+     */
+    private final Set<Thread> holders = new HashSet<>();
+    private int limit;
+    private long lastGcTime;
+    private long lastSampleTime;
+    private long pauseStart = -1;
+    private long pauseBackoff = MAX_PAUSE;
+    private long pauseSuppressedUntil;
+    private int numThrottles;
+    private int numPauses;
+    private long totalPauseTime;
+    private double lastOccupancy;
+
+    private MemoryGovernor(CollectionProcessingEngine cpe, int numThreads, double elevatedThreshold, double criticalThreshold) {
+        this(cpe, numThreads, elevatedThreshold, criticalThreshold, new MXBeanHeapMonitor(), Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "MemoryGovernor");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        executor.scheduleAtFixedRate(() -> sample(System.currentTimeMillis()), SAMPLE_PERIOD, SAMPLE_PERIOD, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a governor whose samples are not scheduled, for tests.
+     */
+    MemoryGovernor(CollectionProcessingEngine cpe, int numThreads, double elevatedThreshold, double criticalThreshold, HeapMonitor heapMonitor, ScheduledExecutorService executor) {
+        this.cpe = cpe;
+        this.maxLimit = numThreads;
+        this.limit = numThreads;
+        this.elevatedThreshold = elevatedThreshold;
+        this.criticalThreshold = criticalThreshold;
+        this.heapMonitor = heapMonitor;
+        this.executor = executor;
+        lastGcTime = heapMonitor.getGcTime();
+        lastSampleTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Starts the governor of this JVM.
+     *
+     * @param cpe               The CPE to pause under critical memory pressure.
+     * @param numThreads        The number of processing unit threads.
+     * @param elevatedThreshold The heap occupancy after garbage collection, between 0 and 1, above which the number of
+     *                          concurrent documents is reduced.
+     * @param criticalThreshold The heap occupancy after garbage collection, between 0 and 1, above which the CPE is
+     *                          paused.
+     * @return The governor.
+     */
+    public static synchronized MemoryGovernor start(CollectionProcessingEngine cpe, int numThreads, double elevatedThreshold, double criticalThreshold) {
+        if (instance != null)
+            instance.stop();
+        instance = new MemoryGovernor(cpe, numThreads, elevatedThreshold, criticalThreshold);
+        LOGGER.info("Governing the memory with an elevated heap occupancy threshold of {} and a critical threshold of {}", elevatedThreshold, criticalThreshold);
+        return instance;
+    }
+
+    /**
+     * @return The governor of this JVM or <tt>null</tt> if it has not been started.
+     */
+    public static MemoryGovernor getInstance() {
+        return instance;
+    }
+
+    /**
+     * Blocks the current processing thread until the number of documents in flight is below the limit.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    synchronized void acquire() throws InterruptedException {
+        Thread thread = Thread.currentThread();
+        if (holders.contains(thread))
+            return;
+        while (holders.size() >= limit)
+            wait();
+        holders.add(thread);
+    }
+
+    synchronized void release() {
+        if (holders.remove(Thread.currentThread()))
+            notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return The number of times the number of concurrent documents has been reduced.
+     */
+    public synchronized int getNumThrottles() {
+        return numThrottles;
+    }
+
+    /**
+     * @return The number of times the CPE has been paused.
+     */
+    public synchronized int getNumPauses() {
+        return numPauses;
+    }
+
+    /**
+     * @return The total time in milliseconds the CPE has been paused.
+     */
+    public synchronized long getTotalPauseTime() {
+        return totalPauseTime + (pauseStart >= 0 ? System.currentTimeMillis() - pauseStart : 0);
+    }
+
+    /**
+     * @return The heap occupancy after garbage collection at the last sample.
+     */
+    public synchronized double getLastOccupancy() {
+        return lastOccupancy;
+    }
+
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    synchronized void sample(long now) {
+        try {
+            long gcTime = heapMonitor.getGcTime();
+            double gcShare = now > lastSampleTime ? (gcTime - lastGcTime) / (double) (now - lastSampleTime) : 0;
+            lastGcTime = gcTime;
+            lastSampleTime = now;
+            double occupancy = heapMonitor.getOccupancyAfterGc();
+            lastOccupancy = occupancy;
+            if (pauseStart < 0 && occupancy < elevatedThreshold)
+                pauseBackoff = MAX_PAUSE;
+
+            if (pauseStart >= 0) {
+                long pauseTime = now - pauseStart;
+                if (occupancy < elevatedThreshold || pauseTime >= MAX_PAUSE) {
+                    if (occupancy >= elevatedThreshold) {
+                        pauseSuppressedUntil = now + pauseBackoff;
+                        LOGGER.warn("The heap occupancy is still {} after a pause of {} ms. Resuming the processing with {} concurrent documents anyway without pausing again for {} ms.", format(occupancy), pauseTime, limit, pauseBackoff);
+                        pauseBackoff = Math.min(2 * pauseBackoff, MAX_PAUSE_BACKOFF);
+                    } else {
+                        LOGGER.info("The heap occupancy dropped to {}. Resuming the processing after a pause of {} ms with {} concurrent documents.", format(occupancy), pauseTime, limit);
+                    }
+                    totalPauseTime += pauseTime;
+                    pauseStart = -1;
+                    resumeProcessing();
+                } else if (holders.isEmpty()) {
+                    // Nothing is allocated while paused and idle, so collect to learn what is actually retained
+                    heapMonitor.gc();
+                }
+            } else if (occupancy > criticalThreshold && now >= pauseSuppressedUntil) {
+                limit = 1;
+                ++numThrottles;
+                ++numPauses;
+                pauseStart = now;
+                LOGGER.warn("The heap occupancy of {} exceeds the critical threshold of {}. Pausing the reading and processing of new documents until the memory recovers.", format(occupancy), criticalThreshold);
+                pauseProcessing();
+            } else if (occupancy > elevatedThreshold || gcShare > MAX_GC_SHARE) {
+                if (limit > 1) {
+                    limit = Math.max(1, limit / 2);
+                    ++numThrottles;
+                    LOGGER.warn("The heap occupancy is {} and the garbage collection took {} of the time. Reducing the number of concurrent documents to {}.", format(occupancy), format(gcShare), limit);
+                }
+            } else if (limit < maxLimit && occupancy < Math.max(elevatedThreshold - RECOVERY_MARGIN, elevatedThreshold / 2)) {
+                ++limit;
+                notifyAll();
+                LOGGER.info("The heap occupancy is {}. Increasing the number of concurrent documents to {}.", format(occupancy), limit);
+            }
+        } catch (Throwable t) {
+            LOGGER.error("Error in the memory governor", t);
+        }
+    }
+
+    void pauseProcessing() {
+        cpe.pause();
+    }
+
+    void resumeProcessing() {
+        cpe.resume();
+    }
+
+    private static String format(double share) {
+        return String.format("%.2f", share);
+    }
+
+    /**
+     * The heap measurements of the governor.
+     */
+    interface HeapMonitor {
+        /**
+         * @return The heap occupancy after the most recent garbage collection, between 0 and 1.
+         */
+        double getOccupancyAfterGc();
+
+        /**
+         * @return The accumulated time in milliseconds spent in garbage collection.
+         */
+        long getGcTime();
+
+        void gc();
+    }
+
+    /**
+     * Measures the heap by the platform MXBeans. The collection usage of the memory pools is only updated by the
+     * collectors of the respective pool, so the old generation would report its state after the last full collection
+     * while only young collections run. Thus, the heap usage after the most recent collection of any collector is
+     * taken from the HotSpot collector beans if available.
+     */
+    static class MXBeanHeapMonitor implements HeapMonitor {
+        private final MemoryMXBean memory;
+        private final List<GarbageCollectorMXBean> collectors;
+        private final List<MemoryPoolMXBean> pools;
+
+        MXBeanHeapMonitor() {
+            this(ManagementFactory.getMemoryMXBean(), ManagementFactory.getGarbageCollectorMXBeans(), ManagementFactory.getMemoryPoolMXBeans());
+        }
+
+        MXBeanHeapMonitor(MemoryMXBean memory, List<GarbageCollectorMXBean> collectors, List<MemoryPoolMXBean> pools) {
+            this.memory = memory;
+            this.collectors = collectors;
+            this.pools = pools;
+        }
+
+        @Override
+        public double getOccupancyAfterGc() {
+            MemoryUsage heap = memory.getHeapMemoryUsage();
+            long max = heap.getMax() > 0 ? heap.getMax() : heap.getCommitted();
+            if (max <= 0)
+                return 0;
+            Map<String, MemoryUsage> lastGcUsage = null;
+            long lastGcEnd = -1;
+            for (GarbageCollectorMXBean collector : collectors) {
+                if (!(collector instanceof com.sun.management.GarbageCollectorMXBean))
+                    continue;
+                GcInfo gcInfo = ((com.sun.management.GarbageCollectorMXBean) collector).getLastGcInfo();
+                if (gcInfo != null && gcInfo.getEndTime() > lastGcEnd) {
+                    lastGcEnd = gcInfo.getEndTime();
+                    lastGcUsage = gcInfo.getMemoryUsageAfterGc();
+                }
+            }
+            long used = 0;
+            for (MemoryPoolMXBean pool : pools) {
+                if (pool.getType() != MemoryType.HEAP || !pool.isValid())
+                    continue;
+                MemoryUsage usage = lastGcUsage != null ? lastGcUsage.get(pool.getName()) : null;
+                if (usage == null)
+                    usage = pool.getCollectionUsage() != null ? pool.getCollectionUsage() : pool.getUsage();
+                used += usage.getUsed();
+            }
+            return used / (double) max;
+        }
+
+        @Override
+        public long getGcTime() {
+            long time = 0;
+            for (GarbageCollectorMXBean gc : collectors)
+                time += Math.max(0, gc.getCollectionTime());
+            return time;
+        }
+
+        @Override
+        public void gc() {
+            memory.gc();
+        }
+    }
+}
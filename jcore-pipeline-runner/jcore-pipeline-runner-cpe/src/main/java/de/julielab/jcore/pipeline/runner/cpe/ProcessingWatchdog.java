@@ -0,0 +1,252 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Watches the documents in flight in the processing units of the CPE. The {@link WatchdogFlowController} reports
+ * when a processing thread starts a document, enters a component and finishes the document. When the processing of a
+ * document exceeds the timeout, the watchdog</p>
+ * <ol>
+ *     <li>writes a thread dump to <tt>pipeline-stall-&lt;document ID&gt;-&lt;time&gt;.dump</tt> next to the quarantine
+ *     file,</li>
+ *     <li>marks the document as failed by recording it in the quarantine file of the
+ *     {@link StatusCallbackListener},</li>
+ *     <li>interrupts the processing thread.</li>
+ * </ol>
+ * <p>The stalled component is taken from the stack trace of the thread because the flow controller only sees the
+ * aggregate of the whole pipeline. The interruption only ends the processing of components that wait or check the
+ * interrupt status of their thread. CPU-bound code like a backtracking regular expression does not react to it; the
+ * interrupt status is cleared when such a thread finishes the document so that its next document is not affected. A thread that does not finish its
+ * document within another timeout is considered lost until it finishes the document after all. When all processing
+ * threads are lost at the same time, the run cannot make progress anymore and the JVM is terminated.</p>
+ * <p>There is one watchdog per JVM because the flow controllers are created by UIMA. It is inactive unless
+ * {@link #start(long, int, StatusCallbackListener)} has been called.</p>
+ */
+public class ProcessingWatchdog {
+    private final static Logger LOGGER = LoggerFactory.getLogger(ProcessingWatchdog.class);
+    private static final String PRIMITIVE_ENGINE_CLASS = "org.apache.uima.analysis_engine.impl.PrimitiveAnalysisEngine_impl";
+    private static volatile ProcessingWatchdog instance;
+    private final long timeout;
+    private final int numThreads;
+    private final StatusCallbackListener listener;
+    private final Map<Thread, InFlightDocument> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger numStalls = new AtomicInteger();
+    private final ScheduledExecutorService executor;
+
+    private ProcessingWatchdog(long timeout, int numThreads, StatusCallbackListener listener) {
+        this(timeout, numThreads, listener, Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ProcessingWatchdog");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        long period = Math.max(1000, timeout / 4);
+        executor.scheduleAtFixedRate(() -> check(System.currentTimeMillis()), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a watchdog whose checks are not scheduled, for tests.
+     */
+    ProcessingWatchdog(long timeout, int numThreads, StatusCallbackListener listener, ScheduledExecutorService executor) {
+        this.timeout = timeout;
+        this.numThreads = numThreads;
+        this.listener = listener;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts the watchdog of this JVM.
+     *
+     * @param timeout    The time in milliseconds after which a document is considered stalled.
+     * @param numThreads The number of processing unit threads.
+     * @param listener   The listener to mark stalled documents as failed.
+     * @return The watchdog.
+     */
+    public static synchronized ProcessingWatchdog start(long timeout, int numThreads, StatusCallbackListener listener) {
+        if (instance != null)
+            instance.stop();
+        instance = new ProcessingWatchdog(timeout, numThreads, listener);
+        LOGGER.info("Watching the processing of documents with a timeout of {} ms", timeout);
+        return instance;
+    }
+
+    /**
+     * @return The watchdog of this JVM or <tt>null</tt> if it has not been started.
+     */
+    public static ProcessingWatchdog getInstance() {
+        return instance;
+    }
+
+    void documentStarted(Map<String, String> identifiers) {
+        inFlight.put(Thread.currentThread(), new InFlightDocument(identifiers));
+    }
+
+    void componentEntered(String component) {
+        InFlightDocument document = inFlight.get(Thread.currentThread());
+        if (document != null)
+            document.component = component;
+    }
+
+    /**
+     * Called by the processing thread when it has finished or aborted its document. If the watchdog interrupted the
+     * thread for the document, the interrupt status is cleared so that it does not fail the next document of the
+     * thread, e.g. while it waits for the {@link MemoryGovernor}, a database or a free CAS.
+     */
+    void documentFinished() {
+        InFlightDocument document = inFlight.remove(Thread.currentThread());
+        if (document == null)
+            return;
+        synchronized (document) {
+            document.finished = true;
+            if (document.threadInterrupted)
+                Thread.interrupted();
+        }
+        if (document.lost)
+            LOGGER.info("The lost processing thread {} has finished the document {} after all.", Thread.currentThread().getName(), document.identifiers.keySet());
+    }
+
+    /**
+     * @return The number of documents that exceeded the timeout.
+     */
+    public int getNumStalls() {
+        return numStalls.get();
+    }
+
+    /**
+     * @return The number of processing threads that are still stuck in a stalled document after the interruption.
+     */
+    public int getNumLostThreads() {
+        return (int) inFlight.values().stream().filter(d -> d.lost).count();
+    }
+
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    void check(long now) {
+        try {
+            for (Map.Entry<Thread, InFlightDocument> entry : inFlight.entrySet()) {
+                Thread thread = entry.getKey();
+                InFlightDocument document = entry.getValue();
+                long duration = now - document.startTime;
+                if (!document.interrupted && duration > timeout) {
+                    document.interrupted = true;
+                    numStalls.incrementAndGet();
+                    handleStall(thread, document, duration);
+                } else if (document.interrupted && !document.lost && duration > 2 * timeout) {
+                    document.lost = true;
+                    StackTraceElement[] stackTrace = thread.getStackTrace();
+                    LOGGER.error("The processing thread {} did not recover from the interruption while processing the document {} in component {}. It is {} in {}. {} of {} processing threads are lost.", thread.getName(), document.identifiers.keySet(), getComponent(document, stackTrace), thread.getState(), stackTrace.length > 0 ? stackTrace[0] : "<unknown>", getNumLostThreads(), numThreads);
+                }
+            }
+            // Lost threads that finish their documents after all are not counted anymore
+            if (getNumLostThreads() >= numThreads) {
+                LOGGER.error("All processing threads are stuck. The processing is terminated.");
+                listener.terminate(1);
+            }
+        } catch (Throwable t) {
+            LOGGER.error("Error in the processing watchdog", t);
+        }
+    }
+
+    private void handleStall(Thread thread, InFlightDocument document, long duration) {
+        String docId = document.identifiers.isEmpty() ? "<unknown>" : document.identifiers.keySet().iterator().next();
+        String component = getComponent(document, thread.getStackTrace());
+        File dumpFile = new File(listener.getQuarantineFile().getAbsoluteFile().getParentFile(), "pipeline-stall-" + docId.replaceAll("[^\\w.-]+", "_") + "-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".dump");
+        LOGGER.error("The processing of the document {} in component {} has been running for {} ms on thread {} which exceeds the timeout of {} ms. Writing a thread dump to {} and interrupting the thread.", document.identifiers.keySet(), component, duration, thread.getName(), timeout, dumpFile);
+        try {
+            writeThreadDump(dumpFile, thread, document.identifiers, component, duration);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write the thread dump to {}", dumpFile, e);
+        }
+        listener.documentStalled(document.identifiers, component, duration);
+        // A thread that has finished the document in the meantime must not be interrupted in its next document
+        synchronized (document) {
+            if (!document.finished) {
+                document.threadInterrupted = true;
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return The class of the analysis component the thread is processing the document in or, if the stack trace
+     * does not show one, the key of the CPE aggregate delegate the document has entered.
+     */
+    private static String getComponent(InFlightDocument document, StackTraceElement[] stackTrace) {
+        String component = findAnalysisComponent(stackTrace);
+        return component != null ? component : document.component;
+    }
+
+    /**
+     * Finds the analysis component that is being processed in a stack trace. The flow controller of the CPE aggregate
+     * only sees its direct delegates, usually the aggregate of the whole pipeline, so the component is taken from the
+     * innermost call of a primitive analysis engine.
+     *
+     * @param stackTrace The stack trace of a processing thread.
+     * @return The class name of the analysis component or <tt>null</tt> if the thread is not processing a component.
+     */
+    static String findAnalysisComponent(StackTraceElement[] stackTrace) {
+        for (int i = 0; i < stackTrace.length; i++) {
+            if (stackTrace[i].getClassName().equals(PRIMITIVE_ENGINE_CLASS) && stackTrace[i].getMethodName().equals("callAnalysisComponentProcess")) {
+                // The frames above the call of the engine are the component and the code it calls
+                for (int j = i - 1; j >= 0; j--) {
+                    if (!stackTrace[j].getClassName().startsWith("org.apache.uima."))
+                        return stackTrace[j].getClassName();
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private void writeThreadDump(File dumpFile, Thread stalledThread, Map<String, String> identifiers, String component, long duration) throws IOException {
+        try (BufferedWriter bw = Files.newBufferedWriter(dumpFile.toPath(), StandardCharsets.UTF_8)) {
+            bw.write("Stalled document: " + identifiers.keySet() + " in component " + component + " for " + duration + " ms on thread " + stalledThread.getName());
+            bw.newLine();
+            for (Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+                Thread thread = entry.getKey();
+                bw.newLine();
+                bw.write((thread == stalledThread ? "[STALLED] " : "") + "\"" + thread.getName() + "\" " + (thread.isDaemon() ? "daemon " : "") + thread.getState());
+                bw.newLine();
+                for (StackTraceElement frame : entry.getValue()) {
+                    bw.write("\tat " + frame);
+                    bw.newLine();
+                }
+            }
+        }
+    }
+
+    private static class InFlightDocument {
+        private final Map<String, String> identifiers;
+        private final long startTime = System.currentTimeMillis();
+        private volatile String component;
+        private boolean interrupted;
+        private volatile boolean lost;
+        /**
+         * Whether the document has been finished and whether its thread has been interrupted for it, guarded by the
+         * document.
+         */
+        private boolean finished;
+        private boolean threadInterrupted;
+
+        private InFlightDocument(Map<String, String> identifiers) {
+            this.identifiers = identifiers != null ? identifiers : Collections.emptyMap();
+        }
+    }
+}
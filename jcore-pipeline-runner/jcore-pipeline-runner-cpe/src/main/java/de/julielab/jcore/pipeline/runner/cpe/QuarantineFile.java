@@ -0,0 +1,172 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import de.julielab.jcore.types.Header;
+import de.julielab.jcore.types.casmultiplier.JCoReURI;
+import de.julielab.jcore.types.casmultiplier.RowBatch;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.jcas.cas.StringArray;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>The record of documents that failed and have been quarantined according to the error policy. The file is a
+ * tab-separated table with one document identifier per line in the columns</p>
+ * <ol>
+ *     <li>the kind of identifier, {@value #DOC_ID} for the <tt>Header.docId</tt>, {@value #URI} for the
+ *     <tt>JCoReURI</tt> of a multiplier and {@value #ROW_ID} for an identifier of a <tt>RowBatch</tt></li>
+ *     <li>the identifier</li>
+ *     <li>the comma-separated names of the failed components</li>
+ *     <li>the error</li>
+ * </ol>
+ * <p>Every run that quarantines documents appends its records to the file, preceded by a comment line that starts
+ * with {@value #RUN_PREFIX} and the start time of the run. The identifiers of the latest run can be re-processed with
+ * the {@link QuarantineFlowController}.</p>
+ */
+public class QuarantineFile implements Closeable {
+    public static final String DOC_ID = "docId";
+    public static final String URI = "uri";
+    public static final String ROW_ID = "rowId";
+    public static final String RUN_PREFIX = "#run";
+    private static final String HEADER = "#kind\tidentifier\tfailed components\terror";
+    private final File file;
+    private BufferedWriter writer;
+    private int numRecords;
+
+    public QuarantineFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads the identifiers the latest run recorded in a quarantine file.
+     *
+     * @param file The quarantine file.
+     * @return The identifiers of all kinds.
+     * @throws IOException If the file cannot be read.
+     */
+    public static Set<String> readIdentifiers(File file) throws IOException {
+        return new LinkedHashSet<>(readKinds(file).keySet());
+    }
+
+    /**
+     * Reads the identifiers the latest run recorded in a quarantine file together with their kinds.
+     *
+     * @param file The quarantine file.
+     * @return The identifiers mapped to their kind, {@value #DOC_ID}, {@value #URI} or {@value #ROW_ID}.
+     * @throws IOException If the file cannot be read.
+     */
+    public static Map<String, String> readKinds(File file) throws IOException {
+        Map<String, String> identifiers = new LinkedHashMap<>();
+        try (Stream<String> lines = Files.lines(file.toPath(), StandardCharsets.UTF_8)) {
+            lines.forEach(line -> {
+                if (line.startsWith(RUN_PREFIX)) {
+                    identifiers.clear();
+                } else if (!line.isBlank() && !line.startsWith("#")) {
+                    String[] columns = line.split("\t", -1);
+                    if (columns.length > 1)
+                        identifiers.put(columns[1], columns[0]);
+                }
+            });
+        }
+        return identifiers;
+    }
+
+    /**
+     * @param rowBatch A batch of database rows for a multiplier.
+     * @return The primary keys of the rows, the columns of composite keys joined by commas.
+     */
+    public static List<String> getRowIdentifiers(RowBatch rowBatch) {
+        FSArray identifiers = rowBatch.getIdentifiers();
+        if (identifiers == null)
+            return Collections.emptyList();
+        List<String> ids = new ArrayList<>(identifiers.size());
+        for (int i = 0; i < identifiers.size(); i++) {
+            StringArray pk = (StringArray) identifiers.get(i);
+            if (pk != null)
+                ids.add(String.join(",", pk.toArray()));
+        }
+        return ids;
+    }
+
+    /**
+     * Determines the identifiers a document would be recorded with in a quarantine file. These are the URIs or row
+     * identifiers of a CAS meant for a multiplier or the document ID otherwise.
+     *
+     * @param jCas The document.
+     * @return The identifiers of the document mapped to their kind, empty if the document has no identifier.
+     */
+    public static Map<String, String> getIdentifiers(JCas jCas) {
+        Map<String, String> identifiers = new LinkedHashMap<>();
+        if (jCas.getTypeSystem().getType(JCoReURI.class.getCanonicalName()) != null) {
+            for (JCoReURI uri : JCasUtil.select(jCas, JCoReURI.class))
+                identifiers.put(uri.getUri(), URI);
+        }
+        if (jCas.getTypeSystem().getType(RowBatch.class.getCanonicalName()) != null) {
+            for (RowBatch rowBatch : JCasUtil.select(jCas, RowBatch.class)) {
+                for (String id : getRowIdentifiers(rowBatch))
+                    identifiers.put(id, ROW_ID);
+            }
+        }
+        if (identifiers.isEmpty() && jCas.getTypeSystem().getType(Header.class.getCanonicalName()) != null) {
+            for (Header header : JCasUtil.select(jCas, Header.class)) {
+                if (header.getDocId() != null)
+                    identifiers.put(header.getDocId(), DOC_ID);
+            }
+        }
+        return identifiers;
+    }
+
+    private static String clean(String value) {
+        return value == null ? "" : value.replaceAll("[\t\r\n]+", " ");
+    }
+
+    /**
+     * Appends a record and flushes the file because the JVM might be exited at any time. The first record of this
+     * instance is preceded by the run comment line.
+     *
+     * @param kind             The kind of the identifier.
+     * @param id               The document identifier.
+     * @param failedComponents The names of the failed components.
+     * @param error            The error that caused the failure.
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized void add(String kind, String id, List<String> failedComponents, String error) throws IOException {
+        if (writer == null) {
+            boolean empty = !file.exists() || file.length() == 0;
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+            if (empty) {
+                writer.write(HEADER);
+                writer.newLine();
+            }
+            writer.write(RUN_PREFIX + "\t" + new Date());
+            writer.newLine();
+        }
+        writer.write(String.join("\t", kind, clean(id), clean(String.join(",", failedComponents)), clean(error)));
+        writer.newLine();
+        writer.flush();
+        ++numRecords;
+    }
+
+    /**
+     * @return The number of records written by this instance.
+     */
+    public synchronized int getNumRecords() {
+        return numRecords;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null)
+            writer.close();
+    }
+}
@@ -0,0 +1,103 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CASException;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.component.initialize.ConfigurationParameterInitializer;
+import org.apache.uima.flow.CasFlow_ImplBase;
+import org.apache.uima.flow.FinalStep;
+import org.apache.uima.flow.Flow;
+import org.apache.uima.flow.FlowControllerContext;
+import org.apache.uima.flow.Step;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * <p>A fixed flow controller for the CPE aggregate that only lets the documents recorded in a {@link QuarantineFile}
+ * pass. All other documents are finished right away. The input of the collection reader is restricted to the
+ * quarantined documents by the {@link QuarantineInput} where possible; otherwise the reader reads the whole collection
+ * and only the quarantined documents are processed by the components. CASes from multipliers pass if any of the URIs
+ * or row identifiers they carry has been quarantined. The passing documents are reported to the
+ * {@link ProcessingWatchdog} if it is active.</p>
+ * <p>The identifiers that have not been read again are reported by {@link #checkReread()}.</p>
+ */
+public class QuarantineFlowController extends WatchdogFlowController {
+    public static final String PARAM_QUARANTINE_FILE = "QuarantineFile";
+    private final static Logger log = LoggerFactory.getLogger(QuarantineFlowController.class);
+    @ConfigurationParameter(name = PARAM_QUARANTINE_FILE)
+    private String quarantineFile;
+    /**
+     * The quarantined identifiers, shared by the flow controllers of all processing units.
+     */
+    private static volatile Set<String> quarantinedIds;
+    private static final Set<String> rereadIds = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public synchronized void initialize(FlowControllerContext context) throws ResourceInitializationException {
+        super.initialize(context);
+        ConfigurationParameterInitializer.initialize(this, context);
+        synchronized (QuarantineFlowController.class) {
+            if (quarantinedIds == null) {
+                try {
+                    quarantinedIds = QuarantineFile.readIdentifiers(new File(quarantineFile));
+                } catch (IOException e) {
+                    throw new ResourceInitializationException(e);
+                }
+                log.info("Processing the {} documents recorded in the quarantine file {}", quarantinedIds.size(), quarantineFile);
+            }
+        }
+    }
+
+    @Override
+    public Flow computeFlow(CAS cas) throws AnalysisEngineProcessException {
+        try {
+            if (isQuarantined(cas.getJCas()))
+                return super.computeFlow(cas);
+        } catch (CASException e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+        return new CasFlow_ImplBase() {
+            @Override
+            public Step next() {
+                return new FinalStep();
+            }
+        };
+    }
+
+    private boolean isQuarantined(JCas jCas) {
+        Set<String> ids = QuarantineFile.getIdentifiers(jCas).keySet().stream().filter(quarantinedIds::contains).collect(Collectors.toSet());
+        rereadIds.addAll(ids);
+        return !ids.isEmpty();
+    }
+
+    /**
+     * Logs the quarantined documents that the collection reader did not deliver again.
+     *
+     * @return Whether any of the quarantined documents has been read again, <tt>true</tt> if the run does not process
+     * quarantined documents.
+     */
+    public static boolean checkReread() {
+        Set<String> ids = quarantinedIds;
+        if (ids == null || ids.isEmpty())
+            return true;
+        Set<String> unread = ids.stream().filter(id -> !rereadIds.contains(id)).collect(Collectors.toCollection(LinkedHashSet::new));
+        if (unread.size() == ids.size()) {
+            log.error("None of the {} quarantined documents has been read again. Readers that mark their documents as processed, e.g. database readers, must be reset for the quarantined documents first.", ids.size());
+            return false;
+        }
+        if (!unread.isEmpty())
+            log.warn("{} of the {} quarantined documents have not been read again: {}", unread.size(), ids.size(), unread);
+        return true;
+    }
+}
@@ -0,0 +1,212 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.collection.impl.metadata.cpe.CpeDescriptorFactory;
+import org.apache.uima.collection.metadata.CasProcessorConfigurationParameterSettings;
+import org.apache.uima.collection.metadata.CpeCollectionReader;
+import org.apache.uima.collection.metadata.CpeCollectionReaderIterator;
+import org.apache.uima.collection.metadata.CpeDescription;
+import org.apache.uima.collection.metadata.CpeDescriptorException;
+import org.apache.uima.collection.metadata.NameValuePair;
+import org.apache.uima.resource.metadata.ConfigurationParameter;
+import org.apache.uima.util.InvalidXMLException;
+import org.apache.uima.util.XMLInputSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>Restricts the input of the collection reader of a rerun to the documents recorded in a {@link QuarantineFile} so
+ * that the rerun does not read the whole collection again.</p>
+ * <p>Readers of files are recognized by a string parameter that points to the directory containing the quarantined
+ * files. Files are quarantined by their URI or, for document IDs, by a name that equals the ID up to an extension.
+ * The parameter is set to a temporary directory with links to the quarantined files, mirroring their paths within the
+ * input directory. The JeDIS database readers, recognized by their {@value #COSTOSYS_CONFIG_PARAMETER} parameter or
+ * by quarantined row identifiers, mark the rows they deliver as processed and do not deliver them again unless the
+ * rows are reset. Other readers read the whole collection.</p>
+ */
+public class QuarantineInput {
+    /**
+     * The configuration parameter of the JeDIS database readers for their database connection.
+     */
+    public static final String COSTOSYS_CONFIG_PARAMETER = "CostosysConfigFile";
+    private final static Logger LOGGER = LoggerFactory.getLogger(QuarantineInput.class);
+    private final Map<String, String> quarantined;
+    private Path linkDirectory;
+
+    /**
+     * @param quarantined The quarantined identifiers mapped to their kind as read by
+     *                    {@link QuarantineFile#readKinds(File)}.
+     */
+    public QuarantineInput(Map<String, String> quarantined) {
+        this.quarantined = quarantined;
+    }
+
+    /**
+     * Finds the files of the quarantined documents in an input directory.
+     *
+     * @param directory   The input directory.
+     * @param quarantined The quarantined identifiers mapped to their kind.
+     * @return The files with a quarantined URI or a name that equals a quarantined document ID up to an extension.
+     * @throws IOException If the directory cannot be read.
+     */
+    static List<Path> findQuarantinedFiles(Path directory, Map<String, String> quarantined) throws IOException {
+        Set<Path> uris = quarantined.entrySet().stream().filter(e -> QuarantineFile.URI.equals(e.getValue())).map(e -> toPath(e.getKey())).filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<String> docIds = quarantined.entrySet().stream().filter(e -> QuarantineFile.DOC_ID.equals(e.getValue())).map(Map.Entry::getKey).collect(Collectors.toSet());
+        try (Stream<Path> files = Files.walk(directory, FileVisitOption.FOLLOW_LINKS)) {
+            return files.filter(Files::isRegularFile).filter(f -> uris.contains(f.toAbsolutePath().normalize()) || isNamedBy(f.getFileName().toString(), docIds)).collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isNamedBy(String fileName, Set<String> docIds) {
+        if (docIds.contains(fileName))
+            return true;
+        for (int i = fileName.indexOf('.'); i > 0; i = fileName.indexOf('.', i + 1)) {
+            if (docIds.contains(fileName.substring(0, i)))
+                return true;
+        }
+        return false;
+    }
+
+    private static Path toPath(String uri) {
+        try {
+            return Paths.get(new URI(uri)).toAbsolutePath().normalize();
+        } catch (Exception e) {
+            // not a file URI
+            return null;
+        }
+    }
+
+    /**
+     * Sets the input of the collection reader of the CPE to the quarantined documents, if possible.
+     *
+     * @param cpeDescription The CPE whose reader parameters are overridden.
+     * @param cpeDir         The directory of the CPE descriptor that relative descriptor locations refer to.
+     * @return How the input of the reader has been restricted.
+     * @throws CpeDescriptorException If the collection reader cannot be read from the CPE.
+     * @throws InvalidXMLException    If the collection reader descriptor cannot be parsed.
+     * @throws IOException            If the descriptor or the input directory cannot be read or the links cannot be
+     *                                created.
+     */
+    public Restriction restrict(CpeDescription cpeDescription, File cpeDir) throws CpeDescriptorException, InvalidXMLException, IOException {
+        if (quarantined.containsValue(QuarantineFile.ROW_ID))
+            return Restriction.NOT_DELIVERED_AGAIN;
+        CpeCollectionReader[] readers = cpeDescription.getAllCollectionCollectionReaders();
+        if (readers.length != 1)
+            return Restriction.WHOLE_COLLECTION;
+        CpeCollectionReaderIterator iterator = readers[0].getCollectionIterator();
+        CollectionReaderDescription readerDesc = UIMAFramework.getXMLParser().parseCollectionReaderDescription(new XMLInputSource(CPERunner.getDescriptorFile(iterator.getDescriptor(), cpeDir)));
+        ConfigurationParameter[] parameters = readerDesc.getCollectionReaderMetaData().getConfigurationParameterDeclarations().getConfigurationParameters();
+        if (Stream.of(parameters).anyMatch(p -> p.getName().equals(COSTOSYS_CONFIG_PARAMETER)))
+            return Restriction.NOT_DELIVERED_AGAIN;
+        for (ConfigurationParameter parameter : parameters) {
+            if (!ConfigurationParameter.TYPE_STRING.equals(parameter.getType()) || parameter.isMultiValued())
+                continue;
+            NameValuePair override = getOverride(iterator, parameter.getName());
+            Object value = override != null ? override.getValue() : null;
+            if (value == null)
+                value = readerDesc.getCollectionReaderMetaData().getConfigurationParameterSettings().getParameterValue(parameter.getName());
+            if (!(value instanceof String) || !new File((String) value).isDirectory())
+                continue;
+            Path directory = Path.of((String) value).toAbsolutePath().normalize();
+            List<Path> files = findQuarantinedFiles(directory, quarantined);
+            if (files.isEmpty())
+                continue;
+            link(directory, files);
+            if (override != null) {
+                override.setValue(linkDirectory.toString());
+            } else {
+                if (iterator.getConfigurationParameterSettings() == null)
+                    iterator.setConfigurationParameterSettings(CpeDescriptorFactory.produceCasProcessorConfigurationParameterSettings());
+                iterator.getConfigurationParameterSettings().setParameterValue(parameter.getName(), linkDirectory.toString());
+            }
+            LOGGER.info("Reading the {} files of the quarantined documents in {} from {} instead of the whole collection.", files.size(), directory, linkDirectory);
+            return Restriction.RESTRICTED;
+        }
+        return Restriction.WHOLE_COLLECTION;
+    }
+
+    /**
+     * @return The value of the parameter set in the CPE descriptor, <tt>null</tt> if the descriptor does not override
+     * the parameter. {@link CasProcessorConfigurationParameterSettings#getParameterValue(String)} does not find
+     * values that have been set after the settings were created, so the settings are searched directly.
+     */
+    static NameValuePair getOverride(CpeCollectionReaderIterator iterator, String name) {
+        CasProcessorConfigurationParameterSettings settings = iterator.getConfigurationParameterSettings();
+        if (settings == null || settings.getParameterSettings() == null)
+            return null;
+        return Stream.of(settings.getParameterSettings()).filter(p -> p.getName().equals(name)).findFirst().orElse(null);
+    }
+
+    /**
+     * Creates the temporary directory with links to the files. It is deleted when the JVM exits. Files are copied on
+     * file systems without symbolic links.
+     */
+    private void link(Path directory, List<Path> files) throws IOException {
+        linkDirectory = Files.createTempDirectory("jcore-pipeline-rerun-");
+        Runtime.getRuntime().addShutdownHook(new Thread(this::delete));
+        for (Path file : files) {
+            Path link = linkDirectory.resolve(directory.relativize(file.toAbsolutePath().normalize()).toString());
+            Files.createDirectories(link.getParent());
+            try {
+                Files.createSymbolicLink(link, file.toAbsolutePath());
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(file, link);
+            }
+        }
+    }
+
+    /**
+     * Deletes the directory with the links to the quarantined files, if it has been created. The linked files are
+     * kept.
+     */
+    public void delete() {
+        if (linkDirectory == null || !Files.exists(linkDirectory))
+            return;
+        try (Stream<Path> paths = Files.walk(linkDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete the directory {} with the quarantined documents: {}", linkDirectory, e.getMessage());
+        }
+    }
+
+    /**
+     * @return The directory with the links to the quarantined files, <tt>null</tt> if the input has not been
+     * restricted.
+     */
+    public Path getLinkDirectory() {
+        return linkDirectory;
+    }
+
+    public enum Restriction {
+        /**
+         * The reader only reads the quarantined documents.
+         */
+        RESTRICTED,
+        /**
+         * The reader reads the whole collection, the quarantined documents are selected by the
+         * {@link QuarantineFlowController}.
+         */
+        WHOLE_COLLECTION,
+        /**
+         * The reader does not deliver the documents it has delivered before again.
+         */
+        NOT_DELIVERED_AGAIN
+    }
+}
@@ -0,0 +1,180 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import de.julielab.jcore.pipeline.builder.base.main.RunProfile;
+import org.apache.uima.collection.CollectionProcessingEngine;
+import org.apache.uima.util.ProcessTrace;
+import org.apache.uima.util.ProcessTraceEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Records the {@link RunProfile} of a run. The {@link WatchdogFlowController} reports the documents and the
+ * stages they enter, from which the CPU and wall times of the stages, the busy times of the processing threads and
+ * the times the threads wait for their next document are measured. When the run is complete, the wall times of the
+ * single components and the time of the collection reader are taken from the performance report of the CPE and the
+ * profile is written.</p>
+ * <p>There is one profiler per JVM because the flow controllers are created by UIMA. It is inactive unless
+ * {@link #start(File, RunProfile)} has been called.</p>
+ */
+public class RunProfiler {
+    private final static Logger LOGGER = LoggerFactory.getLogger(RunProfiler.class);
+    private static volatile RunProfiler instance;
+    private final File outputFile;
+    private final RunProfile profile;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final Map<Thread, DocumentMeasurement> inFlight = new HashMap<>();
+    private final Map<Thread, Long> lastFinishTimes = new HashMap<>();
+    private final Map<String, Long> stageWallTimes = new LinkedHashMap<>();
+    private final Map<String, Long> stageCpuTimes = new LinkedHashMap<>();
+    private long startGcTime;
+    private long initializationCompleteTime;
+    private long initializationCompleteNanos;
+    private long threadBusyTime;
+    private long threadWaitTime;
+
+    private RunProfiler(File outputFile, RunProfile profile) {
+        this.outputFile = outputFile;
+        this.profile = profile;
+        if (threadMXBean.isThreadCpuTimeSupported())
+            threadMXBean.setThreadCpuTimeEnabled(true);
+    }
+
+    /**
+     * Starts the profiling of this JVM.
+     *
+     * @param outputFile The file to write the profile to.
+     * @param profile    The profile with the settings of the run to add the measurements to.
+     * @return The profiler.
+     */
+    public static synchronized RunProfiler start(File outputFile, RunProfile profile) {
+        instance = new RunProfiler(outputFile, profile);
+        LOGGER.info("Recording the run profile to {}", outputFile);
+        return instance;
+    }
+
+    /**
+     * @return The profiler of this JVM or <tt>null</tt> if there is no profiling.
+     */
+    public static RunProfiler getInstance() {
+        return instance;
+    }
+
+    private static long getGcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            time += Math.max(0, gc.getCollectionTime());
+        return time;
+    }
+
+    public synchronized void initializationComplete() {
+        initializationCompleteTime = System.currentTimeMillis();
+        initializationCompleteNanos = System.nanoTime();
+        profile.setTimestamp(initializationCompleteTime);
+        startGcTime = getGcTime();
+    }
+
+    void documentStarted() {
+        DocumentMeasurement measurement = new DocumentMeasurement();
+        measurement.startTime = System.nanoTime();
+        measurement.lastTime = measurement.startTime;
+        measurement.lastCpuTime = getCurrentThreadCpuTime();
+        synchronized (this) {
+            inFlight.put(Thread.currentThread(), measurement);
+            // the time since the previous document of the thread was spent waiting for the reader
+            Long lastFinishTime = lastFinishTimes.get(Thread.currentThread());
+            if (lastFinishTime != null || initializationCompleteNanos > 0)
+                threadWaitTime += Math.max(0, measurement.startTime - (lastFinishTime != null ? lastFinishTime : initializationCompleteNanos));
+        }
+    }
+
+    void stageEntered(String stage) {
+        DocumentMeasurement measurement;
+        synchronized (this) {
+            measurement = inFlight.get(Thread.currentThread());
+        }
+        if (measurement != null) {
+            long cpuTime = getCurrentThreadCpuTime();
+            long time = System.nanoTime();
+            synchronized (this) {
+                measurement.enter(stage, time, cpuTime);
+            }
+        }
+    }
+
+    void documentFinished() {
+        DocumentMeasurement measurement;
+        synchronized (this) {
+            measurement = inFlight.remove(Thread.currentThread());
+        }
+        if (measurement == null)
+            return;
+        long cpuTime = getCurrentThreadCpuTime();
+        long time = System.nanoTime();
+        synchronized (this) {
+            measurement.enter(null, time, cpuTime);
+            threadBusyTime += time - measurement.startTime;
+            lastFinishTimes.put(Thread.currentThread(), time);
+        }
+    }
+
+    /**
+     * Completes the profile with the performance report of the CPE and writes it to the output file.
+     *
+     * @param cpe       The CPE of the run.
+     * @param documents The number of processed documents.
+     * @throws IOException If the profile cannot be written.
+     */
+    public synchronized void write(CollectionProcessingEngine cpe, int documents) throws IOException {
+        long runTime = System.currentTimeMillis() - initializationCompleteTime;
+        profile.setDocuments(documents);
+        profile.setRunTime(runTime);
+        profile.setThreadBusyTime(threadBusyTime / 1000000);
+        profile.setReaderWaitTime(threadWaitTime / 1000000);
+        profile.setGcTime(getGcTime() - startGcTime);
+        stageWallTimes.forEach((stage, time) -> profile.getStageWallTimes().put(stage, time / 1000000));
+        stageCpuTimes.forEach((stage, time) -> profile.getStageCpuTimes().put(stage, time / 1000000));
+        ProcessTrace performanceReport = cpe.getPerformanceReport();
+        if (performanceReport != null) {
+            String readerName = cpe.getCollectionReader().getProcessingResourceMetaData().getName();
+            long readerTime = performanceReport.getEventsByComponentName(readerName, false).stream().mapToLong(ProcessTraceEvent::getDuration).sum();
+            profile.setReaderTime(readerTime);
+            profile.setReaderIdleTime(Math.max(0, runTime - readerTime));
+            LatencyRecorder.addComponentTimes(performanceReport.getEvents(), profile.getComponentWallTimes());
+        }
+        profile.store(outputFile);
+        LOGGER.info("Wrote the run profile of {} documents to {}", documents, outputFile);
+    }
+
+    private long getCurrentThreadCpuTime() {
+        return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : 0;
+    }
+
+    private class DocumentMeasurement {
+        private long startTime;
+        private long lastTime;
+        private long lastCpuTime;
+        private String stage;
+
+        /**
+         * Attributes the time since the last step to the stage of that step.
+         */
+        private void enter(String nextStage, long time, long cpuTime) {
+            if (stage != null) {
+                stageWallTimes.merge(stage, time - lastTime, Long::sum);
+                stageCpuTimes.merge(stage, cpuTime - lastCpuTime, Long::sum);
+            }
+            stage = nextStage;
+            lastTime = time;
+            lastCpuTime = cpuTime;
+        }
+    }
+}
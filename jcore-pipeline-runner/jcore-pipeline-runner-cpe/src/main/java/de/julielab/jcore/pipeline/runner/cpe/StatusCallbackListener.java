@@ -1,5 +1,6 @@
 package de.julielab.jcore.pipeline.runner.cpe;
 
+import de.julielab.jcore.pipeline.builder.base.main.ErrorPolicy;
 import de.julielab.jcore.types.Header;
 import de.julielab.jcore.types.casmultiplier.JCoReURI;
 import de.julielab.jcore.types.casmultiplier.RowBatch;
@@ -39,13 +40,40 @@ public class StatusCallbackListener implements org.apache.uima.collection.Status
      * that occured during the processing
      */
     private final HashMap<byte[][], String> logException = new HashMap<>();
+    private final ErrorPolicy errorPolicy;
+    /**
+     * The entity counts at which errors with the {@link ErrorPolicy.Action#TERMINATE} action occurred within the
+     * current error window
+     */
+    private final Deque<Integer> terminationErrors = new ArrayDeque<>();
+    private final QuarantineFile quarantineFile;
+    /**
+     * The identifiers of the documents recorded in the quarantine file by the {@link ProcessingWatchdog} whose
+     * failures have not been reported yet
+     */
+    private final Set<String> stalledIds = new HashSet<>();
+    /**
+     * Records the per-document latencies, <tt>null</tt> if they are not recorded
+     */
+    private final LatencyRecorder latencyRecorder;
     /**
      * Start time of the processing
      */
     private long mInitCompleteTime;
 
     public StatusCallbackListener(CollectionProcessingEngine cpe, Integer batchSize) {
+        this(cpe, batchSize, new ErrorPolicy(), new File("pipeline-quarantine.txt"));
+    }
+
+    public StatusCallbackListener(CollectionProcessingEngine cpe, Integer batchSize, ErrorPolicy errorPolicy, File quarantineFile) {
+        this(cpe, batchSize, errorPolicy, quarantineFile, null);
+    }
+
+    public StatusCallbackListener(CollectionProcessingEngine cpe, Integer batchSize, ErrorPolicy errorPolicy, File quarantineFile, LatencyRecorder latencyRecorder) {
         this.cpe = cpe;
+        this.errorPolicy = errorPolicy;
+        this.quarantineFile = new QuarantineFile(quarantineFile);
+        this.latencyRecorder = latencyRecorder;
     }
 
     /**
@@ -55,6 +83,10 @@ public class StatusCallbackListener implements org.apache.uima.collection.Status
      */
     public void initializationComplete() {
         LOGGER.info("CPE Initialization complete");
+        if (CalibrationRecorder.getInstance() != null)
+            CalibrationRecorder.getInstance().initializationComplete();
+        if (RunProfiler.getInstance() != null)
+            RunProfiler.getInstance().initializationComplete();
         mInitCompleteTime = System.currentTimeMillis();
         long mBatchTime = System.currentTimeMillis();
     }
@@ -67,6 +99,8 @@ public class StatusCallbackListener implements org.apache.uima.collection.Status
     public synchronized void batchProcessComplete() {
         processed.clear();
         LOGGER.info("Completed " + entityCount + " documents");
+        logMetrics();
+        writeLatencies();
     }
 
     /**
@@ -84,7 +118,13 @@ public class StatusCallbackListener implements org.apache.uima.collection.Status
         LOGGER.info("Processing Time: " + processingTime + " ms");
         LOGGER.info("\n\n ------------------ PERFORMANCE REPORT ------------------\n");
         LOGGER.info(cpe.getPerformanceReport().toString());
-        System.exit(0);
+        logMetrics();
+        writeLatencies();
+        writeCalibration();
+        writeProfile();
+        closeQuarantine();
+        // A rerun of quarantined documents that did not read any of them has failed
+        System.exit(QuarantineFlowController.checkReread() ? 0 : 1);
     }
 
     /**
@@ -126,6 +166,7 @@ public class StatusCallbackListener implements org.apache.uima.collection.Status
     public synchronized void entityProcessComplete(CAS aCas, EntityProcessStatus aStatus) {
         try {
             JCas jCas = aCas.getJCas();
+            int entityCountBefore = entityCount;
             FSIterator<JCoReURI> multiplierUris = jCas.getTypeSystem().getType(JCoReURI.class.getCanonicalName()) != null ? jCas.<JCoReURI>getAnnotationIndex(JCoReURI.type).iterator() : null;
             FSIterator<RowBatch> dbMultiplierBatch = jCas.getTypeSystem().getType(RowBatch.class.getCanonicalName()) != null ? jCas.<RowBatch>getAnnotationIndex(RowBatch.type).iterator() : null;
             List<JCoReURI> multiplierUriList = multiplierUris != null && multiplierUris.hasNext() ? new ArrayList<>() : Collections.emptyList();
@@ -150,6 +191,17 @@ public class StatusCallbackListener implements org.apache.uima.collection.Status
             } catch (IllegalArgumentException e) {
                 LOGGER.debug("Document occurred that did not have Header annotation.");
             }
+            // The documents created from a CAS meant for a multiplier have already been recorded by the flow controller
+            boolean multiplierCas = !multiplierUriList.isEmpty() || !rowBatchList.isEmpty();
+            if (latencyRecorder != null && !(multiplierCas && latencyRecorder.isRecordingProducedDocuments())) {
+                String latencyId = docId;
+                if (!multiplierUriList.isEmpty())
+                    latencyId = multiplierUriList.get(0).getUri();
+                else if (!rowBatchList.isEmpty())
+                    latencyId = QuarantineFile.getRowIdentifiers(rowBatchList.get(0)).stream().findFirst().orElse(docId);
+                int size = jCas.getDocumentText() != null ? jCas.getDocumentText().length() : 0;
+                latencyRecorder.record(aStatus.getProcessTrace(), latencyId, size, entityCount - entityCountBefore);
+            }
             if (!aStatus.isException()) {
                 LOGGER.debug("Document with ID {} finished processing.", docId);
             } else {
@@ -166,6 +218,7 @@ public class StatusCallbackListener implements org.apache.uima.collection.Status
                     bw.write(log);
                     bw.newLine();
                 }
+                handleError(aStatus, docId, multiplierUriList, rowBatchList);
             }
         } catch (FileNotFoundException e) {
             e.printStackTrace();
@@ -175,6 +228,138 @@ public class StatusCallbackListener implements org.apache.uima.collection.Status
 
     }
 
+    /**
+     * Takes the action of the error policy for a failed document. Terminates the JVM if the failure has the
+     * {@link ErrorPolicy.Action#TERMINATE} action and exceeds the error threshold.
+     */
+    private void handleError(EntityProcessStatus status, String docId, List<JCoReURI> multiplierUriList, List<RowBatch> rowBatchList) throws IOException {
+        // The interrupted processing of a stalled document usually fails; it has already been quarantined
+        List<String> ids = new ArrayList<>();
+        multiplierUriList.forEach(uri -> ids.add(uri.getUri()));
+        rowBatchList.forEach(rowBatch -> ids.addAll(QuarantineFile.getRowIdentifiers(rowBatch)));
+        ids.add(docId);
+        boolean stalled = false;
+        for (String id : ids)
+            stalled |= stalledIds.remove(id);
+        if (stalled) {
+            LOGGER.info("Document with ID {} has already been quarantined by the processing watchdog.", docId);
+            return;
+        }
+        ErrorPolicy.Action action = errorPolicy.getAction(status.getFailedComponentNames(), status.getExceptions());
+        if (action == ErrorPolicy.Action.QUARANTINE) {
+            quarantine(status, docId, multiplierUriList, rowBatchList);
+        } else if (action == ErrorPolicy.Action.TERMINATE) {
+            terminationErrors.add(entityCount);
+            while (!terminationErrors.isEmpty() && terminationErrors.peekFirst() <= entityCount - errorPolicy.getWindow())
+                terminationErrors.pollFirst();
+            if (terminationErrors.size() > errorPolicy.getMaxErrors()) {
+                LOGGER.error("{} errors occurred within the last {} documents which exceeds the error threshold of {}. The processing is terminated.", terminationErrors.size(), errorPolicy.getWindow(), errorPolicy.toThresholdString());
+                closeQuarantine();
+                System.exit(1);
+            }
+        }
+        LOGGER.info("Document with ID {} has been skipped according to the error action {}.", docId, action);
+    }
+
+    /**
+     * Records the identifiers of the failed document, or of the documents meant for the multiplier, in the quarantine
+     * file.
+     */
+    private void quarantine(EntityProcessStatus status, String docId, List<JCoReURI> multiplierUriList, List<RowBatch> rowBatchList) throws IOException {
+        List<String> failedComponents = status.getFailedComponentNames() != null ? status.getFailedComponentNames() : Collections.emptyList();
+        String error = status.getExceptions().isEmpty() ? status.getStatusMessage() : String.valueOf(status.getExceptions().get(0));
+        int before = quarantineFile.getNumRecords();
+        for (JCoReURI uri : multiplierUriList)
+            quarantineFile.add(QuarantineFile.URI, uri.getUri(), failedComponents, error);
+        for (RowBatch rowBatch : rowBatchList) {
+            for (String id : QuarantineFile.getRowIdentifiers(rowBatch))
+                quarantineFile.add(QuarantineFile.ROW_ID, id, failedComponents, error);
+        }
+        if (quarantineFile.getNumRecords() == before)
+            quarantineFile.add(QuarantineFile.DOC_ID, docId, failedComponents, error);
+        LOGGER.info("Recorded {} document identifiers in the quarantine file {}", quarantineFile.getNumRecords() - before, quarantineFile.getFile());
+    }
+
+    /**
+     * Called by the {@link ProcessingWatchdog} when a document exceeded the processing timeout. The document is
+     * recorded in the quarantine file, independently of the error policy, because its processing thread is
+     * interrupted. When the processing of the document fails due to the interruption, no further error action is
+     * taken.
+     *
+     * @param identifiers The identifiers of the document mapped to their kind.
+     * @param component   The component the document got stuck in.
+     * @param duration    The processing time of the document so far.
+     */
+    public synchronized void documentStalled(Map<String, String> identifiers, String component, long duration) {
+        List<String> failedComponents = component != null ? List.of(component) : Collections.emptyList();
+        String error = "Processing timed out after " + duration + " ms";
+        try {
+            for (Map.Entry<String, String> id : identifiers.entrySet()) {
+                quarantineFile.add(id.getValue(), id.getKey(), failedComponents, error);
+                stalledIds.add(id.getKey());
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not record the stalled document {} in the quarantine file {}", identifiers.keySet(), quarantineFile.getFile(), e);
+        }
+    }
+
+    /**
+     * Terminates the JVM with the given status after closing the quarantine file.
+     *
+     * @param status The exit status.
+     */
+    public void terminate(int status) {
+        writeLatencies();
+        closeQuarantine();
+        System.exit(status);
+    }
+
+    private void writeCalibration() {
+        try {
+            if (CalibrationRecorder.getInstance() != null)
+                CalibrationRecorder.getInstance().write();
+        } catch (IOException e) {
+            LOGGER.error("Could not write the calibration", e);
+        }
+    }
+
+    private void writeProfile() {
+        try {
+            if (RunProfiler.getInstance() != null)
+                RunProfiler.getInstance().write(cpe, entityCount);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Could not write the run profile", e);
+        }
+    }
+
+    private void writeLatencies() {
+        try {
+            if (latencyRecorder != null)
+                latencyRecorder.write();
+        } catch (IOException e) {
+            LOGGER.error("Could not write the latency report to {}", latencyRecorder.getReportFile(), e);
+        }
+    }
+
+    private void logMetrics() {
+        ProcessingWatchdog watchdog = ProcessingWatchdog.getInstance();
+        if (watchdog != null && watchdog.getNumStalls() > 0)
+            LOGGER.info("Stalled documents: {}, lost processing threads: {}", watchdog.getNumStalls(), watchdog.getNumLostThreads());
+        MemoryGovernor governor = MemoryGovernor.getInstance();
+        if (governor != null)
+            LOGGER.info("Memory governor: heap occupancy after GC {}, concurrent documents {}, throttles {}, pauses {}, paused for {} ms", String.format("%.2f", governor.getLastOccupancy()), governor.getLimit(), governor.getNumThrottles(), governor.getNumPauses(), governor.getTotalPauseTime());
+        if (latencyRecorder != null)
+            latencyRecorder.log();
+    }
+
+    private void closeQuarantine() {
+        try {
+            quarantineFile.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close the quarantine file {}", quarantineFile.getFile(), e);
+        }
+    }
+
     /**
      * Create log entry for an exception that occured during the processing of a
      * document
@@ -236,4 +421,8 @@ public class StatusCallbackListener implements org.apache.uima.collection.Status
     public CollectionProcessingEngine getCpe() {
         return cpe;
     }
+
+    public File getQuarantineFile() {
+        return quarantineFile.getFile();
+    }
 }
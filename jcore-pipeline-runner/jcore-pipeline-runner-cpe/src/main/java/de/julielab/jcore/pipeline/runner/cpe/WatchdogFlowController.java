@@ -0,0 +1,188 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.AbstractCas;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CASException;
+import org.apache.uima.flow.FinalStep;
+import org.apache.uima.flow.Flow;
+import org.apache.uima.flow.SimpleStep;
+import org.apache.uima.flow.Step;
+import org.apache.uima.flow.impl.FixedFlowController;
+import org.apache.uima.jcas.JCas;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A fixed flow controller for the CPE aggregate that reports the progress of each document to the
+ * {@link ProcessingWatchdog} and lets documents only enter the components within the limit of the
+ * {@link MemoryGovernor}, if they are active. In a calibration run, the resource usage of each document is reported to
+ * the {@link CalibrationRecorder}, and the stages each document passes through are reported to the {@link RunProfiler}
+ * if the run is profiled. The aggregate processes a document completely on the processing unit thread that
+ * computed its flow, so the documents are tracked by thread. CASes produced by multipliers are processed while their
+ * input CAS is in flight and are not tracked on their own, except for their latencies which are reported to the
+ * {@link LatencyRecorder} per produced CAS.
+ */
+public class WatchdogFlowController extends FixedFlowController {
+
+    @Override
+    public Flow computeFlow(CAS cas) throws AnalysisEngineProcessException {
+        MemoryGovernor governor = MemoryGovernor.getInstance();
+        if (governor != null) {
+            try {
+                governor.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AnalysisEngineProcessException(e);
+            }
+        }
+        Flow flow = super.computeFlow(cas);
+        ProcessingWatchdog watchdog = ProcessingWatchdog.getInstance();
+        CalibrationRecorder recorder = CalibrationRecorder.getInstance();
+        RunProfiler profiler = RunProfiler.getInstance();
+        LatencyRecorder latencyRecorder = LatencyRecorder.getInstance();
+        if (watchdog == null && governor == null && recorder == null && profiler == null && latencyRecorder == null)
+            return flow;
+        if (watchdog != null) {
+            try {
+                watchdog.documentStarted(QuarantineFile.getIdentifiers(cas.getJCas()));
+            } catch (CASException e) {
+                throw new AnalysisEngineProcessException(e);
+            }
+        }
+        if (recorder != null)
+            recorder.documentStarted();
+        if (profiler != null)
+            profiler.documentStarted();
+        return new WatchedFlow(cas, flow, watchdog, governor, recorder, profiler, latencyRecorder);
+    }
+
+    private static CAS getCas(AbstractCas cas) {
+        return cas instanceof JCas ? ((JCas) cas).getCas() : (CAS) cas;
+    }
+
+    private static class WatchedFlow implements Flow {
+        private final CAS cas;
+        private final Flow flow;
+        private final ProcessingWatchdog watchdog;
+        private final MemoryGovernor governor;
+        private final CalibrationRecorder recorder;
+        private final RunProfiler profiler;
+        private final LatencyRecorder latencyRecorder;
+
+        private WatchedFlow(CAS cas, Flow flow, ProcessingWatchdog watchdog, MemoryGovernor governor, CalibrationRecorder recorder, RunProfiler profiler, LatencyRecorder latencyRecorder) {
+            this.cas = cas;
+            this.flow = flow;
+            this.watchdog = watchdog;
+            this.governor = governor;
+            this.recorder = recorder;
+            this.profiler = profiler;
+            this.latencyRecorder = latencyRecorder;
+        }
+
+        @Override
+        public Step next() throws AnalysisEngineProcessException {
+            Step step = flow.next();
+            if (step instanceof SimpleStep) {
+                String component = ((SimpleStep) step).getAnalysisEngineKey();
+                if (watchdog != null)
+                    watchdog.componentEntered(component);
+                if (recorder != null)
+                    recorder.componentEntered(component);
+                if (profiler != null)
+                    profiler.stageEntered(component);
+            } else if (step instanceof FinalStep) {
+                if (recorder != null)
+                    recorder.documentFinished(cas);
+                finished();
+            }
+            return step;
+        }
+
+        @Override
+        public Flow newCasProduced(AbstractCas newCas, String producedBy) throws AnalysisEngineProcessException {
+            Flow producedFlow = flow.newCasProduced(newCas, producedBy);
+            return latencyRecorder != null ? new ProducedFlow(getCas(newCas), producedFlow, latencyRecorder) : producedFlow;
+        }
+
+        @Override
+        public boolean continueOnFailure(String failedAeKey, Exception failure) {
+            return flow.continueOnFailure(failedAeKey, failure);
+        }
+
+        @Override
+        public void aborted() {
+            if (recorder != null)
+                recorder.documentFinished(null);
+            finished();
+            flow.aborted();
+        }
+
+        private void finished() {
+            if (profiler != null)
+                profiler.documentFinished();
+            if (watchdog != null)
+                watchdog.documentFinished();
+            if (governor != null)
+                governor.release();
+        }
+    }
+
+    /**
+     * The flow of a CAS produced by a multiplier. It measures the time from the creation of the CAS until it leaves
+     * the last stage and the time spent in each stage, and reports them to the {@link LatencyRecorder}.
+     */
+    private static class ProducedFlow implements Flow {
+        private final CAS cas;
+        private final Flow flow;
+        private final LatencyRecorder latencyRecorder;
+        private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+        private final long startTime = System.nanoTime();
+        private long lastTime = startTime;
+        private String stage;
+
+        private ProducedFlow(CAS cas, Flow flow, LatencyRecorder latencyRecorder) {
+            this.cas = cas;
+            this.flow = flow;
+            this.latencyRecorder = latencyRecorder;
+        }
+
+        @Override
+        public Step next() throws AnalysisEngineProcessException {
+            Step step = flow.next();
+            long time = System.nanoTime();
+            if (stage != null)
+                stageNanos.merge(stage, time - lastTime, Long::sum);
+            stage = step instanceof SimpleStep ? ((SimpleStep) step).getAnalysisEngineKey() : null;
+            lastTime = time;
+            if (step instanceof FinalStep) {
+                try {
+                    String docId = QuarantineFile.getIdentifiers(cas.getJCas()).keySet().stream().findFirst().orElse("<unknown>");
+                    int size = cas.getDocumentText() != null ? cas.getDocumentText().length() : 0;
+                    Map<String, Long> stageTimes = new LinkedHashMap<>();
+                    stageNanos.forEach((s, nanos) -> stageTimes.put(s, nanos / 1000000));
+                    latencyRecorder.recordProduced(docId, size, (time - startTime) / 1000000, stageTimes);
+                } catch (CASException e) {
+                    throw new AnalysisEngineProcessException(e);
+                }
+            }
+            return step;
+        }
+
+        @Override
+        public Flow newCasProduced(AbstractCas newCas, String producedBy) throws AnalysisEngineProcessException {
+            return new ProducedFlow(getCas(newCas), flow.newCasProduced(newCas, producedBy), latencyRecorder);
+        }
+
+        @Override
+        public boolean continueOnFailure(String failedAeKey, Exception failure) {
+            return flow.continueOnFailure(failedAeKey, failure);
+        }
+
+        @Override
+        public void aborted() {
+            flow.aborted();
+        }
+    }
+}
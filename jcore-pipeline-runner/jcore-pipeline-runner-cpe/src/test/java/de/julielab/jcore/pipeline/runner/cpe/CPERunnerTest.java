@@ -0,0 +1,58 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.metadata.Import;
+import org.apache.uima.resource.metadata.impl.Import_impl;
+import org.apache.uima.util.XMLInputSource;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CPERunnerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMakeImportLocationsAbsolute() throws Exception {
+        File descDir = folder.newFolder("desc");
+        File aeFile = new File(descDir, "ae.xml");
+        try (OutputStream os = new FileOutputStream(aeFile)) {
+            AnalysisEngineFactory.createEngineDescription(NoopAnnotator.class).toXML(os);
+        }
+        AnalysisEngineDescription aggregate = AnalysisEngineFactory.createEngineDescription();
+        Import aeImport = new Import_impl();
+        aeImport.setLocation("ae.xml");
+        aggregate.getDelegateAnalysisEngineSpecifiersWithImports().put("ae", aeImport);
+        File aaeFile = new File(descDir, "aae.xml");
+        try (OutputStream os = new FileOutputStream(aaeFile)) {
+            aggregate.toXML(os);
+        }
+
+        AnalysisEngineDescription aaeDesc = UIMAFramework.getXMLParser().parseAnalysisEngineDescription(new XMLInputSource(aaeFile));
+        CPERunner.makeImportLocationsAbsolute(aaeDesc, aaeFile.toURI().toURL());
+        File copy = new File(folder.newFolder("copies"), "aae-watchdog.xml");
+        try (OutputStream os = new FileOutputStream(copy)) {
+            aaeDesc.toXML(os);
+        }
+        // the copy in another directory still finds its delegate
+        AnalysisEngineDescription copyDesc = UIMAFramework.getXMLParser().parseAnalysisEngineDescription(new XMLInputSource(copy));
+        assertThat(copyDesc.getDelegateAnalysisEngineSpecifiers()).containsKey("ae");
+        assertThat(((Import) copyDesc.getDelegateAnalysisEngineSpecifiersWithImports().get("ae")).getLocation()).isEqualTo(aeFile.toURI().toURL().toString());
+    }
+
+    public static class NoopAnnotator extends JCasAnnotator_ImplBase {
+        @Override
+        public void process(JCas jCas) {
+        }
+    }
+}
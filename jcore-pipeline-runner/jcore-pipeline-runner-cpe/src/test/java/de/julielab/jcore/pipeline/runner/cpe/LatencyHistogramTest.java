@@ -0,0 +1,80 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketBoundaries() {
+        // values below 64 are counted exactly
+        assertThat(LatencyHistogram.getIndex(63)).isEqualTo(63);
+        assertThat(LatencyHistogram.getUpperBound(63)).isEqualTo(63);
+        // from 64 to 127, the buckets have a width of 2
+        assertThat(LatencyHistogram.getIndex(64)).isEqualTo(64);
+        assertThat(LatencyHistogram.getIndex(65)).isEqualTo(64);
+        assertThat(LatencyHistogram.getLowerBound(64)).isEqualTo(64);
+        assertThat(LatencyHistogram.getUpperBound(64)).isEqualTo(65);
+        assertThat(LatencyHistogram.getLowerBound(LatencyHistogram.getIndex(127))).isEqualTo(126);
+        assertThat(LatencyHistogram.getUpperBound(LatencyHistogram.getIndex(127))).isEqualTo(127);
+        // from 128, the buckets have a width of 4
+        assertThat(LatencyHistogram.getIndex(128)).isEqualTo(LatencyHistogram.getIndex(127) + 1);
+        assertThat(LatencyHistogram.getLowerBound(LatencyHistogram.getIndex(128))).isEqualTo(128);
+        assertThat(LatencyHistogram.getUpperBound(LatencyHistogram.getIndex(128))).isEqualTo(131);
+        // the last bucket ends with the largest value
+        assertThat(LatencyHistogram.getUpperBound(LatencyHistogram.getIndex(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testValuesWithinTheirBuckets() {
+        List<Long> values = new ArrayList<>();
+        for (long v = 0; v < 5000; v++)
+            values.add(v);
+        for (int bit = 13; bit < 63; bit++) {
+            values.add((1L << bit) - 1);
+            values.add(1L << bit);
+            values.add((1L << bit) + 1);
+        }
+        values.add(Long.MAX_VALUE);
+        int previousIndex = -1;
+        for (long value : values) {
+            int index = LatencyHistogram.getIndex(value);
+            assertThat(index).isGreaterThanOrEqualTo(previousIndex);
+            assertThat(LatencyHistogram.getLowerBound(index)).isLessThanOrEqualTo(value);
+            assertThat(LatencyHistogram.getUpperBound(index)).isGreaterThanOrEqualTo(value);
+            // the relative error is below 1/32
+            assertThat(LatencyHistogram.getUpperBound(index) - LatencyHistogram.getLowerBound(index)).isLessThanOrEqualTo(Math.max(0, value / 32));
+            previousIndex = index;
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100; v++)
+            histogram.record(v);
+        assertThat(histogram.getCount()).isEqualTo(100);
+        assertThat(histogram.getValueAtPercentile(50)).isEqualTo(50);
+        // 99 lies in the bucket 98-99
+        assertThat(histogram.getValueAtPercentile(99)).isEqualTo(99);
+        // capped by the maximum instead of the upper bound 101 of its bucket
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(100);
+        histogram.record(-5);
+        assertThat(histogram.getValueAtPercentile(0)).isEqualTo(0);
+    }
+
+    @Test
+    public void testMaximumValue() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        assertThat(histogram.getMax()).isEqualTo(Long.MAX_VALUE);
+        assertThat(histogram.getValueAtPercentile(99.9)).isEqualTo(Long.MAX_VALUE);
+        List<String> buckets = new ArrayList<>();
+        histogram.forEachBucket((range, count) -> buckets.add(range + ":" + count));
+        assertThat(buckets).containsExactly((63L << 57) + "-" + Long.MAX_VALUE + ":1");
+    }
+}
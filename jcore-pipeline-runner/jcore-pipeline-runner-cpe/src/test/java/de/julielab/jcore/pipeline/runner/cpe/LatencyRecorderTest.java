@@ -0,0 +1,31 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyRecorderTest {
+
+    @Test
+    public void testRecordProduced() {
+        LatencyRecorder recorder = new LatencyRecorder(null, 2);
+        assertThat(recorder.isRecordingProducedDocuments()).isFalse();
+        recorder.recordProduced("doc1", 100, 30, Map.of("AEs", 20L, "Consumers", 10L));
+        recorder.recordProduced("doc2", 5000, 300, Map.of("AEs", 290L, "Consumers", 10L));
+        recorder.recordProduced("doc3", 200, 50, Map.of("AEs", 45L, "Consumers", 5L));
+        assertThat(recorder.isRecordingProducedDocuments()).isTrue();
+        assertThat(recorder.getEndToEnd().getCount()).isEqualTo(3);
+        assertThat(recorder.getSlowestDocuments()).extracting(LatencyRecorder.SlowDocument::getDocId).containsExactly("doc2", "doc3");
+        LatencyRecorder.SlowDocument slowest = recorder.getSlowestDocuments().get(0);
+        assertThat(slowest.getComponent()).isEqualTo("AEs");
+        assertThat(slowest.isStage()).isTrue();
+        assertThat(slowest.getDocuments()).isEqualTo(1);
+        assertThat(slowest.toString()).isEqualTo("doc2: 300 ms, 5000 characters, 290 ms in stage AEs");
+        // the stage times are kept apart from the times of the primitive components
+        assertThat(recorder.getStages()).containsOnlyKeys("AEs", "Consumers");
+        assertThat(recorder.getStages().get("AEs").getCount()).isEqualTo(3);
+        assertThat(recorder.getComponents()).isEmpty();
+    }
+}
@@ -0,0 +1,160 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import org.junit.Test;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MemoryGovernorTest {
+
+    @Test
+    public void testPauseBackoff() {
+        FakeHeapMonitor monitor = new FakeHeapMonitor();
+        TestGovernor governor = new TestGovernor(4, monitor);
+        try {
+            monitor.occupancy = 0.95;
+            long now = System.currentTimeMillis();
+            governor.sample(now);
+            assertThat(governor.pauses).isEqualTo(1);
+            assertThat(governor.getLimit()).isEqualTo(1);
+            // the memory does not recover, so the processing is resumed anyway
+            now += 60000;
+            governor.sample(now);
+            assertThat(governor.resumes).isEqualTo(1);
+            // and not paused again right away
+            governor.sample(now + 1000);
+            governor.sample(now + 59000);
+            assertThat(governor.pauses).isEqualTo(1);
+            assertThat(governor.getLimit()).isEqualTo(1);
+            governor.sample(now + 60000);
+            assertThat(governor.pauses).isEqualTo(2);
+
+            // the backoff doubles with every forced resume in a row
+            now += 120000;
+            governor.sample(now);
+            assertThat(governor.resumes).isEqualTo(2);
+            governor.sample(now + 60000);
+            assertThat(governor.pauses).isEqualTo(2);
+            governor.sample(now + 120000);
+            assertThat(governor.pauses).isEqualTo(3);
+            assertThat(governor.getNumPauses()).isEqualTo(3);
+        } finally {
+            governor.stop();
+        }
+    }
+
+    @Test
+    public void testRecoveryMargin() {
+        FakeHeapMonitor monitor = new FakeHeapMonitor();
+        TestGovernor governor = new TestGovernor(4, monitor);
+        try {
+            long now = System.currentTimeMillis();
+            monitor.occupancy = 0.85;
+            governor.sample(now += 1000);
+            assertThat(governor.getLimit()).isEqualTo(2);
+            // just below the elevated threshold, the limit is kept
+            monitor.occupancy = 0.78;
+            governor.sample(now += 1000);
+            assertThat(governor.getLimit()).isEqualTo(2);
+            monitor.occupancy = 0.7;
+            governor.sample(now += 1000);
+            governor.sample(now += 1000);
+            governor.sample(now += 1000);
+            assertThat(governor.getLimit()).isEqualTo(4);
+            assertThat(governor.getNumThrottles()).isEqualTo(1);
+            assertThat(governor.pauses).isZero();
+        } finally {
+            governor.stop();
+        }
+    }
+
+    @Test
+    public void testMXBeanHeapMonitor() {
+        AtomicInteger gcs = new AtomicInteger();
+        MemoryMXBean memory = fake(MemoryMXBean.class, Map.of(
+                "getHeapMemoryUsage", new MemoryUsage(0, 800, 900, 1000),
+                "gc", gcs));
+        MemoryPoolMXBean eden = fake(MemoryPoolMXBean.class, Map.of(
+                "getName", "Eden", "getType", MemoryType.HEAP, "isValid", true,
+                "getUsage", new MemoryUsage(0, 400, 400, 400), "getCollectionUsage", new MemoryUsage(0, 0, 400, 400)));
+        MemoryPoolMXBean old = fake(MemoryPoolMXBean.class, Map.of(
+                "getName", "Old", "getType", MemoryType.HEAP, "isValid", true,
+                "getUsage", new MemoryUsage(0, 500, 500, 600), "getCollectionUsage", new MemoryUsage(0, 300, 500, 600)));
+        MemoryPoolMXBean metaspace = fake(MemoryPoolMXBean.class, Map.of(
+                "getName", "Metaspace", "getType", MemoryType.NON_HEAP, "isValid", true));
+        GarbageCollectorMXBean collector = fake(GarbageCollectorMXBean.class, Map.of("getCollectionTime", 42L));
+
+        MemoryGovernor.MXBeanHeapMonitor monitor = new MemoryGovernor.MXBeanHeapMonitor(memory, List.of(collector, collector), List.of(eden, old, metaspace));
+        // without the last collection of the HotSpot beans, the collection usage of the pools is used
+        assertThat(monitor.getOccupancyAfterGc()).isEqualTo(0.3);
+        assertThat(monitor.getGcTime()).isEqualTo(84);
+        monitor.gc();
+        assertThat(gcs.get()).isEqualTo(1);
+    }
+
+    /**
+     * Creates a fake MXBean that returns the given values. An {@link AtomicInteger} as value counts the calls instead.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T fake(Class<T> mxBeanInterface, Map<String, Object> values) {
+        return (T) Proxy.newProxyInstance(MemoryGovernorTest.class.getClassLoader(), new Class[]{mxBeanInterface}, (proxy, method, args) -> {
+            Object value = values.get(method.getName());
+            if (value instanceof AtomicInteger) {
+                ((AtomicInteger) value).incrementAndGet();
+                return null;
+            }
+            if (value == null && method.getName().equals("toString"))
+                return mxBeanInterface.getSimpleName();
+            if (value == null)
+                throw new UnsupportedOperationException(method.getName());
+            return value;
+        });
+    }
+
+    private static class FakeHeapMonitor implements MemoryGovernor.HeapMonitor {
+        private double occupancy;
+
+        @Override
+        public double getOccupancyAfterGc() {
+            return occupancy;
+        }
+
+        @Override
+        public long getGcTime() {
+            return 0;
+        }
+
+        @Override
+        public void gc() {
+        }
+    }
+
+    private static class TestGovernor extends MemoryGovernor {
+        private int pauses;
+        private int resumes;
+
+        private TestGovernor(int numThreads, HeapMonitor heapMonitor) {
+            super(null, numThreads, 0.8, 0.92, heapMonitor, Executors.newSingleThreadScheduledExecutor());
+        }
+
+        @Override
+        void pauseProcessing() {
+            ++pauses;
+        }
+
+        @Override
+        void resumeProcessing() {
+            ++resumes;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import de.julielab.jcore.pipeline.builder.base.main.ErrorPolicy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProcessingWatchdogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLostThreadsRecover() throws Exception {
+        File quarantineFile = new File(folder.getRoot(), "quarantine.txt");
+        List<Integer> terminations = new ArrayList<>();
+        StatusCallbackListener listener = new StatusCallbackListener(null, null, new ErrorPolicy(), quarantineFile) {
+            @Override
+            public void terminate(int status) {
+                terminations.add(status);
+            }
+        };
+        ProcessingWatchdog watchdog = new ProcessingWatchdog(1000, 2, listener, Executors.newSingleThreadScheduledExecutor());
+        try {
+            StuckDocument first = new StuckDocument(watchdog, "doc1");
+            long start = System.currentTimeMillis();
+            watchdog.check(start + 1500);
+            assertThat(watchdog.getNumStalls()).isEqualTo(1);
+            assertThat(QuarantineFile.readIdentifiers(quarantineFile)).containsExactly("doc1");
+            assertThat(folder.getRoot().list((dir, name) -> name.startsWith("pipeline-stall-doc1-"))).hasSize(1);
+            watchdog.check(start + 2500);
+            assertThat(watchdog.getNumLostThreads()).isEqualTo(1);
+            // the interruption is ignored like by CPU-bound code, but the thread finishes the document eventually
+            first.finish();
+            assertThat(watchdog.getNumLostThreads()).isZero();
+
+            StuckDocument second = new StuckDocument(watchdog, "doc2");
+            start = System.currentTimeMillis();
+            watchdog.check(start + 1500);
+            watchdog.check(start + 2500);
+            assertThat(watchdog.getNumLostThreads()).isEqualTo(1);
+            // only one of two threads is lost at a time, so the run goes on
+            assertThat(terminations).isEmpty();
+
+            StuckDocument third = new StuckDocument(watchdog, "doc3");
+            start = System.currentTimeMillis();
+            watchdog.check(start + 1500);
+            watchdog.check(start + 2500);
+            assertThat(watchdog.getNumLostThreads()).isEqualTo(2);
+            assertThat(terminations).containsExactly(1);
+            second.finish();
+            third.finish();
+        } finally {
+            watchdog.stop();
+        }
+    }
+
+    /**
+     * A processing thread that ignores interruptions until it is told to finish its document.
+     */
+    @Test
+    public void testInterruptCleared() throws Exception {
+        File quarantineFile = new File(folder.getRoot(), "quarantine.txt");
+        StatusCallbackListener listener = new StatusCallbackListener(null, null, new ErrorPolicy(), quarantineFile);
+        ProcessingWatchdog watchdog = new ProcessingWatchdog(1000, 2, listener, Executors.newSingleThreadScheduledExecutor());
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean release = new AtomicBoolean();
+        AtomicBoolean interruptedBefore = new AtomicBoolean();
+        AtomicBoolean interruptedAfter = new AtomicBoolean(true);
+        Thread thread = new Thread(() -> {
+            watchdog.documentStarted(Map.of("doc1", QuarantineFile.DOC_ID));
+            started.countDown();
+            // CPU-bound code that does not check the interrupt status
+            while (!release.get())
+                Thread.onSpinWait();
+            interruptedBefore.set(Thread.currentThread().isInterrupted());
+            watchdog.documentFinished();
+            interruptedAfter.set(Thread.currentThread().isInterrupted());
+        });
+        try {
+            thread.start();
+            started.await();
+            watchdog.check(System.currentTimeMillis() + 1500);
+            assertThat(watchdog.getNumStalls()).isEqualTo(1);
+        } finally {
+            release.set(true);
+            thread.join();
+            watchdog.stop();
+        }
+        assertThat(interruptedBefore).isTrue();
+        assertThat(interruptedAfter).isFalse();
+    }
+
+    @Test
+    public void testFindAnalysisComponent() {
+        StackTraceElement[] stackTrace = {
+                new StackTraceElement("java.util.regex.Pattern$Loop", "match", "Pattern.java", 4785),
+                new StackTraceElement("de.julielab.jcore.ae.Annotator", "process", "Annotator.java", 42),
+                new StackTraceElement("org.apache.uima.fit.component.JCasAnnotator_ImplBase", "process", "JCasAnnotator_ImplBase.java", 48),
+                new StackTraceElement("org.apache.uima.analysis_engine.impl.PrimitiveAnalysisEngine_impl", "callAnalysisComponentProcess", "PrimitiveAnalysisEngine_impl.java", 385),
+                new StackTraceElement("org.apache.uima.analysis_engine.asb.impl.ASB_impl$AggregateCasIterator", "processUntilNextOutputCas", "ASB_impl.java", 569),
+                new StackTraceElement("org.apache.uima.analysis_engine.impl.PrimitiveAnalysisEngine_impl", "callAnalysisComponentProcess", "PrimitiveAnalysisEngine_impl.java", 385),
+                new StackTraceElement("org.apache.uima.collection.impl.cpm.engine.ProcessingUnit", "run", "ProcessingUnit.java", 900)
+        };
+        assertThat(ProcessingWatchdog.findAnalysisComponent(stackTrace)).isEqualTo("de.julielab.jcore.ae.Annotator");
+        assertThat(ProcessingWatchdog.findAnalysisComponent(new StackTraceElement[]{stackTrace[6]})).isNull();
+    }
+
+    private static class StuckDocument {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final Thread thread;
+
+        private StuckDocument(ProcessingWatchdog watchdog, String docId) throws InterruptedException {
+            thread = new Thread(() -> {
+                watchdog.documentStarted(Map.of(docId, QuarantineFile.DOC_ID));
+                started.countDown();
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        // ignored
+                    }
+                }
+                watchdog.documentFinished();
+            });
+            thread.start();
+            started.await();
+        }
+
+        private void finish() throws InterruptedException {
+            release.countDown();
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package de.julielab.jcore.pipeline.runner.cpe;
+
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.collection.impl.metadata.cpe.CpeDescriptorFactory;
+import org.apache.uima.collection.metadata.CpeDescription;
+import org.apache.uima.fit.component.JCasCollectionReader_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.factory.CollectionReaderFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.util.Progress;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuarantineInputTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFindQuarantinedFiles() throws Exception {
+        File input = folder.newFolder("input");
+        File sub = new File(input, "sub");
+        sub.mkdir();
+        Files.writeString(new File(input, "doc1.xmi.gz").toPath(), "1");
+        Files.writeString(new File(input, "doc10.xmi.gz").toPath(), "10");
+        Files.writeString(new File(sub, "doc2.txt").toPath(), "2");
+        Files.writeString(new File(sub, "doc3.txt").toPath(), "3");
+        Map<String, String> quarantined = Map.of("doc1", QuarantineFile.DOC_ID, new File(sub, "doc3.txt").toURI().toString(), QuarantineFile.URI);
+        assertThat(QuarantineInput.findQuarantinedFiles(input.toPath(), quarantined)).extracting(p -> p.getFileName().toString()).containsExactlyInAnyOrder("doc1.xmi.gz", "doc3.txt");
+    }
+
+    @Test
+    public void testRestrictFileReader() throws Exception {
+        File input = folder.newFolder("input");
+        File sub = new File(input, "sub");
+        sub.mkdir();
+        Files.writeString(new File(input, "doc1.xml").toPath(), "1");
+        Files.writeString(new File(sub, "doc2.xml").toPath(), "2");
+        Files.writeString(new File(sub, "doc3.xml").toPath(), "3");
+        CpeDescription cpe = createCpe(CollectionReaderFactory.createReaderDescription(FileReader.class, FileReader.PARAM_INPUT_DIRECTORY, input.getAbsolutePath()));
+
+        QuarantineInput quarantineInput = new QuarantineInput(Map.of("doc2", QuarantineFile.DOC_ID));
+        try {
+            assertThat(quarantineInput.restrict(cpe, folder.getRoot())).isEqualTo(QuarantineInput.Restriction.RESTRICTED);
+            Path linkDirectory = quarantineInput.getLinkDirectory();
+            assertThat(QuarantineInput.getOverride(cpe.getAllCollectionCollectionReaders()[0].getCollectionIterator(), FileReader.PARAM_INPUT_DIRECTORY).getValue()).isEqualTo(linkDirectory.toString());
+            assertThat(linkDirectory.resolve("sub").toFile().list()).containsExactly("doc2.xml");
+            assertThat(Files.readString(linkDirectory.resolve("sub").resolve("doc2.xml"))).isEqualTo("2");
+        } finally {
+            quarantineInput.delete();
+        }
+        assertThat(quarantineInput.getLinkDirectory()).doesNotExist();
+        assertThat(new File(sub, "doc2.xml")).exists();
+    }
+
+    @Test
+    public void testUnknownDocuments() throws Exception {
+        File input = folder.newFolder("input");
+        Files.writeString(new File(input, "doc1.xml").toPath(), "1");
+        CpeDescription cpe = createCpe(CollectionReaderFactory.createReaderDescription(FileReader.class, FileReader.PARAM_INPUT_DIRECTORY, input.getAbsolutePath()));
+        assertThat(new QuarantineInput(Map.of("doc2", QuarantineFile.DOC_ID)).restrict(cpe, folder.getRoot())).isEqualTo(QuarantineInput.Restriction.WHOLE_COLLECTION);
+    }
+
+    @Test
+    public void testDatabaseReader() throws Exception {
+        CpeDescription cpe = createCpe(CollectionReaderFactory.createReaderDescription(DatabaseReader.class, QuarantineInput.COSTOSYS_CONFIG_PARAMETER, "costosys.xml"));
+        assertThat(new QuarantineInput(Map.of("12345", QuarantineFile.DOC_ID)).restrict(cpe, folder.getRoot())).isEqualTo(QuarantineInput.Restriction.NOT_DELIVERED_AGAIN);
+        // row identifiers only come from the database multiplier readers
+        CpeDescription fileCpe = createCpe(CollectionReaderFactory.createReaderDescription(FileReader.class, FileReader.PARAM_INPUT_DIRECTORY, folder.getRoot().getAbsolutePath()));
+        assertThat(new QuarantineInput(Map.of("12345", QuarantineFile.ROW_ID)).restrict(fileCpe, folder.getRoot())).isEqualTo(QuarantineInput.Restriction.NOT_DELIVERED_AGAIN);
+    }
+
+    private CpeDescription createCpe(CollectionReaderDescription readerDesc) throws Exception {
+        File readerFile = File.createTempFile("reader-", ".xml", folder.getRoot());
+        try (OutputStream os = new FileOutputStream(readerFile)) {
+            readerDesc.toXML(os);
+        }
+        CpeDescription cpe = CpeDescriptorFactory.produceDescriptor();
+        cpe.addCollectionReader(readerFile.getAbsolutePath());
+        return cpe;
+    }
+
+    public static class FileReader extends JCasCollectionReader_ImplBase {
+        public static final String PARAM_INPUT_DIRECTORY = "InputDirectory";
+        @ConfigurationParameter(name = PARAM_INPUT_DIRECTORY)
+        private String inputDirectory;
+
+        @Override
+        public void getNext(JCas jCas) throws CollectionException {
+        }
+
+        @Override
+        public boolean hasNext() {
+            return false;
+        }
+
+        @Override
+        public Progress[] getProgress() {
+            return new Progress[0];
+        }
+    }
+
+    public static class DatabaseReader extends JCasCollectionReader_ImplBase {
+        @ConfigurationParameter(name = QuarantineInput.COSTOSYS_CONFIG_PARAMETER)
+        private String costosysConfig;
+
+        @Override
+        public void getNext(JCas jCas) throws CollectionException {
+        }
+
+        @Override
+        public boolean hasNext() {
+            return false;
+        }
+
+        @Override
+        public Progress[] getProgress() {
+            return new Progress[0];
+        }
+    }
+}